@@ -0,0 +1,227 @@
+package com.muen.hitmouse;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+// 成就引擎：读取游戏事件流，按事件增量推进每条成就的进度，从不回头扫描历史记录
+// 每条规则在创建时编译成一个小状态机（触发事件、条件、重置事件、目标），按事件类型建好索引，
+// 每个事件只经过关心它的几条规则，每条 O(1)；进度和已解锁位图编码成几十字节，随结算的记录一起存在偏好中
+public class AchievementEngine implements GameEventRing.Consumer {
+    private static final String TAG = "AchievementEngine";
+    private static final String KEY_STATE = "achievements";
+    private static final int VERSION = 1;
+    public static final int HUNTER_SCORE = 99; // 评级 "地鼠猎手" 的得分
+    public static final int MASTER_SCORE = 166; // 评级 "地鼠大师" 的得分
+
+    public static final int MODE_EASY = 1;
+    public static final int MODE_HARD = 2;
+    public static final int MODE_ANY = MODE_EASY | MODE_HARD;
+
+    private static final int COUNT = 1; // 条件满足时进度加一
+    private static final int PEAK = 2; // 进度取事件值的最大值
+
+    // 解锁通知，在主线程中触发
+    public interface Listener {
+        void onUnlocked(Rule rule);
+    }
+
+    // 一条成就规则：trigger 事件满足条件时推进进度，reset 事件把进度清零，进度达到 target 时解锁
+    public static final class Rule {
+        public final String title;
+        public final String description;
+        final int kind;
+        final int trigger;
+        final int minValue; // 事件值不小于它才算满足条件
+        final int maxValue; // 事件值不大于它才算满足条件
+        final int reset; // 0 表示不重置
+        final int target;
+        final int modes;
+
+        Rule(String title, String description, int kind, int trigger, int minValue, int maxValue, int reset, int target, int modes) {
+            this.title = title;
+            this.description = description;
+            this.kind = kind;
+            this.trigger = trigger;
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+            this.reset = reset;
+            this.target = target;
+            this.modes = modes;
+        }
+    }
+
+    // 成就列表，只能在末尾追加（序号即保存的位置）
+    public static final Rule[] RULES = {
+            new Rule("百发百中", "一局中连续击中 100 只地鼠，没有失误", COUNT,
+                    GameEventRing.HIT, 1, Integer.MAX_VALUE, GameEventRing.MISS, 100, MODE_ANY),
+            new Rule("连击达人", "累计 50 次打出 " + HunterInput.MAX_COMBO + " 连击", COUNT,
+                    GameEventRing.COMBO, HunterInput.MAX_COMBO, HunterInput.MAX_COMBO, 0, 50, MODE_ANY),
+            new Rule("千锤百炼", "累计击中 1000 只地鼠", COUNT,
+                    GameEventRing.HIT, 1, Integer.MAX_VALUE, 0, 1000, MODE_ANY),
+            new Rule("地鼠猎手", "一局得分达到 " + HUNTER_SCORE, PEAK,
+                    GameEventRing.GAME_OVER, 0, Integer.MAX_VALUE, 0, HUNTER_SCORE, MODE_ANY),
+            new Rule("地鼠大师", "困难模式一局得分达到 " + MASTER_SCORE, PEAK,
+                    GameEventRing.GAME_OVER, 0, Integer.MAX_VALUE, 0, MASTER_SCORE, MODE_HARD),
+    };
+
+    private static final int[] NONE = new int[0];
+    private static final int TYPES = 8; // 大于所有事件类型
+
+    private final SharedPreferences preferences;
+    private final int[] progress = new int[RULES.length];
+    private long unlocked = 0; // 第 i 位为第 i 条规则
+    private final int[][] triggers = new int[TYPES][]; // 按事件类型索引的规则序号
+    private final int[][] resets = new int[TYPES][];
+    private final int[] perGame; // 有重置事件的规则，一局结束或丢失事件时清零
+    private GameEventRing.Cursor cursor;
+    private long lost = 0; // 已处理过的丢失事件数
+    private Listener listener;
+    private boolean dirty = false;
+
+    public AchievementEngine(SharedPreferences preferences, int mode) {
+        this.preferences = preferences;
+        int[] triggerCounts = new int[TYPES];
+        int[] resetCounts = new int[TYPES];
+        int perGameCount = 0;
+        for (Rule rule : RULES) {
+            if ((rule.modes & mode) == 0) continue; // 本模式下不可能达成的规则不参与
+            triggerCounts[rule.trigger]++;
+            if (rule.reset != 0) {
+                resetCounts[rule.reset]++;
+                perGameCount++;
+            }
+        }
+        for (int type = 0; type < TYPES; type++) {
+            triggers[type] = triggerCounts[type] == 0 ? NONE : new int[triggerCounts[type]];
+            resets[type] = resetCounts[type] == 0 ? NONE : new int[resetCounts[type]];
+        }
+        perGame = new int[perGameCount];
+        int[] triggerFill = new int[TYPES];
+        int[] resetFill = new int[TYPES];
+        int perGameFill = 0;
+        for (int i = 0; i < RULES.length; i++) {
+            Rule rule = RULES[i];
+            if ((rule.modes & mode) == 0) continue;
+            triggers[rule.trigger][triggerFill[rule.trigger]++] = i;
+            if (rule.reset != 0) {
+                resets[rule.reset][resetFill[rule.reset]++] = i;
+                perGame[perGameFill++] = i;
+            }
+        }
+        load();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // 从事件流的当前位置开始跟踪
+    public void track(GameEventRing events) {
+        cursor = events.newCursor();
+    }
+
+    // 读取尚未处理的事件
+    public void poll() {
+        if (cursor != null) cursor.poll(this);
+    }
+
+    @Override
+    public void onEvent(GameEventRing.Event event) {
+        if (cursor != null && cursor.getLostCount() != lost) {
+            lost = cursor.getLostCount();
+            resetPerGame(); // 落后超过一圈，中间可能有读不到的失误，连续类的进度从丢失处重新开始
+        }
+        int type = event.type;
+        if (type <= 0 || type >= TYPES) return;
+        int[] reset = resets[type];
+        for (int i = 0; i < reset.length; i++) {
+            progress[reset[i]] = 0;
+        }
+        int[] rules = triggers[type];
+        for (int i = 0; i < rules.length; i++) {
+            advance(rules[i], event.value);
+        }
+        if (type == GameEventRing.GAME_OVER) {
+            resetPerGame(); // 进度由结算时的 takeChanges 随记录保存
+        }
+    }
+
+    private void advance(int index, int value) {
+        Rule rule = RULES[index];
+        if (value < rule.minValue || value > rule.maxValue) return;
+        long bit = 1L << index;
+        if ((unlocked & bit) != 0) return; // 已解锁的不再推进
+        int next = rule.kind == PEAK ? Math.max(progress[index], value) : progress[index] + 1;
+        if (next == progress[index]) return;
+        progress[index] = next;
+        if (rule.reset == 0) dirty = true; // 每局清零的进度不保存
+        if (next >= rule.target) {
+            unlocked |= bit;
+            dirty = true;
+            Log.d(TAG, "Unlocked: " + rule.title);
+            if (listener != null) listener.onUnlocked(rule);
+        }
+    }
+
+    private void resetPerGame() {
+        for (int i = 0; i < perGame.length; i++) {
+            progress[perGame[i]] = 0;
+        }
+    }
+
+    public boolean isUnlocked(int index) {
+        return (unlocked & (1L << index)) != 0;
+    }
+
+    public int getProgress(int index) {
+        return isUnlocked(index) ? RULES[index].target : progress[index];
+    }
+
+    public int getUnlockedCount() {
+        return Long.bitCount(unlocked);
+    }
+
+    // 结算时取出有变化的状态，交给 RecordStore.saveGame 与本局记录一起提交；没有变化时返回 null
+    // 状态在调用时编码：version(byte) unlocked(long) count(byte) progress(int * count)
+    public RecordStore.Extra takeChanges() {
+        if (!dirty) return null;
+        ByteBuffer out = ByteBuffer.allocate(1 + 8 + 1 + 4 * RULES.length);
+        out.put((byte) VERSION).putLong(unlocked).put((byte) RULES.length);
+        for (int i = 0; i < RULES.length; i++) {
+            out.putInt(RULES[i].reset == 0 ? progress[i] : 0);
+        }
+        String encoded = Base64.getEncoder().encodeToString(out.array());
+        dirty = false;
+        return (saved, editor) -> editor.putString(KEY_STATE, encoded);
+    }
+
+    // 没有结算就放弃的对局（中途退出）单独保存有变化的状态
+    public void save() {
+        RecordStore.Extra changes = takeChanges();
+        if (changes == null) return;
+        SharedPreferences.Editor editor = preferences.edit();
+        changes.writeTo(preferences, editor);
+        editor.apply();
+    }
+
+    private void load() {
+        String encoded = preferences.getString(KEY_STATE, null);
+        if (encoded == null) return;
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+            if (in.get() != VERSION) return;
+            long savedUnlocked = in.getLong();
+            int count = Math.min(in.get(), RULES.length); // 新版本追加的规则从零开始
+            int[] saved = new int[count];
+            for (int i = 0; i < count; i++) {
+                saved[i] = in.getInt();
+            }
+            unlocked = savedUnlocked;
+            System.arraycopy(saved, 0, progress, 0, count);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Discarding unreadable achievements: " + e.getMessage()); // 从零开始
+        }
+    }
+}
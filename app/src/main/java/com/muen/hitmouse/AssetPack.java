@@ -0,0 +1,171 @@
+package com.muen.hitmouse;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.graphics.Bitmap;
+import android.util.Log;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// 构建时生成的资源包（见 buildSrc 的 AssetPackTask）：精灵图集及缩小版本、每个精灵的命中区域、预解码的音效 PCM
+// 以不压缩方式打进 APK，启动时整体内存映射；取用时只有内存拷贝，不再解码 PNG 和 OGG
+// 资源包不存在（例如未运行生成任务）时 get 返回 null，调用方退回运行时解码
+public class AssetPack {
+    private static final String TAG = "AssetPack";
+    public static final String FILE_NAME = "hitmouse.pack";
+    private static final int MAGIC = 0x484D4150; // "HMAP"
+    private static final short VERSION = 1;
+    private static final byte TYPE_SPRITE = 1;
+    private static final byte TYPE_MASK = 2;
+    private static final byte TYPE_CLIP = 3;
+    private static final int[] VARIANT_FACTORS = {4, 2}; // 缩小版本，从小到大
+
+    private static AssetPack instance;
+    private static boolean opened = false;
+
+    private static class Entry {
+        int a, b, c, d; // 精灵：x y 宽 高；命中区域：宽 高；音效：声道数 帧数
+        int offset;
+        int length;
+    }
+
+    private final ByteBuffer map;
+    private final int sampleRate;
+    private final int density;
+    private final int atlasWidth, atlasHeight, atlasOffset;
+    private final Map<String, Entry> sprites = new HashMap<>();
+    private final Map<String, Entry> masks = new HashMap<>();
+    private final Map<String, Entry> clips = new HashMap<>();
+    private Bitmap atlas; // 首次取精灵时从映射区拷贝生成
+
+    // 全局只映射一次，打开失败后不再重试
+    public static synchronized AssetPack get(Context context) {
+        if (!opened) {
+            opened = true;
+            instance = open(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private static AssetPack open(Context context) {
+        long start = System.nanoTime();
+        try (AssetFileDescriptor afd = context.getAssets().openFd(FILE_NAME);
+             FileInputStream in = afd.createInputStream()) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength()); // 关闭后映射仍然有效
+            AssetPack pack = fromBuffer(map);
+            Log.d(TAG, "Mapped " + afd.getLength() + " bytes in " + (System.nanoTime() - start) / 1000 + "us");
+            return pack;
+        } catch (IOException | RuntimeException e) {
+            Log.d(TAG, "No usable asset pack, decoding at runtime: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 解析文件头和目录，数据区保持映射不拷贝
+    static AssetPack fromBuffer(ByteBuffer buffer) {
+        return new AssetPack(buffer.order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    private AssetPack(ByteBuffer map) {
+        this.map = map;
+        if (map.getInt(0) != MAGIC || map.getShort(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported asset pack");
+        }
+        int count = map.getShort(6) & 0xFFFF;
+        sampleRate = map.getInt(8);
+        density = map.getInt(12);
+        atlasWidth = map.getInt(16);
+        atlasHeight = map.getInt(20);
+        atlasOffset = map.getInt(24);
+        ByteBuffer directory = map.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        directory.position(28);
+        byte[] nameBytes = new byte[255];
+        for (int i = 0; i < count; i++) {
+            byte type = directory.get();
+            int nameLength = directory.get() & 0xFF;
+            directory.get(nameBytes, 0, nameLength);
+            String name = new String(nameBytes, 0, nameLength, StandardCharsets.UTF_8);
+            Entry entry = new Entry();
+            entry.a = directory.getInt();
+            entry.b = directory.getInt();
+            entry.c = directory.getInt();
+            entry.d = directory.getInt();
+            entry.offset = directory.getInt();
+            entry.length = directory.getInt();
+            if (type == TYPE_SPRITE) {
+                sprites.put(name, entry);
+            } else if (type == TYPE_MASK) {
+                masks.put(name, entry);
+            } else if (type == TYPE_CLIP) {
+                clips.put(name, entry);
+            }
+        }
+    }
+
+    public boolean hasSprite(String name) {
+        return sprites.containsKey(name);
+    }
+
+    // 精灵在图集中的位置：x y 宽 高，不存在时返回 null；测试中核对构建端写入的目录
+    int[] getSpriteBounds(String name) {
+        Entry entry = sprites.get(name);
+        return entry == null ? null : new int[]{entry.a, entry.b, entry.c, entry.d};
+    }
+
+    // 取原尺寸精灵，不存在时返回 null
+    public synchronized Bitmap getSprite(String name) {
+        Entry entry = sprites.get(name);
+        if (entry == null) return null;
+        if (atlas == null) {
+            atlas = Bitmap.createBitmap(atlasWidth, atlasHeight, Bitmap.Config.ARGB_8888);
+            ByteBuffer pixels = map.duplicate();
+            pixels.position(atlasOffset);
+            pixels.limit(atlasOffset + atlasWidth * atlasHeight * 4);
+            atlas.copyPixelsFromBuffer(pixels);
+            atlas.setDensity(density);
+        }
+        Bitmap sprite = Bitmap.createBitmap(atlas, entry.a, entry.b, entry.c, entry.d);
+        sprite.setDensity(density);
+        return sprite;
+    }
+
+    // 取边长不小于 minSize 的最小版本，绘制到小洞里时不必每帧缩小大图
+    public Bitmap getSprite(String name, int minSize) {
+        for (int factor : VARIANT_FACTORS) {
+            Entry entry = sprites.get(name + "@" + factor);
+            if (entry != null && Math.max(entry.c, entry.d) >= minSize) {
+                return getSprite(name + "@" + factor);
+            }
+        }
+        return getSprite(name);
+    }
+
+    // 按预计算的源尺寸命中区域缩放到视图尺寸，不存在时返回 null
+    public HitMask getHitMask(String name, int viewWidth, int viewHeight) {
+        Entry entry = masks.get(name);
+        if (entry == null) return null;
+        ByteBuffer bits = map.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        bits.position(entry.offset);
+        bits.limit(entry.offset + entry.length);
+        return HitMask.fromMaskFitCenter(bits.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer(),
+                entry.a, entry.b, viewWidth, viewHeight);
+    }
+
+    // 取立体声 PCM，采样率与期望不符或不存在时返回 null
+    public short[] getClip(String name, int expectedSampleRate) {
+        Entry entry = clips.get(name);
+        if (entry == null || expectedSampleRate != sampleRate || entry.a != AudioMixer.CHANNELS) return null;
+        short[] pcm = new short[entry.b * entry.a];
+        ByteBuffer data = map.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        data.position(entry.offset);
+        data.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(pcm);
+        return pcm;
+    }
+}
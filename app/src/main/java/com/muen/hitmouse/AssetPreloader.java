@@ -0,0 +1,177 @@
+package com.muen.hitmouse;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 资源预加载：音频、位图在后台线程并行加载，棋盘几何在首次布局后记录，全部就绪后才开始游戏
+public class AssetPreloader {
+    private static final String TAG = "AssetPreloader";
+    private static final int THREAD_COUNT = 3;
+
+    public interface Callback {
+        void onAssetsReady(AssetPreloader preloader);
+    }
+
+    // 从布局完成的视图中提取棋盘几何信息
+    public interface GeometryCapture {
+        BoardGeometry capture();
+    }
+
+    private final Context appContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT, r -> new Thread(r, "AssetPreloader"));
+    private final Map<String, Runnable> tasks = new LinkedHashMap<>(); // 名称 -> 后台任务，失败时也到达屏障
+    private final List<String> pendingNames = new ArrayList<>(); // 需要等待的资源名称
+    private final SparseArray<Bitmap> bitmaps = new SparseArray<>();
+    private ReadinessBarrier barrier;
+    private volatile BoardGeometry geometry;
+    private View geometrySource;
+    private GeometryCapture geometryCapture;
+
+    public AssetPreloader(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    // 在后台解码并缓存音频片段
+    public AssetPreloader audio(int... resIds) {
+        for (int resId : resIds) {
+            String name = "audio:" + appContext.getResources().getResourceEntryName(resId);
+            tasks.put(name, () -> AudioEngine.get(appContext).load(resId));
+            pendingNames.add(name);
+        }
+        return this;
+    }
+
+    // 在后台解码位图，供后续创建视图和计算命中区域使用；资源包中有同名精灵时直接从图集中取，不再解码 PNG
+    public AssetPreloader bitmaps(int... resIds) {
+        for (int resId : resIds) {
+            String entryName = appContext.getResources().getResourceEntryName(resId);
+            String name = "bitmap:" + entryName;
+            tasks.put(name, () -> {
+                AssetPack pack = AssetPack.get(appContext);
+                Bitmap bitmap = pack != null ? pack.getSprite(entryName) : null;
+                if (bitmap == null) {
+                    bitmap = BitmapFactory.decodeResource(appContext.getResources(), resId);
+                }
+                synchronized (bitmaps) {
+                    bitmaps.put(resId, bitmap);
+                }
+            });
+            pendingNames.add(name);
+        }
+        return this;
+    }
+
+    // 在后台执行一个任意的加载任务（例如打开录像文件）
+    public AssetPreloader task(String name, Runnable task) {
+        tasks.put(name, task);
+        pendingNames.add(name);
+        return this;
+    }
+
+    // 等待 source 完成首次布局后记录几何信息
+    public AssetPreloader geometry(View source, GeometryCapture capture) {
+        this.geometrySource = source;
+        this.geometryCapture = capture;
+        pendingNames.add("geometry");
+        return this;
+    }
+
+    // 开始加载，所有资源就绪后在主线程回调
+    public void start(Callback callback) {
+        barrier = new ReadinessBarrier(() -> mainHandler.post(() -> {
+            executor.shutdown();
+            logLoadTimes();
+            callback.onAssetsReady(this);
+        }));
+        for (String name : pendingNames) {
+            barrier.register(name);
+        }
+        for (Map.Entry<String, Runnable> task : tasks.entrySet()) {
+            executor.execute(barrier.arriveAfter(task.getKey(), task.getValue())); // 任务失败也不能阻塞游戏开始
+        }
+        if (geometrySource != null) {
+            captureGeometryAfterLayout();
+        }
+        barrier.seal();
+    }
+
+    private void captureGeometryAfterLayout() {
+        geometrySource.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
+            @Override
+            public void onGlobalLayout() {
+                BoardGeometry captured = geometryCapture.capture();
+                if (!captured.isValid()) return; // 尺寸尚未确定，等待下一次布局
+                geometrySource.getViewTreeObserver().removeOnGlobalLayoutListener(this);
+                geometry = captured;
+                barrier.arrive("geometry");
+            }
+        });
+    }
+
+    public Bitmap getBitmap(int resId) {
+        synchronized (bitmaps) {
+            return bitmaps.get(resId);
+        }
+    }
+
+    // 取边长不小于 minSize 的最小缩小版本（来自资源包），没有时返回原图
+    public Bitmap getBitmap(int resId, int minSize) {
+        AssetPack pack = AssetPack.get(appContext);
+        Bitmap variant = pack != null ? pack.getSprite(appContext.getResources().getResourceEntryName(resId), minSize) : null;
+        return variant != null ? variant : getBitmap(resId);
+    }
+
+    // 按视图渲染尺寸生成命中区域，优先使用资源包中预计算的结果，位图不可用时退化为整个矩形
+    public HitMask buildHitMask(int resId, int viewWidth, int viewHeight) {
+        AssetPack pack = AssetPack.get(appContext);
+        HitMask packed = pack != null ? pack.getHitMask(appContext.getResources().getResourceEntryName(resId), viewWidth, viewHeight) : null;
+        if (packed != null) return packed;
+        Bitmap bitmap = getBitmap(resId);
+        if (bitmap == null) {
+            Log.w(TAG, "Bitmap not loaded, using filled hit mask for " + resId);
+            return HitMask.filled(viewWidth, viewHeight);
+        }
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        return HitMask.fromArgbFitCenter(pixels, width, height, viewWidth, viewHeight, HitMask.DEFAULT_ALPHA_THRESHOLD);
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public Map<String, Long> getLoadTimesMs() {
+        return barrier.getLoadTimesMs();
+    }
+
+    // 取消尚未完成的加载（页面提前退出时调用）
+    public void cancel() {
+        executor.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    private void logLoadTimes() {
+        for (Map.Entry<String, Long> entry : barrier.getLoadTimesMs().entrySet()) {
+            Log.d(TAG, "Loaded " + entry.getKey() + " in " + entry.getValue() + "ms");
+        }
+        for (Map.Entry<String, String> failure : barrier.getFailures().entrySet()) {
+            Log.w(TAG, "Failed to load " + failure.getKey() + ": " + failure.getValue()); // 缺少的资源由使用方退化处理
+        }
+    }
+}
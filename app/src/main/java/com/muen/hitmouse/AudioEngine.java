@@ -0,0 +1,245 @@
+package com.muen.hitmouse;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+import android.util.SparseIntArray;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 全局唯一的音频引擎：片段只解码一次并缓存为 PCM，音效和背景音乐混合到同一个 AudioTrack
+public class AudioEngine {
+    private static final String TAG = "AudioEngine";
+    private static final int SAMPLE_RATE = 44100; // 输出采样率
+    private static final int MAX_VOICES = 8; // 同时播放的音效数量
+    private static final int BLOCK_FRAMES = 256; // 每次混音的帧数（约 5.8ms），决定触发延迟上限
+    private static final long IDLE_WAIT_MS = 1000; // 空闲时等待新声音的超时
+
+    private static AudioEngine instance;
+
+    private final Context appContext;
+    private final AudioMixer mixer = new AudioMixer(SAMPLE_RATE, MAX_VOICES, BLOCK_FRAMES);
+    private final SparseIntArray clipIds = new SparseIntArray(); // 资源 id -> 片段 id
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> new Thread(r, "AudioLoader"));
+    private Thread audioThread;
+
+    private AudioEngine(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    public static synchronized AudioEngine get(Context context) {
+        if (instance == null) {
+            instance = new AudioEngine(context);
+        }
+        return instance;
+    }
+
+    public AudioMixer getMixer() {
+        return mixer;
+    }
+
+    // 同步加载并缓存片段（在后台线程调用），已加载时直接返回
+    public int load(int resId) {
+        synchronized (clipIds) {
+            int cached = clipIds.get(resId, -1);
+            if (cached >= 0) return cached;
+        }
+        long start = System.nanoTime();
+        AssetPack pack = AssetPack.get(appContext);
+        short[] pcm = pack != null ? pack.getClip(appContext.getResources().getResourceEntryName(resId), SAMPLE_RATE) : null; // 构建时已解码的片段
+        if (pcm == null) {
+            pcm = decode(resId);
+        }
+        int clipId;
+        synchronized (clipIds) {
+            clipId = clipIds.get(resId, -1);
+            if (clipId < 0) {
+                clipId = mixer.addClip(pcm);
+                clipIds.put(resId, clipId);
+            }
+        }
+        Log.d(TAG, "Loaded clip " + resId + " in " + (System.nanoTime() - start) / 1000000 + "ms, frames: " + pcm.length / AudioMixer.CHANNELS);
+        return clipId;
+    }
+
+    // 在加载线程中异步预加载
+    public void preloadAsync(int... resIds) {
+        loader.execute(() -> {
+            for (int resId : resIds) {
+                load(resId);
+            }
+        });
+    }
+
+    public boolean isLoaded(int resId) {
+        synchronized (clipIds) {
+            return clipIds.get(resId, -1) >= 0;
+        }
+    }
+
+    // 播放音效，不阻塞调用线程；尚未加载完成的片段排在加载线程中已提交的预加载之后，解码完成即播放
+    public void playEffect(int resId, float gain) {
+        int clipId;
+        synchronized (clipIds) {
+            clipId = clipIds.get(resId, -1);
+        }
+        if (clipId < 0) {
+            loader.execute(() -> {
+                int loaded = load(resId);
+                ensureAudioThread();
+                mixer.play(loaded, gain);
+            });
+            return;
+        }
+        ensureAudioThread();
+        mixer.play(clipId, gain);
+    }
+
+    public void playEffect(int resId) {
+        playEffect(resId, 1.0f);
+    }
+
+    public void stopEffects() {
+        mixer.stopVoices();
+    }
+
+    // 播放背景音乐，未加载时先在加载线程解码
+    public void playMusic(int resId, boolean loop) {
+        loader.execute(() -> {
+            int clipId = load(resId);
+            ensureAudioThread();
+            mixer.playMusic(clipId, loop);
+        });
+    }
+
+    public void stopMusic() {
+        mixer.stopMusic();
+    }
+
+    private synchronized void ensureAudioThread() {
+        if (audioThread != null && audioThread.isAlive()) return;
+        audioThread = new Thread(this::runAudioLoop, "AudioEngine");
+        audioThread.setPriority(Thread.MAX_PRIORITY);
+        audioThread.start();
+    }
+
+    // 音频线程：持续混音写入 AudioTrack，没有声音时暂停输出并等待
+    private void runAudioLoop() {
+        int minBuffer = AudioTrack.getMinBufferSize(SAMPLE_RATE, AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT);
+        AudioTrack track = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_GAME)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setSampleRate(SAMPLE_RATE)
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .setChannelMask(AudioFormat.CHANNEL_OUT_STEREO)
+                        .build())
+                .setBufferSizeInBytes(minBuffer)
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY)
+                .build();
+        short[] block = new short[BLOCK_FRAMES * AudioMixer.CHANNELS];
+        try {
+            track.play();
+            while (!Thread.currentThread().isInterrupted()) {
+                if (mixer.isIdle()) {
+                    track.pause();
+                    track.flush();
+                    mixer.awaitWork(IDLE_WAIT_MS);
+                    if (mixer.isIdle()) continue;
+                    track.play();
+                }
+                int frames = mixer.mix(block, BLOCK_FRAMES);
+                track.write(block, 0, frames * AudioMixer.CHANNELS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            track.release();
+        }
+    }
+
+    // 使用 MediaCodec 将 raw 资源解码为 16 位 PCM 并转换为输出格式
+    private short[] decode(int resId) {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try (AssetFileDescriptor afd = appContext.getResources().openRawResourceFd(resId)) {
+            extractor.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+            MediaFormat format = extractor.getTrackFormat(0);
+            extractor.selectTrack(0);
+            int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            short[] pcm = new short[sampleRate * channels]; // 初始容量 1 秒，不够时扩容
+            int size = 0;
+            boolean inputDone = false;
+            boolean outputDone = false;
+            while (!outputDone) {
+                if (!inputDone) {
+                    int inIndex = codec.dequeueInputBuffer(10000);
+                    if (inIndex >= 0) {
+                        ByteBuffer in = codec.getInputBuffer(inIndex);
+                        int read = extractor.readSampleData(in, 0);
+                        if (read < 0) {
+                            codec.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inIndex, 0, read, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+                int outIndex = codec.dequeueOutputBuffer(info, 10000);
+                if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outFormat = codec.getOutputFormat();
+                    sampleRate = outFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                    channels = outFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                } else if (outIndex >= 0) {
+                    ByteBuffer out = codec.getOutputBuffer(outIndex);
+                    out.position(info.offset);
+                    out.limit(info.offset + info.size);
+                    int samples = info.size / 2;
+                    if (size + samples > pcm.length) {
+                        short[] grown = new short[Math.max(pcm.length * 2, size + samples)];
+                        System.arraycopy(pcm, 0, grown, 0, size);
+                        pcm = grown;
+                    }
+                    out.order(ByteOrder.nativeOrder()).asShortBuffer().get(pcm, size, samples);
+                    size += samples;
+                    codec.releaseOutputBuffer(outIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        outputDone = true;
+                    }
+                }
+            }
+            short[] trimmed = new short[size];
+            System.arraycopy(pcm, 0, trimmed, 0, size);
+            return AudioMixer.toStereo(trimmed, channels, sampleRate, SAMPLE_RATE);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Failed to decode clip " + resId, e);
+            return new short[0];
+        } finally {
+            if (codec != null) {
+                codec.stop();
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.muen.hitmouse;
+
+// 纯 Java 混音核心：把已解码的 PCM 片段（音效 + 背景音乐）混合成一路立体声输出
+// 不依赖任何 Android 类，可以在 JVM 上直接测试
+public class AudioMixer {
+    public static final int CHANNELS = 2; // 输出固定为立体声
+    private static final int MAX_CLIPS = 16; // 最多缓存的片段数量
+    private static final int MAX_PENDING = 32; // 待触发队列长度
+
+    private final int sampleRate;
+    private final int maxVoices;
+    private final int maxBlockFrames;
+
+    // 已缓存的片段，下标即片段 id
+    private final short[][] clips = new short[MAX_CLIPS][];
+    private int clipCount = 0;
+
+    // 音效声部，全部预分配，混音时不产生对象
+    private final int[] voiceClip;
+    private final int[] voicePos;
+    private final float[] voiceGain;
+    private final long[] voiceSerial;
+    private long serial = 0;
+
+    // 背景音乐声部
+    private int musicClip = -1;
+    private int musicPos = 0;
+    private float musicGain = 1.0f;
+    private boolean musicLoop = true;
+    private boolean musicPaused = false;
+
+    // UI 线程写入、音频线程在下一块开始时取出的触发队列
+    private final int[] pendingClip = new int[MAX_PENDING];
+    private final float[] pendingGain = new float[MAX_PENDING];
+    private int pendingCount = 0;
+    private boolean stopVoicesRequested = false;
+
+    private final int[] accumulator; // 混音累加缓冲区
+    private int stolenVoices = 0; // 因声部已满被抢占的次数
+
+    public AudioMixer(int sampleRate, int maxVoices, int maxBlockFrames) {
+        this.sampleRate = sampleRate;
+        this.maxVoices = maxVoices;
+        this.maxBlockFrames = maxBlockFrames;
+        this.voiceClip = new int[maxVoices];
+        this.voicePos = new int[maxVoices];
+        this.voiceGain = new float[maxVoices];
+        this.voiceSerial = new long[maxVoices];
+        this.accumulator = new int[maxBlockFrames * CHANNELS];
+        for (int i = 0; i < maxVoices; i++) {
+            voiceClip[i] = -1;
+        }
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getMaxBlockFrames() {
+        return maxBlockFrames;
+    }
+
+    // 注册一段已经转换为输出格式（立体声、输出采样率）的 PCM，返回片段 id
+    // 解码失败的空片段也会注册（避免反复解码），但播放时被忽略
+    public synchronized int addClip(short[] stereoPcm) {
+        if (clipCount >= MAX_CLIPS) {
+            throw new IllegalStateException("Too many clips: " + clipCount);
+        }
+        clips[clipCount] = stereoPcm;
+        return clipCount++;
+    }
+
+    // 触发一个音效，实际开始于下一次 mix 调用，因此延迟不超过一个混音块
+    public synchronized void play(int clipId, float gain) {
+        if (clipId < 0 || clipId >= clipCount || clips[clipId].length == 0) return;
+        if (pendingCount == MAX_PENDING) {
+            // 队列已满时覆盖最后一个，保证新触发不会被无限推迟
+            pendingCount--;
+        }
+        pendingClip[pendingCount] = clipId;
+        pendingGain[pendingCount] = gain;
+        pendingCount++;
+        notifyAll();
+    }
+
+    public synchronized void playMusic(int clipId, boolean loop) {
+        if (clipId < 0 || clipId >= clipCount || clips[clipId].length == 0) return; // 空片段循环会让混音陷入死循环
+        musicClip = clipId;
+        musicPos = 0;
+        musicLoop = loop;
+        musicPaused = false;
+        notifyAll();
+    }
+
+    public synchronized void stopMusic() {
+        musicClip = -1;
+        musicPos = 0;
+    }
+
+    public synchronized void setMusicPaused(boolean paused) {
+        musicPaused = paused;
+        if (!paused) notifyAll();
+    }
+
+    public synchronized void setMusicGain(float gain) {
+        musicGain = gain;
+    }
+
+    public synchronized boolean isMusicPlaying() {
+        return musicClip >= 0 && !musicPaused;
+    }
+
+    // 停止所有正在播放和等待触发的音效（背景音乐不受影响）
+    public synchronized void stopVoices() {
+        pendingCount = 0;
+        stopVoicesRequested = true;
+    }
+
+    // 是否有任何声音需要输出，音频线程据此决定是否休眠
+    public synchronized boolean isIdle() {
+        if (pendingCount > 0 || (musicClip >= 0 && !musicPaused)) return false;
+        for (int i = 0; i < maxVoices; i++) {
+            if (voiceClip[i] >= 0) return false;
+        }
+        return true;
+    }
+
+    // 音频线程在空闲时等待，直到有新的声音被触发
+    public synchronized void awaitWork(long timeoutMs) throws InterruptedException {
+        if (isIdle()) wait(timeoutMs);
+    }
+
+    public synchronized int getStolenVoices() {
+        return stolenVoices;
+    }
+
+    public synchronized int getActiveVoices() {
+        int active = 0;
+        for (int i = 0; i < maxVoices; i++) {
+            if (voiceClip[i] >= 0) active++;
+        }
+        return active;
+    }
+
+    // 混合 frames 帧到 out（交错立体声），返回写入的帧数
+    public int mix(short[] out, int frames) {
+        if (frames > maxBlockFrames) frames = maxBlockFrames;
+        int samples = frames * CHANNELS;
+        for (int i = 0; i < samples; i++) {
+            accumulator[i] = 0;
+        }
+
+        synchronized (this) {
+            drainPending();
+
+            // 背景音乐
+            if (musicClip >= 0 && !musicPaused) {
+                short[] pcm = clips[musicClip];
+                int written = 0;
+                if (pcm.length == 0) musicClip = -1; // 防御：空片段不能循环
+                while (musicClip >= 0 && written < samples) {
+                    int n = Math.min(samples - written, pcm.length - musicPos);
+                    addScaled(pcm, musicPos, written, n, musicGain);
+                    written += n;
+                    musicPos += n;
+                    if (musicPos >= pcm.length) {
+                        if (!musicLoop) {
+                            musicClip = -1;
+                            musicPos = 0;
+                            break;
+                        }
+                        musicPos = 0;
+                    }
+                }
+            }
+
+            // 音效声部
+            for (int v = 0; v < maxVoices; v++) {
+                int clip = voiceClip[v];
+                if (clip < 0) continue;
+                short[] pcm = clips[clip];
+                int n = Math.min(samples, pcm.length - voicePos[v]);
+                addScaled(pcm, voicePos[v], 0, n, voiceGain[v]);
+                voicePos[v] += n;
+                if (voicePos[v] >= pcm.length) {
+                    voiceClip[v] = -1;
+                }
+            }
+        }
+
+        // 硬限幅到 16 位
+        for (int i = 0; i < samples; i++) {
+            int s = accumulator[i];
+            out[i] = (short) (s > Short.MAX_VALUE ? Short.MAX_VALUE : s < Short.MIN_VALUE ? Short.MIN_VALUE : s);
+        }
+        return frames;
+    }
+
+    // 把待触发的音效分配到声部，声部已满时抢占最早开始的声部
+    private void drainPending() {
+        if (stopVoicesRequested) {
+            for (int v = 0; v < maxVoices; v++) {
+                voiceClip[v] = -1;
+            }
+            stopVoicesRequested = false;
+        }
+        for (int p = 0; p < pendingCount; p++) {
+            int target = -1;
+            long oldest = Long.MAX_VALUE;
+            for (int v = 0; v < maxVoices; v++) {
+                if (voiceClip[v] < 0) {
+                    target = v;
+                    break;
+                }
+                if (voiceSerial[v] < oldest) {
+                    oldest = voiceSerial[v];
+                    target = v;
+                }
+            }
+            if (voiceClip[target] >= 0) stolenVoices++;
+            voiceClip[target] = pendingClip[p];
+            voicePos[target] = 0;
+            voiceGain[target] = pendingGain[p];
+            voiceSerial[target] = ++serial;
+        }
+        pendingCount = 0;
+    }
+
+    private void addScaled(short[] src, int srcPos, int dstPos, int count, float gain) {
+        if (gain == 1.0f) {
+            for (int i = 0; i < count; i++) {
+                accumulator[dstPos + i] += src[srcPos + i];
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                accumulator[dstPos + i] += (int) (src[srcPos + i] * gain);
+            }
+        }
+    }
+
+    // 将任意声道数、采样率的 16 位 PCM 转换为输出格式（立体声 + 线性插值重采样）
+    public static short[] toStereo(short[] pcm, int channels, int srcRate, int dstRate) {
+        int srcFrames = pcm.length / channels;
+        if (srcFrames == 0) return new short[0];
+        long dstFrames = (long) srcFrames * dstRate / srcRate;
+        short[] out = new short[(int) dstFrames * CHANNELS];
+        double step = (double) srcRate / dstRate;
+        for (int f = 0; f < dstFrames; f++) {
+            double pos = f * step;
+            int i0 = (int) pos;
+            int i1 = Math.min(i0 + 1, srcFrames - 1);
+            double frac = pos - i0;
+            for (int c = 0; c < CHANNELS; c++) {
+                int srcChannel = Math.min(c, channels - 1); // 单声道复制到左右声道
+                int a = pcm[i0 * channels + srcChannel];
+                int b = pcm[i1 * channels + srcChannel];
+                out[f * CHANNELS + c] = (short) (a + (b - a) * frac);
+            }
+        }
+        return out;
+    }
+}
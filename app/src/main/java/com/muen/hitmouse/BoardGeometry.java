@@ -0,0 +1,31 @@
+package com.muen.hitmouse;
+
+// 布局完成后一次性记录的棋盘几何信息，避免游戏过程中反复查询视图尺寸
+public class BoardGeometry {
+    public final int width; // 游戏区域宽度
+    public final int height; // 游戏区域高度
+    public final int mouseWidth; // 地鼠视图宽度
+    public final int mouseHeight; // 地鼠视图高度
+    private final float[] exclusionRects; // 地鼠不能覆盖的界面区域（按钮、分数等）的 left, top, right, bottom
+
+    public BoardGeometry(int width, int height, int mouseWidth, int mouseHeight, float[] exclusionRects) {
+        this.width = width;
+        this.height = height;
+        this.mouseWidth = mouseWidth;
+        this.mouseHeight = mouseHeight;
+        this.exclusionRects = exclusionRects;
+    }
+
+    public boolean isValid() {
+        return width > mouseWidth && height > mouseHeight && mouseWidth > 0 && mouseHeight > 0;
+    }
+
+    public int getExclusionCount() {
+        return exclusionRects.length / 4;
+    }
+
+    // 第 index 个排除区域，依次为 left, top, right, bottom
+    public float getExclusion(int index, int edge) {
+        return exclusionRects[index * 4 + edge];
+    }
+}
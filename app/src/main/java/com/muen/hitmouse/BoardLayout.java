@@ -0,0 +1,51 @@
+package com.muen.hitmouse;
+
+// 棋盘几何：根据棋盘定义和可用区域计算每个洞的位置，洞的位置按公式计算，不逐个存储
+// 命中判断由坐标直接算出格子下标，与棋盘大小无关
+public class BoardLayout {
+    private final BoardSpec spec;
+    private final float cellSize; // 格子边长（洞 + 间隔）
+    private final float holeSize; // 洞的边长
+    private final float inset; // 洞在格子内的偏移
+    private final float originX; // 棋盘在区域内居中后的左上角
+    private final float originY;
+
+    public BoardLayout(BoardSpec spec, int width, int height) {
+        this.spec = spec;
+        this.cellSize = Math.min((float) width / spec.cols, (float) height / spec.rows);
+        this.holeSize = cellSize * (1f - spec.spacing);
+        this.inset = (cellSize - holeSize) / 2f;
+        this.originX = (width - cellSize * spec.cols) / 2f;
+        this.originY = (height - cellSize * spec.rows) / 2f;
+    }
+
+    public BoardSpec getSpec() {
+        return spec;
+    }
+
+    public float getHoleSize() {
+        return holeSize;
+    }
+
+    public float getHoleLeft(int index) {
+        return originX + (index % spec.cols) * cellSize + inset;
+    }
+
+    public float getHoleTop(int index) {
+        return originY + (index / spec.cols) * cellSize + inset;
+    }
+
+    // 返回坐标所在洞的下标，落在间隔或棋盘外时返回 -1
+    public int holeAt(float x, float y) {
+        float localX = x - originX;
+        float localY = y - originY;
+        if (localX < 0 || localY < 0) return -1;
+        int col = (int) (localX / cellSize);
+        int row = (int) (localY / cellSize);
+        if (col >= spec.cols || row >= spec.rows) return -1;
+        float inCellX = localX - col * cellSize - inset;
+        float inCellY = localY - row * cellSize - inset;
+        if (inCellX < 0 || inCellY < 0 || inCellX >= holeSize || inCellY >= holeSize) return -1;
+        return row * spec.cols + col;
+    }
+}
@@ -0,0 +1,59 @@
+package com.muen.hitmouse;
+
+// 棋盘定义：行列数、洞间距以及地鼠数量随时间增长的曲线，支持 3x3 到 20x20
+public class BoardSpec {
+    public static final int MIN_SIZE = 3;
+    public static final int MAX_SIZE = 20;
+    public static final int[] PRESET_SIZES = {3, 5, 8, 12, 20}; // 主界面可选的棋盘尺寸
+
+    // 经典九宫格：与原先固定的 9 个洞保持一致，10 秒后每 10 秒增加一只，最多 5 只
+    public static final BoardSpec CLASSIC = new BoardSpec(3, 3, 0.15f, 1, GameEngine.MAX_MOUSE_COUNT, 10000, 10000);
+
+    public final int rows;
+    public final int cols;
+    public final float spacing; // 洞与洞之间的间隔，占格子边长的比例
+    public final int startMoles; // 初始地鼠数量
+    public final int maxMoles; // 地鼠数量上限
+    public final int rampStartMs; // 开始增加地鼠的时间
+    public final int rampIntervalMs; // 每增加一只地鼠的间隔
+
+    public BoardSpec(int rows, int cols, float spacing, int startMoles, int maxMoles, int rampStartMs, int rampIntervalMs) {
+        if (rows < MIN_SIZE || rows > MAX_SIZE || cols < MIN_SIZE || cols > MAX_SIZE) {
+            throw new IllegalArgumentException("Board size out of range: " + rows + "x" + cols);
+        }
+        if (startMoles < 1 || maxMoles < startMoles || maxMoles > rows * cols) {
+            throw new IllegalArgumentException("Invalid mole count: " + startMoles + ".." + maxMoles);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.spacing = spacing;
+        this.startMoles = startMoles;
+        this.maxMoles = maxMoles;
+        this.rampStartMs = rampStartMs;
+        this.rampIntervalMs = rampIntervalMs;
+    }
+
+    // 生成 size x size 的棋盘，地鼠数量按洞数等比放大，并在约 50 秒时达到上限
+    public static BoardSpec square(int size) {
+        if (size == 3) return CLASSIC;
+        int holes = size * size;
+        int maxMoles = Math.max(GameEngine.MAX_MOUSE_COUNT, holes / 6);
+        int startMoles = Math.max(1, holes / 25);
+        int interval = Math.max(1000, 40000 / Math.max(1, maxMoles - startMoles));
+        return new BoardSpec(size, size, 0.15f, startMoles, maxMoles, 10000, interval);
+    }
+
+    public int getHoleCount() {
+        return rows * cols;
+    }
+
+    // 游戏进行 elapsedMs 毫秒后应出现的地鼠数量
+    public int moleCountAt(int elapsedMs) {
+        if (elapsedMs < rampStartMs) return startMoles;
+        return Math.min(maxMoles, startMoles + (elapsedMs - rampStartMs) / rampIntervalMs);
+    }
+
+    public String getLabel() {
+        return rows + "×" + cols;
+    }
+}
@@ -0,0 +1,211 @@
+package com.muen.hitmouse;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.View;
+
+// 棋盘组件：负责所有洞和地鼠的绘制与命中判断
+// 洞只在尺寸变化时绘制一次到缓存位图，每帧只画一张背景加上当前出现的地鼠，开销不随棋盘变大而增长
+public class BoardView extends View implements DuelEngine.Board {
+    private BoardSpec spec = BoardSpec.CLASSIC;
+    private BoardLayout layout;
+    private Bitmap holeSprite;
+    private Bitmap mouseSprite;
+    private Bitmap holesCache; // 预先绘制好所有洞的背景
+    private HitMask holeMask; // 按洞的渲染尺寸生成
+    private HitMask mouseMask;
+
+    private boolean[] occupied = new boolean[spec.getHoleCount()]; // 每个洞是否有地鼠
+    private int[] activeHoles = new int[spec.getHoleCount()]; // 当前有地鼠的洞（无尽模式可超过 maxMoles）
+    private int activeCount = 0;
+    private int[] ghostHoles = new int[spec.getHoleCount()]; // 幽灵对手当前的地鼠，半透明绘制
+    private int ghostCount = 0;
+
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint ghostPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final RectF drawRect = new RectF();
+
+    public BoardView(Context context) {
+        super(context);
+        ghostPaint.setAlpha(90);
+    }
+
+    public BoardView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        ghostPaint.setAlpha(90);
+    }
+
+    public void setSpec(BoardSpec spec) {
+        this.spec = spec;
+        occupied = new boolean[spec.getHoleCount()];
+        activeHoles = new int[spec.getHoleCount()];
+        activeCount = 0;
+        ghostHoles = new int[spec.getHoleCount()];
+        ghostCount = 0;
+        rebuild(getWidth(), getHeight());
+    }
+
+    @Override
+    public BoardSpec getSpec() {
+        return spec;
+    }
+
+    @Override
+    public BoardLayout getBoardLayout() {
+        return layout;
+    }
+
+    // 低画质时绘制地鼠不做位图过滤，缩放更快但边缘略有锯齿
+    public void setLowQuality(boolean lowQuality) {
+        bitmapPaint.setFilterBitmap(!lowQuality);
+        ghostPaint.setFilterBitmap(!lowQuality);
+        invalidate();
+    }
+
+    // 设置预加载的精灵图，随后生成背景缓存和命中区域
+    public void setSprites(Bitmap holeSprite, Bitmap mouseSprite) {
+        this.holeSprite = holeSprite;
+        this.mouseSprite = mouseSprite;
+        rebuild(getWidth(), getHeight());
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        rebuild(w, h);
+    }
+
+    private void rebuild(int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        layout = new BoardLayout(spec, width, height);
+        if (holeSprite == null || mouseSprite == null) {
+            invalidate();
+            return;
+        }
+        int holeSize = Math.max(1, (int) layout.getHoleSize());
+        holeMask = buildMask(holeSprite, holeSize);
+        mouseMask = buildMask(mouseSprite, holeSize);
+
+        if (holesCache == null || holesCache.getWidth() != width || holesCache.getHeight() != height) {
+            if (holesCache != null) holesCache.recycle();
+            holesCache = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } else {
+            holesCache.eraseColor(0);
+        }
+        Canvas canvas = new Canvas(holesCache);
+        for (int i = 0; i < spec.getHoleCount(); i++) {
+            drawSprite(canvas, holeSprite, i, bitmapPaint);
+        }
+        invalidate();
+    }
+
+    private static HitMask buildMask(Bitmap sprite, int size) {
+        int width = sprite.getWidth();
+        int height = sprite.getHeight();
+        int[] pixels = new int[width * height];
+        sprite.getPixels(pixels, 0, width, 0, 0, width, height);
+        return HitMask.fromArgbFitCenter(pixels, width, height, size, size, HitMask.DEFAULT_ALPHA_THRESHOLD);
+    }
+
+    // 按 fitCenter 方式把精灵画到第 index 个洞的位置
+    private void drawSprite(Canvas canvas, Bitmap sprite, int index, Paint paint) {
+        float size = layout.getHoleSize();
+        float scale = Math.min(size / sprite.getWidth(), size / sprite.getHeight());
+        float w = sprite.getWidth() * scale;
+        float h = sprite.getHeight() * scale;
+        float left = layout.getHoleLeft(index) + (size - w) / 2f;
+        float top = layout.getHoleTop(index) + (size - h) / 2f;
+        drawRect.set(left, top, left + w, top + h);
+        canvas.drawBitmap(sprite, null, drawRect, paint);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (holesCache == null) return;
+        canvas.drawBitmap(holesCache, 0, 0, null);
+        for (int i = 0; i < ghostCount; i++) {
+            if (!occupied[ghostHoles[i]]) drawSprite(canvas, mouseSprite, ghostHoles[i], ghostPaint);
+        }
+        for (int i = 0; i < activeCount; i++) {
+            drawSprite(canvas, mouseSprite, activeHoles[i], bitmapPaint);
+        }
+    }
+
+    // 在指定的洞中显示地鼠，之前的地鼠全部隐藏
+    @Override
+    public void showMoles(int[] holes, int count) {
+        clearMoles();
+        count = Math.min(count, activeHoles.length);
+        for (int i = 0; i < count; i++) {
+            activeHoles[i] = holes[i];
+            occupied[holes[i]] = true;
+        }
+        activeCount = count;
+        invalidate();
+    }
+
+    @Override
+    public void clearMoles() {
+        for (int i = 0; i < activeCount; i++) {
+            occupied[activeHoles[i]] = false;
+        }
+        activeCount = 0;
+        invalidate();
+    }
+
+    @Override
+    public void hideMole(int hole) {
+        if (!occupied[hole]) return;
+        occupied[hole] = false;
+        for (int i = 0; i < activeCount; i++) {
+            if (activeHoles[i] == hole) {
+                activeHoles[i] = activeHoles[--activeCount];
+                break;
+            }
+        }
+        invalidate();
+    }
+
+    // 显示幽灵对手的一波地鼠（半透明，不参与命中判断）
+    public void showGhostMoles(int[] holes, int count) {
+        count = Math.min(count, ghostHoles.length);
+        System.arraycopy(holes, 0, ghostHoles, 0, count);
+        ghostCount = count;
+        invalidate();
+    }
+
+    public void hideGhostMole(int hole) {
+        for (int i = 0; i < ghostCount; i++) {
+            if (ghostHoles[i] == hole) {
+                ghostHoles[i] = ghostHoles[--ghostCount];
+                invalidate();
+                return;
+            }
+        }
+    }
+
+    public void clearGhostMoles() {
+        ghostCount = 0;
+        invalidate();
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    // 命中判断：坐标为本视图内的局部坐标，返回被击中的洞下标，未击中返回 -1
+    @Override
+    public int hitTest(float x, float y) {
+        if (layout == null || holeMask == null) return -1;
+        int hole = layout.holeAt(x, y);
+        if (hole < 0 || !occupied[hole]) return -1;
+        float localX = x - layout.getHoleLeft(hole);
+        float localY = y - layout.getHoleTop(hole);
+        return holeMask.contains(localX, localY) || mouseMask.contains(localX, localY) ? hole : -1;
+    }
+}
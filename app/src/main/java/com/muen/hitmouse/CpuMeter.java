@@ -0,0 +1,98 @@
+package com.muen.hitmouse;
+
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+// 耗电估算：只在对局进行时累计进程 CPU 时间（包括音频等后台线程）和主线程 CPU 时间，
+// 对局结束时换算成每分钟游戏的 CPU 毫秒数，按帧率模式分别保存平均值，主页面的帧率按钮上显示
+// 平均值存在 "user" 偏好中，随本局记录由 RecordStore.saveGame 一起提交，结算不额外写偏好
+public class CpuMeter {
+    private static final String TAG = "CpuMeter";
+    private static final long MIN_PLAY_MS = 10_000; // 太短的对局不计入
+    private static final int AVERAGE_WEIGHT = 4; // 新样本占 1/4 的滑动平均
+
+    // 时间来源，Android 中为 SystemClock 和 Process，测试中可替换为虚拟时间
+    interface Source {
+        long uptimeMillis();
+
+        long processCpuMillis();
+
+        long threadCpuMillis(); // 调用线程（主线程）的 CPU 时间
+    }
+
+    private static final Source SYSTEM = new Source() {
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+
+        @Override
+        public long processCpuMillis() {
+            return Process.getElapsedCpuTime();
+        }
+
+        @Override
+        public long threadCpuMillis() {
+            return SystemClock.currentThreadTimeMillis();
+        }
+    };
+
+    private final Source source;
+    private final int mode;
+    private boolean running = false;
+    private long startUptime, startCpu, startMainCpu;
+    private long playMs, cpuMs, mainCpuMs;
+
+    public CpuMeter(int mode) {
+        this(mode, SYSTEM);
+    }
+
+    // 测试中传入虚拟时间
+    CpuMeter(int mode, Source source) {
+        this.mode = mode;
+        this.source = source;
+    }
+
+    // 对局开始或继续时调用，必须在主线程
+    public void start() {
+        if (running) return;
+        running = true;
+        startUptime = source.uptimeMillis();
+        startCpu = source.processCpuMillis();
+        startMainCpu = source.threadCpuMillis();
+    }
+
+    // 暂停时调用，暂停期间不计入
+    public void pause() {
+        if (!running) return;
+        running = false;
+        playMs += source.uptimeMillis() - startUptime;
+        cpuMs += source.processCpuMillis() - startCpu;
+        mainCpuMs += source.threadCpuMillis() - startMainCpu;
+    }
+
+    // 对局结束：输出本局结果，返回该模式平均值的更新，交给 RecordStore.saveGame 与记录一起提交；对局太短时返回 null
+    public RecordStore.Extra finish() {
+        pause();
+        if (playMs < MIN_PLAY_MS) return null;
+        int perMinute = (int) (cpuMs * 60_000 / playMs);
+        Log.d(TAG, FrameClock.getLabel(mode) + ": " + perMinute + "ms CPU per minute of play (main thread "
+                + mainCpuMs * 60_000 / playMs + "ms), " + playMs / 1000 + "s played");
+        String key = key(mode);
+        return (preferences, editor) -> {
+            int previous = preferences.getInt(key, -1);
+            editor.putInt(key, previous < 0 ? perMinute : previous + (perMinute - previous) / AVERAGE_WEIGHT);
+        };
+    }
+
+    // 该模式下每分钟游戏的平均 CPU 毫秒数，还没有数据时返回 -1；preferences 为 "user" 偏好
+    public static int getCpuPerMinute(SharedPreferences preferences, int mode) {
+        return preferences.getInt(key(mode), -1);
+    }
+
+    private static String key(int mode) {
+        return "cpu_per_minute_" + mode;
+    }
+}
@@ -0,0 +1,111 @@
+package com.muen.hitmouse;
+
+import java.nio.ByteBuffer;
+
+// 动态难度：用指数加权移动平均跟踪玩家的命中率和反应时间，每波刷新时按命中率与目标的差值调整难度等级，
+// 等级决定刷新间隔的缩放和额外的地鼠数量；刷新间隔不短于平均反应时间的 1.5 倍，保证地鼠来得及被打到
+// 全部使用定点整数运算，每个事件 O(1)，同样的击中序列在任何设备上得到完全相同的结果，回放和测试依赖这一点
+// fixed() 返回的控制器不做调整，完全沿用原来的难度曲线
+public class DifficultyController {
+    public static final int ONE = 1 << 16; // 定点数的 1.0
+    public static final int DEFAULT_TARGET_PERCENT = 70; // 目标命中率
+    public static final int STATE_SIZE = 4 * 3; // writeState 写出的字节数
+    private static final int RATE_SHIFT = 4; // 命中率的平滑权重 1/16，约等于最近 16 只地鼠
+    private static final int REACTION_SHIFT = 3; // 反应时间的平滑权重 1/8
+    private static final int GAIN_SHIFT = 3; // 每波按误差的 1/8 调整等级
+    private static final int INTERVAL_RANGE_PERCENT = 40; // 等级为 ±1 时刷新间隔缩放 ∓40%
+    private static final int MAX_EXTRA_MOLES = 2; // 等级为 ±1 时每波地鼠增减的数量
+    private static final int REACTION_HEADROOM_PERCENT = 150; // 刷新间隔至少为平均反应时间的 150%
+    private static final int INITIAL_REACTION_MS = 500;
+
+    private final boolean adaptive;
+    private final int target; // 定点数
+    private int hitRate; // 定点数，1 次击中记 1，1 次失误记 0
+    private int reactionMs; // 地鼠出现到被击中的平均时间
+    private int level; // 定点数，-ONE（最简单）到 ONE（最难），0 为原曲线
+
+    // 不做调整的控制器：刷新间隔和地鼠数量完全由原曲线决定
+    public static DifficultyController fixed() {
+        return new DifficultyController(false, DEFAULT_TARGET_PERCENT);
+    }
+
+    public DifficultyController(int targetPercent) {
+        this(true, targetPercent);
+    }
+
+    private DifficultyController(boolean adaptive, int targetPercent) {
+        this.adaptive = adaptive;
+        this.target = ONE / 100 * targetPercent;
+        reset();
+    }
+
+    // 新的一局从原曲线开始
+    public void reset() {
+        hitRate = target;
+        reactionMs = INITIAL_REACTION_MS;
+        level = 0;
+    }
+
+    // 击中一只地鼠，reactionMs 为从这一波出现到击中的游戏时间
+    public void onHit(long reactionMs) {
+        hitRate += (ONE - hitRate) >> RATE_SHIFT;
+        int sample = (int) Math.max(0, Math.min(reactionMs, 10000));
+        this.reactionMs += (sample - this.reactionMs) >> REACTION_SHIFT;
+    }
+
+    // 一波结束时有 count 只没被击中，count 不超过位置数量
+    public void onMiss(int count) {
+        for (int i = 0; i < count; i++) {
+            hitRate -= hitRate >> RATE_SHIFT;
+        }
+    }
+
+    // 每波刷新前调用一次：命中率高于目标则变难，低于目标则变简单
+    public void onWave() {
+        if (!adaptive) return;
+        level += (hitRate - target) >> GAIN_SHIFT;
+        level = Math.max(-ONE, Math.min(ONE, level));
+    }
+
+    // 在原曲线的刷新间隔上按等级缩放，结果不短于 min 和反应时间下限
+    public long adjustInterval(long base, long min) {
+        if (!adaptive) return base;
+        long scaled = base - base * INTERVAL_RANGE_PERCENT / 100 * level / ONE;
+        long reactionFloor = (long) reactionMs * REACTION_HEADROOM_PERCENT / 100;
+        return Math.max(Math.max(min, reactionFloor), scaled);
+    }
+
+    // 在原曲线的地鼠数量上按等级增减（四舍五入），结果在 1 到 slotCount 之间
+    public int adjustMoleCount(int base, int slotCount) {
+        if (!adaptive) return base;
+        int extra = (MAX_EXTRA_MOLES * level + (level >= 0 ? ONE / 2 : -ONE / 2)) / ONE;
+        return Math.max(1, Math.min(slotCount, base + extra));
+    }
+
+    public void writeState(ByteBuffer out) {
+        out.putInt(hitRate).putInt(reactionMs).putInt(level);
+    }
+
+    public void readState(ByteBuffer in) {
+        hitRate = in.getInt();
+        reactionMs = in.getInt();
+        level = in.getInt();
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public int getHitRatePercent() {
+        return (int) ((long) hitRate * 100 / ONE);
+    }
+
+    public int getReactionMs() {
+        return reactionMs;
+    }
+
+    // 当前难度等级，-100 到 100
+    public int getLevelPercent() {
+        return (int) ((long) level * 100 / ONE);
+    }
+}
@@ -0,0 +1,242 @@
+package com.muen.hitmouse;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.ActivityInfo;
+import android.graphics.Bitmap;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Vibrator;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.cardview.widget.CardView;
+import com.muen.hitmouse.databinding.LayoutPlayDuelBinding;
+
+// 双人对战页面：上下两个棋盘，两个玩家各自一个锤子，同一块屏幕同时操作
+// 计时、调度、音频和击中反馈都只有一份，由两个玩家共享
+public class DuelActivity extends AppCompatActivity {
+    private static final String TAG = "DuelActivity";
+    private static final int PLAYER_BOTTOM = 0; // 玩家 1，位于下半屏
+    private static final int PLAYER_TOP = 1; // 玩家 2，位于上半屏
+
+    private LayoutPlayDuelBinding binding;
+    private SharedPreferences sharedPreferences;
+    private AudioEngine audioEngine;
+    private AssetPreloader preloader;
+    private final IdleInitializer idleInitializer = new IdleInitializer();
+    private DuelEngine duelEngine;
+    private FeedbackDispatcher feedback;
+    private QualityGovernor qualityGovernor; // 两块棋盘同时绘制，掉帧时同样降低效果
+    private FrameClock frameClock; // 按所选帧率绘制两把锤子
+    private final HunterInput[] inputs = new HunterInput[DuelEngine.PLAYERS];
+    private boolean isPaused = false;
+    private boolean isMuted = false;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final GameScheduler scheduler = new GameScheduler(handler::postDelayed);
+
+    // 多点触控：按下位置决定触点属于哪个玩家，击中判断只在该玩家的棋盘上进行
+    private final MultiTouchDispatcher.Listener touchListener = new MultiTouchDispatcher.Listener() {
+        @Override
+        public int playerAt(float x, float y) {
+            return y < binding.duelLayout.getHeight() / 2f ? PLAYER_TOP : PLAYER_BOTTOM;
+        }
+
+        @Override
+        public void onHunterMove(int player, HunterInput input) {
+            long currentTime = System.currentTimeMillis();
+            if (isPaused || !input.canHit(currentTime)) return;
+            if (duelEngine.hit(player, input.getTipX(), input.getTipY())) {
+                int comboCount = input.onHit(currentTime);
+                float size = duelEngine.getLastHitSize();
+                feedback.onHit(player, duelEngine.getLastHitX(), duelEngine.getLastHitY(), size, size, comboCount);
+            }
+        }
+
+        @Override
+        public void onHunterUp(int player, HunterInput input) {
+            feedback.hideComboCounter(player);
+        }
+    };
+
+    // 对战输出：得分和计时写到文字上，结束时显示胜负
+    private final DuelEngine.Callback duelCallback = new DuelEngine.Callback() {
+        @Override
+        public void setScoreText(int player, CharSequence text) {
+            (player == PLAYER_TOP ? binding.scoreTop : binding.scoreBottom).setText(text);
+        }
+
+        @Override
+        public void setTimeText(String text) {
+            binding.time.setText(text);
+        }
+
+        @Override
+        public void onGameOver(int winner) {
+            onDuelOver(winner);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_PORTRAIT);
+        getWindow().setFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN, WindowManager.LayoutParams.FLAG_FULLSCREEN);
+
+        sharedPreferences = getSharedPreferences("user", MODE_PRIVATE);
+        isMuted = sharedPreferences.getBoolean("isMuted", false);
+        frameClock = new FrameClock(FrameClock.getMode(sharedPreferences));
+        frameClock.applyTo(getWindow());
+        binding = LayoutPlayDuelBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+
+        audioEngine = AudioEngine.get(this);
+        if (!isMuted) {
+            idleInitializer.add("music_service", () -> startService(new Intent(this, MusicService.class)));
+        }
+
+        // 两个棋盘使用同一个定义，双方公平
+        BoardSpec spec = BoardSpec.square(getIntent().getIntExtra(PlayActivity.EXTRA_BOARD_SIZE, BoardSpec.MIN_SIZE));
+        BoardView[] boards = new BoardView[DuelEngine.PLAYERS];
+        boards[PLAYER_BOTTOM] = binding.boardBottom;
+        boards[PLAYER_TOP] = binding.boardTop;
+        for (BoardView board : boards) {
+            board.setSpec(spec);
+        }
+        duelEngine = new DuelEngine(scheduler, duelCallback, boards, SystemClock.uptimeMillis());
+        duelEngine.setStepMillis(frameClock.getStepMillis());
+
+        // 一个反馈调度器，每个玩家一个通道
+        feedback = new FeedbackDispatcher(this, scheduler, binding.duelLayout, binding.boomBottom, audioEngine);
+        feedback.addLane(binding.boomTop);
+        feedback.setMuted(isMuted);
+        if (frameClock.isPowerSave()) {
+            feedback.setQualityTier(QualityGovernor.TIER_REDUCED);
+        }
+        qualityGovernor = new QualityGovernor(getWindowManager().getDefaultDisplay().getRefreshRate());
+        qualityGovernor.setListener(tier -> {
+            feedback.setQualityTier(tier);
+            binding.boardBottom.setLowQuality(tier == QualityGovernor.TIER_MINIMAL);
+            binding.boardTop.setLowQuality(tier == QualityGovernor.TIER_MINIMAL);
+        });
+        idleInitializer.add("vibrator", () -> feedback.setVibrator((Vibrator) getSystemService(Context.VIBRATOR_SERVICE)));
+
+        inputs[PLAYER_BOTTOM] = new HunterInput(binding.hunterBottom, frameClock);
+        inputs[PLAYER_TOP] = new HunterInput(binding.hunterTop, frameClock);
+        binding.hunterBottom.setLayerType(View.LAYER_TYPE_HARDWARE, null); // 锤子各自一个图层，移动时只改图层位置
+        binding.hunterTop.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        binding.duelLayout.setOnTouchListener(new MultiTouchDispatcher(inputs, touchListener));
+        binding.btnPause.setOnClickListener(v -> togglePause());
+        binding.btnBack.setOnClickListener(v -> {
+            duelEngine.endGame();
+            finish();
+        });
+
+        preloadAssetsAndStart();
+        idleInitializer.start();
+    }
+
+    // 精灵和音效就绪、布局完成后再开始
+    private void preloadAssetsAndStart() {
+        preloader = new AssetPreloader(this)
+                .audio(R.raw.kick, R.raw.start)
+                .bitmaps(R.drawable.mouse, R.drawable.hole)
+                .geometry(binding.duelLayout, () -> {
+                    // 棋盘完成布局（洞尺寸确定）后才算就绪
+                    BoardLayout boardLayout = binding.boardBottom.getBoardLayout();
+                    int holeSize = boardLayout != null ? (int) boardLayout.getHoleSize() : 0;
+                    return new BoardGeometry(binding.duelLayout.getWidth(), binding.duelLayout.getHeight(),
+                            holeSize, holeSize, new float[0]);
+                });
+        preloader.start(loaded -> {
+            if (isFinishing() || isDestroyed()) return;
+            int holeSize = loaded.getGeometry().mouseWidth;
+            Bitmap hole = loaded.getBitmap(R.drawable.hole, holeSize);
+            Bitmap mouse = loaded.getBitmap(R.drawable.mouse, holeSize);
+            binding.boardBottom.setSprites(hole, mouse);
+            binding.boardTop.setSprites(hole, mouse);
+            if (!isMuted) {
+                audioEngine.playEffect(R.raw.start);
+            }
+            Toast.makeText(this, "双人对战开始！", Toast.LENGTH_SHORT).show();
+            duelEngine.startGame();
+            if (!frameClock.isPowerSave()) {
+                qualityGovernor.start(); // 省电模式不做每帧的画质调节
+            }
+        });
+    }
+
+    private void togglePause() {
+        if (!isPaused) {
+            duelEngine.stopGame();
+            binding.btnPause.setText("继续");
+        } else {
+            duelEngine.resumeGame();
+            binding.btnPause.setText("暂停");
+        }
+        isPaused = !isPaused;
+    }
+
+    // 对战结束，显示胜负，对战成绩不计入个人记录
+    private void onDuelOver(int winner) {
+        duelEngine.endGame();
+        feedback.cancel();
+        qualityGovernor.stop();
+        int bottom = duelEngine.getScore(PLAYER_BOTTOM);
+        int top = duelEngine.getScore(PLAYER_TOP);
+        Log.d(TAG, "Duel over, scores: " + bottom + " vs " + top);
+
+        View dialogView = LayoutInflater.from(this).inflate(R.layout.dialog_game_over, null);
+        CardView cardView = (CardView) dialogView;
+        TextView tvTitle = dialogView.findViewById(R.id.tv_title);
+        TextView tvMessage = dialogView.findViewById(R.id.tv_message);
+        Button btnRestart = dialogView.findViewById(R.id.btn_restart);
+        Button btnBack = dialogView.findViewById(R.id.btn_back);
+
+        tvTitle.setText(winner == PLAYER_BOTTOM ? "玩家1获胜！" : winner == PLAYER_TOP ? "玩家2获胜！" : "平局");
+        tvMessage.setText("玩家1得分: " + bottom + "\n玩家2得分: " + top);
+        cardView.setCardBackgroundColor(winner < 0 ? 0xFFC0C0C0 : 0xFFFFD700);
+        tvTitle.setTextColor(0xFF333333);
+        tvMessage.setTextColor(0xFF666666);
+
+        AlertDialog dialog = new AlertDialog.Builder(this).setView(dialogView).create();
+        dialog.setCancelable(false);
+        btnRestart.setOnClickListener(v -> {
+            dialog.dismiss();
+            recreate();
+        });
+        btnBack.setOnClickListener(v -> {
+            dialog.dismiss();
+            finish();
+        });
+        dialog.show();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (preloader != null) {
+            preloader.cancel();
+        }
+        idleInitializer.cancel();
+        audioEngine.stopEffects();
+        handler.removeCallbacksAndMessages(null);
+        if (isFinishing()) {
+            stopService(new Intent(this, MusicService.class)); // 配置变化重建时音乐不中断
+        }
+        duelEngine.endGame();
+        feedback.cancel();
+        qualityGovernor.stop();
+        frameClock.stop();
+    }
+}
@@ -0,0 +1,172 @@
+package com.muen.hitmouse;
+
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.Random;
+
+// 双人对战引擎：每个玩家一个棋盘和一个 GameCore，由同一个 GameLoop 驱动
+// 两个核心使用相同的随机种子，双方看到的地鼠位置和节奏完全一致，得分只取决于手速
+// 棋盘通过 Board 接口访问，文字和结算通过 Callback 输出，引擎本身不持有视图
+public class DuelEngine {
+    private static final String TAG = "DuelEngine";
+    public static final int PLAYERS = 2;
+
+    // 对战事件回调，由 DuelActivity 实现；所有方法都在主线程调用
+    public interface Callback {
+        // text 由引擎复用，只在调用期间有效，需要保留时复制一份（TextView.setText 会自行复制）
+        void setScoreText(int player, CharSequence text);
+
+        void setTimeText(String text); // 两个玩家共用的计时
+
+        void onGameOver(int winner); // 胜者编号，平局为 -1
+    }
+
+    // 单个玩家的棋盘，由 BoardView 实现
+    public interface Board {
+        BoardSpec getSpec();
+
+        BoardLayout getBoardLayout(); // 还没完成布局时为 null
+
+        float getX(); // 棋盘在父布局中的位置
+
+        float getY();
+
+        void showMoles(int[] holes, int count); // 之前的地鼠全部隐藏
+
+        void hideMole(int hole);
+
+        void clearMoles();
+
+        int hitTest(float x, float y); // 棋盘内的局部坐标，返回被击中的洞，未击中返回 -1
+    }
+
+    private final GameScheduler scheduler;
+    private final Callback callback;
+    private final Board[] boards;
+    private final GameCore[] cores = new GameCore[PLAYERS];
+    private final StringBuilder scoreText = new StringBuilder(16); // 每次击中都刷新得分，复用同一个缓冲区
+    private final GameLoop loop;
+    private float lastHitX, lastHitY, lastHitSize; // 最近一次击中的洞，供反馈效果定位
+
+    public DuelEngine(GameScheduler scheduler, Callback callback, Board[] boards, long seed) {
+        this(scheduler, SystemClock::uptimeMillis, callback, boards, seed);
+    }
+
+    // 测试中传入虚拟时钟
+    DuelEngine(GameScheduler scheduler, GameLoop.Clock clock, Callback callback, Board[] boards, long seed) {
+        this.scheduler = scheduler;
+        this.callback = callback;
+        this.boards = boards;
+        for (int i = 0; i < PLAYERS; i++) {
+            BoardSpec spec = boards[i].getSpec();
+            cores[i] = new GameCore(spec, spec.getHoleCount(), true, false, new Random(seed));
+            cores[i].setListener(new Side(i));
+        }
+        loop = new GameLoop(scheduler, clock, cores);
+    }
+
+    // 规则推进的固定步长，见 GameLoop.setStepMillis
+    public void setStepMillis(int stepMillis) {
+        loop.setStepMillis(stepMillis);
+    }
+
+    public void startGame() {
+        loop.start();
+        for (int i = 0; i < PLAYERS; i++) {
+            callback.setScoreText(i, scoreText(i));
+        }
+        callback.setTimeText(String.format("剩余时间: %d秒", cores[0].getPlayTime() / 1000));
+        Log.d(TAG, "Duel started");
+    }
+
+    public void resumeGame() {
+        loop.resume();
+    }
+
+    public void stopGame() {
+        loop.pause();
+        hideAllMice();
+    }
+
+    public void endGame() {
+        loop.stop();
+        hideAllMice();
+        Log.d(TAG, "Duel ended, " + scheduler);
+    }
+
+    private void hideAllMice() {
+        for (Board board : boards) {
+            board.clearMoles();
+        }
+    }
+
+    // 玩家 player 的锤头落在父布局坐标 (tipX, tipY)，击中时返回 true
+    public boolean hit(int player, float tipX, float tipY) {
+        if (loop.isPaused()) return false;
+        Board board = boards[player];
+        int hole = board.hitTest(tipX - board.getX(), tipY - board.getY());
+        if (hole < 0 || cores[player].hit(hole) == 0) return false;
+        board.hideMole(hole);
+        BoardLayout layout = board.getBoardLayout();
+        lastHitX = board.getX() + layout.getHoleLeft(hole);
+        lastHitY = board.getY() + layout.getHoleTop(hole);
+        lastHitSize = layout.getHoleSize();
+        callback.setScoreText(player, scoreText(player));
+        return true;
+    }
+
+    // 击中路径上调用，不分配内存
+    private CharSequence scoreText(int player) {
+        scoreText.setLength(0);
+        return scoreText.append("得分: ").append(cores[player].getCount());
+    }
+
+    public float getLastHitX() {
+        return lastHitX;
+    }
+
+    public float getLastHitY() {
+        return lastHitY;
+    }
+
+    public float getLastHitSize() {
+        return lastHitSize;
+    }
+
+    public int getScore(int player) {
+        return cores[player].getCount();
+    }
+
+    public boolean isGameOver() {
+        return !loop.isRunning();
+    }
+
+    // 单个玩家的规则事件：地鼠绘制到自己的棋盘，计时由玩家 0 负责显示
+    private class Side implements GameCore.Listener {
+        private final int player;
+
+        Side(int player) {
+            this.player = player;
+        }
+
+        @Override
+        public void onSpawn(int[] slots, int count) {
+            boards[player].showMoles(slots, count);
+        }
+
+        @Override
+        public void onTick(GameCore core) {
+            if (player == 0) {
+                callback.setTimeText(String.format("剩余时间: %d秒", core.getPlayTime() / 1000));
+            }
+        }
+
+        @Override
+        public void onGameOver(GameCore core) {
+            if (loop.isRunning()) return; // 等所有玩家都结束后再统一结算
+            int diff = cores[0].getCount() - cores[1].getCount();
+            int winner = diff > 0 ? 0 : diff < 0 ? 1 : -1;
+            scheduler.post(() -> callback.onGameOver(winner));
+        }
+    }
+}
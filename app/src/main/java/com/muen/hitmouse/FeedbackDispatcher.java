@@ -0,0 +1,258 @@
+package com.muen.hitmouse;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.os.VibrationEffect;
+import android.os.Vibrator;
+import android.view.Choreographer;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+import androidx.constraintlayout.widget.ConstraintLayout;
+
+// 击中反馈调度：同一帧内的击中先入队，在下一帧统一输出一次音效、震动和动画
+// 所有视图和震动效果都预先创建并复用，连击时不会反复增删视图
+// 对战模式每个玩家一个通道（爆炸效果和连击计数各自独立），音效、震动和帧回调全部共享
+// 画质档位由 QualityGovernor 决定，掉帧时依次简化得分文字、关闭连击计数和震动
+// 单人模式作为事件流的消费者：页面每帧读取击中和连击事件后调用 flush；对战模式直接调用 onHit
+public class FeedbackDispatcher implements Choreographer.FrameCallback, GameEventRing.Consumer {
+    private static final long BOOM_DURATION = 300; // 爆炸效果显示时长
+    private static final long POPUP_DURATION = 500; // 得分动画时长
+    private static final int POPUP_POOL_SIZE = 3; // 得分文本复用池大小
+    private static final long VIBRATION_DURATION = 50;
+    private static final int[] VIBRATION_AMPLITUDES = {120, 180, 255}; // 单次、两次、三次及以上合并击中的震动强度
+    private static final int MAX_LANES = 2; // 最多两个玩家通道
+
+    private final Context context;
+    private final GameScheduler scheduler;
+    private final ConstraintLayout parent;
+    private final AudioEngine audioEngine;
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final VibrationEffect[] vibrationEffects = new VibrationEffect[VIBRATION_AMPLITUDES.length];
+    private final TextView[] popups = new TextView[POPUP_POOL_SIZE];
+    private final long[] popupHideAt = new long[POPUP_POOL_SIZE]; // 不做动画时得分文字应当隐藏的时间
+    private final Runnable[] hidePopups = new Runnable[POPUP_POOL_SIZE];
+    private int nextPopup = 0;
+    private final ImageView[] booms = new ImageView[MAX_LANES];
+    private final TextView[] comboTexts = new TextView[MAX_LANES];
+    private int laneCount = 0;
+    private Vibrator vibrator;
+    private boolean muted;
+    private int qualityTier = QualityGovernor.TIER_FULL;
+
+    // 当前帧每个通道累积的击中
+    private final int[] pendingHits = new int[MAX_LANES];
+    private final int[] pendingCombo = new int[MAX_LANES];
+    private final float[] pendingX = new float[MAX_LANES];
+    private final float[] pendingY = new float[MAX_LANES];
+    private final float[] pendingWidth = new float[MAX_LANES];
+    private final float[] pendingHeight = new float[MAX_LANES];
+    private boolean frameScheduled = false;
+    private final long[] boomHideAt = new long[MAX_LANES]; // 爆炸效果应当隐藏的时间，连续击中时只延后而不重复隐藏
+    private final Runnable[] hideBooms = new Runnable[MAX_LANES];
+
+    public FeedbackDispatcher(Context context, GameScheduler scheduler, ConstraintLayout parent, ImageView boom, AudioEngine audioEngine) {
+        this.context = context;
+        this.scheduler = scheduler;
+        this.parent = parent;
+        this.audioEngine = audioEngine;
+        for (int i = 0; i < VIBRATION_AMPLITUDES.length; i++) {
+            vibrationEffects[i] = VibrationEffect.createOneShot(VIBRATION_DURATION, VIBRATION_AMPLITUDES[i]);
+        }
+        for (int i = 0; i < POPUP_POOL_SIZE; i++) {
+            TextView popup = createOverlayText(0xFFFF0000, 20);
+            int index = i;
+            popups[i] = popup;
+            hidePopups[i] = () -> {
+                if (SystemClock.uptimeMillis() >= popupHideAt[index]) {
+                    popup.setVisibility(View.INVISIBLE);
+                }
+            };
+        }
+        addLane(boom);
+    }
+
+    // 增加一个玩家通道，返回通道编号；构造时已创建通道 0
+    public int addLane(ImageView boom) {
+        if (laneCount == MAX_LANES) throw new IllegalStateException("Too many feedback lanes");
+        int lane = laneCount++;
+        booms[lane] = boom;
+        comboTexts[lane] = createOverlayText(0xFFFF0000, 24);
+        hideBooms[lane] = () -> {
+            if (SystemClock.uptimeMillis() >= boomHideAt[lane]) {
+                booms[lane].setVisibility(View.INVISIBLE);
+            }
+        };
+        return lane;
+    }
+
+    // 震动服务在空闲时才获取，获取后再设置
+    public void setVibrator(Vibrator vibrator) {
+        this.vibrator = vibrator;
+    }
+
+    public void setMuted(boolean muted) {
+        this.muted = muted;
+    }
+
+    // 切换画质档位，降档时立即停止正在进行的动画
+    public void setQualityTier(int tier) {
+        if (tier == qualityTier) return;
+        qualityTier = tier;
+        if (tier == QualityGovernor.TIER_FULL) return;
+        for (TextView popup : popups) {
+            popup.animate().cancel();
+            popup.setVisibility(View.INVISIBLE);
+        }
+        if (tier == QualityGovernor.TIER_MINIMAL) {
+            for (int lane = 0; lane < laneCount; lane++) {
+                hideComboCounter(lane);
+            }
+        }
+    }
+
+    // 记录一次击中，效果在下一帧统一输出
+    public void onHit(int lane, float x, float y, float width, float height, int comboCount) {
+        pendingHits[lane]++;
+        pendingCombo[lane] = comboCount;
+        pendingX[lane] = x;
+        pendingY[lane] = y;
+        pendingWidth[lane] = width;
+        pendingHeight[lane] = height;
+        if (!frameScheduled) {
+            frameScheduled = true;
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    // 事件流中的击中记入通道 0，连击事件更新该通道的连击数，连击数为 0 表示连击中断
+    @Override
+    public void onEvent(GameEventRing.Event event) {
+        if (event.type == GameEventRing.HIT) {
+            pendingHits[0]++;
+            pendingX[0] = event.x;
+            pendingY[0] = event.y;
+            pendingWidth[0] = event.width;
+            pendingHeight[0] = event.height;
+        } else if (event.type == GameEventRing.COMBO) {
+            if (event.value == 0) {
+                hideComboCounter(event.slot);
+            } else {
+                pendingCombo[event.slot] = event.value;
+            }
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        flush();
+    }
+
+    // 输出累积的击中：音效、震动和动画各一次
+    public void flush() {
+        int hits = 0;
+        for (int lane = 0; lane < laneCount; lane++) {
+            hits += pendingHits[lane];
+        }
+        if (hits == 0) return;
+
+        // 音效：合并的击中越多音量越大，只触发一次
+        if (!muted) {
+            audioEngine.playEffect(R.raw.kick, Math.min(1.0f, 0.7f + 0.15f * hits));
+        }
+
+        // 震动：按合并数量选择预先创建的强度，最低画质时关闭
+        if (qualityTier < QualityGovernor.TIER_MINIMAL && vibrator != null && vibrator.hasVibrator()) {
+            vibrator.vibrate(vibrationEffects[Math.min(hits, vibrationEffects.length) - 1]);
+        }
+
+        for (int lane = 0; lane < laneCount; lane++) {
+            int laneHits = pendingHits[lane];
+            pendingHits[lane] = 0;
+            if (laneHits == 0) continue;
+
+            // 爆炸效果：隐藏任务经由调度器投递，游戏暂停或结束后自动失效
+            ImageView boom = booms[lane];
+            boom.setX(pendingX[lane] - 25f);
+            boom.setY(pendingY[lane] - 25f);
+            boom.setVisibility(View.VISIBLE);
+            boomHideAt[lane] = SystemClock.uptimeMillis() + BOOM_DURATION;
+            scheduler.postDelayed(hideBooms[lane], BOOM_DURATION);
+
+            if (qualityTier < QualityGovernor.TIER_MINIMAL) {
+                showScorePopup(lane, laneHits);
+                showComboCounter(lane);
+            }
+        }
+    }
+
+    // 复用池中的文本显示得分动画；降档后只用第一个文本，显示一段时间后直接隐藏
+    private void showScorePopup(int lane, int hits) {
+        int index = qualityTier == QualityGovernor.TIER_FULL ? nextPopup : 0;
+        TextView popup = popups[index];
+        nextPopup = (nextPopup + 1) % POPUP_POOL_SIZE;
+        popup.animate().cancel();
+        int combo = pendingCombo[lane];
+        String text = combo >= 3 ? "+" + combo + " 双倍!" : "+" + combo + " 连击!";
+        popup.setText(hits > 1 ? text + " x" + hits : text);
+        popup.setTextSize(combo >= 3 ? 24 : 20);
+        popup.setTranslationX(pendingX[lane] + pendingWidth[lane] / 2);
+        popup.setTranslationY(pendingY[lane] - 50);
+        popup.setAlpha(1f);
+        popup.setVisibility(View.VISIBLE);
+        if (qualityTier != QualityGovernor.TIER_FULL) {
+            popupHideAt[index] = SystemClock.uptimeMillis() + POPUP_DURATION;
+            scheduler.postDelayed(hidePopups[index], POPUP_DURATION);
+            return;
+        }
+        popupHideAt[index] = Long.MAX_VALUE; // 由动画结束时隐藏
+        popup.animate()
+                .translationYBy(-50f)
+                .alpha(0f)
+                .setDuration(POPUP_DURATION)
+                .withEndAction(() -> popup.setVisibility(View.INVISIBLE))
+                .start();
+    }
+
+    private void showComboCounter(int lane) {
+        TextView comboText = comboTexts[lane];
+        comboText.setTranslationX(pendingX[lane] + pendingWidth[lane] + 10);
+        comboText.setTranslationY(pendingY[lane] + pendingHeight[lane] / 2);
+        comboText.setText("连击 x" + pendingCombo[lane]);
+        comboText.setVisibility(View.VISIBLE);
+    }
+
+    // 连击中断时隐藏连击计数
+    public void hideComboCounter(int lane) {
+        comboTexts[lane].setVisibility(View.INVISIBLE);
+    }
+
+    // 取消尚未输出的反馈并隐藏所有效果
+    public void cancel() {
+        choreographer.removeFrameCallback(this);
+        frameScheduled = false;
+        for (TextView popup : popups) {
+            popup.animate().cancel();
+            popup.setVisibility(View.INVISIBLE);
+        }
+        for (int lane = 0; lane < laneCount; lane++) {
+            pendingHits[lane] = 0;
+            hideComboCounter(lane);
+        }
+    }
+
+    // 创建一次并加入布局左上角，之后只通过平移定位
+    private TextView createOverlayText(int color, float textSize) {
+        TextView text = new TextView(context);
+        text.setTextColor(color);
+        text.setTextSize(textSize);
+        text.setVisibility(View.INVISIBLE);
+        ConstraintLayout.LayoutParams params = new ConstraintLayout.LayoutParams(
+                ConstraintLayout.LayoutParams.WRAP_CONTENT, ConstraintLayout.LayoutParams.WRAP_CONTENT);
+        params.leftToLeft = ConstraintLayout.LayoutParams.PARENT_ID;
+        params.topToTop = ConstraintLayout.LayoutParams.PARENT_ID;
+        parent.addView(text, params);
+        return text;
+    }
+}
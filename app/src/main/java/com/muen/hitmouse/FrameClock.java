@@ -0,0 +1,178 @@
+package com.muen.hitmouse;
+
+import android.content.SharedPreferences;
+import android.view.Choreographer;
+import android.view.Window;
+import android.view.WindowManager;
+
+// 帧时钟：按所选帧率（30/60/120Hz 或省电）把锤子绘制、幽灵回放等每帧工作合并到同一个 Choreographer 回调里
+// 只有客户端需要下一帧时才请求垂直同步，画面静止时主线程不被唤醒；屏幕刷新率高于所选帧率时跳过多余的垂直同步
+// 游戏规则由 GameLoop 按同一帧率的步长推进（见 GameLoop.setStepMillis），每帧绘制最近一次推进后的状态，不做插值
+public class FrameClock implements Choreographer.FrameCallback {
+    public static final int MODE_30 = 0;
+    public static final int MODE_60 = 1;
+    public static final int MODE_120 = 2;
+    public static final int MODE_POWER_SAVE = 3; // 30Hz，并关闭画质调节、延迟统计和渐隐动画等非必要的每帧工作
+    public static final int MODE_COUNT = 4;
+    public static final String PREF_MODE = "frame_mode"; // "user" 偏好中的键
+    private static final int[] RATES = {30, 60, 120, 30};
+    private static final String[] LABELS = {"30Hz", "60Hz", "120Hz", "省电"};
+    private static final int MAX_CLIENTS = 4;
+
+    // 垂直同步来源，Android 中为 Choreographer，测试中由假实现按指定的帧时间回调
+    interface Vsync {
+        void postFrameCallback(Choreographer.FrameCallback callback);
+
+        void removeFrameCallback(Choreographer.FrameCallback callback);
+    }
+
+    // 每帧工作，在主线程调用
+    public interface Client {
+        // frameTimeMillis 为本帧的垂直同步时间，与 MotionEvent 的事件时间是同一个时钟；返回 true 表示还需要下一帧
+        boolean onFrame(long frameTimeMillis);
+    }
+
+    private final Vsync vsync;
+    private final int mode;
+    private final long intervalNanos; // 两帧之间的最短间隔
+    private final Client[] clients = new Client[MAX_CLIENTS];
+    private final boolean[] wanted = new boolean[MAX_CLIENTS];
+    private int clientCount = 0;
+    private boolean posted = false;
+    private long lastFrameNanos = 0;
+    private long frames = 0;
+    private long skipped = 0; // 因超过所选帧率而跳过的垂直同步
+
+    public FrameClock(int mode) {
+        this(mode, choreographer());
+    }
+
+    // 测试中传入假的垂直同步
+    FrameClock(int mode, Vsync vsync) {
+        this.vsync = vsync;
+        this.mode = mode >= 0 && mode < MODE_COUNT ? mode : MODE_60;
+        this.intervalNanos = 1_000_000_000L / RATES[this.mode];
+    }
+
+    // 用户在主页面选择的模式，默认 60Hz
+    public static int getMode(SharedPreferences preferences) {
+        int mode = preferences.getInt(PREF_MODE, MODE_60);
+        return mode >= 0 && mode < MODE_COUNT ? mode : MODE_60;
+    }
+
+    public static String getLabel(int mode) {
+        return LABELS[mode];
+    }
+
+    public int getMode() {
+        return mode;
+    }
+
+    public int getRate() {
+        return RATES[mode];
+    }
+
+    // 游戏规则推进的固定步长（毫秒）
+    public int getStepMillis() {
+        return 1000 / RATES[mode];
+    }
+
+    public boolean isPowerSave() {
+        return mode == MODE_POWER_SAVE;
+    }
+
+    // 向系统建议显示刷新率，高刷屏在低帧率模式下可以降频，只是提示，系统可以忽略
+    public void applyTo(Window window) {
+        WindowManager.LayoutParams params = window.getAttributes();
+        params.preferredRefreshRate = RATES[mode];
+        window.setAttributes(params);
+    }
+
+    // 请求在下一个符合帧率的垂直同步时调用 client，同一帧内多次请求只回调一次
+    public void request(Client client) {
+        int index = indexOf(client);
+        if (index < 0) {
+            if (clientCount == MAX_CLIENTS) throw new IllegalStateException("Too many frame clients");
+            index = clientCount++;
+            clients[index] = client;
+        }
+        wanted[index] = true;
+        post();
+    }
+
+    // 取消 client 尚未执行的帧请求
+    public void cancel(Client client) {
+        int index = indexOf(client);
+        if (index >= 0) wanted[index] = false;
+    }
+
+    public void stop() {
+        for (int i = 0; i < clientCount; i++) {
+            wanted[i] = false;
+        }
+        if (posted) {
+            posted = false;
+            vsync.removeFrameCallback(this);
+        }
+    }
+
+    public long getFrameCount() {
+        return frames;
+    }
+
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        posted = false;
+        // 容差为四分之一帧，垂直同步的抖动不会让 60Hz 屏幕上的 60Hz 模式隔帧跳过
+        if (lastFrameNanos > 0 && frameTimeNanos - lastFrameNanos < intervalNanos - intervalNanos / 4) {
+            skipped++;
+            post();
+            return;
+        }
+        lastFrameNanos = frameTimeNanos;
+        frames++;
+        long frameTimeMillis = frameTimeNanos / 1_000_000L;
+        boolean more = false;
+        for (int i = 0; i < clientCount; i++) {
+            if (!wanted[i]) continue;
+            wanted[i] = false;
+            if (clients[i].onFrame(frameTimeMillis)) {
+                wanted[i] = true;
+                more = true;
+            }
+        }
+        if (more) post();
+    }
+
+    private void post() {
+        if (posted) return;
+        posted = true;
+        vsync.postFrameCallback(this);
+    }
+
+    private static Vsync choreographer() {
+        Choreographer choreographer = Choreographer.getInstance();
+        return new Vsync() {
+            @Override
+            public void postFrameCallback(Choreographer.FrameCallback callback) {
+                choreographer.postFrameCallback(callback);
+            }
+
+            @Override
+            public void removeFrameCallback(Choreographer.FrameCallback callback) {
+                choreographer.removeFrameCallback(callback);
+            }
+        };
+    }
+
+    private int indexOf(Client client) {
+        for (int i = 0; i < clientCount; i++) {
+            if (clients[i] == client) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,330 @@
+package com.muen.hitmouse;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+// 游戏规则核心：计时、地鼠刷新、难度曲线、得分与失误统计，不依赖任何 Android 类
+// 采用离散事件推进：调用方询问距下一事件的时间，再用 advance 推进，可在 JVM 上任意快进
+public class GameCore {
+    public static final int INITIAL_PLAY_TIME = 60000; // 限时模式的游戏时间（60秒）
+    public static final int TIME_TICK = 1000; // 计时间隔（1秒）
+    public static final int MAX_MISSES = 10; // 无尽模式允许的最大失误数
+    private static final long MIN_SPAWN_INTERVAL = 500; // 限时模式的最短刷新间隔
+    private static final long ENDLESS_MIN_SPAWN_INTERVAL = 250; // 无尽模式的最短刷新间隔
+    private static final int ENDLESS_RAMP_START = 60000; // 无尽模式在 60 秒后继续加速
+    private static final int ENDLESS_SPEEDUP_PER_SECOND = 5; // 之后每秒缩短的刷新间隔（毫秒）
+
+    // 规则事件回调，全部在 advance 调用线程中同步触发
+    public interface Listener {
+        void onSpawn(int[] slots, int count); // 新一波地鼠出现在这些位置，上一波全部消失
+        void onTick(GameCore core); // 每秒一次
+        void onGameOver(GameCore core);
+    }
+
+    private final BoardSpec spec; // 地鼠数量增长曲线
+    private final int slotCount; // 可出现地鼠的位置数量（洞数或地鼠视图数）
+    private final boolean distinctSlots; // true：每波从所有洞中随机选择；false：总是使用前 N 个位置
+    private final boolean endless;
+    private final Random random;
+    private Listener listener;
+    private DifficultyController difficulty = DifficultyController.fixed(); // 刷新间隔和地鼠数量的动态调整
+
+    private final int[] slotOrder; // 位置的排列，部分洗牌选出本波的位置
+    private final boolean[] active; // 每个位置当前是否有未被击中的地鼠
+    private int activeCount = 0;
+
+    private boolean running = false;
+    private int playTime; // 限时模式的剩余时间
+    private int elapsed; // 已进行的时间（按秒推进）
+    private long time; // 已推进的游戏时间（毫秒），录像和回放以此为时间轴
+    private int count; // 得分
+    private int comboCount; // 连击次数
+    private int hits; // 击中总数
+    private int misses; // 未被击中就消失的地鼠数量
+    private int mouseCount; // 每波地鼠数量
+    private long untilSpawn; // 距下一次刷新的时间
+    private long untilTick; // 距下一次计时的时间
+    private long waveTime; // 当前一波出现时的游戏时间，用于计算反应时间
+
+    public GameCore(BoardSpec spec, int slotCount, boolean distinctSlots, boolean endless, Random random) {
+        this.spec = spec;
+        this.slotCount = slotCount;
+        this.distinctSlots = distinctSlots;
+        this.endless = endless;
+        this.random = random;
+        this.slotOrder = new int[slotCount];
+        this.active = new boolean[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slotOrder[i] = i;
+        }
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // 设置难度控制器，必须在 start 之前调用；默认不做调整
+    public void setDifficulty(DifficultyController difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public DifficultyController getDifficulty() {
+        return difficulty;
+    }
+
+    public void start() {
+        running = true;
+        playTime = INITIAL_PLAY_TIME;
+        elapsed = 0;
+        time = 0;
+        count = 0;
+        comboCount = 0;
+        hits = 0;
+        misses = 0;
+        mouseCount = expectedMouseCount();
+        difficulty.reset();
+        clearActive();
+        waveTime = 0;
+        untilSpawn = 0; // 开局立即刷新
+        untilTick = TIME_TICK;
+    }
+
+    public void stop() {
+        running = false;
+        clearActive();
+    }
+
+    // 丢弃当前一波地鼠（不计失误）并立即刷新，用于暂停恢复
+    public void resetWave() {
+        clearActive();
+        untilSpawn = 0;
+    }
+
+    // 距下一个事件（刷新或计时）的毫秒数
+    public long getMillisUntilNextEvent() {
+        return Math.max(0, Math.min(untilSpawn, untilTick));
+    }
+
+    // 推进 deltaMs 毫秒，期间到期的计时和刷新事件按时间顺序触发
+    public void advance(long deltaMs) {
+        while (running) {
+            long step = Math.min(deltaMs, Math.min(untilSpawn, untilTick));
+            if (step > 0) {
+                untilSpawn -= step;
+                untilTick -= step;
+                deltaMs -= step;
+                time += step;
+            }
+            if (untilTick <= 0) {
+                tick();
+                if (!running) return;
+            }
+            if (untilSpawn <= 0) {
+                spawn();
+                if (!running) return;
+            }
+            if (deltaMs <= 0 && untilTick > 0 && untilSpawn > 0) return;
+        }
+    }
+
+    private void tick() {
+        untilTick += TIME_TICK;
+        elapsed += TIME_TICK;
+        if (!endless) playTime -= TIME_TICK;
+        mouseCount = expectedMouseCount();
+        if (listener != null) listener.onTick(this);
+        if (!endless && playTime <= 0) {
+            finish();
+        }
+    }
+
+    private void spawn() {
+        // 上一波未被击中的地鼠记为失误
+        misses += activeCount;
+        difficulty.onMiss(activeCount);
+        clearActive();
+        if (endless && misses >= MAX_MISSES) {
+            finish();
+            return;
+        }
+        difficulty.onWave();
+        int n = difficulty.adjustMoleCount(Math.min(mouseCount, slotCount), slotCount);
+        if (distinctSlots) {
+            for (int i = 0; i < n; i++) {
+                int j = i + random.nextInt(slotCount - i);
+                int tmp = slotOrder[i];
+                slotOrder[i] = slotOrder[j];
+                slotOrder[j] = tmp;
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                slotOrder[i] = i;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            active[slotOrder[i]] = true;
+        }
+        activeCount = n;
+        waveTime = time;
+        untilSpawn += getSpawnInterval();
+        if (listener != null) listener.onSpawn(slotOrder, n);
+    }
+
+    private void finish() {
+        running = false;
+        if (listener != null) listener.onGameOver(this);
+    }
+
+    // 击中位置 slot 上的地鼠，返回得分（未击中返回 0）；反应时间按最近一次推进时的游戏时间计算
+    public int hit(int slot) {
+        return hit(slot, time);
+    }
+
+    // 同上，timeMs 为击中时的游戏时间（两次推进之间可用 GameLoop.getGameTime 取得）
+    public int hit(int slot, long timeMs) {
+        if (!running || slot < 0 || slot >= slotCount || !active[slot]) return 0;
+        active[slot] = false;
+        activeCount--;
+        hits++;
+        difficulty.onHit(timeMs - waveTime);
+        comboCount++;
+        int score = (comboCount >= 3) ? 2 : 1; // 连击3次以上双倍得分
+        count += score;
+        return score;
+    }
+
+    // 取消某个位置的地鼠（例如没有空间摆放），不计为失误
+    public void cancel(int slot) {
+        if (slot < 0 || slot >= slotCount || !active[slot]) return;
+        active[slot] = false;
+        activeCount--;
+    }
+
+    private void clearActive() {
+        for (int i = 0; i < slotCount; i++) {
+            active[i] = false;
+        }
+        activeCount = 0;
+    }
+
+    // 地鼠数量：限时模式按棋盘曲线增长到上限；无尽模式越过上限后继续增长，直到占满所有位置
+    private int expectedMouseCount() {
+        int expected = spec.moleCountAt(elapsed);
+        if (endless && expected == spec.maxMoles && elapsed >= spec.rampStartMs) {
+            expected = spec.startMoles + (elapsed - spec.rampStartMs) / spec.rampIntervalMs;
+        }
+        return Math.max(1, Math.min(slotCount, expected));
+    }
+
+    // 刷新间隔，随游戏进度加快，再由难度控制器按玩家表现调整
+    public long getSpawnInterval() {
+        if (!endless) {
+            long baseTime = playTime > 40000 ? 1500 : playTime > 20000 ? 1000 : 800;
+            long interval = Math.max(MIN_SPAWN_INTERVAL, baseTime - (mouseCount * 100L) - (count / 10));
+            return difficulty.adjustInterval(interval, MIN_SPAWN_INTERVAL);
+        }
+        long baseTime = elapsed < 20000 ? 1500 : elapsed < 40000 ? 1000 : 800;
+        if (elapsed > ENDLESS_RAMP_START) {
+            baseTime -= (long) (elapsed - ENDLESS_RAMP_START) / 1000 * ENDLESS_SPEEDUP_PER_SECOND;
+        }
+        long interval = Math.max(ENDLESS_MIN_SPAWN_INTERVAL, baseTime - (mouseCount * 100L) - (count / 10));
+        return difficulty.adjustInterval(interval, ENDLESS_MIN_SPAWN_INTERVAL);
+    }
+
+    // 写出完整的运行状态（不含随机数状态），用于崩溃恢复
+    public void writeState(ByteBuffer out) {
+        out.put((byte) (running ? 1 : 0)).put((byte) (endless ? 1 : 0)).putShort((short) slotCount);
+        out.putInt(playTime).putInt(elapsed).putLong(time);
+        out.putInt(count).putInt(comboCount).putInt(hits).putInt(misses).putInt(mouseCount);
+        out.putLong(untilSpawn).putLong(untilTick);
+        out.putShort((short) activeCount);
+        for (int i = 0; i < slotCount; i++) {
+            if (active[i]) out.putShort((short) i);
+        }
+        out.putLong(waveTime);
+        difficulty.writeState(out);
+    }
+
+    // 从 writeState 写出的数据恢复，玩法或位置数量不一致时返回 false 且不修改状态
+    public boolean readState(ByteBuffer in) {
+        boolean savedRunning = in.get() == 1;
+        boolean savedEndless = in.get() == 1;
+        int savedSlotCount = in.getShort();
+        if (!savedRunning || savedEndless != endless || savedSlotCount != slotCount) return false;
+        playTime = in.getInt();
+        elapsed = in.getInt();
+        time = in.getLong();
+        count = in.getInt();
+        comboCount = in.getInt();
+        hits = in.getInt();
+        misses = in.getInt();
+        mouseCount = in.getInt();
+        untilSpawn = in.getLong();
+        untilTick = in.getLong();
+        clearActive();
+        int savedActive = in.getShort();
+        for (int i = 0; i < savedActive; i++) {
+            int slot = in.getShort();
+            if (slot >= 0 && slot < slotCount && !active[slot]) {
+                active[slot] = true;
+                activeCount++;
+            }
+        }
+        waveTime = in.getLong();
+        difficulty.readState(in);
+        running = true;
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isEndless() {
+        return endless;
+    }
+
+    public boolean isActive(int slot) {
+        return active[slot];
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public int getPlayTime() {
+        return playTime;
+    }
+
+    public int getElapsed() {
+        return elapsed;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getComboCount() {
+        return comboCount;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    public int getMouseCount() {
+        return mouseCount;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+}
@@ -1,321 +1,475 @@
 package com.muen.hitmouse;
 
-import android.content.Context;
-import android.graphics.Color;
-import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
-import android.view.View;
-import android.widget.ImageView;
-import android.widget.TextView;
-import androidx.constraintlayout.widget.ConstraintLayout;
-import androidx.constraintlayout.widget.ConstraintLayout.LayoutParams;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
 import java.util.Random;
-import java.util.concurrent.atomic.AtomicBoolean;
-
-public class GameEngine {
-    public static final int INITIAL_PLAY_TIME = 60000; // 初始游戏时间（60秒）
-    private static final int TIME_TICK = 1000; // 时间减少的间隔（1秒）
-    private static final int MSG_UPDATE_UI = 0x101; // 更新 UI 的消息标识
-    private static final int MSG_GAME_OVER = 0x102; // 游戏结束的消息标识
-    private static final int MULTI_MOUSE_START_TIME = 10000; // 开始增加多只地鼠的时间（10秒）
-    private static final int MOUSE_INCREASE_INTERVAL = 10000; // 地鼠数量增加的间隔（10秒）
+
+// 游戏引擎：把 GameCore 的规则事件映射到界面上，负责地鼠摆放、命中判断和文字刷新
+// 计时与刷新由 GameLoop 统一推进；引擎不持有任何视图或页面，只通过 Renderer 接口输出，
+// 页面重建时解除旧的 Renderer、接上新的，引擎把当前状态整体推送一次，对局不中断
+public class GameEngine implements GameCore.Listener {
+    private static final String TAG = "GameEngine";
+    public static final int INITIAL_PLAY_TIME = GameCore.INITIAL_PLAY_TIME; // 初始游戏时间（60秒）
     public static final int MAX_MOUSE_COUNT = 5; // 最大地鼠数量
+    public static final int ENDLESS_MAX_MOUSE_COUNT = 12; // 困难模式无尽玩法的地鼠视图上限
+
+    // 界面接口，由页面实现；所有方法都在主线程调用
+    public interface Renderer {
+        // 显示新的一波地鼠，之前的全部隐藏；positions 为困难模式每个位置的左上角坐标 x, y，简单模式为 null
+        void showMoles(int[] slots, int count, float[] positions);
+
+        void hideMole(int slot); // 地鼠被击中
+
+        void clearMoles(); // 暂停或结束
+
+        // 简单模式的命中判断由棋盘完成：返回被击中的洞，未击中返回 -1；outBounds 写入洞的 left, top, width, height
+        int hitTest(float x, float y, float[] outBounds);
+
+        // text 由引擎复用，只在调用期间有效，需要保留时复制一份（TextView.setText 会自行复制）
+        void setScoreText(CharSequence text);
+
+        void setTimeText(String text);
 
-    private final Context context;
-    private final Handler handler;
-    private final View[] holes; // 简单模式下的地鼠洞数组
-    private final List<ImageView> mice; // 地鼠视图列表
-    private final ImageView boom; // 击中爆炸效果视图
-    private final ImageView hunter; // 猎人（锤子）视图
-    private final TextView timeView; // 时间显示文本
-    private final TextView scoreText; // 分数显示文本
+        void onSpawn(); // 新一波地鼠已经显示
+
+        void onEventsPublished(); // 事件流中有新事件，页面的消费者可以在下一帧读取
+
+        void onGameOver(); // 时间耗尽或失误过多，页面不在时等到下次绑定再通知
+    }
+
+    private final GameScheduler scheduler; // 所有定时任务都带代号，状态切换后旧任务自动失效
+    private final BoardSpec spec; // 简单模式的棋盘规格，困难模式为 null
     private final boolean isRandomMode; // 是否为随机模式（困难模式）
-    private final PlayActivity activity;
-
-    private int playTime = INITIAL_PLAY_TIME; // 当前剩余时间
-    private int count = 0; // 当前得分
-    private volatile boolean isRunning = true; // 游戏是否运行
-    private volatile boolean isPaused = false; // 游戏是否暂停
-    private volatile int currentHoleIndex = -1; // 当前地鼠洞索引（未使用）
-    private final AtomicBoolean isScheduled = new AtomicBoolean(false); // 调度标志（未使用）
-    private int comboCount = 0; // 当前连击次数
-    private int mouseCount = 1; // 当前活跃地鼠数量
-
-    private List<Integer> currentHoleIndices = new ArrayList<>(); // 当前地鼠洞索引列表（简单模式）
-
-    // 构造函数，初始化游戏引擎所需的所有视图和参数
-    public GameEngine(Context context, Handler handler, View[] holes, List<ImageView> mice, ImageView boom, ImageView hunter,
-                      TextView timeView, TextView scoreText, boolean isRandomMode) {
-        this.context = context;
-        this.handler = handler;
-        this.holes = holes;
-        this.mice = mice;
-        this.boom = boom;
-        this.hunter = hunter;
-        this.timeView = timeView;
-        this.scoreText = scoreText;
+    private Renderer renderer; // 当前绑定的页面，页面销毁到重建之间为 null
+
+    private final GameCore core; // 计时、难度、得分和失误统计
+    private final GameLoop loop; // 推进核心的主循环
+
+    private BoardGeometry geometry; // 预加载阶段记录的棋盘几何信息
+    private HitMask mouseMask; // 地鼠精灵的命中区域（按渲染尺寸，困难模式）
+    private MolePlacer placer; // 困难模式的地鼠摆放器，几何确定后只创建一次
+    private final Random random = new Random();
+    private final float[] positions; // 困难模式每个位置上地鼠的左上角坐标 x, y
+    private final float[] placement; // 摆放结果 x, y
+    private final int[] visibleSlots; // 绑定页面时重新显示的地鼠
+    private final float[] hitBounds = new float[4];
+    private final StringBuilder scoreText = new StringBuilder(16); // 每次击中都刷新得分，复用同一个缓冲区
+    private float lastHitX, lastHitY, lastHitWidth, lastHitHeight; // 最近一次击中的区域，供反馈效果定位
+    private boolean started = false; // 已开始或已从日志恢复
+    private boolean gameOverPending = false; // 已结束但还没通知到页面
+    private final GameEventRing events; // 出鼠、击中、失误、计时和结束事件，供反馈、录制等各自读取
+    private SessionRecorder recorder; // 对局录制（简单模式），用作之后的幽灵对手
+    private GameEventRing.Cursor recorderCursor; // 录制在每波出鼠后和每秒读取事件流
+    private int publishedMisses = 0; // 已经发布过的失误数
+    private SessionJournal journal; // 崩溃恢复日志，每秒记录一次状态
+    private final SessionJournal.Snapshot snapshot = this::writeSnapshot;
+
+    // spec 为简单模式的棋盘规格，困难模式传 null
+    public GameEngine(GameScheduler scheduler, BoardSpec spec, boolean isRandomMode, boolean isEndless) {
+        this(scheduler, SystemClock::uptimeMillis, spec, isRandomMode, isEndless);
+    }
+
+    // 测试中传入虚拟时钟
+    GameEngine(GameScheduler scheduler, GameLoop.Clock clock, BoardSpec spec, boolean isRandomMode, boolean isEndless) {
+        this.scheduler = scheduler;
+        this.spec = isRandomMode ? null : spec;
         this.isRandomMode = isRandomMode;
-        this.activity = (PlayActivity) context;
+        if (!isRandomMode) {
+            // 简单模式：每波从棋盘所有洞中随机选出不重复的洞
+            core = new GameCore(spec, spec.getHoleCount(), true, isEndless, random);
+        } else {
+            // 困难模式：位置编号即地鼠视图下标，具体坐标由 MolePlacer 决定
+            core = new GameCore(BoardSpec.CLASSIC, isEndless ? ENDLESS_MAX_MOUSE_COUNT : MAX_MOUSE_COUNT, false, isEndless, random);
+        }
+        core.setListener(this);
+        core.setDifficulty(new DifficultyController(DifficultyController.DEFAULT_TARGET_PERCENT)); // 单人对局按玩家表现调整难度
+        loop = new GameLoop(scheduler, clock, core);
+        events = new GameEventRing(eventCapacity(core.getSlotCount()));
+        positions = new float[core.getSlotCount() * 2];
+        placement = new float[core.getSlotCount() * 2];
+        visibleSlots = new int[core.getSlotCount()];
+    }
+
+    // 事件流容量：至少能容纳几波全部出鼠的事件，大棋盘上每波数百只地鼠也不会让一秒读一次的消费者落后一圈
+    static int eventCapacity(int slotCount) {
+        int capacity = GameEventRing.DEFAULT_CAPACITY;
+        while (capacity < slotCount * 4) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // 绑定页面并推送当前状态：分数、时间和仍在场上的地鼠；对局在页面不在时结束的，此时补发结束通知
+    public void attach(Renderer renderer) {
+        this.renderer = renderer;
+        if (!started) return;
+        renderer.setScoreText(scoreText());
+        renderer.setTimeText(timeText());
+        if (core.isRunning() && !loop.isPaused()) {
+            int count = 0;
+            for (int i = 0; i < core.getSlotCount(); i++) {
+                if (core.isActive(i)) visibleSlots[count++] = i;
+            }
+            renderer.showMoles(visibleSlots, count, isRandomMode ? positions : null);
+        } else {
+            renderer.clearMoles();
+        }
+        if (gameOverPending) {
+            gameOverPending = false;
+            renderer.onGameOver();
+        }
+    }
+
+    // 解除绑定，之后的规则事件只更新状态，不再触碰界面
+    public void detach(Renderer renderer) {
+        if (this.renderer == renderer) this.renderer = null;
+    }
+
+    // 设置棋盘几何信息，必须在 startGame 之前调用；页面重建后尺寸变化时可再次调用
+    public void setBoardGeometry(BoardGeometry geometry) {
+        this.geometry = geometry;
+        if (isRandomMode) {
+            placer = new MolePlacer(geometry.width, geometry.height, geometry.mouseWidth, geometry.mouseHeight, 0);
+            for (int i = 0; i < geometry.getExclusionCount(); i++) {
+                placer.exclude(geometry.getExclusion(i, 0), geometry.getExclusion(i, 1),
+                        geometry.getExclusion(i, 2), geometry.getExclusion(i, 3));
+            }
+        }
+    }
+
+    // 设置按精灵透明通道生成的地鼠命中区域（困难模式），必须在 startGame 之前调用
+    public void setMouseMask(HitMask mouseMask) {
+        this.mouseMask = mouseMask;
+    }
+
+    // 替换难度控制器（例如幽灵赛跑时使用固定曲线，与录像对局条件一致），必须在 startGame 之前调用
+    public void setDifficulty(DifficultyController difficulty) {
+        core.setDifficulty(difficulty);
+    }
+
+    // 规则推进的固定步长，见 GameLoop.setStepMillis
+    public void setStepMillis(int stepMillis) {
+        loop.setStepMillis(stepMillis);
+    }
+
+    // 设置对局录制，必须在 startGame 之前调用
+    public void setRecorder(SessionRecorder recorder) {
+        this.recorder = recorder;
+        this.recorderCursor = events.newCursor();
+    }
+
+    // 事件流，页面的消费者通过 newCursor 读取，反馈和统计不再由引擎直接调用
+    public GameEventRing getEvents() {
+        return events;
+    }
+
+    // 设置崩溃恢复日志，计时事件时写入
+    public void setJournal(SessionJournal journal) {
+        this.journal = journal;
+    }
+
+    // 立即记录一次状态（页面进入后台时调用）
+    public void saveJournal() {
+        if (journal != null && core.isRunning()) journal.record(snapshot);
+    }
+
+    // 快照：模式和棋盘、核心状态，困难模式再加上每只地鼠的坐标
+    private void writeSnapshot(ByteBuffer out) {
+        out.put((byte) (isRandomMode ? 1 : 0));
+        out.put((byte) (spec != null ? spec.rows : 0));
+        out.put((byte) (spec != null ? spec.cols : 0));
+        core.writeState(out);
+        if (isRandomMode) {
+            int n = core.getSlotCount();
+            out.putShort((short) n);
+            for (int i = 0; i < n; i++) {
+                out.putFloat(positions[i * 2]).putFloat(positions[i * 2 + 1]);
+            }
+        }
     }
 
-    // 开始游戏，重置状态并启动计时和地鼠刷新任务
+    // 从日志快照恢复对局，恢复后处于暂停状态，由玩家点继续后再推进；快照与当前模式不符时返回 false，由调用方开始新的一局
+    public boolean restoreGame(ByteBuffer in) {
+        boolean savedRandomMode = in.get() == 1;
+        int rows = in.get();
+        int cols = in.get();
+        if (savedRandomMode != isRandomMode) return false;
+        if (spec != null && (rows != spec.rows || cols != spec.cols)) return false;
+        if (!core.readState(in)) return false;
+
+        if (recorder != null) {
+            recorder.cancel(); // 恢复的对局不完整，不作为幽灵录像
+            recorder = null;
+        }
+        publishedMisses = core.getMisses();
+        if (isRandomMode) {
+            int n = in.getShort();
+            for (int i = 0; i < core.getSlotCount(); i++) {
+                positions[i * 2] = i < n ? in.getFloat() : 0;
+                positions[i * 2 + 1] = i < n ? in.getFloat() : 0;
+                if (i >= n) core.cancel(i);
+            }
+        }
+        started = true;
+        loop.startRestored();
+        if (renderer != null) attach(renderer);
+        Log.d(TAG, "Game restored at " + core.getTime() + "ms, score " + core.getCount());
+        return true;
+    }
+
+    // 开始游戏，重置状态并启动推进任务
     public void startGame() {
-        isRunning = true;
-        isPaused = false;
-        playTime = INITIAL_PLAY_TIME;
-        count = 0;
-        comboCount = 0;
-        mouseCount = 1;
-        currentHoleIndex = -1;
-        scoreText.setText("得分: 0");
-        timeView.setText(String.format("剩余时间: %d秒", playTime / 1000));
-        handler.post(mouseRunnable); // 启动地鼠刷新任务
-        handler.post(timeRunnable); // 启动计时任务
-        Log.d("GameEngine", "Game started");
+        if (recorder != null) recorder.begin(!core.getDifficulty().isAdaptive());
+        started = true;
+        gameOverPending = false;
+        publishedMisses = 0;
+        loop.start(); // 开局立即刷新第一波地鼠，上一局残留的任务全部失效
+        if (renderer != null) {
+            renderer.setScoreText(scoreText());
+            renderer.setTimeText(timeText());
+        }
+        Log.d(TAG, "Game started, endless: " + core.isEndless());
     }
 
     // 恢复游戏，从暂停状态继续
     public void resumeGame() {
-        if (!isRunning || !isPaused) return;
-        isPaused = false;
-        handler.post(mouseRunnable);
-        handler.post(timeRunnable);
-        Log.d("GameEngine", "Game resumed");
+        loop.resume();
+        Log.d(TAG, "Game resumed");
     }
 
     // 暂停游戏，停止任务并隐藏地鼠
     public void stopGame() {
-        isPaused = true;
-        handler.removeCallbacks(mouseRunnable);
-        handler.removeCallbacks(timeRunnable);
-        for (ImageView mouse : mice) {
-            mouse.setVisibility(View.INVISIBLE);
-        }
-        boom.setVisibility(View.INVISIBLE);
-        Log.d("GameEngine", "Game stopped");
+        loop.pause(); // 丢弃所有待执行的推进和隐藏任务
+        if (renderer != null) renderer.clearMoles();
+        Log.d(TAG, "Game stopped");
     }
 
     // 结束游戏，清理所有任务并隐藏视图
     public void endGame() {
-        isRunning = false;
-        isPaused = false;
-        handler.removeCallbacksAndMessages(null); // 清理所有消息和回调
-        for (ImageView mouse : mice) {
-            mouse.setVisibility(View.INVISIBLE);
-        }
-        boom.setVisibility(View.INVISIBLE);
-        Log.d("GameEngine", "Game ended");
-    }
-
-    // 处理击中地鼠的逻辑，同步保护避免多线程问题
-    public synchronized ImageView hitMouse(ImageView hunter) {
-        if (!isRunning || isPaused) return null; // 游戏未运行或暂停时不处理
-
-        ImageView hitMouse = null;
-        synchronized (mice) {
-            if (isRandomMode) {
-                // 随机模式：检查猎人与所有地鼠的位置
-                for (ImageView mouse : mice) {
-                    if (isHunterOnMouse(hunter, mouse)) {
-                        hitMouse = mouse;
-                        break;
-                    }
-                }
-            } else {
-                // 简单模式：检查猎人与当前洞中的地鼠
-                // 修复：限制循环范围，避免 currentHoleIndices 或 mice 越界
-                int limit = Math.min(mouseCount, Math.min(mice.size(), currentHoleIndices.size()));
-                for (int i = 0; i < limit; i++) {
-                    View currentHole = holes[currentHoleIndices.get(i)];
-                    if (isHunterInHole(hunter, currentHole)) {
-                        hitMouse = mice.get(i);
-                        break;
-                    }
+        loop.stop(); // 丢弃所有待执行的任务
+        gameOverPending = false;
+        if (renderer != null) renderer.clearMoles();
+        Log.d(TAG, "Game ended, " + scheduler);
+    }
+
+    // 处理击中地鼠的逻辑，击中时返回 true，击中区域可通过 getLastHit* 获取
+    public synchronized boolean hitMouse(float tipX, float tipY) {
+        if (!core.isRunning() || loop.isPaused() || renderer == null) return false; // 游戏未运行或暂停时不处理
+
+        int score = 0;
+        if (isRandomMode) {
+            // 随机模式：按引擎记录的坐标检查锤头是否落在某只地鼠的不透明区域
+            for (int i = 0; i < core.getSlotCount(); i++) {
+                if (isHunterOnMouse(tipX, tipY, i)) {
+                    renderer.hideMole(i); // 爆炸效果由事件流的消费者负责
+                    setLastHit(positions[i * 2], positions[i * 2 + 1], geometry.mouseWidth, geometry.mouseHeight);
+                    score = core.hit(i, loop.getGameTime());
+                    if (score > 0) publishHit(i, score);
+                    break;
                 }
             }
+        } else {
+            // 简单模式：由棋盘根据坐标直接算出被击中的洞
+            int hole = renderer.hitTest(tipX, tipY, hitBounds);
+            if (hole >= 0) {
+                renderer.hideMole(hole);
+                setLastHit(hitBounds[0], hitBounds[1], hitBounds[2], hitBounds[3]);
+                score = core.hit(hole, loop.getGameTime());
+                if (score > 0) publishHit(hole, score);
+            }
         }
 
-        // 如果击中，更新得分和 UI
-        if (hitMouse != null) {
-            comboCount++;
-            int score = (comboCount >= 3) ? 2 : 1; // 连击3次以上双倍得分
-            count += score;
-            hitMouse.setVisibility(View.INVISIBLE); // 隐藏被击中的地鼠
-            boom.setX(hitMouse.getX() - 25f);
-            boom.setY(hitMouse.getY() - 25f);
-            boom.setVisibility(View.VISIBLE); // 显示爆炸效果
-            handler.postDelayed(() -> boom.setVisibility(View.INVISIBLE), 300); // 300ms 后隐藏爆炸
-            scoreText.setText(String.format("得分: %d", count));
+        // 如果击中，更新得分
+        if (score > 0) {
+            renderer.setScoreText(scoreText());
         }
-        return hitMouse;
+        return score > 0;
+    }
+
+    private void setLastHit(float x, float y, float width, float height) {
+        lastHitX = x;
+        lastHitY = y;
+        lastHitWidth = width;
+        lastHitHeight = height;
+    }
+
+    public float getLastHitX() {
+        return lastHitX;
+    }
+
+    public float getLastHitY() {
+        return lastHitY;
+    }
+
+    public float getLastHitWidth() {
+        return lastHitWidth;
+    }
+
+    public float getLastHitHeight() {
+        return lastHitHeight;
     }
 
     // 获取最后一次击中的得分
     public int getLastScore() {
-        return (comboCount >= 3) ? 2 : 1;
-    }
-
-    // 显示得分动画（未与 PlayActivity 完全同步，可能需要调整）
-    private void showScoreAnimation(ImageView target) {
-        TextView scoreAnim = new TextView(context);
-        scoreAnim.setText("+1");
-        scoreAnim.setTextColor(Color.WHITE);
-        scoreAnim.setTextSize(20);
-        LayoutParams params = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
-        params.startToStart = LayoutParams.PARENT_ID;
-        params.topToTop = LayoutParams.PARENT_ID;
-        params.setMargins((int) target.getX() + target.getWidth() / 2, (int) target.getY() - 50, 0, 0);
-        ((ConstraintLayout) target.getParent()).addView(scoreAnim, params);
-
-        scoreAnim.animate()
-                .translationYBy(-50f)
-                .alpha(0f)
-                .setDuration(500)
-                .withEndAction(() -> {
-                    if (scoreAnim.getParent() != null) {
-                        ((ConstraintLayout) scoreAnim.getParent()).removeView(scoreAnim);
-                    }
-                })
-                .start();
+        return (core.getComboCount() >= 3) ? 2 : 1;
     }
 
     // 获取当前得分，同步保护
     public synchronized int getCount() {
-        return count;
+        return core.getCount();
+    }
+
+    // 是否已开始（或已从日志恢复），页面重建后据此决定是否只需重新绑定
+    public boolean isStarted() {
+        return started;
     }
 
     // 判断游戏是否结束
     public boolean isGameOver() {
-        return playTime <= 0 || !isRunning;
+        return !core.isRunning();
     }
 
-    // 地鼠刷新任务，定期更新地鼠位置
-    private final Runnable mouseRunnable = new Runnable() {
-        @Override
-        public void run() {
-            if (isRunning && !isPaused && playTime > 0) {
-                int index = new Random().nextInt(isRandomMode ? 100 : holes.length);
-                handler.sendMessage(handler.obtainMessage(MSG_UPDATE_UI, index, 0));
-                handler.postDelayed(this, getSleepTime()); // 根据游戏进度调整刷新间隔
-            }
+    public boolean isPaused() {
+        return loop.isPaused();
+    }
+
+    public boolean isEndless() {
+        return core.isEndless();
+    }
+
+    // 简单模式的棋盘规格，困难模式为 null
+    public BoardSpec getSpec() {
+        return spec;
+    }
+
+    // 已坚持的时间（毫秒）
+    public int getElapsed() {
+        return core.getElapsed();
+    }
+
+    // 与录像相同时间轴的游戏时间（毫秒）
+    public long getGameTime() {
+        return loop.getGameTime();
+    }
+
+    // 结束录制并按得分决定是否保存为幽灵对局
+    public void finishRecording() {
+        drainRecorder();
+        if (recorder != null) recorder.finish(core.getTime(), core.getCount()); // 丢失事件时已放弃
+    }
+
+    private void publishHit(int slot, int score) {
+        events.publish(GameEventRing.HIT, loop.getGameTime(), slot, score, core.getCount(),
+                lastHitX, lastHitY, lastHitWidth, lastHitHeight);
+        if (renderer != null) renderer.onEventsPublished();
+    }
+
+    // 把上次发布之后新增的失误发布出去（失误在核心推进时统计）
+    private void publishMisses() {
+        int misses = core.getMisses();
+        if (misses == publishedMisses) return;
+        events.publish(GameEventRing.MISS, core.getTime(), -1, misses - publishedMisses, misses);
+        publishedMisses = misses;
+    }
+
+    // 录制按自己的节奏读取事件流；一旦落后一圈丢了事件，录像就缺少记录，直接放弃而不是写出残缺的幽灵文件
+    private void drainRecorder() {
+        if (recorder == null) return;
+        recorderCursor.poll(recorder);
+        if (recorderCursor.getLostCount() > 0) {
+            Log.w(TAG, "Recorder lost " + recorderCursor.getLostCount() + " events, discarding recording");
+            recorder.cancel();
+            recorder = null;
         }
-    };
-
-    // 计时任务，控制时间减少和地鼠数量增加
-    private final Runnable timeRunnable = new Runnable() {
-        @Override
-        public void run() {
-            if (isRunning && !isPaused && playTime > 0) {
-                playTime -= TIME_TICK;
-                timeView.setText(String.format("剩余时间: %d秒", playTime / 1000));
-                Log.d("GameEngine", "Time remaining: " + playTime / 1000 + "s, Mouse Count: " + mouseCount);
-
-                // 动态增加地鼠数量
-                int elapsedTime = INITIAL_PLAY_TIME - playTime;
-                if (elapsedTime >= MULTI_MOUSE_START_TIME) {
-                    int expectedMouseCount = Math.min(MAX_MOUSE_COUNT, 1 + (elapsedTime - MULTI_MOUSE_START_TIME) / MOUSE_INCREASE_INTERVAL);
-                    if (mouseCount < expectedMouseCount) {
-                        synchronized (mice) {
-                            while (mice.size() < expectedMouseCount) {
-                                activity.addMouseView(); // 添加新地鼠视图
-                            }
-                            mouseCount = expectedMouseCount;
-                        }
-                        Log.d("GameEngine", "Updated Mouse Count to: " + mouseCount);
-                    }
-                }
+    }
 
-                // 时间耗尽时结束游戏
-                if (playTime <= 0) {
-                    Log.d("GameEngine", "Time up, sending game over message");
-                    handler.sendEmptyMessage(MSG_GAME_OVER);
-                } else {
-                    handler.postDelayed(this, TIME_TICK);
-                }
-            }
+    // 中途退出时丢弃录制
+    public void cancelRecording() {
+        if (recorder != null) recorder.cancel();
+    }
+
+    // 地鼠视图数量上限（困难模式），页面在绑定前一次性创建这么多地鼠视图
+    public int getMaxMouseCount() {
+        return core.getSlotCount();
+    }
+
+    // 计时事件：刷新时间显示
+    @Override
+    public void onTick(GameCore core) {
+        publishMisses();
+        events.publish(GameEventRing.TICK, core.getTime(), -1, core.getElapsed(), core.getPlayTime());
+        drainRecorder();
+        if (renderer != null) {
+            renderer.setTimeText(timeText());
+            renderer.onEventsPublished();
         }
-    };
-
-    // 计算地鼠刷新间隔，随游戏进度加快
-    private long getSleepTime() {
-        long baseTime = playTime > 40000 ? 1500 : playTime > 20000 ? 1000 : 800;
-        return Math.max(500, baseTime - (mouseCount * 100) - (count / 10));
-    }
-
-    // 更新地鼠位置和 UI
-    public void updateUI(int index) {
-        if (!isRunning || isPaused) return;
-
-        Log.d("GameEngine", "Updating UI, Mouse Count: " + mouseCount + ", Mice Size: " + mice.size());
-        synchronized (mice) {
-            if (isRandomMode) {
-                // 随机模式：地鼠随机出现在屏幕上
-                for (int i = 0; i < mouseCount && i < mice.size(); i++) {
-                    ImageView mouse = mice.get(i);
-                    int finalI = i;
-                    mouse.post(() -> {
-                        int maxX = mouse.getRootView().getWidth() - mouse.getWidth();
-                        int maxY = mouse.getRootView().getHeight() - mouse.getHeight();
-                        if (maxX <= 0 || maxY <= 0) {
-                            Log.w("GameEngine", "View not ready, skipping update for mouse " + finalI);
-                            return;
-                        }
-                        mouse.setX(new Random().nextInt(maxX));
-                        mouse.setY(new Random().nextInt(maxY));
-                        mouse.setVisibility(View.VISIBLE);
-                        Log.d("GameEngine", "Mouse " + finalI + " set visible at (" + mouse.getX() + ", " + mouse.getY() + ")");
-                    });
-                }
-            } else {
-                // 简单模式：地鼠出现在固定洞中
-                currentHoleIndices.clear();
-                List<Integer> usedIndices = new ArrayList<>();
-                // 修复：确保 currentHoleIndices 与 mice 和 mouseCount 同步
-                int limit = Math.min(mouseCount, mice.size());
-                for (int i = 0; i < limit; i++) {
-                    int holeIndex;
-                    do {
-                        holeIndex = new Random().nextInt(holes.length);
-                    } while (usedIndices.contains(holeIndex)); // 确保洞不重复
-                    usedIndices.add(holeIndex);
-                    currentHoleIndices.add(holeIndex);
-                    View currentHole = holes[holeIndex];
-                    ImageView mouse = mice.get(i);
-                    mouse.setX(currentHole.getX() + (currentHole.getWidth() - mouse.getWidth()) / 2f);
-                    mouse.setY(currentHole.getY() + (currentHole.getHeight() - mouse.getHeight()) / 2f);
-                    mouse.setVisibility(View.VISIBLE);
-                    Log.d("GameEngine", "Mouse " + i + " set visible at hole " + holeIndex);
-                }
-            }
-            boom.setVisibility(View.INVISIBLE); // 隐藏爆炸效果
+        if (journal != null && core.isRunning()) {
+            journal.record(snapshot); // 每秒最多写一次日志
         }
+        Log.d(TAG, "Elapsed: " + core.getElapsed() / 1000 + "s, Mouse Count: " + core.getMouseCount()
+                + ", Difficulty: " + core.getDifficulty().getLevelPercent() + "%");
     }
 
-    // 检查猎人是否在洞内（简单模式）
-    private boolean isHunterInHole(ImageView hunter, View hole) {
-        float holeCenterX = hole.getX() + hole.getWidth() / 2f;
-        float holeCenterY = hole.getY() + hole.getHeight() / 2f;
-        float hunterX = hunter.getX() + hunter.getWidth() / 2f;
-        float hunterY = hunter.getY() + hunter.getHeight() / 2f;
+    private String timeText() {
+        if (core.isEndless()) {
+            return String.format("坚持: %d秒 失误: %d/%d", core.getElapsed() / 1000, core.getMisses(), GameCore.MAX_MISSES);
+        }
+        return String.format("剩余时间: %d秒", core.getPlayTime() / 1000);
+    }
 
-        float tolerance = 60f; // 容差范围
-        return Math.abs(hunterX - holeCenterX) < tolerance &&
-                Math.abs(hunterY - holeCenterY) < tolerance;
+    // 击中路径上调用，不分配内存
+    private CharSequence scoreText() {
+        scoreText.setLength(0);
+        return scoreText.append("得分: ").append(core.getCount());
     }
 
-    // 检查猎人是否击中地鼠（随机模式）
-    private boolean isHunterOnMouse(ImageView hunter, ImageView mouse) {
-        if (mouse.getVisibility() != View.VISIBLE) return false; // 未显示的地鼠不算击中
+    // 刷新事件：把核心选出的位置显示为地鼠
+    @Override
+    public void onSpawn(int[] slots, int count) {
+        if (isRandomMode) {
+            // 随机模式：地鼠互不重叠地分布在可玩区域内，避开按钮和分数
+            int placed = placer.place(count, random, placement);
+            for (int i = 0; i < count; i++) {
+                if (i >= placed) {
+                    core.cancel(slots[i]); // 空间不足时少放几只，不计失误
+                    continue;
+                }
+                positions[slots[i] * 2] = placement[i * 2];
+                positions[slots[i] * 2 + 1] = placement[i * 2 + 1];
+            }
+            count = Math.min(count, placed);
+        }
+        publishMisses(); // 上一波没打到的地鼠在出新一波时计入
+        for (int i = 0; i < count; i++) {
+            events.publish(GameEventRing.SPAWN, core.getTime(), slots[i], count, i);
+        }
+        drainRecorder(); // 每波都读，一波的出鼠事件不会在缓冲区里堆积
+        if (renderer != null) {
+            renderer.showMoles(slots, count, isRandomMode ? positions : null);
+            renderer.onSpawn();
+            renderer.onEventsPublished();
+        }
+    }
 
-        float mouseCenterX = mouse.getX() + mouse.getWidth() / 2f;
-        float mouseCenterY = mouse.getY() + mouse.getHeight() / 2f;
-        float hunterX = hunter.getX() + hunter.getWidth() / 2f;
-        float hunterY = hunter.getY() + hunter.getHeight() / 2f;
+    // 结束事件：限时模式时间耗尽，无尽模式失误过多
+    @Override
+    public void onGameOver(GameCore core) {
+        Log.d(TAG, core.isEndless() ? "Too many misses, game over" : "Time up, game over");
+        publishMisses();
+        events.publish(GameEventRing.GAME_OVER, core.getTime(), -1, core.getCount(), core.getMisses());
+        drainRecorder();
+        gameOverPending = true;
+        scheduler.post(() -> {
+            if (!gameOverPending || renderer == null) return; // 页面不在，等重新绑定时通知
+            gameOverPending = false;
+            renderer.onGameOver();
+        });
+    }
 
-        float tolerance = 60f; // 容差范围
-        return Math.abs(hunterX - mouseCenterX) < tolerance &&
-                Math.abs(hunterY - mouseCenterY) < tolerance;
+    // 检查锤头是否击中地鼠的不透明区域（随机模式）
+    private boolean isHunterOnMouse(float tipX, float tipY, int slot) {
+        if (!core.isActive(slot)) return false; // 未显示或已被击中的地鼠不算击中
+        return mouseMask.contains(tipX - positions[slot * 2], tipY - positions[slot * 2 + 1]);
     }
 }
\ No newline at end of file
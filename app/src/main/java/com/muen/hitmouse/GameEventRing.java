@@ -0,0 +1,144 @@
+package com.muen.hitmouse;
+
+// 游戏事件流：预先分配的环形缓冲区（Disruptor 风格），事件的各个字段存放在并列的基本类型数组里，发布时不分配、不加锁
+// 每个消费者持有自己的 Cursor，按自己的节奏读取（反馈每帧读，录制每秒读）；生产者从不等待消费者，
+// 落后超过一圈的消费者直接跳到仍可读的最旧事件并记下丢失数
+// 生产者和所有消费者都在主线程，序号不需要跨线程可见
+public class GameEventRing {
+    public static final int SPAWN = 1; // slot 为出现的位置，value 为本波数量，total 为在本波中的序号
+    public static final int HIT = 2; // slot 为被击中的位置，value 为本次得分，total 为总分，x, y, width, height 为击中区域
+    public static final int MISS = 3; // value 为新增失误，total 为总失误
+    public static final int COMBO = 4; // slot 为玩家通道，value 为连击次数
+    public static final int TICK = 5; // value 为已进行的时间，total 为剩余时间（毫秒）
+    public static final int GAME_OVER = 6; // value 为最终得分，total 为总失误
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // 读取事件的一方，event 在每次回调间复用，不能保存
+    public interface Consumer {
+        void onEvent(Event event);
+    }
+
+    // 事件的只读视图，每个 Cursor 一个
+    public static final class Event {
+        public int type;
+        public long sequence;
+        public long time; // 游戏时间（毫秒）
+        public int slot;
+        public int value;
+        public int total;
+        public float x, y, width, height;
+    }
+
+    private final int mask;
+    private final byte[] types;
+    private final long[] times;
+    private final int[] slots;
+    private final int[] values;
+    private final int[] totals;
+    private final float[] xs, ys, widths, heights;
+    private long next = 0; // 下一个要发布的序号
+
+    public GameEventRing() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // capacity 必须是 2 的幂
+    public GameEventRing(int capacity) {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        mask = capacity - 1;
+        types = new byte[capacity];
+        times = new long[capacity];
+        slots = new int[capacity];
+        values = new int[capacity];
+        totals = new int[capacity];
+        xs = new float[capacity];
+        ys = new float[capacity];
+        widths = new float[capacity];
+        heights = new float[capacity];
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    // 已发布的事件总数
+    public long getPublishedCount() {
+        return next;
+    }
+
+    public void publish(int type, long time, int slot, int value, int total) {
+        publish(type, time, slot, value, total, 0, 0, 0, 0);
+    }
+
+    public void publish(int type, long time, int slot, int value, int total, float x, float y, float width, float height) {
+        int index = (int) (next & mask);
+        types[index] = (byte) type;
+        times[index] = time;
+        slots[index] = slot;
+        values[index] = value;
+        totals[index] = total;
+        xs[index] = x;
+        ys[index] = y;
+        widths[index] = width;
+        heights[index] = height;
+        next++;
+    }
+
+    // 新的读取位置，从下一个发布的事件开始
+    public Cursor newCursor() {
+        return new Cursor(next);
+    }
+
+    public final class Cursor {
+        private final Event event = new Event();
+        private long sequence; // 下一个要读的序号
+        private long lost = 0;
+
+        private Cursor(long sequence) {
+            this.sequence = sequence;
+        }
+
+        // 依次把尚未读取的事件交给 consumer，返回读取的数量
+        public int poll(Consumer consumer) {
+            long oldest = next - (mask + 1);
+            if (sequence < oldest) {
+                lost += oldest - sequence; // 已被覆盖
+                sequence = oldest;
+            }
+            int count = 0;
+            while (sequence < next) {
+                int index = (int) (sequence & mask);
+                event.type = types[index];
+                event.sequence = sequence;
+                event.time = times[index];
+                event.slot = slots[index];
+                event.value = values[index];
+                event.total = totals[index];
+                event.x = xs[index];
+                event.y = ys[index];
+                event.width = widths[index];
+                event.height = heights[index];
+                sequence++;
+                count++;
+                consumer.onEvent(event);
+            }
+            return count;
+        }
+
+        // 跳过尚未读取的事件
+        public void skip() {
+            sequence = next;
+        }
+
+        public boolean hasPending() {
+            return sequence < next;
+        }
+
+        // 因落后超过一圈而丢失的事件数
+        public long getLostCount() {
+            return lost;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.muen.hitmouse;
+
+import android.os.SystemClock;
+
+// 游戏主循环：用一个推进任务驱动一个或多个 GameCore，所有核心共享同一时钟和调度器
+// 每次按真实流逝的时间推进全部核心，再约定在最早的下一个事件到期时执行
+// 设置步长后唤醒时间对齐到固定步长的整数倍：规则只在帧格点上推进，多个计时合并到同一次唤醒，事件顺序不变；
+// 地鼠最多晚一个步长消失，这段时间它仍显示在屏幕上，所以仍可击中
+public class GameLoop {
+
+    // 系统时钟，Android 中为 SystemClock::uptimeMillis，测试中可替换为虚拟时间
+    public interface Clock {
+        long uptimeMillis();
+    }
+
+    private final GameScheduler scheduler;
+    private final Clock clock;
+    private final GameCore[] cores;
+    private boolean paused = false;
+    private long lastAdvanceAt; // 上次推进核心时的系统时间
+    private int stepMillis = 0; // 推进步长，0 表示事件到期立即推进
+
+    public GameLoop(GameScheduler scheduler, GameCore... cores) {
+        this(scheduler, SystemClock::uptimeMillis, cores);
+    }
+
+    public GameLoop(GameScheduler scheduler, Clock clock, GameCore... cores) {
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.cores = cores;
+    }
+
+    // 设置推进步长（毫秒），通常为所选帧率的一帧；事件最多晚一个步长显示
+    public void setStepMillis(int stepMillis) {
+        this.stepMillis = Math.max(0, stepMillis);
+    }
+
+    // 开始新的一局，上一局残留的任务全部失效
+    public void start() {
+        paused = false;
+        for (GameCore core : cores) {
+            core.start();
+        }
+        scheduler.advanceGeneration();
+        lastAdvanceAt = clock.uptimeMillis();
+        scheduler.post(step); // 开局立即刷新第一波地鼠
+    }
+
+    // 接上恢复的核心状态并停在暂停状态，不重置核心；玩家准备好后由 resume 继续
+    public void startRestored() {
+        paused = true;
+        scheduler.advanceGeneration();
+    }
+
+    // 暂停：先把已经过的时间计入，再丢弃所有待执行的任务
+    public void pause() {
+        if (isRunning() && !paused) {
+            advanceAll(clock.uptimeMillis() - lastAdvanceAt);
+        }
+        paused = true;
+        scheduler.advanceGeneration();
+    }
+
+    // 恢复：暂停时地鼠已隐藏，恢复后立即刷新一波，不计失误
+    public void resume() {
+        if (!isRunning() || !paused) return;
+        paused = false;
+        for (GameCore core : cores) {
+            if (core.isRunning()) core.resetWave();
+        }
+        lastAdvanceAt = clock.uptimeMillis();
+        scheduler.post(step);
+    }
+
+    public void stop() {
+        paused = false;
+        for (GameCore core : cores) {
+            core.stop();
+        }
+        scheduler.advanceGeneration();
+    }
+
+    // 当前的游戏时间（毫秒）：核心已推进的时间加上自上次推进以来流逝的时间，暂停期间不增长
+    public long getGameTime() {
+        long time = cores[0].getTime();
+        if (!paused && cores[0].isRunning()) {
+            time += clock.uptimeMillis() - lastAdvanceAt;
+        }
+        return time;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    // 任意一个核心仍在运行即视为运行中
+    public boolean isRunning() {
+        for (GameCore core : cores) {
+            if (core.isRunning()) return true;
+        }
+        return false;
+    }
+
+    private void advanceAll(long deltaMs) {
+        for (GameCore core : cores) {
+            if (core.isRunning()) core.advance(deltaMs);
+        }
+    }
+
+    private final Runnable step = new Runnable() {
+        @Override
+        public void run() {
+            if (paused) return;
+            long now = clock.uptimeMillis();
+            advanceAll(now - lastAdvanceAt);
+            lastAdvanceAt = now;
+            long next = Long.MAX_VALUE;
+            for (GameCore core : cores) {
+                if (core.isRunning()) next = Math.min(next, core.getMillisUntilNextEvent());
+            }
+            if (next != Long.MAX_VALUE) {
+                if (stepMillis > 0) {
+                    long due = now + next;
+                    next = (due + stepMillis - 1) / stepMillis * stepMillis - now; // 向上对齐到步长格点
+                }
+                scheduler.postDelayed(this, next);
+            }
+        }
+    };
+}
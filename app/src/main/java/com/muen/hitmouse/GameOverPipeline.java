@@ -0,0 +1,72 @@
+package com.muen.hitmouse;
+
+import android.util.Log;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 结算流水线：对局进行中就在后台读好历史摘要（之前的最高分、排名和平均分所需的记录），
+// 结束时主线程直接用摘要填写结算对话框，记录的移位保存放到同一个后台线程，排在摘要读取之后
+public class GameOverPipeline {
+    private static final String TAG = "GameOverPipeline";
+
+    // 所有页面共用一个后台线程，保存按提交顺序进行
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "GameOver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final RecordStore recordStore;
+    private RecordStore.Summary summary; // 后台读好之前为 null，由 this 保护
+    private int generation = 0; // takeSummary 时加一，之前发出的预读结果作废
+
+    public GameOverPipeline(RecordStore recordStore) {
+        this.recordStore = recordStore;
+    }
+
+    // 在后台预读历史摘要，对局中记录不会变化，越早读越好
+    public void prefetch() {
+        int expected;
+        synchronized (this) {
+            if (summary != null) return;
+            expected = generation;
+        }
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            RecordStore.Summary result = recordStore.summarize();
+            synchronized (this) {
+                if (expected != generation) {
+                    Log.d(TAG, "Discarding stale summary"); // 主线程已经自己读过，之后可能已保存了新记录
+                    return;
+                }
+                summary = result;
+            }
+            Log.d(TAG, "Summary ready in " + (System.nanoTime() - start) / 1000 + "us");
+        });
+    }
+
+    // 结束时取摘要；后台还没读完（例如对局刚开始就结束）时在主线程读一次
+    public RecordStore.Summary takeSummary() {
+        RecordStore.Summary result;
+        synchronized (this) {
+            result = summary;
+            summary = null;
+            generation++; // 还在路上的预读不再写回
+        }
+        if (result == null) {
+            result = recordStore.summarize();
+            Log.d(TAG, "Summary not prefetched, read on main thread");
+        }
+        return result;
+    }
+
+    // 在后台保存本局，附加状态与记录同一次提交，调用方不等待结果
+    public void save(long timestamp, int score, RecordStore.Extra... extras) {
+        executor.execute(() -> recordStore.saveGame(timestamp, score, extras));
+    }
+
+    // 在保存记录的同一个后台线程上执行，导出和导入因此不会与保存交错
+    public static void runInBackground(Runnable task) {
+        executor.execute(task);
+    }
+}
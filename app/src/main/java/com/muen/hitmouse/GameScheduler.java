@@ -0,0 +1,96 @@
+package com.muen.hitmouse;
+
+// 带代号（generation）的任务调度器：每个任务在投递时记录当前代号，
+// 暂停、退出或结束游戏时只需把代号加一，旧任务执行时发现代号不符直接丢弃，无需扫描消息队列
+// 只能在同一个线程（通常是主线程）中使用
+public class GameScheduler {
+
+    // 实际执行延迟任务的后端，Android 中为 Handler::postDelayed
+    public interface Backend {
+        void postDelayed(Runnable task, long delayMs);
+    }
+
+    private final Backend backend;
+    private int generation = 0;
+    private Task freeList; // 复用的任务包装对象，避免每次投递都分配
+
+    private long queued = 0; // 已投递但尚未执行或丢弃的任务数
+    private long executed = 0;
+    private long dropped = 0;
+
+    public GameScheduler(Backend backend) {
+        this.backend = backend;
+    }
+
+    public void post(Runnable runnable) {
+        postDelayed(runnable, 0);
+    }
+
+    public void postDelayed(Runnable runnable, long delayMs) {
+        Task task = obtain();
+        task.target = runnable;
+        task.generation = generation;
+        queued++;
+        backend.postDelayed(task, delayMs);
+    }
+
+    // 使所有已投递的任务失效，O(1)
+    public void advanceGeneration() {
+        generation++;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public long getQueuedCount() {
+        return queued;
+    }
+
+    public long getExecutedCount() {
+        return executed;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    @Override
+    public String toString() {
+        return "GameScheduler{generation=" + generation + ", queued=" + queued + ", executed=" + executed + ", dropped=" + dropped + "}";
+    }
+
+    private Task obtain() {
+        Task task = freeList;
+        if (task == null) return new Task();
+        freeList = task.next;
+        task.next = null;
+        return task;
+    }
+
+    private void recycle(Task task) {
+        task.target = null;
+        task.next = freeList;
+        freeList = task;
+    }
+
+    private final class Task implements Runnable {
+        Runnable target;
+        int generation;
+        Task next;
+
+        @Override
+        public void run() {
+            Runnable runnable = target;
+            boolean stale = generation != GameScheduler.this.generation;
+            queued--;
+            recycle(this);
+            if (stale) {
+                dropped++;
+                return;
+            }
+            executed++;
+            runnable.run();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.muen.hitmouse;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.lifecycle.ViewModel;
+
+// 对局持有者：引擎、调度器和崩溃恢复日志放在 ViewModel 中，旋转、多窗口等配置变化重建页面时原样保留，对局不中断
+// 调度器使用自己的主线程 Handler，投递的任务只引用引擎，不会持有页面；页面真正退出时才结束对局并清理
+public class GameViewModel extends ViewModel {
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final GameScheduler scheduler = new GameScheduler(handler::postDelayed);
+    private GameEngine engine;
+    private SessionJournal journal;
+    private AchievementEngine achievements; // 跟随引擎的事件流，页面重建时不丢失进度
+    private RecordStore.Summary gameResult; // 本局结算时的历史摘要，页面重建后重新显示结算对话框用
+
+    public GameScheduler getScheduler() {
+        return scheduler;
+    }
+
+    // 当前对局的引擎，还没有创建或已经 release 时返回 null
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(GameEngine engine, SessionJournal journal) {
+        this.engine = engine;
+        this.journal = journal;
+        this.gameResult = null;
+        engine.setJournal(journal);
+    }
+
+    public SessionJournal getJournal() {
+        return journal;
+    }
+
+    public void setAchievements(AchievementEngine achievements) {
+        this.achievements = achievements;
+    }
+
+    public AchievementEngine getAchievements() {
+        return achievements;
+    }
+
+    // 记录本局结算结果，成绩只保存一次
+    public void setGameResult(RecordStore.Summary gameResult) {
+        this.gameResult = gameResult;
+    }
+
+    // 已结算时返回结算用的历史摘要，否则返回 null
+    public RecordStore.Summary getGameResult() {
+        return gameResult;
+    }
+
+    // 结束并丢弃当前对局（重新开始或页面退出），之后 getEngine 返回 null
+    public void release() {
+        if (engine != null) {
+            engine.endGame();
+            engine.cancelRecording(); // 已正常结束的录制不受影响
+            engine = null;
+        }
+        if (achievements != null) {
+            achievements.poll(); // 页面不在时结束的对局也要计入
+            achievements.setListener(null);
+            achievements.save();
+            achievements = null;
+        }
+        if (journal != null) {
+            journal.clear(); // 主动退出，不再恢复
+            journal.close();
+            journal = null;
+        }
+        gameResult = null;
+        handler.removeCallbacksAndMessages(null);
+    }
+
+    @Override
+    protected void onCleared() {
+        release();
+    }
+}
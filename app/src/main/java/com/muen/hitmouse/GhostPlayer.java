@@ -0,0 +1,140 @@
+package com.muen.hitmouse;
+
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// 幽灵回放：把录像文件映射到内存，按游戏时间逐条解码，只读取到当前时间为止的记录
+// 文件不会整体读入，页面由系统按需换入；每帧只解码这一帧内发生的几条记录，解码过程不分配内存
+public class GhostPlayer {
+    private static final String TAG = "GhostPlayer";
+
+    // 回放事件，在调用 advanceTo 的线程中同步触发
+    public interface Listener {
+        void onGhostWave(int[] slots, int count);
+        void onGhostHit(int slot, int score);
+    }
+
+    private final ByteBuffer records; // 映射的记录区
+    private final int finalScore;
+    private final boolean fixedDifficulty; // 录制时使用固定难度曲线
+    private final int[] wave; // 解码本波地鼠时复用
+    private int score = 0; // 回放到当前时间为止的得分
+    private boolean finished = false;
+
+    private GhostPlayer(ByteBuffer records, int finalScore, boolean fixedDifficulty, int holeCount) {
+        this.records = records;
+        this.finalScore = finalScore;
+        this.fixedDifficulty = fixedDifficulty;
+        this.wave = new int[holeCount];
+    }
+
+    // 打开与当前棋盘和玩法匹配的录像，文件不存在、不匹配或记录不完整时返回 null
+    public static GhostPlayer open(File file, int rows, int cols, boolean endless) throws IOException {
+        if (!file.exists()) return null;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r"); FileChannel channel = in.getChannel()) {
+            if (channel.size() < SessionFile.HEADER_SIZE) return null;
+            ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // 关闭通道后映射仍然有效
+            int flags = map.getInt(8);
+            if (map.getInt(0) != SessionFile.MAGIC || map.getShort(4) != SessionFile.VERSION
+                    || map.get(6) != rows || map.get(7) != cols || ((flags & SessionFile.FLAG_ENDLESS) != 0) != endless) {
+                return null;
+            }
+            int finalScore = map.getInt(SessionFile.SCORE_OFFSET);
+            map.position(SessionFile.HEADER_SIZE);
+            ByteBuffer records = map.slice();
+            if (!isComplete(records, rows * cols, finalScore)) {
+                Log.w(TAG, "Discarding incomplete ghost: " + file.getName());
+                return null;
+            }
+            return new GhostPlayer(records, finalScore, (flags & SessionFile.FLAG_FIXED_DIFFICULTY) != 0, rows * cols);
+        }
+    }
+
+    // 打开时扫描一遍全部记录：每个波次记录后面紧跟声明条数的地鼠记录且位置在棋盘内，
+    // 以结束记录收尾，击中得分之和等于文件头中的最终得分；缺记录、截断或被改过的文件都通不过
+    static boolean isComplete(ByteBuffer records, int holeCount, int finalScore) {
+        int length = records.limit();
+        if (length % SessionFile.RECORD_SIZE != 0) return false;
+        int molesExpected = 0; // 当前波次还差的地鼠记录数
+        long score = 0;
+        for (int position = 0; position < length; position += SessionFile.RECORD_SIZE) {
+            byte type = records.get(position + 4);
+            int value = records.get(position + 5) & 0xFF;
+            int slot = records.getShort(position + 6);
+            if (molesExpected > 0) {
+                if (type != SessionFile.TYPE_MOLE || slot < 0 || slot >= holeCount) return false;
+                molesExpected--;
+                continue;
+            }
+            switch (type) {
+                case SessionFile.TYPE_WAVE:
+                    if (slot < 0 || slot > holeCount) return false;
+                    molesExpected = slot;
+                    break;
+                case SessionFile.TYPE_HIT:
+                    if (slot < 0 || slot >= holeCount) return false;
+                    score += value;
+                    break;
+                case SessionFile.TYPE_END:
+                    return position + SessionFile.RECORD_SIZE == length && score == finalScore;
+                default:
+                    return false; // 波次之外不应出现地鼠记录或未知记录
+            }
+        }
+        return false; // 没有结束记录
+    }
+
+    // 解码游戏时间不超过 timeMs 的所有记录
+    public void advanceTo(long timeMs, Listener listener) {
+        ByteBuffer buffer = records;
+        while (!finished && buffer.remaining() >= SessionFile.RECORD_SIZE) {
+            int position = buffer.position();
+            if (buffer.getInt(position) > timeMs) return;
+            byte type = buffer.get(position + 4);
+            int value = buffer.get(position + 5) & 0xFF;
+            int slot = buffer.getShort(position + 6);
+            buffer.position(position + SessionFile.RECORD_SIZE);
+            switch (type) {
+                case SessionFile.TYPE_WAVE:
+                    int count = Math.min(slot, wave.length);
+                    for (int i = 0; i < count && buffer.remaining() >= SessionFile.RECORD_SIZE; i++) {
+                        wave[i] = buffer.getShort(buffer.position() + 6);
+                        buffer.position(buffer.position() + SessionFile.RECORD_SIZE);
+                    }
+                    listener.onGhostWave(wave, count);
+                    break;
+                case SessionFile.TYPE_HIT:
+                    score += value;
+                    listener.onGhostHit(slot, value);
+                    break;
+                case SessionFile.TYPE_END:
+                    finished = true;
+                    break;
+                default:
+                    break; // 未知记录直接跳过
+            }
+        }
+        if (buffer.remaining() < SessionFile.RECORD_SIZE) finished = true;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getFinalScore() {
+        return finalScore;
+    }
+
+    // 录制时的难度模式，比赛时玩家使用同一种，双方面对相同的难度曲线
+    public boolean isFixedDifficulty() {
+        return fixedDifficulty;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+}
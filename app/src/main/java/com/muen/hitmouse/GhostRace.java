@@ -0,0 +1,119 @@
+package com.muen.hitmouse;
+
+import android.util.Log;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+// 幽灵赛跑：每帧按当前游戏时间推进回放，把幽灵的地鼠和击打画在同一块棋盘上，帧率跟随 FrameClock
+// 同时统计每帧解码耗时，结束时输出平均值和最大值；对局暂停时游戏时间不走，回放也不再请求帧
+public class GhostRace implements FrameClock.Client, GhostPlayer.Listener {
+    private static final String TAG = "GhostRace";
+    private static final long HUNTER_FLASH_MS = 150; // 幽灵锤子每次击打显示的时长
+
+    // 提供与录像相同时间轴的游戏时间
+    public interface Clock {
+        long getGameTime();
+    }
+
+    private final GhostPlayer player;
+    private final Clock clock;
+    private final BoardView board;
+    private final ImageView ghostHunter;
+    private final TextView ghostScore;
+    private final FrameClock frameClock;
+    private boolean running = false;
+    private boolean paused = false;
+    private long hunterHideAt = 0; // 游戏时间
+
+    private long frames = 0;
+    private long totalDecodeNs = 0;
+    private long maxDecodeNs = 0;
+
+    public GhostRace(GhostPlayer player, Clock clock, FrameClock frameClock, BoardView board, ImageView ghostHunter, TextView ghostScore) {
+        this.player = player;
+        this.clock = clock;
+        this.frameClock = frameClock;
+        this.board = board;
+        this.ghostHunter = ghostHunter;
+        this.ghostScore = ghostScore;
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        ghostScore.setVisibility(View.VISIBLE);
+        ghostScore.setText("幽灵: 0 / " + player.getFinalScore());
+        frameClock.request(this);
+    }
+
+    // 对局暂停：取消尚未执行的帧请求，暂停期间主线程不被垂直同步唤醒
+    public void pause() {
+        if (!running || paused) return;
+        paused = true;
+        frameClock.cancel(this);
+    }
+
+    // 对局继续：回放还没结束时重新请求帧
+    public void resume() {
+        if (!running || !paused) return;
+        paused = false;
+        if (!player.isFinished() || hunterHideAt > 0) frameClock.request(this);
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+        paused = false;
+        frameClock.cancel(this);
+        board.clearGhostMoles();
+        ghostHunter.setVisibility(View.INVISIBLE);
+        if (frames > 0) {
+            Log.d(TAG, "Ghost decode: " + frames + " frames, avg " + totalDecodeNs / frames / 1000f
+                    + "us, max " + maxDecodeNs / 1000f + "us");
+        }
+    }
+
+    @Override
+    public boolean onFrame(long frameTimeMillis) {
+        if (!running || paused) return false;
+        long now = clock.getGameTime();
+        int scoreBefore = player.getScore();
+        long start = System.nanoTime();
+        player.advanceTo(now, this);
+        long decodeNs = System.nanoTime() - start;
+        frames++;
+        totalDecodeNs += decodeNs;
+        maxDecodeNs = Math.max(maxDecodeNs, decodeNs);
+
+        if (player.getScore() != scoreBefore) {
+            ghostScore.setText("幽灵: " + player.getScore() + " / " + player.getFinalScore());
+        }
+        if (hunterHideAt > 0 && now >= hunterHideAt) {
+            ghostHunter.setVisibility(View.INVISIBLE);
+            hunterHideAt = 0;
+        }
+        if (player.isFinished()) {
+            board.clearGhostMoles();
+        }
+        return !player.isFinished() || hunterHideAt > 0; // 回放结束后不再占用帧
+    }
+
+    @Override
+    public void onGhostWave(int[] slots, int count) {
+        board.showGhostMoles(slots, count);
+    }
+
+    // 幽灵击中：隐藏它的地鼠，并把半透明锤子移到该洞上闪一下
+    @Override
+    public void onGhostHit(int slot, int score) {
+        board.hideGhostMole(slot);
+        BoardLayout layout = board.getBoardLayout();
+        if (layout == null) return;
+        float size = layout.getHoleSize();
+        ghostHunter.setX(board.getX() + layout.getHoleLeft(slot) + (size - ghostHunter.getWidth()) / 2f);
+        ghostHunter.setY(board.getY() + layout.getHoleTop(slot) + (size - ghostHunter.getHeight()) / 2f);
+        ghostHunter.setVisibility(View.VISIBLE);
+        hunterHideAt = clock.getGameTime() + HUNTER_FLASH_MS;
+    }
+}
@@ -0,0 +1,100 @@
+package com.muen.hitmouse;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+// 按精灵图透明通道生成的命中区域：以视图实际渲染尺寸存储为紧凑位图（每像素 1 位），
+// 命中判断只需一次数组访问和位运算，不分配对象
+public class HitMask {
+    public static final int DEFAULT_ALPHA_THRESHOLD = 128; // 透明度超过该值视为可命中
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] bits;
+
+    private HitMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.bits = new long[wordsPerRow * height];
+    }
+
+    // 从 ARGB 像素生成命中区域，图片按 fitCenter 方式缩放到 dstWidth x dstHeight 的视图中（最近邻采样）
+    public static HitMask fromArgbFitCenter(int[] argb, int srcWidth, int srcHeight, int dstWidth, int dstHeight, int alphaThreshold) {
+        HitMask mask = new HitMask(dstWidth, dstHeight);
+        float scale = Math.min((float) dstWidth / srcWidth, (float) dstHeight / srcHeight);
+        float offsetX = (dstWidth - srcWidth * scale) / 2f;
+        float offsetY = (dstHeight - srcHeight * scale) / 2f;
+        for (int y = 0; y < dstHeight; y++) {
+            int sy = (int) Math.floor((y + 0.5f - offsetY) / scale); // 留白中的像素落在 -1 而不是取整到 0
+            if (sy < 0 || sy >= srcHeight) continue;
+            for (int x = 0; x < dstWidth; x++) {
+                int sx = (int) Math.floor((x + 0.5f - offsetX) / scale);
+                if (sx < 0 || sx >= srcWidth) continue;
+                if ((argb[sy * srcWidth + sx] >>> 24) >= alphaThreshold) {
+                    mask.bits[y * mask.wordsPerRow + (x >>> 6)] |= 1L << (x & 63);
+                }
+            }
+        }
+        return mask;
+    }
+
+    // 从构建时预计算的源尺寸命中区域生成（存储方式与本类相同），同样按 fitCenter 缩放，不需要读取像素
+    public static HitMask fromMaskFitCenter(LongBuffer srcBits, int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        HitMask mask = new HitMask(dstWidth, dstHeight);
+        int srcWordsPerRow = (srcWidth + 63) >>> 6;
+        float scale = Math.min((float) dstWidth / srcWidth, (float) dstHeight / srcHeight);
+        float offsetX = (dstWidth - srcWidth * scale) / 2f;
+        float offsetY = (dstHeight - srcHeight * scale) / 2f;
+        for (int y = 0; y < dstHeight; y++) {
+            int sy = (int) Math.floor((y + 0.5f - offsetY) / scale);
+            if (sy < 0 || sy >= srcHeight) continue;
+            for (int x = 0; x < dstWidth; x++) {
+                int sx = (int) Math.floor((x + 0.5f - offsetX) / scale);
+                if (sx < 0 || sx >= srcWidth) continue;
+                if ((srcBits.get(sy * srcWordsPerRow + (sx >>> 6)) & (1L << (sx & 63))) != 0) {
+                    mask.bits[y * mask.wordsPerRow + (x >>> 6)] |= 1L << (x & 63);
+                }
+            }
+        }
+        return mask;
+    }
+
+    // 整个矩形都可命中，图片解码失败时作为兜底
+    public static HitMask filled(int width, int height) {
+        HitMask mask = new HitMask(width, height);
+        Arrays.fill(mask.bits, -1L);
+        if ((width & 63) != 0) {
+            long last = (1L << (width & 63)) - 1; // 每行最后一个字只保留宽度以内的位
+            for (int y = 0; y < height; y++) {
+                mask.bits[y * mask.wordsPerRow + mask.wordsPerRow - 1] = last;
+            }
+        }
+        return mask;
+    }
+
+    // 判断视图内局部坐标 (x, y) 是否落在不透明区域
+    public boolean contains(float x, float y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        int ix = (int) x;
+        return (bits[(int) y * wordsPerRow + (ix >>> 6)] & (1L << (ix & 63))) != 0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // 不透明像素数量，用于日志和调试
+    public int countSetBits() {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
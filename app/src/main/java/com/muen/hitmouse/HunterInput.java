@@ -0,0 +1,121 @@
+package com.muen.hitmouse;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.ImageView;
+
+// 单个玩家的锤子输入状态：锤子位置、击中冷却、连击次数以及当前控制它的触点
+// 单人模式一个实例，对战模式每个玩家一个实例
+// 击打点始终是真实触点位置，每个移动事件立即更新；锤子只在 FrameClock 的帧里绘制一次，
+// 位置按本帧时间由采样插值（外推）得到，再向前预测一点抵消渲染到上屏的延迟
+public class HunterInput implements FrameClock.Client {
+    public static final long HIT_COOLDOWN = 100; // 击中冷却时间，防止过快连击
+    public static final int MAX_COMBO = 5; // 最大连击次数限制
+    public static final long PREDICTION_MS = 12; // 锤子绘制位置在本帧时间之后再向前预测的时间
+    private static final long SETTLE_MS = 50; // 手指停下后多久把锤子拉回真实位置
+
+    private final ImageView hunter;
+    private final FrameClock frameClock;
+    private long lastHitTime = 0; // 上次击中时间，用于冷却判断
+    private int comboCount = 0; // 当前连击次数
+    private int pointerId = -1; // 控制锤子的触点，-1 表示空闲
+    private final MotionPredictor predictor = new MotionPredictor(0);
+    private float tipX, tipY; // 真实的击打点（锤子中心，已限制在父布局内）
+    private long lastSampleTime; // 最近一次移动事件的时间
+
+    public HunterInput(ImageView hunter, FrameClock frameClock) {
+        this.hunter = hunter;
+        this.frameClock = frameClock;
+    }
+
+    public ImageView getHunter() {
+        return hunter;
+    }
+
+    // 把锤子中心移动到触点位置，并限制在父布局内
+    public void moveTo(float x, float y) {
+        updateTip(x, y);
+        place(tipX, tipY);
+    }
+
+    // 跟随事件中第 index 个触点：历史采样全部交给预测器，击打点取真实位置，锤子在下一帧绘制
+    public void track(MotionEvent event, int index) {
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN
+                || (action == MotionEvent.ACTION_POINTER_DOWN && event.getActionIndex() == index)) {
+            predictor.reset();
+        }
+        for (int h = 0; h < event.getHistorySize(); h++) {
+            predictor.add(event.getHistoricalEventTime(h), event.getHistoricalX(index, h), event.getHistoricalY(index, h));
+        }
+        predictor.add(event.getEventTime(), event.getX(index), event.getY(index));
+        updateTip(event.getX(index), event.getY(index));
+        lastSampleTime = event.getEventTime();
+        frameClock.request(this); // 一帧内的多个移动事件只绘制一次
+    }
+
+    // 按本帧时间绘制锤子；手指停下超过 SETTLE_MS 后回到真实位置，不再请求下一帧
+    @Override
+    public boolean onFrame(long frameTimeMillis) {
+        long age = frameTimeMillis - lastSampleTime;
+        if (age >= SETTLE_MS) {
+            place(tipX, tipY);
+            return false;
+        }
+        predictor.setMaxDistance(hunter.getWidth() / 2f);
+        predictor.predict(Math.max(0, age) + PREDICTION_MS);
+        place(predictor.getPredictedX(), predictor.getPredictedY());
+        return true;
+    }
+
+    public float getTipX() {
+        return tipX;
+    }
+
+    public float getTipY() {
+        return tipY;
+    }
+
+    private void updateTip(float x, float y) {
+        View parent = (View) hunter.getParent();
+        float halfWidth = hunter.getWidth() / 2f;
+        float halfHeight = hunter.getHeight() / 2f;
+        tipX = Math.max(halfWidth, Math.min(x, parent.getWidth() - halfWidth));
+        tipY = Math.max(halfHeight, Math.min(y, parent.getHeight() - halfHeight));
+    }
+
+    // 锤子中心放到指定位置，并限制在父布局内
+    private void place(float x, float y) {
+        View parent = (View) hunter.getParent();
+        hunter.setX(Math.max(0, Math.min(x - hunter.getWidth() / 2f, parent.getWidth() - hunter.getWidth())));
+        hunter.setY(Math.max(0, Math.min(y - hunter.getHeight() / 2f, parent.getHeight() - hunter.getHeight())));
+    }
+
+    // 冷却时间已过且连击未达上限
+    public boolean canHit(long now) {
+        return now - lastHitTime >= HIT_COOLDOWN && comboCount < MAX_COMBO;
+    }
+
+    // 记录一次击中，返回当前连击次数
+    public int onHit(long now) {
+        lastHitTime = now;
+        return ++comboCount;
+    }
+
+    // 抬起手指时重置连击
+    public void resetCombo() {
+        comboCount = 0;
+    }
+
+    public int getComboCount() {
+        return comboCount;
+    }
+
+    public int getPointerId() {
+        return pointerId;
+    }
+
+    public void setPointerId(int pointerId) {
+        this.pointerId = pointerId;
+    }
+}
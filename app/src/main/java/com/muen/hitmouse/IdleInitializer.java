@@ -0,0 +1,55 @@
+package com.muen.hitmouse;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.ArrayDeque;
+
+// 延迟初始化：非关键任务在主线程空闲时逐个执行，不占用首帧之前的时间
+public class IdleInitializer implements MessageQueue.IdleHandler {
+    private static final String TAG = "IdleInitializer";
+
+    private final ArrayDeque<String> names = new ArrayDeque<>();
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private boolean started = false;
+
+    public IdleInitializer add(String name, Runnable task) {
+        names.add(name);
+        tasks.add(task);
+        return this;
+    }
+
+    // 注册到主线程消息队列，必须在主线程调用
+    public void start() {
+        if (started || tasks.isEmpty()) return;
+        started = true;
+        Looper.myQueue().addIdleHandler(this);
+    }
+
+    // 页面销毁时取消尚未执行的任务
+    public void cancel() {
+        if (started) {
+            Looper.myQueue().removeIdleHandler(this);
+        }
+        names.clear();
+        tasks.clear();
+    }
+
+    // 每次空闲只执行一个任务，避免长时间占用主线程
+    @Override
+    public boolean queueIdle() {
+        Runnable task = tasks.poll();
+        String name = names.poll();
+        if (task != null) {
+            long start = SystemClock.uptimeMillis();
+            task.run();
+            Log.d(TAG, "Deferred init " + name + " took " + (SystemClock.uptimeMillis() - start) + "ms");
+        }
+        if (tasks.isEmpty()) {
+            started = false;
+            return false;
+        }
+        return true;
+    }
+}
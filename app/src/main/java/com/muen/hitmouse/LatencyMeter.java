@@ -0,0 +1,95 @@
+package com.muen.hitmouse;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.MotionEvent;
+import android.view.Window;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 触摸到上屏延迟估算：记录最早一个尚未上屏的触摸事件时间，等画出它的那一帧的 FrameMetrics 到达后计算
+// 延迟 = 帧的预定垂直同步时间 + 帧总耗时 + 一个刷新周期（合成与扫描输出） - 事件时间
+// 感知延迟再减去锤子向前预测的时间；帧数据在后台线程回调，统计结果在页面结束时输出
+public class LatencyMeter implements Window.OnFrameMetricsAvailableListener {
+    private static final String TAG = "LatencyMeter";
+    private static final int WINDOW = 256; // 保留最近的样本数
+
+    private final long refreshNanos; // 一个刷新周期
+    private final long predictionNanos; // 锤子绘制位置向前预测的时间
+    private final AtomicLong pendingEventNanos = new AtomicLong(); // 最早的未上屏事件，0 表示没有
+    private final long[] samples = new long[WINDOW];
+    private final long[] sorted = new long[WINDOW];
+    private int sampleCount = 0;
+    private int nextSample = 0;
+    private HandlerThread thread;
+    private Window window;
+
+    public LatencyMeter(float refreshRate, long predictionMs) {
+        this.refreshNanos = (long) (1_000_000_000L / Math.max(1f, refreshRate));
+        this.predictionNanos = predictionMs * 1_000_000L;
+    }
+
+    public void start(Window window) {
+        if (thread != null) return;
+        this.window = window;
+        thread = new HandlerThread(TAG);
+        thread.start();
+        window.addOnFrameMetricsAvailableListener(this, new Handler(thread.getLooper()));
+    }
+
+    public void stop() {
+        if (thread == null || window == null) return;
+        window.removeOnFrameMetricsAvailableListener(this);
+        window = null;
+        thread.quitSafely();
+        synchronized (this) {
+            if (sampleCount > 0) {
+                Log.d(TAG, "Touch-to-photon p50 " + getLatencyPercentile(50) + "ms, p90 " + getLatencyPercentile(90)
+                        + "ms, perceived p50 " + getPerceivedLatencyPercentile(50) + "ms (" + sampleCount + " samples)");
+            }
+        }
+    }
+
+    // 主线程中每个移动事件调用一次，已有未上屏的事件时保留更早的那个
+    public void onInput(MotionEvent event) {
+        onInput(event.getEventTime());
+    }
+
+    void onInput(long eventTimeMs) {
+        pendingEventNanos.compareAndSet(0, eventTimeMs * 1_000_000L);
+    }
+
+    @Override
+    public void onFrameMetricsAvailable(Window window, FrameMetrics metrics, int dropCountSinceLastInvocation) {
+        onFrame(metrics.getMetric(FrameMetrics.INTENDED_VSYNC_TIMESTAMP), metrics.getMetric(FrameMetrics.TOTAL_DURATION));
+    }
+
+    // 一帧的预定垂直同步时间和总耗时（纳秒），测试中直接传入合成的帧数据
+    void onFrame(long vsync, long totalDuration) {
+        long eventNanos = pendingEventNanos.get();
+        if (eventNanos == 0) return;
+        if (vsync < eventNanos) return; // 事件在这一帧开始之后才到达，由下一帧画出
+        if (!pendingEventNanos.compareAndSet(eventNanos, 0)) return;
+        long presented = vsync + totalDuration + refreshNanos;
+        synchronized (this) {
+            samples[nextSample] = presented - eventNanos;
+            nextSample = (nextSample + 1) % WINDOW;
+            if (sampleCount < WINDOW) sampleCount++;
+        }
+    }
+
+    // 触摸到上屏延迟的百分位（毫秒），没有样本时返回 0
+    public synchronized float getLatencyPercentile(int percentile) {
+        if (sampleCount == 0) return 0;
+        System.arraycopy(samples, 0, sorted, 0, sampleCount);
+        Arrays.sort(sorted, 0, sampleCount);
+        return sorted[Math.min(sampleCount - 1, sampleCount * percentile / 100)] / 1_000_000f;
+    }
+
+    // 扣除预测时间后锤子看起来落后手指的时间（毫秒）
+    public synchronized float getPerceivedLatencyPercentile(int percentile) {
+        return Math.max(0, getLatencyPercentile(percentile) - predictionNanos / 1_000_000f);
+    }
+}
@@ -0,0 +1,458 @@
+package com.muen.hitmouse;
+
+import android.content.Context;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// 排行榜同步：结束的对局先追加到持久化的发件箱（fsync 后才算入队），再由后台线程按批压缩上传，失败时指数退避重试
+// 排名快照按版本号增量拉取（只取上次版本之后的变化），同样落盘，离线时仍能显示上次的排名
+// 所有网络和磁盘操作都在单独的线程中串行执行，submit 只投递任务，不会阻塞游戏结束流程
+public class LeaderboardClient {
+    public static final int MAX_BATCH = 32; // 每次上传的最大对局数
+    public static final int MODE_HARD = 1; // 困难模式
+    public static final int MODE_ENDLESS = 2; // 无尽模式
+    private static final int OUTBOX_MAGIC = 0x484D4C4F; // "HMLO"
+    private static final int RANKS_MAGIC = 0x484D4C52; // "HMLR"
+    private static final short VERSION = 1;
+    private static final int OUTBOX_HEADER = 4 + 2 + 8 + 8; // magic version playerId nextId
+    private static final int RECORD_SIZE = 8 + 8 + 4 + 1; // id timestamp score mode
+    private static final int FLAG_FULL = 1; // 排名响应是完整快照而不是增量
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int READ_TIMEOUT_MS = 15000;
+
+    private static LeaderboardClient instance;
+
+    // 回调都在同步线程中执行
+    public interface Listener {
+        void onUploaded(int count, int pending);
+
+        void onRanksUpdated(long version, int rank, int players);
+
+        void onSyncFailed(String reason, int attempt, long retryInMs);
+    }
+
+    private static class Game {
+        long id;
+        long timestamp;
+        int score;
+        int mode;
+    }
+
+    private final String baseUrl; // 为空时只排队不上传
+    private final File outboxFile;
+    private final File ranksFile;
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "Leaderboard"));
+    private final Random jitter = new Random();
+    private volatile Listener listener;
+    private long initialBackoffMs = 2000;
+    private long maxBackoffMs = 5 * 60 * 1000;
+
+    // 以下只在同步线程中访问
+    private final List<Game> outbox = new ArrayList<>();
+    private boolean loaded = false;
+    private volatile long playerId; // 排名查询时也会读取
+    private long nextId;
+    private int attempt = 0; // 连续失败次数
+    private boolean retryScheduled = false;
+    private boolean syncQueued = false;
+
+    // 排名快照，读取时加锁
+    private final Map<Long, Integer> scores = new HashMap<>(); // 玩家 -> 最高分
+    private long ranksVersion = 0;
+
+    public static synchronized LeaderboardClient get(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new LeaderboardClient(appContext.getString(R.string.leaderboard_url), appContext.getFilesDir());
+        }
+        return instance;
+    }
+
+    public LeaderboardClient(String baseUrl, File dir) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.outboxFile = new File(dir, "leaderboard_outbox");
+        this.ranksFile = new File(dir, "leaderboard_ranks");
+        worker.execute(this::load);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // 第 n 次连续失败后等待 initial * 2^(n-1)，不超过 max，实际取其中 50%~100% 的随机值避免大量客户端同时重试
+    public void setBackoff(long initialMs, long maxMs) {
+        worker.execute(() -> {
+            initialBackoffMs = initialMs;
+            maxBackoffMs = maxMs;
+        });
+    }
+
+    // 记录一局结果，可在主线程调用：只投递任务，写盘和上传都在同步线程中完成
+    public void submit(long timestamp, int score, int mode) {
+        if (worker.isShutdown()) return;
+        worker.execute(() -> {
+            Game game = new Game();
+            game.id = nextId;
+            game.timestamp = timestamp;
+            game.score = score;
+            game.mode = mode;
+            try {
+                append(game);
+            } catch (IOException e) {
+                notifyFailed("Failed to queue game: " + e.getMessage(), 0, -1);
+                return;
+            }
+            outbox.add(game);
+            if (!retryScheduled && !syncQueued) {
+                syncQueued = true;
+                worker.execute(this::sync); // 排在已投递的对局之后，连续结束的多局合并成一批
+            }
+        });
+    }
+
+    // 立即尝试上传并刷新排名（例如打开排行榜时），退避等待中也会立即重试
+    public void refresh() {
+        if (worker.isShutdown()) return;
+        worker.execute(() -> {
+            attempt = 0;
+            sync();
+        });
+    }
+
+    public void close() {
+        worker.shutdownNow();
+    }
+
+    public synchronized long getRanksVersion() {
+        return ranksVersion;
+    }
+
+    public synchronized int getPlayerCount() {
+        return scores.size();
+    }
+
+    // 本机玩家在快照中的名次（从 1 开始），快照中没有本机玩家时返回 0
+    public synchronized int getRank() {
+        Integer best = scores.get(playerId);
+        return best == null ? 0 : rankOf(best);
+    }
+
+    // 快照中前 count 名的分数，从高到低
+    public synchronized int[] getTopScores(int count) {
+        int[] all = new int[scores.size()];
+        int i = 0;
+        for (int score : scores.values()) {
+            all[i++] = score;
+        }
+        Arrays.sort(all);
+        int n = Math.min(count, all.length);
+        int[] top = new int[n];
+        for (int j = 0; j < n; j++) {
+            top[j] = all[all.length - 1 - j];
+        }
+        return top;
+    }
+
+    // 在同步线程中读取尚未上传的对局数，测试中使用
+    int getPendingCountBlocking() throws Exception {
+        return worker.submit(outbox::size).get();
+    }
+
+    long getPlayerIdBlocking() throws Exception {
+        return worker.submit(() -> playerId).get();
+    }
+
+    private int rankOf(int score) {
+        int rank = 1;
+        for (int other : scores.values()) {
+            if (other > score) rank++;
+        }
+        return rank;
+    }
+
+    private void load() {
+        try {
+            loadOutbox();
+        } catch (IOException e) {
+            notifyFailed("Outbox unreadable, starting over: " + e.getMessage(), 0, -1);
+            outbox.clear();
+            playerId = 0;
+        }
+        if (playerId == 0) {
+            playerId = new Random().nextLong() & Long.MAX_VALUE | 1; // 首次使用时生成匿名玩家标识
+            nextId = 1;
+            try {
+                rewriteOutbox();
+            } catch (IOException e) {
+                notifyFailed("Failed to create outbox: " + e.getMessage(), 0, -1);
+            }
+        }
+        try {
+            loadRanks();
+        } catch (IOException e) {
+            synchronized (this) {
+                scores.clear();
+                ranksVersion = 0; // 下次拉取完整快照
+            }
+        }
+        loaded = true;
+        if (!outbox.isEmpty()) {
+            sync();
+        }
+    }
+
+    private void loadOutbox() throws IOException {
+        if (!outboxFile.exists()) return;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(outboxFile))) {
+            byte[] bytes = new byte[(int) outboxFile.length()];
+            in.readFully(bytes);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.remaining() < OUTBOX_HEADER || buffer.getInt() != OUTBOX_MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException("Bad outbox header");
+            }
+            playerId = buffer.getLong();
+            nextId = buffer.getLong();
+            while (buffer.remaining() >= RECORD_SIZE) { // 末尾不完整的记录是写到一半断电留下的，丢弃
+                Game game = new Game();
+                game.id = buffer.getLong();
+                game.timestamp = buffer.getLong();
+                game.score = buffer.getInt();
+                game.mode = buffer.get();
+                outbox.add(game);
+                nextId = Math.max(nextId, game.id + 1);
+            }
+        }
+    }
+
+    // 追加一条记录并刷到磁盘；文件头中的 nextId 只在重写时更新，加载时以记录中的最大值为准
+    private void append(Game game) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(outboxFile, "rw")) {
+            long length = file.length();
+            long complete = OUTBOX_HEADER + (length - OUTBOX_HEADER) / RECORD_SIZE * RECORD_SIZE;
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            record.putLong(game.id).putLong(game.timestamp).putInt(game.score).put((byte) game.mode);
+            file.seek(complete);
+            file.write(record.array());
+            file.setLength(complete + RECORD_SIZE);
+            file.getFD().sync();
+        }
+        nextId = game.id + 1;
+    }
+
+    // 用剩余的对局重写发件箱：先写临时文件再改名，任何时刻磁盘上都有一份完整的发件箱
+    private void rewriteOutbox() throws IOException {
+        File temp = new File(outboxFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            ByteBuffer buffer = ByteBuffer.allocate(OUTBOX_HEADER + outbox.size() * RECORD_SIZE);
+            buffer.putInt(OUTBOX_MAGIC).putShort(VERSION).putLong(playerId).putLong(nextId);
+            for (Game game : outbox) {
+                buffer.putLong(game.id).putLong(game.timestamp).putInt(game.score).put((byte) game.mode);
+            }
+            out.write(buffer.array());
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(outboxFile)) {
+            throw new IOException("Failed to replace " + outboxFile);
+        }
+    }
+
+    private void sync() {
+        retryScheduled = false;
+        syncQueued = false;
+        if (!loaded || baseUrl.isEmpty()) return;
+        try {
+            while (!outbox.isEmpty()) {
+                int count = Math.min(MAX_BATCH, outbox.size());
+                int status = upload(outbox.subList(0, count));
+                if (status >= 400 && status < 500 && status != 429) {
+                    // 服务器拒绝这一批（数据格式问题），重试也不会成功，丢弃以免堵住后面的对局
+                    notifyFailed("Batch rejected with HTTP " + status + ", dropping " + count + " games", 0, -1);
+                } else if (status / 100 != 2) {
+                    throw new IOException("Upload failed with HTTP " + status);
+                }
+                outbox.subList(0, count).clear();
+                rewriteOutbox();
+                Listener l = listener;
+                if (l != null) l.onUploaded(count, outbox.size());
+            }
+            fetchRanks();
+            attempt = 0;
+        } catch (IOException e) {
+            attempt++;
+            long delay = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+            delay = delay / 2 + (long) (jitter.nextDouble() * (delay / 2));
+            retryScheduled = true;
+            worker.schedule(this::sync, delay, TimeUnit.MILLISECONDS);
+            notifyFailed(e.getMessage(), attempt, delay);
+        }
+    }
+
+    // 上传一批对局，请求体为 gzip 压缩的二进制记录；服务器按 (玩家, 对局 id) 去重，重试不会重复计分
+    private int upload(List<Game> batch) throws IOException {
+        HttpURLConnection connection = open("/scores");
+        try {
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(connection.getOutputStream()))) {
+                out.writeLong(playerId);
+                out.writeShort(batch.size());
+                for (Game game : batch) {
+                    out.writeLong(game.id);
+                    out.writeLong(game.timestamp);
+                    out.writeInt(game.score);
+                    out.writeByte(game.mode);
+                }
+            }
+            int status = connection.getResponseCode();
+            drain(connection, status);
+            return status;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // 增量拉取排名：响应为 版本号、标志、条目数，随后每条 玩家标识 和 分数（负数表示从榜上移除）；304 表示没有变化
+    private void fetchRanks() throws IOException {
+        long since;
+        synchronized (this) {
+            since = ranksVersion;
+        }
+        HttpURLConnection connection = open("/ranks?player=" + playerId + "&since=" + since);
+        try {
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) return;
+            if (status / 100 != 2) {
+                drain(connection, status);
+                throw new IOException("Rank fetch failed with HTTP " + status);
+            }
+            InputStream body = connection.getInputStream();
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                body = new GZIPInputStream(body);
+            }
+            int rank;
+            int players;
+            long version;
+            try (DataInputStream in = new DataInputStream(body)) {
+                version = in.readLong();
+                int flags = in.readUnsignedByte();
+                int count = in.readInt();
+                long[] ids = new long[count];
+                int[] values = new int[count];
+                for (int i = 0; i < count; i++) {
+                    ids[i] = in.readLong();
+                    values[i] = in.readInt();
+                }
+                synchronized (this) {
+                    if ((flags & FLAG_FULL) != 0) {
+                        scores.clear();
+                    }
+                    for (int i = 0; i < count; i++) {
+                        if (values[i] < 0) {
+                            scores.remove(ids[i]);
+                        } else {
+                            scores.put(ids[i], values[i]);
+                        }
+                    }
+                    ranksVersion = version;
+                    rank = getRank();
+                    players = scores.size();
+                }
+            }
+            saveRanks();
+            Listener l = listener;
+            if (l != null) l.onRanksUpdated(version, rank, players);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void loadRanks() throws IOException {
+        if (!ranksFile.exists()) return;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(ranksFile))) {
+            if (in.readInt() != RANKS_MAGIC || in.readShort() != VERSION) throw new IOException("Bad ranks header");
+            long version = in.readLong();
+            int count = in.readInt();
+            Map<Long, Integer> loadedScores = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                loadedScores.put(in.readLong(), in.readInt());
+            }
+            synchronized (this) {
+                scores.clear();
+                scores.putAll(loadedScores);
+                ranksVersion = version;
+            }
+        }
+    }
+
+    private void saveRanks() throws IOException {
+        File temp = new File(ranksFile.getPath() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            synchronized (this) {
+                out.writeInt(RANKS_MAGIC);
+                out.writeShort(VERSION);
+                out.writeLong(ranksVersion);
+                out.writeInt(scores.size());
+                for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeInt(entry.getValue());
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        if (!temp.renameTo(ranksFile)) {
+            throw new IOException("Failed to replace " + ranksFile);
+        }
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    // 读完响应体，连接才能被复用
+    private static void drain(HttpURLConnection connection, int status) {
+        try (InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            if (in == null) return;
+            byte[] buffer = new byte[512];
+            while (in.read(buffer) >= 0) {
+                // 丢弃
+            }
+        } catch (IOException ignored) {
+            // 连接随后会被断开
+        }
+    }
+
+    private void notifyFailed(String reason, int attempt, long retryInMs) {
+        Listener l = listener;
+        if (l != null) l.onSyncFailed(reason, attempt, retryInMs);
+    }
+}
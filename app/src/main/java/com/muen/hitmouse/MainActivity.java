@@ -3,6 +3,8 @@ package com.muen.hitmouse;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Process;
+import android.os.SystemClock;
 import android.view.WindowManager;
 import androidx.appcompat.app.AppCompatActivity;
 import com.muen.hitmouse.databinding.ActivityMainBinding;
@@ -11,10 +13,17 @@ public class MainActivity extends AppCompatActivity {
     private ActivityMainBinding binding; // 用于绑定布局文件中的视图
     private SharedPreferences sharedPreferences; // 用于存储用户偏好设置（如音乐开关状态）
     private Intent musicIntent; // 用于控制背景音乐服务的 Intent
+    private final IdleInitializer idleInitializer = new IdleInitializer(); // 首帧之后再执行的非关键初始化
+    private static boolean coldStartTraced = false; // 每个进程只记录一次冷启动
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTracer tracer = StartupTracer.get();
+        if (!coldStartTraced) {
+            coldStartTraced = true;
+            tracer.beginSession("cold_start", Process.getStartUptimeMillis());
+        }
         // 设置全屏显示，隐藏状态栏
         getWindow().setFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN, WindowManager.LayoutParams.FLAG_FULLSCREEN);
         // 使用 ViewBinding 初始化布局
@@ -28,6 +37,21 @@ public class MainActivity extends AppCompatActivity {
         setupListeners();
         // 初始化背景音乐相关设置
         setupMusic();
+
+        tracer.mark("main_create");
+        // 首帧绘制完成后写出冷启动计时
+        tracer.markFirstFrame(binding.getRoot(), "main_first_frame", () -> tracer.finishSession(this));
+        // 空闲时预先解码游戏音效，缩短进入游戏的时间
+        idleInitializer
+                .add("prewarm_audio", () -> AudioEngine.get(this).preloadAsync(R.raw.kick, R.raw.start))
+                .start();
+    }
+
+    // 从游戏返回时刷新帧率按钮上的 CPU 统计
+    @Override
+    protected void onResume() {
+        super.onResume();
+        updateFrameRateButton();
     }
 
     // 设置各个按钮的点击事件监听器
@@ -38,6 +62,21 @@ public class MainActivity extends AppCompatActivity {
         binding.btnEasy.setOnClickListener(v -> startGame(false));
         // 困难模式按钮：启动游戏并传递随机模式参数
         binding.btnHard.setOnClickListener(v -> startGame(true));
+        // 双人对战按钮：同一台设备上下分屏对战，使用当前选择的棋盘
+        binding.btnDuel.setOnClickListener(v -> startDuel());
+        // 棋盘按钮：在预设的棋盘尺寸之间循环切换（仅简单模式使用）
+        updateBoardButton();
+        binding.btnBoard.setOnClickListener(v -> cycleBoardSize());
+        // 帧率按钮：在 30Hz、60Hz、120Hz 和省电之间循环切换，并显示该模式下每分钟游戏的 CPU 时间（onResume 中刷新）
+        binding.btnFrameRate.setOnClickListener(v -> cycleFrameRate());
+        // 无尽模式复选框：勾选后两种模式都不限时，失误过多才结束
+        binding.cbEndless.setChecked(sharedPreferences.getBoolean("endless", false));
+        binding.cbEndless.setOnCheckedChangeListener((buttonView, isChecked) ->
+                sharedPreferences.edit().putBoolean("endless", isChecked).apply());
+        // 幽灵对手复选框：简单模式中回放本棋盘的最佳对局一起比赛
+        binding.cbGhost.setChecked(sharedPreferences.getBoolean("ghost", false));
+        binding.cbGhost.setOnCheckedChangeListener((buttonView, isChecked) ->
+                sharedPreferences.edit().putBoolean("ghost", isChecked).apply());
         // 查看记录按钮：跳转到记录查看页面
         binding.btnViewRecords.setOnClickListener(v -> viewRecords());
     }
@@ -48,8 +87,8 @@ public class MainActivity extends AppCompatActivity {
         boolean isMuted = sharedPreferences.getInt("music", 0) == 1;
         // 创建用于控制背景音乐服务的 Intent
         musicIntent = new Intent(this, MusicService.class);
-        // 如果未静音，则启动音乐服务
-        if (!isMuted) startService(musicIntent);
+        // 如果未静音，则在主线程空闲时再启动音乐服务，不阻塞首帧
+        if (!isMuted) idleInitializer.add("music_service", () -> startService(musicIntent));
         // 设置音乐开关复选框的初始状态
         binding.cbMusic.setChecked(isMuted);
 
@@ -67,6 +106,39 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    // 切换到下一个预设棋盘尺寸并保存
+    private void cycleBoardSize() {
+        int current = sharedPreferences.getInt("board_size", BoardSpec.MIN_SIZE);
+        int next = BoardSpec.PRESET_SIZES[0];
+        for (int i = 0; i < BoardSpec.PRESET_SIZES.length; i++) {
+            if (BoardSpec.PRESET_SIZES[i] == current) {
+                next = BoardSpec.PRESET_SIZES[(i + 1) % BoardSpec.PRESET_SIZES.length];
+                break;
+            }
+        }
+        sharedPreferences.edit().putInt("board_size", next).apply();
+        updateBoardButton();
+    }
+
+    private void updateBoardButton() {
+        int size = sharedPreferences.getInt("board_size", BoardSpec.MIN_SIZE);
+        binding.btnBoard.setText("棋盘: " + size + "×" + size);
+    }
+
+    // 切换到下一个帧率模式并保存
+    private void cycleFrameRate() {
+        int next = (FrameClock.getMode(sharedPreferences) + 1) % FrameClock.MODE_COUNT;
+        sharedPreferences.edit().putInt(FrameClock.PREF_MODE, next).apply();
+        updateFrameRateButton();
+    }
+
+    private void updateFrameRateButton() {
+        int mode = FrameClock.getMode(sharedPreferences);
+        int cpu = CpuMeter.getCpuPerMinute(sharedPreferences, mode);
+        binding.btnFrameRate.setText("帧率: " + FrameClock.getLabel(mode)
+                + (cpu >= 0 ? String.format(" (CPU %.1f秒/分钟)", cpu / 1000f) : ""));
+    }
+
     // 跳转到记录查看页面
     private void viewRecords() {
         Intent intent = new Intent(this, RecordActivity.class);
@@ -78,6 +150,18 @@ public class MainActivity extends AppCompatActivity {
         Intent intent = new Intent(this, PlayActivity.class);
         // 传递是否为随机模式的参数给游戏页面
         intent.putExtra("isRandomMode", isRandomMode);
+        intent.putExtra(PlayActivity.EXTRA_BOARD_SIZE, sharedPreferences.getInt("board_size", BoardSpec.MIN_SIZE));
+        intent.putExtra(PlayActivity.EXTRA_ENDLESS, sharedPreferences.getBoolean("endless", false));
+        intent.putExtra(PlayActivity.EXTRA_GHOST, sharedPreferences.getBoolean("ghost", false));
+        // 记录点击时间，用于统计进入游戏的耗时
+        intent.putExtra(StartupTracer.EXTRA_LAUNCH_UPTIME, SystemClock.uptimeMillis());
+        startActivity(intent);
+    }
+
+    // 启动双人对战页面
+    private void startDuel() {
+        Intent intent = new Intent(this, DuelActivity.class);
+        intent.putExtra(PlayActivity.EXTRA_BOARD_SIZE, sharedPreferences.getInt("board_size", BoardSpec.MIN_SIZE));
         startActivity(intent);
     }
 
@@ -93,6 +177,7 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        idleInitializer.cancel();
         stopService(musicIntent); // 确保退出时停止音乐服务
     }
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+package com.muen.hitmouse;
+
+import java.util.Random;
+
+// 困难模式的地鼠摆放：在预先计算好的可玩区域内做泊松圆盘采样（随机投点 + 最小间距），
+// 用空间哈希网格只检查相邻格子，保证地鼠互不重叠、不遮挡按钮和分数，整体接近线性时间
+public class MolePlacer {
+    private static final int MAX_ATTEMPTS = 30; // 每只地鼠的最大尝试次数
+    private static final int MAX_EXCLUSIONS = 16;
+
+    private final float maxX; // 地鼠左上角可取的最大 x
+    private final float maxY;
+    private final float moleWidth;
+    private final float moleHeight;
+    private final float spacing; // 地鼠之间额外的最小间隔
+
+    // 排除区域，已按地鼠尺寸向左上扩展，直接与地鼠左上角比较
+    private final float[] exclusions = new float[MAX_EXCLUSIONS * 4];
+    private int exclusionCount = 0;
+
+    // 空间哈希：格子边长不小于地鼠尺寸，相互重叠的地鼠一定位于相邻的 3x3 格子内
+    private final float cellSize;
+    private final int gridCols;
+    private final int gridRows;
+    private final int[] cellHead; // 每个格子中第一个点的下标
+    private final int[] cellStamp; // 格子上次被使用的轮次，不等于当前轮次视为空，无需清空数组
+    private int stamp = 0;
+    private int[] next; // 同一格子中的下一个点
+    private float[] pointX;
+    private float[] pointY;
+
+    public MolePlacer(int width, int height, int moleWidth, int moleHeight, float spacing) {
+        this.maxX = Math.max(0, width - moleWidth);
+        this.maxY = Math.max(0, height - moleHeight);
+        this.moleWidth = moleWidth;
+        this.moleHeight = moleHeight;
+        this.spacing = spacing;
+        this.cellSize = Math.max(moleWidth, moleHeight) + spacing;
+        this.gridCols = (int) (maxX / cellSize) + 1;
+        this.gridRows = (int) (maxY / cellSize) + 1;
+        this.cellHead = new int[gridCols * gridRows];
+        this.cellStamp = new int[gridCols * gridRows];
+        ensureCapacity(16);
+    }
+
+    // 排除一个矩形区域（例如按钮、分数牌），地鼠不会与之重叠
+    public void exclude(float left, float top, float right, float bottom) {
+        if (exclusionCount == MAX_EXCLUSIONS) {
+            throw new IllegalStateException("Too many exclusion regions");
+        }
+        int i = exclusionCount * 4;
+        exclusions[i] = left - moleWidth;
+        exclusions[i + 1] = top - moleHeight;
+        exclusions[i + 2] = right;
+        exclusions[i + 3] = bottom;
+        exclusionCount++;
+    }
+
+    // 理论上可容纳的地鼠数量上限（按网格估算）
+    public int getCapacity() {
+        return gridCols * gridRows;
+    }
+
+    // 放置 count 只地鼠，坐标依次写入 outXY（x0, y0, x1, y1...），返回实际放置的数量
+    public int place(int count, Random random, float[] outXY) {
+        ensureCapacity(count);
+        stamp++;
+        int placed = 0;
+        int attempts = 0;
+        int attemptLimit = count * MAX_ATTEMPTS;
+        while (placed < count && attempts < attemptLimit) {
+            attempts++;
+            float x = random.nextFloat() * maxX;
+            float y = random.nextFloat() * maxY;
+            if (isExcluded(x, y) || hasNeighbor(x, y)) continue;
+            insert(placed, x, y);
+            outXY[placed * 2] = x;
+            outXY[placed * 2 + 1] = y;
+            placed++;
+        }
+        return placed;
+    }
+
+    private boolean isExcluded(float x, float y) {
+        for (int i = 0; i < exclusionCount * 4; i += 4) {
+            if (x > exclusions[i] && y > exclusions[i + 1] && x < exclusions[i + 2] && y < exclusions[i + 3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 只检查周围 3x3 个格子中的点
+    private boolean hasNeighbor(float x, float y) {
+        int col = (int) (x / cellSize);
+        int row = (int) (y / cellSize);
+        float minDx = moleWidth + spacing;
+        float minDy = moleHeight + spacing;
+        for (int r = Math.max(0, row - 1); r <= Math.min(gridRows - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(gridCols - 1, col + 1); c++) {
+                int cell = r * gridCols + c;
+                if (cellStamp[cell] != stamp) continue;
+                for (int p = cellHead[cell]; p >= 0; p = next[p]) {
+                    if (Math.abs(pointX[p] - x) < minDx && Math.abs(pointY[p] - y) < minDy) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void insert(int index, float x, float y) {
+        int cell = (int) (y / cellSize) * gridCols + (int) (x / cellSize);
+        pointX[index] = x;
+        pointY[index] = y;
+        if (cellStamp[cell] != stamp) {
+            cellStamp[cell] = stamp;
+            cellHead[cell] = -1;
+        }
+        next[index] = cellHead[cell];
+        cellHead[cell] = index;
+    }
+
+    private void ensureCapacity(int count) {
+        if (pointX != null && pointX.length >= count) return;
+        pointX = new float[count];
+        pointY = new float[count];
+        next = new int[count];
+    }
+}
@@ -0,0 +1,98 @@
+package com.muen.hitmouse;
+
+// 触点运动预测：保存最近的采样（含 MotionEvent 的历史采样），用最小二乘拟合速度后向前外推几毫秒
+// 只用于绘制锤子，击打判断仍使用真实触点位置
+public class MotionPredictor {
+    private static final int CAPACITY = 16; // 环形缓冲区大小
+    private static final long FIT_WINDOW_MS = 40; // 只用最近这段时间内的采样拟合速度
+
+    private final long[] times = new long[CAPACITY];
+    private final float[] xs = new float[CAPACITY];
+    private final float[] ys = new float[CAPACITY];
+    private int count = 0;
+    private int next = 0;
+    private float maxDistance; // 外推距离上限，避免急停急转时锤子甩出去
+    private float predictedX, predictedY;
+
+    public MotionPredictor(float maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+
+    public void setMaxDistance(float maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+
+    // 新的按下开始一条新轨迹
+    public void reset() {
+        count = 0;
+        next = 0;
+    }
+
+    // 采样时间为 MotionEvent 的事件时间（毫秒），必须递增；同一毫秒的重复采样覆盖上一条
+    public void add(long timeMs, float x, float y) {
+        if (count > 0) {
+            int last = (next + CAPACITY - 1) % CAPACITY;
+            if (timeMs < times[last]) return;
+            if (timeMs == times[last]) {
+                xs[last] = x;
+                ys[last] = y;
+                return;
+            }
+        }
+        times[next] = timeMs;
+        xs[next] = x;
+        ys[next] = y;
+        next = (next + 1) % CAPACITY;
+        if (count < CAPACITY) count++;
+    }
+
+    // 预测 leadMs 毫秒之后的位置，结果通过 getPredictedX/Y 读取；采样不足时返回最新位置
+    public void predict(long leadMs) {
+        int last = (next + CAPACITY - 1) % CAPACITY;
+        predictedX = xs[last];
+        predictedY = ys[last];
+        if (count < 2 || leadMs <= 0) return;
+
+        long newest = times[last];
+        int n = 0;
+        double meanT = 0, meanX = 0, meanY = 0;
+        for (int i = 0; i < count; i++) {
+            int index = (last - i + CAPACITY) % CAPACITY;
+            if (newest - times[index] > FIT_WINDOW_MS) break;
+            meanT += times[index] - newest;
+            meanX += xs[index];
+            meanY += ys[index];
+            n++;
+        }
+        if (n < 2) return;
+        meanT /= n;
+        meanX /= n;
+        meanY /= n;
+        double stt = 0, stx = 0, sty = 0;
+        for (int i = 0; i < n; i++) {
+            int index = (last - i + CAPACITY) % CAPACITY;
+            double dt = times[index] - newest - meanT;
+            stt += dt * dt;
+            stx += dt * (xs[index] - meanX);
+            sty += dt * (ys[index] - meanY);
+        }
+        if (stt == 0) return;
+        double dx = stx / stt * leadMs;
+        double dy = sty / stt * leadMs;
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        if (distance > maxDistance) {
+            dx *= maxDistance / distance;
+            dy *= maxDistance / distance;
+        }
+        predictedX = (float) (xs[last] + dx);
+        predictedY = (float) (ys[last] + dy);
+    }
+
+    public float getPredictedX() {
+        return predictedX;
+    }
+
+    public float getPredictedY() {
+        return predictedY;
+    }
+}
@@ -0,0 +1,148 @@
+package com.muen.hitmouse;
+
+import android.os.Build;
+import android.view.MotionEvent;
+import android.view.View;
+
+// 多点触控分发：每个触点在按下时按位置归属到一个玩家，之后一直由该玩家的锤子跟随，直到抬起
+// 同一事件里的多个触点一次处理完，两个玩家同时操作互不干扰
+// 按下时请求不按帧合并的事件分发，移动事件到达后立即处理
+public class MultiTouchDispatcher implements View.OnTouchListener {
+
+    // 把触点交给具体玩法处理
+    public interface Listener {
+        int playerAt(float x, float y); // 按下位置归属的玩家，-1 表示不属于任何玩家
+        void onHunterMove(int player, HunterInput input); // 锤子已跟随触点移动，击打点见 getTipX/getTipY
+        void onHunterUp(int player, HunterInput input); // 触点抬起
+    }
+
+    // 分发需要的触点信息，Android 中由 MotionEvent 提供，测试中可替换为手工构造的触点序列
+    interface Pointers {
+        int getActionMasked();
+
+        int getActionIndex();
+
+        int getPointerCount();
+
+        int getPointerId(int index);
+
+        float getX(int index);
+
+        float getY(int index);
+
+        void track(HunterInput input, int index); // 锤子跟随第 index 个触点
+    }
+
+    // 包装当前的 MotionEvent，每个事件复用同一个对象
+    private static class MotionPointers implements Pointers {
+        MotionEvent event;
+
+        @Override
+        public int getActionMasked() {
+            return event.getActionMasked();
+        }
+
+        @Override
+        public int getActionIndex() {
+            return event.getActionIndex();
+        }
+
+        @Override
+        public int getPointerCount() {
+            return event.getPointerCount();
+        }
+
+        @Override
+        public int getPointerId(int index) {
+            return event.getPointerId(index);
+        }
+
+        @Override
+        public float getX(int index) {
+            return event.getX(index);
+        }
+
+        @Override
+        public float getY(int index) {
+            return event.getY(index);
+        }
+
+        @Override
+        public void track(HunterInput input, int index) {
+            input.track(event, index);
+        }
+    }
+
+    private final HunterInput[] inputs;
+    private final Listener listener;
+    private final MotionPointers motion = new MotionPointers();
+
+    public MultiTouchDispatcher(HunterInput[] inputs, Listener listener) {
+        this.inputs = inputs;
+        this.listener = listener;
+    }
+
+    @Override
+    public boolean onTouch(View v, MotionEvent event) {
+        int action = event.getActionMasked();
+        if ((action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_POINTER_DOWN)
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            v.requestUnbufferedDispatch(event);
+        }
+        motion.event = event;
+        dispatch(motion);
+        motion.event = null;
+        return true;
+    }
+
+    // 按动作分发一个事件，测试中直接传入手工构造的触点序列
+    void dispatch(Pointers event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN: {
+                int index = event.getActionIndex();
+                int player = listener.playerAt(event.getX(index), event.getY(index));
+                if (player >= 0 && inputs[player].getPointerId() < 0) {
+                    inputs[player].setPointerId(event.getPointerId(index));
+                    move(player, event, index);
+                }
+                break;
+            }
+            case MotionEvent.ACTION_MOVE:
+                for (int index = 0; index < event.getPointerCount(); index++) {
+                    int player = ownerOf(event.getPointerId(index));
+                    if (player >= 0) move(player, event, index);
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_POINTER_UP: {
+                int player = ownerOf(event.getPointerId(event.getActionIndex()));
+                if (player >= 0) release(player);
+                break;
+            }
+            case MotionEvent.ACTION_CANCEL:
+                for (int player = 0; player < inputs.length; player++) {
+                    if (inputs[player].getPointerId() >= 0) release(player);
+                }
+                break;
+        }
+    }
+
+    private int ownerOf(int pointerId) {
+        for (int player = 0; player < inputs.length; player++) {
+            if (inputs[player].getPointerId() == pointerId) return player;
+        }
+        return -1;
+    }
+
+    private void move(int player, Pointers event, int index) {
+        event.track(inputs[player], index);
+        listener.onHunterMove(player, inputs[player]);
+    }
+
+    private void release(int player) {
+        inputs[player].setPointerId(-1);
+        inputs[player].resetCombo();
+        listener.onHunterUp(player, inputs[player]);
+    }
+}
@@ -2,23 +2,21 @@ package com.muen.hitmouse;
 
 import android.app.Service;
 import android.content.Intent;
-import android.media.MediaPlayer;
 import android.os.IBinder;
 
 public class MusicService extends Service {
-    private MediaPlayer mediaPlayerBg;
+    private AudioEngine audioEngine; // 背景音乐与音效共用同一个音频引擎
 
     @Override
     public void onCreate() {
         super.onCreate();
-        mediaPlayerBg = MediaPlayer.create(this, R.raw.back);
-        mediaPlayerBg.setLooping(true);
+        audioEngine = AudioEngine.get(this);
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (mediaPlayerBg != null && !mediaPlayerBg.isPlaying()) {
-            mediaPlayerBg.start();
+        if (!audioEngine.getMixer().isMusicPlaying()) {
+            audioEngine.playMusic(R.raw.back, true); // 在加载线程解码后开始循环播放
         }
         return START_STICKY;
     }
@@ -26,11 +24,7 @@ public class MusicService extends Service {
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (mediaPlayerBg != null) {
-            if (mediaPlayerBg.isPlaying()) mediaPlayerBg.stop();
-            mediaPlayerBg.release();
-            mediaPlayerBg = null;
-        }
+        audioEngine.stopMusic();
     }
 
     @Override
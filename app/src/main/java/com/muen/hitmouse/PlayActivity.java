@@ -4,12 +4,12 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.ActivityInfo;
-import android.media.SoundPool;
+import android.graphics.Bitmap;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
-import android.os.Message;
-import android.os.VibrationEffect;
+import android.os.SystemClock;
 import android.os.Vibrator;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -25,68 +25,169 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
 import androidx.constraintlayout.widget.ConstraintLayout;
-import com.google.android.exoplayer2.ExoPlayer;
-import com.google.android.exoplayer2.MediaItem;
+import androidx.lifecycle.ViewModelProvider;
 import com.muen.hitmouse.databinding.LayoutPlayEasyBinding;
 import com.muen.hitmouse.databinding.LayoutPlayHardBinding;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
 public class PlayActivity extends AppCompatActivity {
-    private static final int MSG_UPDATE_UI = 0x101;
-    private static final int MSG_GAME_OVER = 0x102;
     private static final String TAG = "PlayActivity";
-    private static final long VIBRATION_DURATION = 50;
-    private static final long HIT_COOLDOWN = 100; // 击中冷却时间，防止过快连击
-    private static final int MAX_COMBO = 5; // 最大连击次数限制
+    public static final String EXTRA_BOARD_SIZE = "boardSize"; // 简单模式的棋盘边长
+    public static final String EXTRA_ENDLESS = "endless"; // 无尽模式：不限时，失误过多结束
+    public static final String EXTRA_GHOST = "ghost"; // 幽灵赛跑：回放本棋盘的最佳对局
+    private static final String JOURNAL_FILE = "session.journal"; // 崩溃恢复日志
+    private static final String STATE_RESUMABLE = "resumable"; // 页面被回收时对局是否仍在进行
 
     private LayoutPlayEasyBinding easyBinding;
     private LayoutPlayHardBinding hardBinding;
     private SharedPreferences sharedPreferences;
-    private ExoPlayer exoplayer;
-    private SoundPool soundPool;
-    private int kickSoundId;
+    private AudioEngine audioEngine;
+    private AssetPreloader preloader; // 资源预加载与就绪屏障
+    private final IdleInitializer idleInitializer = new IdleInitializer(); // 首帧之后再执行的非关键初始化
+    private final StartupTracer tracer = StartupTracer.get();
+    private GameViewModel viewModel; // 引擎和日志由 ViewModel 持有，配置变化重建页面时不重新开局
     private GameEngine gameEngine;
     private boolean isPaused = false;
     private boolean isRandomMode;
+    private boolean isEndless;
     private boolean isMuted = false;
     private Vibrator vibrator;
-    private long lastHitTime = 0; // 上次击中时间，用于冷却判断
-    private int comboCount = 0; // 当前连击次数
-    private TextView comboText;
+    private HunterInput hunterInput; // 锤子位置、冷却和连击状态
+    private FeedbackDispatcher feedback; // 击中反馈按帧合并输出
     private List<ImageView> mouseViews;
+    private File ghostFile; // 本棋盘和玩法的最佳对局录像（简单模式）
+    private volatile GhostPlayer ghostPlayer; // 在预加载线程中打开
+    private GhostRace ghostRace;
+    private QualityGovernor qualityGovernor; // 按帧间隔自动调节反馈效果
+    private LatencyMeter latencyMeter; // 估算触摸到上屏的延迟
+    private FrameClock frameClock; // 按所选帧率驱动锤子和幽灵的绘制
+    private CpuMeter cpuMeter; // 统计每分钟游戏的 CPU 时间
+    private GameEventRing.Cursor feedbackCursor; // 反馈在每帧读取事件流
+    private AchievementEngine achievements; // 成就也从事件流增量推进
+    private GameOverPipeline gameOverPipeline; // 后台预读历史摘要、后台保存记录
+    private AlertDialog gameOverDialog; // 空闲时预先创建的结算对话框，结束时只填写文字
+    private CardView gameOverCard;
+    private TextView gameOverTitle;
+    private TextView gameOverMessage;
+    private ByteBuffer restoredState; // 进程被杀后重建页面时读出的对局快照
+
+    // 本页面的界面效果（击中反馈等）使用页面自己的 Handler，页面销毁时清空；游戏推进使用 ViewModel 中的调度器
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final GameScheduler scheduler = new GameScheduler(handler::postDelayed);
+
+    // 每帧读取一次事件流，把本帧的击中和连击交给反馈统一输出
+    private final FrameClock.Client eventPump = frameTimeMillis -> {
+        if (feedbackCursor.poll(feedback) > 0) feedback.flush();
+        achievements.poll();
+        return false;
+    };
 
-    // Handler 用于处理 UI 更新和游戏结束消息
-    private final Handler handler = new Handler(Looper.getMainLooper()) {
+    // 引擎的界面输出，只在页面存活期间绑定
+    private final GameEngine.Renderer renderer = new GameEngine.Renderer() {
         @Override
-        public void handleMessage(Message msg) {
-            switch (msg.what) {
-                case MSG_UPDATE_UI:
-                    if (!isPaused) {
-                        gameEngine.updateUI(msg.arg1); // 更新地鼠位置等 UI
-                        if (!isMuted && exoplayer != null && !exoplayer.isPlaying()) {
-                            exoplayer.play(); // 确保背景音乐在未静音时播放
-                        }
-                    }
-                    break;
-                case MSG_GAME_OVER:
-                    Log.d(TAG, "Received MSG_GAME_OVER, showing game over dialog");
-                    gameOver(); // 处理游戏结束逻辑
-                    break;
+        public void showMoles(int[] slots, int count, float[] positions) {
+            if (!isRandomMode) {
+                easyBinding.board.showMoles(slots, count); // 简单模式：棋盘只绘制选中的洞
+            } else {
+                for (ImageView mouse : mouseViews) {
+                    mouse.setVisibility(View.INVISIBLE);
+                }
+                for (int i = 0; i < count; i++) {
+                    int slot = slots[i];
+                    if (slot >= mouseViews.size()) continue;
+                    ImageView mouse = mouseViews.get(slot);
+                    mouse.setX(positions[slot * 2]);
+                    mouse.setY(positions[slot * 2 + 1]);
+                    mouse.setVisibility(View.VISIBLE);
+                }
+            }
+            getBoom().setVisibility(View.INVISIBLE); // 隐藏爆炸效果
+        }
+
+        @Override
+        public void hideMole(int slot) {
+            if (!isRandomMode) {
+                easyBinding.board.hideMole(slot);
+            } else if (slot < mouseViews.size()) {
+                mouseViews.get(slot).setVisibility(View.INVISIBLE);
+            }
+        }
+
+        @Override
+        public void clearMoles() {
+            if (!isRandomMode) {
+                easyBinding.board.clearMoles();
+            }
+            for (ImageView mouse : mouseViews) {
+                mouse.setVisibility(View.INVISIBLE);
+            }
+            getBoom().setVisibility(View.INVISIBLE);
+        }
+
+        @Override
+        public int hitTest(float x, float y, float[] outBounds) {
+            if (isRandomMode) return -1;
+            BoardView board = easyBinding.board;
+            int hole = board.hitTest(x - board.getX(), y - board.getY());
+            if (hole >= 0) {
+                BoardLayout layout = board.getBoardLayout();
+                outBounds[0] = board.getX() + layout.getHoleLeft(hole);
+                outBounds[1] = board.getY() + layout.getHoleTop(hole);
+                outBounds[2] = layout.getHoleSize();
+                outBounds[3] = layout.getHoleSize();
             }
+            return hole;
+        }
+
+        @Override
+        public void setScoreText(CharSequence text) {
+            (!isRandomMode ? easyBinding.scoreText : hardBinding.scoreText).setText(text);
+        }
+
+        @Override
+        public void setTimeText(String text) {
+            (!isRandomMode ? easyBinding.time : hardBinding.time).setText(text);
+        }
+
+        @Override
+        public void onSpawn() {
+            tracer.mark("first_spawn");
+            tracer.finishSession(PlayActivity.this);
+        }
+
+        @Override
+        public void onEventsPublished() {
+            frameClock.request(eventPump);
+        }
+
+        @Override
+        public void onGameOver() {
+            Log.d(TAG, "Game over callback, showing game over dialog");
+            gameOver(); // 处理游戏结束逻辑
         }
     };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        tracer.beginSession("play", getIntent().getLongExtra(StartupTracer.EXTRA_LAUNCH_UPTIME, SystemClock.uptimeMillis()));
         setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_PORTRAIT);
         getWindow().setFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN, WindowManager.LayoutParams.FLAG_FULLSCREEN);
 
         sharedPreferences = getSharedPreferences("user", MODE_PRIVATE);
+        gameOverPipeline = new GameOverPipeline(new RecordStore(sharedPreferences,
+                new File(getFilesDir(), RecordStore.HISTORY_FILE))); // 游戏记录、最高分和完整历史
         isRandomMode = getIntent().getBooleanExtra("isRandomMode", false); // 从 Intent 获取模式
+        isEndless = getIntent().getBooleanExtra(EXTRA_ENDLESS, false);
         isMuted = sharedPreferences.getBoolean("isMuted", false); // 从 SharedPreferences 获取静音设置
+        frameClock = new FrameClock(FrameClock.getMode(sharedPreferences)); // 主页面选择的帧率模式
+        frameClock.applyTo(getWindow());
+        cpuMeter = new CpuMeter(frameClock.getMode());
 
         // 根据模式加载不同的布局
         if (!isRandomMode) {
@@ -96,64 +197,204 @@ public class PlayActivity extends AppCompatActivity {
             hardBinding = LayoutPlayHardBinding.inflate(getLayoutInflater());
             setContentView(hardBinding.getRoot());
         }
+        tracer.mark("content_set");
+        tracer.markFirstFrame(getWindow().getDecorView(), "first_frame");
 
         initAudioPlayers(); // 初始化音频播放器
         setupTouchListenersWithObserver(); // 设置触摸监听器
         setupButtons(); // 设置按钮监听器
 
-        // 初始化地鼠洞数组，仅在简单模式下使用
-        View[] holes;
+        // 配置变化重建页面时沿用 ViewModel 中正在进行的对局，否则创建新的引擎
+        viewModel = new ViewModelProvider(this).get(GameViewModel.class);
+        gameEngine = viewModel.getEngine();
+        if (gameEngine == null) {
+            BoardSpec spec = isRandomMode ? null : BoardSpec.square(getIntent().getIntExtra(EXTRA_BOARD_SIZE, BoardSpec.MIN_SIZE));
+            gameEngine = new GameEngine(viewModel.getScheduler(), spec, isRandomMode, isEndless);
+            if (!isRandomMode) {
+                // 简单模式的每一局都录制下来，得分超过已保存的最佳对局时成为新的幽灵
+                gameEngine.setRecorder(new SessionRecorder(SessionFile.ghostFile(getFilesDir(), spec.rows, spec.cols, isEndless),
+                        spec.rows, spec.cols, isEndless));
+            }
+
+            // 进程被杀后重建页面时，从日志恢复对局；正常进入游戏则清除旧日志
+            SessionJournal journal = new SessionJournal(new File(getFilesDir(), JOURNAL_FILE));
+            if (savedInstanceState != null && savedInstanceState.getBoolean(STATE_RESUMABLE, false)) {
+                long readStart = SystemClock.uptimeMillis();
+                restoredState = journal.readLatest();
+                Log.d(TAG, "Journal read in " + (SystemClock.uptimeMillis() - readStart) + "ms, found: " + (restoredState != null));
+            } else {
+                journal.clear();
+            }
+            viewModel.setEngine(gameEngine, journal);
+            AchievementEngine achievements = new AchievementEngine(sharedPreferences,
+                    isRandomMode ? AchievementEngine.MODE_HARD : AchievementEngine.MODE_EASY);
+            achievements.track(gameEngine.getEvents());
+            viewModel.setAchievements(achievements);
+        }
+        gameEngine.setStepMillis(frameClock.getStepMillis()); // 规则按所选帧率的固定步长推进
+        feedbackCursor = gameEngine.getEvents().newCursor(); // 只读本页面创建之后的事件
+        achievements = viewModel.getAchievements();
+        achievements.setListener(rule -> Toast.makeText(this, "解锁成就: " + rule.title, Toast.LENGTH_SHORT).show());
+
+        // 简单模式使用可配置的棋盘，洞由 BoardView 动态生成
         if (!isRandomMode) {
-            holes = new View[] {
-                    easyBinding.hole1, easyBinding.hole2, easyBinding.hole3,
-                    easyBinding.hole4, easyBinding.hole5, easyBinding.hole6,
-                    easyBinding.hole7, easyBinding.hole8, easyBinding.hole9
-            };
-        } else {
-            holes = new View[0]; // 困难模式下无固定洞
+            BoardSpec spec = gameEngine.getSpec();
+            easyBinding.board.setSpec(spec);
+            ghostFile = SessionFile.ghostFile(getFilesDir(), spec.rows, spec.cols, isEndless);
         }
 
+        // 困难模式的地鼠是独立视图（布局完成后补齐到引擎的位置数量），简单模式的地鼠由棋盘绘制
         mouseViews = new ArrayList<>();
-        ImageView initialMouse = !isRandomMode ? easyBinding.mouse : hardBinding.mouse;
-        mouseViews.add(initialMouse); // 添加初始地鼠视图
-
-        // 初始化 GameEngine，传入必要的视图和参数
-        gameEngine = new GameEngine(
-                this,
-                handler,
-                holes,
-                mouseViews,
+        if (isRandomMode) {
+            mouseViews.add(hardBinding.mouse); // 添加初始地鼠视图
+        }
+
+        feedback = new FeedbackDispatcher(this, scheduler,
+                !isRandomMode ? easyBinding.easyLayout : hardBinding.hardLayout,
                 !isRandomMode ? easyBinding.boom : hardBinding.boom,
-                !isRandomMode ? easyBinding.hunter : hardBinding.hunter,
-                !isRandomMode ? easyBinding.time : hardBinding.time,
-                !isRandomMode ? easyBinding.scoreText : hardBinding.scoreText,
-                isRandomMode
-        );
+                audioEngine);
+        feedback.setMuted(isMuted);
+        if (frameClock.isPowerSave()) {
+            feedback.setQualityTier(QualityGovernor.TIER_REDUCED); // 省电模式：得分文字不做渐隐动画，击中后不连续请求帧
+        }
+        float refreshRate = getWindowManager().getDefaultDisplay().getRefreshRate();
+        qualityGovernor = new QualityGovernor(refreshRate);
+        latencyMeter = new LatencyMeter(refreshRate, HunterInput.PREDICTION_MS);
+        qualityGovernor.setListener(tier -> {
+            feedback.setQualityTier(tier);
+            if (!isRandomMode) easyBinding.board.setLowQuality(tier == QualityGovernor.TIER_MINIMAL);
+        });
+        idleInitializer.add("vibrator", () -> {
+            vibrator = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
+            feedback.setVibrator(vibrator);
+        });
+        // 结算所需的历史摘要和对话框在空闲时准备好，结束时主线程只填写文字
+        idleInitializer.add("record_summary", gameOverPipeline::prefetch)
+                .add("game_over_dialog", this::prepareGameOverDialog);
 
-        vibrator = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
+        preloadAssetsAndStart(); // 资源全部就绪后再开始游戏
+        idleInitializer.start();
+        tracer.mark("create_done");
+    }
 
-        Toast.makeText(this, isRandomMode ? "困难模式开始！" : "简单模式开始！", Toast.LENGTH_SHORT).show();
-        gameEngine.startGame(); // 启动游戏
+    // 并行加载音频、位图并记录棋盘几何，全部完成后才开始刷新地鼠
+    private void preloadAssetsAndStart() {
+        View layout = !isRandomMode ? easyBinding.easyLayout : hardBinding.hardLayout;
+        preloader = new AssetPreloader(this)
+                .audio(R.raw.kick, R.raw.start)
+                .bitmaps(R.drawable.mouse, R.drawable.hole, R.drawable.hunter, R.drawable.hit)
+                .geometry(layout, () -> {
+                    View[] uiViews = !isRandomMode
+                            ? new View[] {easyBinding.btnPause, easyBinding.btnBack, easyBinding.btnMute, easyBinding.sign, easyBinding.time}
+                            : new View[] {hardBinding.btnPause, hardBinding.btnBack, hardBinding.btnMute, hardBinding.sign, hardBinding.time};
+                    float[] exclusionRects = new float[uiViews.length * 4];
+                    for (int i = 0; i < uiViews.length; i++) {
+                        exclusionRects[i * 4] = uiViews[i].getX();
+                        exclusionRects[i * 4 + 1] = uiViews[i].getY();
+                        exclusionRects[i * 4 + 2] = uiViews[i].getX() + uiViews[i].getWidth();
+                        exclusionRects[i * 4 + 3] = uiViews[i].getY() + uiViews[i].getHeight();
+                    }
+                    if (!isRandomMode) {
+                        // 简单模式：地鼠尺寸即棋盘上洞的尺寸
+                        BoardLayout boardLayout = easyBinding.board.getBoardLayout();
+                        int holeSize = boardLayout != null ? (int) boardLayout.getHoleSize() : 0;
+                        return new BoardGeometry(layout.getWidth(), layout.getHeight(), holeSize, holeSize, exclusionRects);
+                    }
+                    return new BoardGeometry(layout.getWidth(), layout.getHeight(),
+                            hardBinding.mouse.getWidth(), hardBinding.mouse.getHeight(), exclusionRects);
+                });
+        if (ghostFile != null && getIntent().getBooleanExtra(EXTRA_GHOST, false)) {
+            BoardSpec spec = easyBinding.board.getSpec();
+            preloader.task("ghost", () -> {
+                try {
+                    ghostPlayer = GhostPlayer.open(ghostFile, spec.rows, spec.cols, isEndless);
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to open ghost recording: " + e.getMessage());
+                }
+            });
+        }
+        preloader.start(loaded -> {
+            if (isFinishing() || isDestroyed()) return;
+            tracer.mark("assets_ready");
+            BoardGeometry geometry = loaded.getGeometry();
+            gameEngine.setBoardGeometry(geometry);
+            if (!isRandomMode) {
+                // 棋盘用预加载的精灵生成洞的背景缓存和命中区域，精灵取不小于洞尺寸的最小版本
+                easyBinding.board.setSprites(loaded.getBitmap(R.drawable.hole, geometry.mouseWidth),
+                        loaded.getBitmap(R.drawable.mouse, geometry.mouseWidth));
+            } else {
+                // 命中区域按当前屏幕上的渲染尺寸生成，不同密度的设备手感一致
+                gameEngine.setMouseMask(loaded.buildHitMask(R.drawable.mouse, geometry.mouseWidth, geometry.mouseHeight));
+            }
+            ensureMouseViews(); // 开局前一次性创建全部地鼠视图，对局中只切换可见性
+            if (gameEngine.isStarted()) {
+                // 配置变化后重建的页面：对局一直在 ViewModel 中进行，只需接上界面
+                gameEngine.attach(renderer);
+                if (gameEngine.isGameOver()) {
+                    if (viewModel.getGameResult() != null) {
+                        showGameOverDialog(gameEngine.getCount(), viewModel.getGameResult());
+                    }
+                    return;
+                }
+                isPaused = gameEngine.isPaused();
+                getPauseButton().setText(isPaused ? "继续" : "暂停");
+                startRaceAndMeters();
+                return;
+            }
+            gameEngine.attach(renderer);
+            if (ghostPlayer != null && ghostPlayer.isFixedDifficulty()) {
+                // 幽灵录制于固定难度时玩家也用固定难度，双方面对同一条难度曲线；录制于自适应难度时保持默认的自适应
+                gameEngine.setDifficulty(DifficultyController.fixed());
+            }
+            if (restoredState != null && gameEngine.restoreGame(restoredState)) {
+                restoredState = null;
+                isPaused = true; // 恢复的对局先暂停，玩家点继续后才开始计时
+                getPauseButton().setText("继续");
+                startMeters();
+                Toast.makeText(this, "已恢复上次的游戏，点击继续", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if (!isMuted) {
+                audioEngine.playEffect(R.raw.start); // 开场音乐已解码，立即播放
+            }
+            Toast.makeText(this, isRandomMode ? "困难模式开始！" : "简单模式开始！", Toast.LENGTH_SHORT).show();
+            gameEngine.startGame(); // 启动游戏
+            startRaceAndMeters();
+        });
     }
 
-    // 初始化音频播放器，包括 SoundPool 和 ExoPlayer
-    private void initAudioPlayers() {
-        soundPool = new SoundPool.Builder().setMaxStreams(2).build();
-        kickSoundId = soundPool.load(this, R.raw.kick, 1); // 加载击中音效
+    // 对局进行中时启动统计和幽灵赛跑（幽灵按当前游戏时间快进到同一时刻）
+    private void startRaceAndMeters() {
+        startMeters();
+        if (ghostPlayer != null) {
+            ghostRace = new GhostRace(ghostPlayer, gameEngine::getGameTime, frameClock, easyBinding.board,
+                    easyBinding.ghostHunter, easyBinding.ghostScore);
+            ghostRace.start();
+            if (isPaused) ghostRace.pause(); // 暂停中重建的页面，等玩家点继续
+        }
+    }
+
+    // 省电模式不做每帧的画质调节和延迟统计，CPU 统计始终进行
+    private void startMeters() {
+        if (!isPaused) cpuMeter.start();
+        if (frameClock.isPowerSave()) return;
+        qualityGovernor.start();
+        latencyMeter.start(getWindow());
+    }
+
+    private ImageView getBoom() {
+        return !isRandomMode ? easyBinding.boom : hardBinding.boom;
+    }
 
-        exoplayer = new ExoPlayer.Builder(this).build();
-        MediaItem mediaItem = MediaItem.fromUri("android.resource://" + getPackageName() + "/" + R.raw.start);
-        exoplayer.setMediaItem(mediaItem);
-        exoplayer.prepare();
+    // 初始化音频，所有声音都通过同一个 AudioEngine 混音输出
+    private void initAudioPlayers() {
+        audioEngine = AudioEngine.get(this); // 音效由 AssetPreloader 在后台解码
 
         if (isMuted) {
-            if (exoplayer.isPlaying()) {
-                exoplayer.pause();
-            }
+            audioEngine.stopEffects();
             stopMusicService();
         } else {
-            exoplayer.play();
-            startMusicService();
+            idleInitializer.add("music_service", this::startMusicService); // 背景音乐不是首帧必需的
         }
     }
 
@@ -167,12 +408,17 @@ public class PlayActivity extends AppCompatActivity {
 
     // 设置触摸监听器，确保布局加载完成后再绑定
     private void setupTouchListener(View layout, ImageView hunter) {
+        hunterInput = new HunterInput(hunter, frameClock);
+        hunter.setLayerType(View.LAYER_TYPE_HARDWARE, null); // 锤子单独一个图层，移动时只改图层位置，不重绘下面的棋盘
         layout.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
             @Override
             public void onGlobalLayout() {
                 layout.getViewTreeObserver().removeOnGlobalLayoutListener(this);
                 layout.setOnTouchListener((v, event) -> {
-                    handleTouchEvent(event, hunter); // 处理触摸事件
+                    if (event.getActionMasked() == MotionEvent.ACTION_DOWN && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                        v.requestUnbufferedDispatch(event); // 移动事件到达即分发，不等下一帧合并
+                    }
+                    handleTouchEvent(event); // 处理触摸事件
                     return true;
                 });
             }
@@ -180,46 +426,31 @@ public class PlayActivity extends AppCompatActivity {
     }
 
     // 处理触摸事件，控制猎人移动和击中地鼠
-    private void handleTouchEvent(MotionEvent event, ImageView hunter) {
+    private void handleTouchEvent(MotionEvent event) {
         long currentTime = System.currentTimeMillis();
-        float x = Math.max(0, Math.min(event.getX() - hunter.getWidth() / 2f, ((View) hunter.getParent()).getWidth() - hunter.getWidth()));
-        float y = Math.max(0, Math.min(event.getY() - hunter.getHeight() / 2f, ((View) hunter.getParent()).getHeight() - hunter.getHeight()));
 
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
             case MotionEvent.ACTION_MOVE:
-                hunter.setX(x); // 更新猎人位置
-                hunter.setY(y);
+                hunterInput.track(event, 0); // 锤子画在预测位置，击打点仍是真实触点
+                latencyMeter.onInput(event);
                 // 检查是否可以击中（未暂停、冷却时间已过、连击未达上限）
-                if (!isPaused && currentTime - lastHitTime >= HIT_COOLDOWN && comboCount < MAX_COMBO) {
-                    ImageView hitMouse = gameEngine.hitMouse(hunter);
-                    if (hitMouse != null) {
-                        if (!isMuted) {
-                            playKickSound(); // 播放击中音效
-                        }
-                        comboCount++;
-                        showScoreAnimation(hitMouse); // 显示得分动画
-                        showComboCounter(hitMouse); // 显示连击计数
-                        vibrate(); // 震动反馈
-                        lastHitTime = currentTime;
-                        Log.d(TAG, "击中成功，连击次数: " + comboCount);
+                if (!isPaused && hunterInput.canHit(currentTime)) {
+                    if (gameEngine.hitMouse(hunterInput.getTipX(), hunterInput.getTipY())) {
+                        int comboCount = hunterInput.onHit(currentTime);
+                        // 击中事件已由引擎发布，连击事件紧随其后；音效、震动和动画在下一帧统一输出
+                        gameEngine.getEvents().publish(GameEventRing.COMBO, gameEngine.getGameTime(), 0, comboCount, 0);
                     }
                 }
                 break;
             case MotionEvent.ACTION_UP:
-                comboCount = 0; // 重置连击
-                removeComboCounter();
-                Log.d(TAG, "连击重置");
+                hunterInput.resetCombo(); // 重置连击
+                gameEngine.getEvents().publish(GameEventRing.COMBO, gameEngine.getGameTime(), 0, 0, 0);
+                frameClock.request(eventPump);
                 break;
         }
     }
 
-    private void playKickSound() {
-        if (soundPool != null) {
-            soundPool.play(kickSoundId, 1.0f, 1.0f, 1, 0, 1.0f);
-        }
-    }
-
     private void setupButtons() {
         if (!isRandomMode) {
             setupButtonListeners(easyBinding.btnPause, easyBinding.btnBack, easyBinding.btnMute);
@@ -237,11 +468,14 @@ public class PlayActivity extends AppCompatActivity {
 
     private void togglePause() {
         if (!isPaused) {
-            gameEngine.stopGame();
-            handler.removeCallbacksAndMessages(null); // 移除所有回调，避免残余任务
+            gameEngine.stopGame(); // 调度器代号加一，残余任务不会再执行
+            cpuMeter.pause();
+            if (ghostRace != null) ghostRace.pause();
             getPauseButton().setText("继续");
         } else {
             gameEngine.resumeGame();
+            cpuMeter.start();
+            if (ghostRace != null) ghostRace.resume();
             getPauseButton().setText("暂停");
         }
         isPaused = !isPaused;
@@ -254,19 +488,15 @@ public class PlayActivity extends AppCompatActivity {
 
     private void toggleMusic() {
         isMuted = !isMuted;
+        feedback.setMuted(isMuted);
         SharedPreferences.Editor editor = sharedPreferences.edit();
         editor.putBoolean("isMuted", isMuted);
         editor.apply();
 
         if (isMuted) {
-            if (exoplayer != null && exoplayer.isPlaying()) {
-                exoplayer.pause();
-            }
+            audioEngine.stopEffects();
             stopMusicService();
         } else {
-            if (exoplayer != null && !exoplayer.isPlaying()) {
-                exoplayer.play();
-            }
             startMusicService();
         }
 
@@ -280,23 +510,38 @@ public class PlayActivity extends AppCompatActivity {
     // 处理游戏结束逻辑，显示得分对话框
     private void gameOver() {
         gameEngine.endGame(); // 结束游戏引擎
+        gameEngine.finishRecording(); // 后台写完录像，得分更高时成为新的幽灵
+        viewModel.getJournal().clear(); // 对局已结束，不再需要恢复
+        if (ghostRace != null) {
+            ghostRace.stop();
+        }
+        qualityGovernor.stop();
+        latencyMeter.stop();
+        RecordStore.Extra cpu = cpuMeter.finish(); // 本局每分钟的 CPU 时间计入当前帧率模式，随记录一起保存
+        achievements.poll(); // 处理结束事件，得分类成就在此解锁
         int count = gameEngine.getCount();
         long timestamp = System.currentTimeMillis();
 
         Log.d(TAG, "Game over, score: " + count + ", time: " + timestamp);
 
-        saveRecord(timestamp, count); // 保存游戏记录
+        RecordStore.Summary summary = gameOverPipeline.takeSummary(); // 对局中已在后台读好
+        gameOverPipeline.save(timestamp, count, achievements.takeChanges(), cpu); // 记录移位、最高分、成就进度和耗电统计在后台一次提交
+        LeaderboardClient.get(this).submit(timestamp, count, (isRandomMode ? LeaderboardClient.MODE_HARD : 0)
+                | (isEndless ? LeaderboardClient.MODE_ENDLESS : 0)); // 只投递到后台，入队和上传都不在主线程
+        viewModel.setGameResult(summary); // 页面重建后据此重新显示结算，不重复保存
+        showGameOverDialog(count, summary);
+    }
 
-        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+    // 预先加载结算对话框的布局并创建窗口，结束时只需填写文字后显示；失败时返回 false
+    private boolean prepareGameOverDialog() {
+        if (gameOverDialog != null) return true;
         View dialogView;
         try {
             dialogView = LayoutInflater.from(this).inflate(R.layout.dialog_game_over, null);
         } catch (Exception e) {
             Log.e(TAG, "Failed to inflate game over dialog: " + e.getMessage());
-            finish(); // 如果对话框加载失败，直接结束活动
-            return;
+            return false;
         }
-        builder.setView(dialogView);
 
         CardView cardView = (CardView) dialogView;
         TextView tvTitle = dialogView.findViewById(R.id.tv_title);
@@ -307,37 +552,18 @@ public class PlayActivity extends AppCompatActivity {
         // 检查对话框视图是否正确加载
         if (tvTitle == null || tvMessage == null || btnRestart == null || btnBack == null) {
             Log.e(TAG, "Game over dialog views not found");
-            finish();
-            return;
-        }
-
-        int highScore = sharedPreferences.getInt("high_score", 0);
-        String rating = count >= 166 ? "地鼠大师" : count >= 99 ? "地鼠猎手" : "地鼠新手";
-        if (count > highScore) {
-            sharedPreferences.edit().putInt("high_score", count).apply();
-            tvTitle.setText("新纪录！");
-            tvMessage.setText("得分: " + count + "\n评级: " + rating + "\n打破最高分: " + highScore);
-        } else {
-            tvTitle.setText("游戏结束");
-            tvMessage.setText("得分: " + count + "\n评级: " + rating + "\n最高分: " + highScore);
-        }
-
-        if (count >= 30) {
-            cardView.setCardBackgroundColor(0xFFFFD700); // 金色
-        } else if (count >= 15) {
-            cardView.setCardBackgroundColor(0xFFC0C0C0); // 银色
-        } else {
-            cardView.setCardBackgroundColor(0xFFFFFFFF); // 白色
+            return false;
         }
         tvTitle.setTextColor(0xFF333333);
         tvMessage.setTextColor(0xFF666666);
 
-        AlertDialog dialog = builder.create();
+        AlertDialog dialog = new AlertDialog.Builder(this).setView(dialogView).create();
         dialog.setCancelable(false);
 
         btnRestart.setOnClickListener(v -> {
             Log.d(TAG, "Restart clicked");
             dialog.dismiss();
+            viewModel.release(); // 丢弃已结束的对局，重建页面时创建新的引擎
             recreate(); // 重启活动
         });
 
@@ -347,8 +573,48 @@ public class PlayActivity extends AppCompatActivity {
             finish(); // 返回主页面
         });
 
+        dialog.create(); // 提前创建窗口和装饰视图，显示时不再加载布局
+        gameOverDialog = dialog;
+        gameOverCard = cardView;
+        gameOverTitle = tvTitle;
+        gameOverMessage = tvMessage;
+        return true;
+    }
+
+    // 结算对话框，成绩已交给后台保存；summary 为保存本局之前的历史摘要
+    private void showGameOverDialog(int count, RecordStore.Summary summary) {
+        if (!prepareGameOverDialog()) {
+            finish(); // 如果对话框加载失败，直接结束活动
+            return;
+        }
+        int highScore = summary.getPreviousHighScore();
+        String rating = count >= AchievementEngine.MASTER_SCORE ? "地鼠大师"
+                : count >= AchievementEngine.HUNTER_SCORE ? "地鼠猎手" : "地鼠新手";
+        String survived = gameEngine.isEndless() ? "\n坚持: " + gameEngine.getElapsed() / 1000 + "秒" : "";
+        if (ghostPlayer != null) {
+            survived += "\n幽灵得分: " + ghostPlayer.getFinalScore();
+        }
+        String stats = "\n排名: " + summary.getRank(count) + " / " + summary.getGameCount()
+                + "  平均: " + summary.getAverage(count)
+                + "\n成就: " + achievements.getUnlockedCount() + " / " + AchievementEngine.RULES.length;
+        if (count > highScore) {
+            gameOverTitle.setText("新纪录！");
+            gameOverMessage.setText("得分: " + count + survived + "\n评级: " + rating + "\n打破最高分: " + highScore + stats);
+        } else {
+            gameOverTitle.setText("游戏结束");
+            gameOverMessage.setText("得分: " + count + survived + "\n评级: " + rating + "\n最高分: " + highScore + stats);
+        }
+
+        if (count >= 30) {
+            gameOverCard.setCardBackgroundColor(0xFFFFD700); // 金色
+        } else if (count >= 15) {
+            gameOverCard.setCardBackgroundColor(0xFFC0C0C0); // 银色
+        } else {
+            gameOverCard.setCardBackgroundColor(0xFFFFFFFF); // 白色
+        }
+
         try {
-            dialog.show();
+            gameOverDialog.show();
             Log.d(TAG, "Game over dialog shown");
         } catch (Exception e) {
             Log.e(TAG, "Failed to show game over dialog: " + e.getMessage());
@@ -356,24 +622,11 @@ public class PlayActivity extends AppCompatActivity {
         }
     }
 
-    private void saveRecord(long timestamp, int score) {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        for (int i = 49; i > 0; i--) {
-            int prevScore = sharedPreferences.getInt("record_score_" + (i - 1), 0);
-            long prevTime = sharedPreferences.getLong("record_time_" + (i - 1), 0);
-            if (prevScore > 0) {
-                editor.putInt("record_score_" + i, prevScore);
-                editor.putLong("record_time_" + i, prevTime);
-            }
-        }
-        editor.putInt("record_score_0", score);
-        editor.putLong("record_time_0", timestamp);
-        editor.apply();
-    }
-
     @Override
     public void onBackPressed() {
         gameEngine.stopGame();
+        cpuMeter.pause();
+        if (ghostRace != null) ghostRace.pause();
 
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         View dialogView = LayoutInflater.from(this).inflate(R.layout.dialog_exit_game, null);
@@ -398,6 +651,8 @@ public class PlayActivity extends AppCompatActivity {
         btnCancel.setOnClickListener(v -> {
             Log.d(TAG, "Cancel button clicked");
             gameEngine.resumeGame();
+            cpuMeter.start();
+            if (ghostRace != null) ghostRace.resume();
             isPaused = false;
             dialog.dismiss();
             getPauseButton().setText("暂停");
@@ -416,27 +671,46 @@ public class PlayActivity extends AppCompatActivity {
         dialog.show();
     }
 
+    // 进入后台时立即写一次日志，之后进程随时可能被杀
+    @Override
+    protected void onPause() {
+        super.onPause();
+        gameEngine.saveJournal();
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(STATE_RESUMABLE, !gameEngine.isGameOver());
+    }
+
     // 释放资源，防止内存泄漏
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (soundPool != null) {
-            soundPool.release();
-            soundPool = null;
-            Log.d(TAG, "SoundPool 释放成功");
-        }
-        if (exoplayer != null) {
-            exoplayer.stop();
-            exoplayer.release();
-            exoplayer = null;
-            Log.d(TAG, "ExoPlayer 释放成功");
-        }
-        if (handler != null) {
-            handler.removeCallbacksAndMessages(null); // 清理 Handler 任务
-        }
-        stopMusicService();
-        gameEngine.endGame();
-        removeComboCounter();
+        gameEngine.detach(renderer); // 对局留在 ViewModel 中，页面退出时由 ViewModel 结束并清理日志
+        achievements.setListener(null); // 解锁提示引用页面
+        if (preloader != null) {
+            preloader.cancel();
+        }
+        idleInitializer.cancel();
+        if (audioEngine != null) {
+            audioEngine.stopEffects(); // 引擎为全局共享，只停止本页面的音效
+        }
+        handler.removeCallbacksAndMessages(null); // 页面销毁时直接清空底层队列
+        if (isFinishing()) {
+            stopMusicService(); // 配置变化重建时音乐不中断
+        }
+        if (ghostRace != null) {
+            ghostRace.stop();
+        }
+        qualityGovernor.stop();
+        latencyMeter.stop();
+        frameClock.stop();
+        feedback.cancel();
+        if (gameOverDialog != null) {
+            gameOverDialog.dismiss(); // 配置变化重建时由新页面重新显示
+        }
         Log.d(TAG, "Activity destroyed");
     }
 
@@ -450,74 +724,26 @@ public class PlayActivity extends AppCompatActivity {
         stopService(intent);
     }
 
-    private void showScoreAnimation(ImageView target) {
-        TextView scoreText = new TextView(this);
-        scoreText.setText(comboCount >= 3 ? "+" + comboCount + " 双倍!" : "+" + comboCount + " 连击!");
-        scoreText.setTextColor(0xFFFF0000);
-        scoreText.setTextSize(comboCount >= 3 ? 24 : 20);
-        ConstraintLayout.LayoutParams params = new ConstraintLayout.LayoutParams(
-                ConstraintLayout.LayoutParams.WRAP_CONTENT, ConstraintLayout.LayoutParams.WRAP_CONTENT);
-        params.leftToLeft = ConstraintLayout.LayoutParams.PARENT_ID;
-        params.topToTop = ConstraintLayout.LayoutParams.PARENT_ID;
-        params.leftMargin = (int) target.getX() + target.getWidth() / 2;
-        params.topMargin = (int) target.getY() - 50;
-        ((ConstraintLayout) target.getParent()).addView(scoreText, params);
-
-        scoreText.animate()
-                .translationYBy(-50f)
-                .alpha(0f)
-                .setDuration(500)
-                .withEndAction(() -> {
-                    if (scoreText.getParent() != null) {
-                        ((ConstraintLayout) scoreText.getParent()).removeView(scoreText);
-                    }
-                })
-                .start();
-    }
-
-    private void showComboCounter(ImageView target) {
-        ConstraintLayout parentLayout = (ConstraintLayout) target.getParent();
-
-        if (comboText == null) {
-            comboText = new TextView(this);
-            comboText.setTextColor(0xFFFF0000);
-            comboText.setTextSize(24);
-            ConstraintLayout.LayoutParams params = new ConstraintLayout.LayoutParams(
-                    ConstraintLayout.LayoutParams.WRAP_CONTENT, ConstraintLayout.LayoutParams.WRAP_CONTENT);
-            params.leftToLeft = ConstraintLayout.LayoutParams.PARENT_ID;
-            params.topToTop = ConstraintLayout.LayoutParams.PARENT_ID;
-            params.leftMargin = (int) target.getX() + target.getWidth() + 10;
-            params.topMargin = (int) target.getY() + target.getHeight() / 2;
-            parentLayout.addView(comboText, params);
+    // 困难模式按引擎的位置数量补齐地鼠视图，在首次布局完成后调用
+    private void ensureMouseViews() {
+        if (!isRandomMode) return;
+        while (mouseViews.size() < gameEngine.getMaxMouseCount()) {
+            addMouseView();
         }
-
-        comboText.setText("连击 x" + comboCount);
     }
 
-    private void removeComboCounter() {
-        if (comboText != null && comboText.getParent() != null) {
-            ((ConstraintLayout) comboText.getParent()).removeView(comboText);
-            comboText = null;
-        }
-    }
-
-    private void vibrate() {
-        if (vibrator != null && vibrator.hasVibrator()) {
-            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-                vibrator.vibrate(VibrationEffect.createOneShot(VIBRATION_DURATION, VibrationEffect.DEFAULT_AMPLITUDE));
-            } else {
-                vibrator.vibrate(VIBRATION_DURATION);
-            }
-        }
-    }
-
-    // 添加新的地鼠视图，同步保护避免多线程问题
-    public void addMouseView() {
+    // 添加新的地鼠视图
+    private void addMouseView() {
         synchronized (mouseViews) {
-            if (mouseViews.size() < GameEngine.MAX_MOUSE_COUNT) {
+            if (mouseViews.size() < gameEngine.getMaxMouseCount()) {
                 ConstraintLayout layout = (ConstraintLayout) mouseViews.get(0).getParent();
                 ImageView newMouse = new ImageView(this);
-                newMouse.setImageResource(R.drawable.mouse);
+                Bitmap mouseBitmap = preloader != null ? preloader.getBitmap(R.drawable.mouse) : null;
+                if (mouseBitmap != null) {
+                    newMouse.setImageBitmap(mouseBitmap); // 复用预加载的位图，避免重复解码
+                } else {
+                    newMouse.setImageResource(R.drawable.mouse);
+                }
                 newMouse.setLayoutParams(new ConstraintLayout.LayoutParams(
                         mouseViews.get(0).getWidth(), mouseViews.get(0).getHeight()));
                 newMouse.setVisibility(View.INVISIBLE);
@@ -525,7 +751,7 @@ public class PlayActivity extends AppCompatActivity {
                 mouseViews.add(newMouse);
                 Log.d(TAG, "Added new mouse view, Total mice: " + mouseViews.size());
             } else {
-                Log.d(TAG, "Max mouse count reached: " + GameEngine.MAX_MOUSE_COUNT);
+                Log.d(TAG, "Max mouse count reached: " + gameEngine.getMaxMouseCount());
             }
         }
     }
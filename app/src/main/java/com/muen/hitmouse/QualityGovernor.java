@@ -0,0 +1,133 @@
+package com.muen.hitmouse;
+
+import android.util.Log;
+import android.view.Choreographer;
+import java.util.Arrays;
+
+// 画质调节器：用滑动窗口记录每帧间隔，掉帧时逐级关闭次要效果，持续有余量时再逐级恢复
+// FULL：全部效果；REDUCED：得分文字只用一个且不做渐隐动画；MINIMAL：再关闭得分文字、连击计数、震动和位图过滤
+// 出鼠、命中判断和爆炸效果不受影响
+public class QualityGovernor implements Choreographer.FrameCallback {
+    private static final String TAG = "QualityGovernor";
+    public static final int TIER_FULL = 0;
+    public static final int TIER_REDUCED = 1;
+    public static final int TIER_MINIMAL = 2;
+
+    private static final int WINDOW = 120; // 滑动窗口帧数，60Hz 下约 2 秒
+    private static final int EVALUATE_EVERY = 30; // 每隔多少帧评估一次
+    private static final float DOWNGRADE_RATIO = 1.5f; // 第 90 百分位帧间隔超过预算的倍数时降档
+    private static final float UPGRADE_RATIO = 1.1f; // 第 90 百分位低于预算的该倍数时视为有余量
+    private static final int UPGRADE_EVALUATIONS = 6; // 连续多次有余量才升档，避免来回切换
+    private static final long MAX_FRAME_GAP_NANOS = 250_000_000L; // 超过该间隔视为暂停或切到后台，不计入窗口
+
+    // 档位变化回调，在主线程触发
+    public interface Listener {
+        void onQualityChanged(int tier);
+    }
+
+    private final Choreographer choreographer;
+    private final long budgetNanos; // 一帧的时间预算
+    private final long[] frames = new long[WINDOW]; // 环形缓冲区
+    private final long[] sorted = new long[WINDOW]; // 计算百分位时复用
+    private int frameCount = 0;
+    private int nextFrame = 0;
+    private int sinceEvaluation = 0;
+    private int headroomEvaluations = 0;
+    private long lastFrameNanos = 0;
+    private int tier = TIER_FULL;
+    private boolean running = false;
+    private Listener listener;
+    private int downgrades = 0;
+    private int upgrades = 0;
+
+    public QualityGovernor(float refreshRate) {
+        this(Choreographer.getInstance(), refreshRate);
+    }
+
+    // 测试中不需要 Choreographer，直接调用 onFrameInterval 喂入帧间隔
+    QualityGovernor(Choreographer choreographer, float refreshRate) {
+        this.choreographer = choreographer;
+        this.budgetNanos = (long) (1_000_000_000L / Math.max(1f, refreshRate));
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        lastFrameNanos = 0;
+        choreographer.postFrameCallback(this);
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+        choreographer.removeFrameCallback(this);
+        if (frameCount > 0) {
+            Log.d(TAG, "Tier " + tier + ", p50 " + getFrameTimePercentile(50) + "ms, p90 " + getFrameTimePercentile(90)
+                    + "ms, p99 " + getFrameTimePercentile(99) + "ms, " + downgrades + " downgrades, " + upgrades + " upgrades");
+        }
+    }
+
+    public int getTier() {
+        return tier;
+    }
+
+    // 当前窗口内帧间隔的百分位（毫秒），窗口为空时返回 0
+    public float getFrameTimePercentile(int percentile) {
+        return percentileNanos(percentile) / 1_000_000f;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) return;
+        if (lastFrameNanos > 0) {
+            onFrameInterval(frameTimeNanos - lastFrameNanos);
+        }
+        lastFrameNanos = frameTimeNanos;
+        choreographer.postFrameCallback(this);
+    }
+
+    void onFrameInterval(long nanos) {
+        if (nanos <= 0 || nanos > MAX_FRAME_GAP_NANOS) return;
+        frames[nextFrame] = nanos;
+        nextFrame = (nextFrame + 1) % WINDOW;
+        if (frameCount < WINDOW) frameCount++;
+        if (++sinceEvaluation < EVALUATE_EVERY || frameCount < WINDOW) return;
+        sinceEvaluation = 0;
+
+        long p90 = percentileNanos(90);
+        if (p90 > budgetNanos * DOWNGRADE_RATIO) {
+            headroomEvaluations = 0;
+            if (tier < TIER_MINIMAL) {
+                downgrades++;
+                setTier(tier + 1);
+                frameCount = 0; // 降档后清空窗口重新观察，不让旧的慢帧连续触发降档
+                nextFrame = 0;
+            }
+        } else if (p90 < budgetNanos * UPGRADE_RATIO) {
+            if (++headroomEvaluations >= UPGRADE_EVALUATIONS && tier > TIER_FULL) {
+                headroomEvaluations = 0;
+                upgrades++;
+                setTier(tier - 1);
+            }
+        } else {
+            headroomEvaluations = 0;
+        }
+    }
+
+    private void setTier(int tier) {
+        this.tier = tier;
+        Log.d(TAG, "Quality tier " + tier + ", p90 " + getFrameTimePercentile(90) + "ms, budget " + budgetNanos / 1_000_000f + "ms");
+        if (listener != null) listener.onQualityChanged(tier);
+    }
+
+    private long percentileNanos(int percentile) {
+        if (frameCount == 0) return 0;
+        System.arraycopy(frames, 0, sorted, 0, frameCount);
+        Arrays.sort(sorted, 0, frameCount);
+        return sorted[Math.min(frameCount - 1, frameCount * percentile / 100)];
+    }
+}
@@ -0,0 +1,96 @@
+package com.muen.hitmouse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 就绪屏障：登记若干资源任务，全部完成后只触发一次回调，并记录每个资源的加载耗时
+// 加载失败的资源同样算作到达，由使用方退化处理，等待者不会因为一个资源失败而永远等下去
+public class ReadinessBarrier {
+    private final Runnable onReady;
+    private final Map<String, long[]> timings = new LinkedHashMap<>(); // 名称 -> {开始纳秒, 结束纳秒}
+    private final Map<String, String> failures = new LinkedHashMap<>(); // 名称 -> 失败原因
+    private int pending = 0;
+    private boolean sealed = false; // 登记结束后才允许触发回调
+    private boolean fired = false;
+
+    public ReadinessBarrier(Runnable onReady) {
+        this.onReady = onReady;
+    }
+
+    // 登记一个需要等待的资源，同时开始计时
+    public synchronized void register(String name) {
+        if (sealed) throw new IllegalStateException("Barrier already sealed, cannot register " + name);
+        if (timings.containsKey(name)) throw new IllegalArgumentException("Duplicate asset: " + name);
+        timings.put(name, new long[] {System.nanoTime(), 0});
+        pending++;
+    }
+
+    // 资源加载完成，可在任意线程调用
+    public void arrive(String name) {
+        boolean fire;
+        synchronized (this) {
+            long[] timing = timings.get(name);
+            if (timing == null || timing[1] != 0) return; // 未登记或重复到达
+            timing[1] = System.nanoTime();
+            pending--;
+            fire = shouldFire();
+        }
+        if (fire) onReady.run();
+    }
+
+    // 包装一个加载任务：任务抛出异常时记为失败，无论成败都在结束时到达
+    public Runnable arriveAfter(String name, Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    failures.put(name, e.toString());
+                }
+            } finally {
+                arrive(name);
+            }
+        };
+    }
+
+    // 登记完毕，如果所有资源都已到达则立即触发
+    public void seal() {
+        boolean fire;
+        synchronized (this) {
+            sealed = true;
+            fire = shouldFire();
+        }
+        if (fire) onReady.run();
+    }
+
+    private boolean shouldFire() {
+        if (sealed && pending == 0 && !fired) {
+            fired = true;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized boolean isReady() {
+        return fired;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    // 加载失败的资源及原因
+    public synchronized Map<String, String> getFailures() {
+        return new LinkedHashMap<>(failures);
+    }
+
+    // 每个资源的加载耗时（毫秒），未完成的为 -1
+    public synchronized Map<String, Long> getLoadTimesMs() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : timings.entrySet()) {
+            long[] t = entry.getValue();
+            result.put(entry.getKey(), t[1] == 0 ? -1 : (t[1] - t[0]) / 1000000);
+        }
+        return result;
+    }
+}
@@ -1,7 +1,11 @@
 package com.muen.hitmouse;
 
+import android.content.ClipData;
+import android.content.Intent;
 import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -9,12 +13,18 @@ import android.view.ViewGroup;
 import android.view.WindowManager;
 import android.widget.ImageView;
 import android.widget.TextView;
+import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
 import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.muen.hitmouse.databinding.ActivityRecordBinding;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -23,8 +33,11 @@ import java.util.List;
 
 public class RecordActivity extends AppCompatActivity {
     private static final String TAG = "RecordActivity"; // 日志标签，用于调试
+    private static final int REQUEST_EXPORT = 1; // 选择导出位置
+    private static final int REQUEST_IMPORT = 2; // 选择要合并的文件
     private ActivityRecordBinding binding; // 用于绑定布局文件中的视图
     private SharedPreferences sharedPreferences; // 用于存储用户记录数据
+    private RecordStore recordStore; // 完整历史的导出和导入
     private RecordAdapter recordAdapter; // RecyclerView 的适配器
     private List<RecordEntry> allRecords; // 存储所有记录
     private List<RecordEntry> currentPageRecords; // 当前页显示的记录
@@ -51,10 +64,13 @@ public class RecordActivity extends AppCompatActivity {
 
         // 初始化 SharedPreferences，用于读取用户记录
         sharedPreferences = getSharedPreferences("user", MODE_PRIVATE);
+        recordStore = new RecordStore(sharedPreferences, new File(getFilesDir(), RecordStore.HISTORY_FILE));
         allRecords = loadRecordData(); // 加载所有记录
         setupRecyclerView(); // 设置 RecyclerView
         setupPagination(); // 设置分页功能
         setupBackButton(); // 设置返回按钮
+        setupTransferButtons(); // 设置导出和导入按钮
+        LeaderboardClient.get(this).refresh(); // 上传发件箱中积压的对局并更新排名
     }
 
     // 设置 RecyclerView，包括布局管理器和适配器
@@ -118,6 +134,104 @@ public class RecordActivity extends AppCompatActivity {
         });
     }
 
+    // 设置导出和导入按钮：通过系统文件选择器选择位置，读写和合并都在保存记录的后台线程进行
+    private void setupTransferButtons() {
+        binding.btnExport.setOnClickListener(v -> {
+            Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType(RecordArchive.MIME_TYPE);
+            intent.putExtra(Intent.EXTRA_TITLE, "hitmouse_records.bin");
+            startActivityForResult(intent, REQUEST_EXPORT);
+        });
+        binding.btnImport.setOnClickListener(v -> {
+            Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("*/*");
+            intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true); // 可以一次合并多台设备的记录
+            startActivityForResult(intent, REQUEST_IMPORT);
+        });
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (resultCode != RESULT_OK || data == null) return;
+        if (requestCode == REQUEST_EXPORT && data.getData() != null) {
+            exportRecords(data.getData());
+        } else if (requestCode == REQUEST_IMPORT) {
+            List<Uri> uris = new ArrayList<>();
+            ClipData clip = data.getClipData(); // 选择多个文件时
+            if (clip != null) {
+                for (int i = 0; i < clip.getItemCount(); i++) {
+                    uris.add(clip.getItemAt(i).getUri());
+                }
+            } else if (data.getData() != null) {
+                uris.add(data.getData());
+            }
+            if (!uris.isEmpty()) importRecords(uris);
+        }
+    }
+
+    // 把完整历史流式写到选择的文件
+    private void exportRecords(Uri uri) {
+        GameOverPipeline.runInBackground(() -> {
+            String message;
+            try (ParcelFileDescriptor descriptor = getContentResolver().openFileDescriptor(uri, "wt")) {
+                // 通道不单独关闭，文件描述符由 descriptor 关闭
+                FileChannel channel = new FileOutputStream(descriptor.getFileDescriptor()).getChannel();
+                message = "已导出 " + recordStore.exportTo(channel) + " 条记录";
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "导出记录失败", e);
+                message = "导出失败";
+            }
+            showResult(message, false);
+        });
+    }
+
+    // 把选择的文件和本机历史一起归并，完成后刷新列表
+    private void importRecords(List<Uri> uris) {
+        GameOverPipeline.runInBackground(() -> {
+            List<ParcelFileDescriptor> descriptors = new ArrayList<>();
+            List<FileChannel> channels = new ArrayList<>();
+            String message;
+            try {
+                for (Uri uri : uris) {
+                    ParcelFileDescriptor descriptor = getContentResolver().openFileDescriptor(uri, "r");
+                    descriptors.add(descriptor);
+                    channels.add(new FileInputStream(descriptor.getFileDescriptor()).getChannel());
+                }
+                message = "合并后共 " + recordStore.importFrom(channels) + " 条记录";
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "导入记录失败", e);
+                message = "导入失败，文件不是导出的记录";
+            } finally {
+                for (ParcelFileDescriptor descriptor : descriptors) {
+                    try {
+                        descriptor.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+            showResult(message, true);
+        });
+    }
+
+    // 回到主线程提示结果，导入后重新加载最近记录
+    private void showResult(String message, boolean reload) {
+        runOnUiThread(() -> {
+            if (isFinishing() || isDestroyed()) return;
+            if (reload && recordAdapter != null) {
+                allRecords = loadRecordData();
+                currentPage = 0;
+                totalPages = (int) Math.ceil((double) allRecords.size() / pageSize);
+                updateCurrentPageRecords();
+                recordAdapter.updateData(currentPageRecords);
+                updateButtonState();
+            }
+            Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+        });
+    }
+
     // 更新当前页显示的记录数据
     private void updateCurrentPageRecords() {
         int start = currentPage * pageSize; // 计算当前页起始索引
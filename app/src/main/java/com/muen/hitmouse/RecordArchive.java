@@ -0,0 +1,203 @@
+package com.muen.hitmouse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// 记录导出文件格式：8 字节文件头 + 定长 12 字节记录，按 (时间, 得分) 升序排列，可以边读边写
+// 文件头：magic(int) version(short) reserved(short)
+// 记录：  time(long, 毫秒) score(int)
+// 读写都经过固定大小的缓冲区，合并 k 个文件只占用 k + 1 个缓冲区，与记录条数无关
+public final class RecordArchive {
+    public static final int MAGIC = 0x484D5241; // "HMRA"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int RECORD_SIZE = 12;
+    public static final String MIME_TYPE = "application/octet-stream";
+    private static final int BUFFER_SIZE = RECORD_SIZE * 512; // 每次通道读写 6KB
+
+    private RecordArchive() {
+    }
+
+    // 顺序写入记录，调用方必须按 (时间, 得分) 升序写
+    public static final class Writer {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long count = 0;
+        private int maxScore = 0;
+
+        public Writer(WritableByteChannel channel) {
+            this.channel = channel;
+            buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+        }
+
+        public void write(long time, int score) throws IOException {
+            if (buffer.remaining() < RECORD_SIZE) drain();
+            buffer.putLong(time).putInt(score);
+            count++;
+            maxScore = Math.max(maxScore, score);
+        }
+
+        // 写出缓冲区中剩余的记录，不关闭通道
+        public void flush() throws IOException {
+            drain();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        // 已写入记录中的最高分
+        public int getMaxScore() {
+            return maxScore;
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // 顺序读取记录，当前记录通过 getTime 和 getScore 取得；记录不是按 (时间, 得分) 升序时抛出 IOException，
+    // 否则归并会静默写出乱序的历史，之后的导出、追加和合并都会出错
+    public static final class Reader {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private boolean eof = false;
+        private boolean any = false; // 已读过至少一条记录
+        private long time;
+        private int score;
+
+        // 读入并校验文件头，格式不符时抛出 IOException
+        public Reader(ReadableByteChannel channel) throws IOException {
+            this.channel = channel;
+            buffer.flip();
+            if (!fill(HEADER_SIZE) || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException("Not a record archive");
+            }
+            buffer.getShort();
+        }
+
+        // 前进到下一条记录，没有更多记录时返回 false；末尾不完整的记录被忽略
+        public boolean next() throws IOException {
+            if (!fill(RECORD_SIZE)) return false;
+            long nextTime = buffer.getLong();
+            int nextScore = buffer.getInt();
+            if (any && compare(nextTime, nextScore, time, score) < 0) {
+                throw new IOException("Record archive out of order at time " + nextTime);
+            }
+            any = true;
+            time = nextTime;
+            score = nextScore;
+            return true;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        // 保证缓冲区中至少有 size 字节可读
+        private boolean fill(int size) throws IOException {
+            while (buffer.remaining() < size) {
+                if (eof) return false;
+                buffer.compact();
+                eof = channel.read(buffer) < 0;
+                buffer.flip();
+            }
+            return true;
+        }
+    }
+
+    // 在文件末尾追加一条记录，文件为空时先写文件头；上次写入中断留下的半条记录被覆盖
+    // 系统时间被调回时，新记录会早于末尾的记录，此时把它插到有序的位置，保证文件仍可直接参与归并
+    public static void append(File file, long time, int score) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw"); FileChannel channel = out.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+                header.flip();
+                writeFully(channel, header, 0);
+                size = HEADER_SIZE;
+            }
+            long end = size - (size - HEADER_SIZE) % RECORD_SIZE;
+            long position = end;
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (position > HEADER_SIZE) {
+                readFully(channel, record, position - RECORD_SIZE);
+                if (compare(record.getLong(0), record.getInt(8), time, score) <= 0) break;
+                position -= RECORD_SIZE;
+            }
+            if (position < end) {
+                ByteBuffer later = ByteBuffer.allocate((int) (end - position)); // 通常只有最后几条
+                readFully(channel, later, position);
+                writeFully(channel, later, position + RECORD_SIZE);
+            }
+            record.clear();
+            record.putLong(time).putInt(score);
+            record.flip();
+            writeFully(channel, record, position);
+        }
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Unexpected end of file");
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    // 比较两条记录的 (时间, 得分)
+    static int compare(long time, int score, long otherTime, int otherScore) {
+        return time != otherTime ? Long.compare(time, otherTime) : Integer.compare(score, otherScore);
+    }
+
+    // k 路归并：每个来源各自有序，用小顶堆每次取出最早的一条写出，时间和得分都相同的重复记录只写一次
+    // 一次扫描完成，内存只和来源个数有关；返回写出的记录数
+    public static long merge(List<Reader> sources, Writer out) throws IOException {
+        PriorityQueue<Reader> heap = new PriorityQueue<>(Math.max(1, sources.size()),
+                (a, b) -> compare(a.getTime(), a.getScore(), b.getTime(), b.getScore()));
+        for (Reader source : sources) {
+            if (source.next()) heap.add(source);
+        }
+        long before = out.getCount();
+        boolean any = false;
+        long lastTime = 0;
+        int lastScore = 0;
+        while (!heap.isEmpty()) {
+            Reader head = heap.poll();
+            long time = head.getTime();
+            int score = head.getScore();
+            if (!any || compare(time, score, lastTime, lastScore) != 0) {
+                out.write(time, score);
+                any = true;
+                lastTime = time;
+                lastScore = score;
+            }
+            if (head.next()) heap.add(head);
+        }
+        out.flush();
+        return out.getCount() - before;
+    }
+}
@@ -0,0 +1,239 @@
+package com.muen.hitmouse;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 游戏记录存储：最近 50 局的得分和时间以及最高分，都保存在 "user" 偏好中
+// 每局结束时把记录后移、写入本局和更新最高分合并到同一次提交，只触发一次磁盘写入
+// 另外每局追加到不限条数的历史文件（RecordArchive 格式），用于导出和合并其他设备的记录
+public class RecordStore {
+    private static final String TAG = "RecordStore";
+    public static final int MAX_RECORDS = 50;
+    public static final String HISTORY_FILE = "records.bin";
+    private static final String KEY_HIGH_SCORE = "high_score";
+
+    private final SharedPreferences preferences;
+    private final File history; // 为 null 时只保存偏好中的最近记录
+    private long writes = 0; // 已提交的次数
+
+    // 随本局记录一起提交的其他状态（例如成就进度），写进 saveGame 的同一个 Editor，一局结束只提交一次
+    public interface Extra {
+        void writeTo(SharedPreferences preferences, SharedPreferences.Editor editor);
+    }
+
+    public RecordStore(SharedPreferences preferences) {
+        this(preferences, null);
+    }
+
+    public RecordStore(SharedPreferences preferences, File history) {
+        this.preferences = preferences;
+        this.history = history;
+    }
+
+    public int getHighScore() {
+        return preferences.getInt(KEY_HIGH_SCORE, 0);
+    }
+
+    // 保存一局的结果和 extras 中非 null 的附加状态，返回本局之前的最高分
+    public int saveGame(long timestamp, int score, Extra... extras) {
+        int highScore = getHighScore();
+        SharedPreferences.Editor editor = preferences.edit();
+        for (int i = MAX_RECORDS - 1; i > 0; i--) {
+            int prevScore = preferences.getInt("record_score_" + (i - 1), 0);
+            long prevTime = preferences.getLong("record_time_" + (i - 1), 0);
+            if (prevScore > 0) {
+                editor.putInt("record_score_" + i, prevScore);
+                editor.putLong("record_time_" + i, prevTime);
+            }
+        }
+        editor.putInt("record_score_0", score);
+        editor.putLong("record_time_0", timestamp);
+        if (score > highScore) {
+            editor.putInt(KEY_HIGH_SCORE, score);
+        }
+        for (Extra extra : extras) {
+            if (extra != null) extra.writeTo(preferences, editor);
+        }
+        editor.apply(); // 异步写入磁盘
+        writes++;
+        appendHistory(timestamp, score);
+        return highScore;
+    }
+
+    private void appendHistory(long timestamp, int score) {
+        if (history == null) return;
+        try {
+            RecordArchive.append(history, timestamp, score);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to append history: " + e.getMessage()); // 偏好中的记录已保存
+        }
+    }
+
+    // 把完整历史和偏好中的最近记录（历史文件出现之前的对局只在这里）合并写到 out，返回写出的记录数
+    // 和 saveGame 在同一个后台线程调用
+    public long exportTo(WritableByteChannel out) throws IOException {
+        try (FileChannel historyChannel = openHistory()) {
+            List<RecordArchive.Reader> sources = new ArrayList<>();
+            sources.add(readRecent());
+            if (historyChannel != null) sources.add(new RecordArchive.Reader(historyChannel));
+            return RecordArchive.merge(sources, new RecordArchive.Writer(out));
+        }
+    }
+
+    // 把其他设备或备份导出的文件合并进完整历史，合并结果先写到临时文件再替换；
+    // 之后偏好中的最近记录换成合并后最新的 MAX_RECORDS 局，最高分取两者中较高的。返回合并后的记录总数
+    public long importFrom(List<? extends ReadableByteChannel> inputs) throws IOException {
+        if (history == null) throw new IllegalStateException("No history file");
+        File merged = new File(history.getPath() + ".tmp");
+        RecordArchive.Writer writer;
+        try (FileChannel historyChannel = openHistory(); FileChannel out = new FileOutputStream(merged).getChannel()) {
+            List<RecordArchive.Reader> sources = new ArrayList<>();
+            sources.add(readRecent());
+            if (historyChannel != null) sources.add(new RecordArchive.Reader(historyChannel));
+            for (ReadableByteChannel input : inputs) {
+                sources.add(new RecordArchive.Reader(input));
+            }
+            writer = new RecordArchive.Writer(out);
+            RecordArchive.merge(sources, writer);
+            out.force(false);
+        } catch (IOException e) {
+            merged.delete();
+            throw e;
+        }
+        if (!merged.renameTo(history)) {
+            merged.delete();
+            throw new IOException("Failed to replace " + history);
+        }
+        restoreRecent(writer.getMaxScore());
+        return writer.getCount();
+    }
+
+    private FileChannel openHistory() throws IOException {
+        if (history == null || !history.exists()) return null;
+        return new RandomAccessFile(history, "r").getChannel(); // 关闭通道时一并关闭文件
+    }
+
+    // 偏好中的最近记录按 (时间, 得分) 升序排好，作为合并的一个来源
+    private RecordArchive.Reader readRecent() throws IOException {
+        long[] times = new long[MAX_RECORDS];
+        int[] scores = new int[MAX_RECORDS];
+        int n = 0;
+        for (int i = 0; i < MAX_RECORDS; i++) {
+            int score = preferences.getInt("record_score_" + i, 0);
+            long time = preferences.getLong("record_time_" + i, 0);
+            if (score <= 0 || time <= 0) continue;
+            times[n] = time;
+            scores[n] = score;
+            n++;
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> RecordArchive.compare(times[a], scores[a], times[b], scores[b]));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(RecordArchive.HEADER_SIZE + n * RecordArchive.RECORD_SIZE);
+        RecordArchive.Writer writer = new RecordArchive.Writer(Channels.newChannel(bytes));
+        for (int i : order) {
+            writer.write(times[i], scores[i]);
+        }
+        writer.flush();
+        return new RecordArchive.Reader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    // 用完整历史末尾的 MAX_RECORDS 局替换偏好中的记录，最新一局在最前，一次提交
+    private void restoreRecent(int maxScore) throws IOException {
+        ByteBuffer tail;
+        try (RandomAccessFile in = new RandomAccessFile(history, "r"); FileChannel channel = in.getChannel()) {
+            long records = Math.max(0, (channel.size() - RecordArchive.HEADER_SIZE) / RecordArchive.RECORD_SIZE);
+            int n = (int) Math.min(records, MAX_RECORDS);
+            tail = ByteBuffer.allocate(n * RecordArchive.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            RecordArchive.readFully(channel, tail, RecordArchive.HEADER_SIZE + (records - n) * RecordArchive.RECORD_SIZE);
+        }
+        int n = tail.remaining() / RecordArchive.RECORD_SIZE;
+        SharedPreferences.Editor editor = preferences.edit();
+        for (int i = 0; i < MAX_RECORDS; i++) {
+            if (i < n) {
+                int offset = (n - 1 - i) * RecordArchive.RECORD_SIZE;
+                editor.putLong("record_time_" + i, tail.getLong(offset));
+                editor.putInt("record_score_" + i, tail.getInt(offset + 8));
+            } else {
+                editor.remove("record_time_" + i);
+                editor.remove("record_score_" + i);
+            }
+        }
+        if (maxScore > getHighScore()) {
+            editor.putInt(KEY_HIGH_SCORE, maxScore);
+        }
+        editor.apply();
+        writes++;
+    }
+
+    public long getWriteCount() {
+        return writes;
+    }
+
+    // 读出结算需要的历史摘要，可在后台线程调用；只读保存下一局后仍会保留的 MAX_RECORDS - 1 条记录
+    public Summary summarize() {
+        int[] scores = new int[MAX_RECORDS - 1];
+        int n = 0;
+        long sum = 0;
+        for (int i = 0; i < MAX_RECORDS - 1; i++) {
+            int score = preferences.getInt("record_score_" + i, 0);
+            if (score <= 0) continue;
+            scores[n++] = score;
+            sum += score;
+        }
+        return new Summary(getHighScore(), Arrays.copyOf(scores, n), sum);
+    }
+
+    // 下一局保存前的历史摘要：之前的最高分和最近记录的得分，据此算出本局的排名和平均分
+    public static final class Summary {
+        private final int previousHighScore;
+        private final int[] scores;
+        private final long sum;
+
+        Summary(int previousHighScore, int[] scores, long sum) {
+            this.previousHighScore = previousHighScore;
+            this.scores = scores;
+            this.sum = sum;
+        }
+
+        public int getPreviousHighScore() {
+            return previousHighScore;
+        }
+
+        // 加上本局后的对局数
+        public int getGameCount() {
+            return scores.length + 1;
+        }
+
+        // 本局在最近记录中的名次，从 1 开始，同分并列
+        public int getRank(int score) {
+            int rank = 1;
+            for (int other : scores) {
+                if (other > score) rank++;
+            }
+            return rank;
+        }
+
+        // 加上本局后的平均分
+        public int getAverage(int score) {
+            return (int) ((sum + score) / (scores.length + 1));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.muen.hitmouse;
+
+import java.io.File;
+
+// 对局录像文件格式：16 字节文件头 + 定长 8 字节记录，按游戏时间顺序排列，可以边读边解码
+// 文件头：magic(int) version(short) rows(byte) cols(byte) flags(int) finalScore(int)
+//        flags 记录玩法和录制时的难度模式，回放比赛时玩家沿用同一种难度模式
+// 记录：  time(int, 毫秒) type(byte) value(byte) slot(short)
+//        WAVE 的 slot 为本波地鼠数，其后紧跟同样条数的 MOLE 记录；HIT 的 value 为本次得分
+public final class SessionFile {
+    public static final int MAGIC = 0x484D4753; // "HMGS"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int SCORE_OFFSET = 12; // 文件头中最终得分的位置，结束录制时回填
+    public static final int RECORD_SIZE = 8;
+
+    public static final int FLAG_ENDLESS = 1;
+    public static final int FLAG_FIXED_DIFFICULTY = 2; // 录制时难度不随玩家表现调整
+
+    public static final byte TYPE_WAVE = 1;
+    public static final byte TYPE_MOLE = 2;
+    public static final byte TYPE_HIT = 3;
+    public static final byte TYPE_END = 4;
+
+    private SessionFile() {
+    }
+
+    // 每种棋盘和玩法各保留一份最佳对局，作为幽灵对手
+    public static File ghostFile(File dir, int rows, int cols, boolean endless) {
+        return new File(dir, "ghost_" + rows + "x" + cols + (endless ? "_endless" : "") + ".bin");
+    }
+}
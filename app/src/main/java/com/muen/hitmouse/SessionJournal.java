@@ -0,0 +1,182 @@
+package com.muen.hitmouse;
+
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+// 对局日志：把当前对局状态写成定长快照，进程被杀后可在几毫秒内恢复
+// 文件分 A/B 两个槽位交替写入，每个槽位带序号和 CRC，写到一半断电时另一个槽位仍然完整
+// 主线程只把快照编码到预分配的缓冲区，写文件和 fsync 在后台线程完成；后台来不及写时只保留最新一份
+public class SessionJournal {
+    private static final String TAG = "SessionJournal";
+    private static final int MAGIC = 0x484D534A; // "HMSJ"
+    private static final short VERSION = 1;
+    private static final int SLOT_HEADER = 4 + 2 + 8 + 4; // magic version seq length
+    public static final int MAX_PAYLOAD = 2048 - SLOT_HEADER - 4;
+    static final int SLOT_SIZE = SLOT_HEADER + MAX_PAYLOAD + 4; // 末尾 4 字节 CRC
+
+    // 把状态编码到 out，在调用 record 的线程中执行
+    public interface Snapshot {
+        void writeTo(ByteBuffer out);
+    }
+
+    private final File file;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> new Thread(r, "SessionJournal"));
+    private final CRC32 crc = new CRC32(); // 只在写线程中使用
+
+    // 三缓冲：主线程写 front，交换到 middle；写线程从 middle 交换到 back 再写文件，全程不分配
+    private ByteBuffer front = ByteBuffer.allocate(MAX_PAYLOAD);
+    private ByteBuffer middle = ByteBuffer.allocate(MAX_PAYLOAD);
+    private ByteBuffer back = ByteBuffer.allocate(MAX_PAYLOAD);
+    private final ByteBuffer slotBuffer = ByteBuffer.allocate(SLOT_SIZE);
+    private final Object lock = new Object();
+    private boolean dirty = false; // middle 中有尚未写出的快照
+    private boolean writeScheduled = false;
+
+    private FileChannel channel; // 只在写线程中访问
+    private long sequence = 0; // 写线程中递增
+    private long writes = 0;
+
+    public SessionJournal(File file) {
+        this.file = file;
+    }
+
+    // 记录一份快照；若上一份还没写出则直接覆盖，磁盘写入次数不会超过调用次数
+    public void record(Snapshot snapshot) {
+        if (writer.isShutdown()) return;
+        front.clear();
+        snapshot.writeTo(front);
+        front.flip();
+        synchronized (lock) {
+            ByteBuffer tmp = middle;
+            middle = front;
+            front = tmp;
+            dirty = true;
+            if (writeScheduled) return;
+            writeScheduled = true;
+        }
+        writer.execute(this::writePending);
+    }
+
+    private void writePending() {
+        synchronized (lock) {
+            writeScheduled = false;
+            if (!dirty) return;
+            ByteBuffer tmp = back;
+            back = middle;
+            middle = tmp;
+            dirty = false;
+        }
+        try {
+            if (channel == null) {
+                channel = new RandomAccessFile(file, "rw").getChannel();
+                sequence = Math.max(sequence, latestSequence(channel));
+            }
+            long seq = ++sequence;
+            slotBuffer.clear();
+            slotBuffer.putInt(MAGIC).putShort(VERSION).putLong(seq).putInt(back.remaining());
+            slotBuffer.put(back);
+            crc.reset();
+            crc.update(slotBuffer.array(), 0, slotBuffer.position());
+            slotBuffer.putInt((int) crc.getValue());
+            slotBuffer.flip();
+            long offset = (seq & 1) * SLOT_SIZE; // 奇偶序号交替写入两个槽位
+            while (slotBuffer.hasRemaining()) {
+                offset += channel.write(slotBuffer, offset);
+            }
+            channel.force(false);
+            writes++;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write journal: " + e.getMessage());
+        }
+    }
+
+    // 读取最新的完整快照，没有可用快照时返回 null；在主线程调用，只读两个定长槽位
+    public ByteBuffer readLatest() {
+        if (!file.exists()) return null;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r"); FileChannel readChannel = in.getChannel()) {
+            ByteBuffer best = null;
+            long bestSeq = -1;
+            for (int slot = 0; slot < 2; slot++) {
+                ByteBuffer buffer = readSlot(readChannel, slot);
+                if (buffer != null && buffer.getLong(6) > bestSeq) {
+                    bestSeq = buffer.getLong(6);
+                    best = buffer;
+                }
+            }
+            if (best == null) return null;
+            best.position(SLOT_HEADER);
+            best.limit(SLOT_HEADER + best.getInt(14));
+            return best.slice();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read journal: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 读取并校验一个槽位，损坏或为空时返回 null
+    private static ByteBuffer readSlot(FileChannel channel, int slot) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE);
+        long offset = (long) slot * SLOT_SIZE;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset + buffer.position());
+            if (read < 0) break;
+        }
+        if (buffer.position() < SLOT_HEADER + 4) return null;
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) return null;
+        int length = buffer.getInt(14);
+        if (length < 0 || length > MAX_PAYLOAD || SLOT_HEADER + length + 4 > buffer.position()) return null;
+        CRC32 check = new CRC32();
+        check.update(buffer.array(), 0, SLOT_HEADER + length);
+        if ((int) check.getValue() != buffer.getInt(SLOT_HEADER + length)) return null;
+        return buffer;
+    }
+
+    private static long latestSequence(FileChannel channel) throws IOException {
+        long latest = 0;
+        for (int slot = 0; slot < 2; slot++) {
+            ByteBuffer buffer = readSlot(channel, slot);
+            if (buffer != null) latest = Math.max(latest, buffer.getLong(6));
+        }
+        return latest;
+    }
+
+    // 对局正常结束或主动退出时删除日志，之后不会再恢复
+    public void clear() {
+        if (writer.isShutdown()) return;
+        synchronized (lock) {
+            dirty = false;
+        }
+        writer.execute(() -> {
+            closeChannel();
+            if (file.exists() && !file.delete()) {
+                Log.w(TAG, "Failed to delete journal");
+            }
+        });
+    }
+
+    // 写完已提交的快照后释放写线程
+    public void close() {
+        if (writer.isShutdown()) return;
+        writer.execute(() -> {
+            closeChannel();
+            Log.d(TAG, "Journal closed after " + writes + " writes");
+        });
+        writer.shutdown();
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+    }
+}
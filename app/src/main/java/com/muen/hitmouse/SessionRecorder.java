@@ -0,0 +1,149 @@
+package com.muen.hitmouse;
+
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 对局录制：作为事件流的消费者，由引擎每秒读取一次出鼠和击中事件写入内存块，
+// 写满一块交给后台线程追加到临时文件，不在主线程做磁盘操作
+// 结束时回填最终得分，若超过已保存的最佳对局则替换幽灵文件，否则丢弃
+public class SessionRecorder implements GameEventRing.Consumer {
+    private static final String TAG = "SessionRecorder";
+    private static final int CHUNK_SIZE = 512 * SessionFile.RECORD_SIZE;
+
+    private final File target;
+    private final File temp;
+    private final int rows;
+    private final int cols;
+    private final boolean endless;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> new Thread(r, "SessionWriter"));
+    private final ConcurrentLinkedQueue<ByteBuffer> freeChunks = new ConcurrentLinkedQueue<>(); // 写完的内存块回收复用
+    private ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+    private FileChannel channel; // 只在写线程中访问
+    private boolean closed = false;
+
+    public SessionRecorder(File target, int rows, int cols, boolean endless) {
+        this.target = target;
+        this.temp = new File(target.getPath() + ".tmp");
+        this.rows = rows;
+        this.cols = cols;
+        this.endless = endless;
+    }
+
+    // 开始录制，文件头在写线程中写出；fixedDifficulty 为本局是否使用固定难度曲线
+    public void begin(boolean fixedDifficulty) {
+        int flags = (endless ? SessionFile.FLAG_ENDLESS : 0) | (fixedDifficulty ? SessionFile.FLAG_FIXED_DIFFICULTY : 0);
+        writer.execute(() -> {
+            try {
+                channel = new RandomAccessFile(temp, "rw").getChannel();
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(SessionFile.HEADER_SIZE);
+                header.putInt(SessionFile.MAGIC).putShort(SessionFile.VERSION)
+                        .put((byte) rows).put((byte) cols).putInt(flags).putInt(0);
+                header.flip();
+                channel.write(header);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to start recording: " + e.getMessage());
+                channel = null;
+            }
+        });
+    }
+
+    // 每波的第一只地鼠之前写入波次记录，之后每只地鼠一条；击中记录位置和得分
+    @Override
+    public void onEvent(GameEventRing.Event event) {
+        if (event.type == GameEventRing.SPAWN) {
+            if (event.total == 0) put(event.time, SessionFile.TYPE_WAVE, 0, event.value);
+            put(event.time, SessionFile.TYPE_MOLE, 0, event.slot);
+        } else if (event.type == GameEventRing.HIT) {
+            put(event.time, SessionFile.TYPE_HIT, event.value, event.slot);
+        }
+    }
+
+    private void put(long timeMs, byte type, int value, int slot) {
+        if (closed) return;
+        if (chunk.remaining() < SessionFile.RECORD_SIZE) {
+            flushChunk();
+        }
+        chunk.putInt((int) timeMs).put(type).put((byte) value).putShort((short) slot);
+    }
+
+    // 把写满的内存块交给写线程，换一块空闲的继续记录
+    private void flushChunk() {
+        ByteBuffer full = chunk;
+        full.flip();
+        ByteBuffer next = freeChunks.poll();
+        chunk = next != null ? next : ByteBuffer.allocate(CHUNK_SIZE);
+        writer.execute(() -> {
+            try {
+                if (channel != null) {
+                    while (full.hasRemaining()) channel.write(full);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write recording: " + e.getMessage());
+            }
+            full.clear();
+            freeChunks.offer(full);
+        });
+    }
+
+    // 结束录制：写出剩余事件并回填得分，得分更高时成为新的幽灵对局
+    public void finish(long timeMs, int score) {
+        if (closed) return;
+        put(timeMs, SessionFile.TYPE_END, 0, 0);
+        flushChunk();
+        closed = true;
+        writer.execute(() -> {
+            if (channel == null) return;
+            try {
+                ByteBuffer scoreBuffer = ByteBuffer.allocate(4);
+                scoreBuffer.putInt(score).flip();
+                channel.write(scoreBuffer, SessionFile.SCORE_OFFSET);
+                channel.close();
+                if (score > readFinalScore(target)) {
+                    if (!temp.renameTo(target)) {
+                        Log.e(TAG, "Failed to keep recording as ghost");
+                    }
+                } else {
+                    temp.delete();
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to finish recording: " + e.getMessage());
+                temp.delete();
+            }
+        });
+        writer.shutdown();
+    }
+
+    // 放弃录制（中途退出）
+    public void cancel() {
+        if (closed) return;
+        closed = true;
+        writer.execute(() -> {
+            try {
+                if (channel != null) channel.close();
+            } catch (IOException ignored) {
+            }
+            temp.delete();
+        });
+        writer.shutdown();
+    }
+
+    // 读取已保存对局的最终得分，文件不存在或损坏时返回 -1
+    static int readFinalScore(File file) {
+        if (!file.exists()) return -1;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.length() < SessionFile.HEADER_SIZE || in.readInt() != SessionFile.MAGIC) return -1;
+            in.seek(SessionFile.SCORE_OFFSET);
+            return in.readInt();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
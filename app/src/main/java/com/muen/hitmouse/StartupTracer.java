@@ -0,0 +1,91 @@
+package com.muen.hitmouse;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 启动阶段计时：记录冷启动和进入游戏各阶段的耗时，结束后追加写入本地文件
+public class StartupTracer {
+    private static final String TAG = "StartupTracer";
+    public static final String FILE_NAME = "startup_trace.csv"; // 每行：时间戳,会话,阶段,毫秒
+    public static final String EXTRA_LAUNCH_UPTIME = "launchUptime"; // 点击开始按钮时的 uptime
+
+    private static StartupTracer instance;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> new Thread(r, "StartupTracer"));
+    private String session; // 当前会话名称，null 表示没有进行中的会话
+    private long sessionStart; // 会话起点（uptime 毫秒）
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+
+    public static synchronized StartupTracer get() {
+        if (instance == null) {
+            instance = new StartupTracer();
+        }
+        return instance;
+    }
+
+    // 开始一个新的计时会话，之前未结束的会话会被丢弃
+    public synchronized void beginSession(String name, long startUptimeMs) {
+        session = name;
+        sessionStart = startUptimeMs;
+        marks.clear();
+    }
+
+    // 记录阶段完成时间，同一阶段只记录第一次
+    public synchronized void mark(String phase) {
+        if (session == null || marks.containsKey(phase)) return;
+        long elapsed = SystemClock.uptimeMillis() - sessionStart;
+        marks.put(phase, elapsed);
+        Log.d(TAG, session + " " + phase + ": " + elapsed + "ms");
+    }
+
+    // 在 view 第一次绘制前记录阶段
+    public void markFirstFrame(View view, String phase) {
+        markFirstFrame(view, phase, null);
+    }
+
+    // 在 view 第一次绘制前记录阶段，afterFrame 在该帧绘制完成后执行
+    public void markFirstFrame(View view, String phase, Runnable afterFrame) {
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                mark(phase);
+                if (afterFrame != null) view.post(afterFrame);
+                return true;
+            }
+        });
+    }
+
+    // 结束会话并在后台追加写入文件
+    public void finishSession(Context context) {
+        String name;
+        Map<String, Long> snapshot;
+        synchronized (this) {
+            if (session == null) return;
+            name = session;
+            snapshot = new LinkedHashMap<>(marks);
+            session = null;
+        }
+        File file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+        long timestamp = System.currentTimeMillis();
+        writer.execute(() -> {
+            try (FileWriter out = new FileWriter(file, true)) {
+                for (Map.Entry<String, Long> entry : snapshot.entrySet()) {
+                    out.write(timestamp + "," + name + "," + entry.getKey() + "," + entry.getValue() + "\n");
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write startup trace", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,155 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+// 成就测试：连续击中被失误打断、连击次数跨局累计并随结算记录保存、困难模式限定的得分成就、
+// 丢失事件时连续进度清零，以及击中路径上推进成就不分配内存
+public class AchievementEngineTest {
+    private static final int STREAK = 0; // 百发百中
+    private static final int COMBOS = 1; // 连击达人
+    private static final int TOTAL_HITS = 2; // 千锤百炼
+    private static final int HUNTER = 3; // 地鼠猎手
+    private static final int MASTER = 4; // 地鼠大师
+
+    private final MainThreadBudgetTest.CountingPreferences preferences = new MainThreadBudgetTest.CountingPreferences();
+    private final RecordStore store = new RecordStore(preferences);
+    private final GameEventRing events = new GameEventRing();
+    private final List<String> unlocked = new ArrayList<>();
+
+    private AchievementEngine newEngine(int mode) {
+        AchievementEngine engine = new AchievementEngine(preferences, mode);
+        engine.track(events);
+        engine.setListener(rule -> unlocked.add(rule.title));
+        return engine;
+    }
+
+    // 结束一局：处理结束事件，成就进度随本局记录一起提交
+    private void gameOver(AchievementEngine engine, int score) {
+        events.publish(GameEventRing.GAME_OVER, 0, -1, score, 0);
+        engine.poll();
+        long writes = preferences.writes;
+        store.saveGame(1000, score, engine.takeChanges());
+        assertEquals(writes + 1, preferences.writes);
+    }
+
+    private void hits(int n) {
+        for (int i = 0; i < n; i++) {
+            events.publish(GameEventRing.HIT, i, 0, 1, i);
+        }
+    }
+
+    @Test
+    public void missBreaksHitStreak() {
+        AchievementEngine engine = newEngine(AchievementEngine.MODE_EASY);
+        hits(99);
+        events.publish(GameEventRing.MISS, 0, -1, 1, 1);
+        hits(99);
+        engine.poll();
+        assertFalse(engine.isUnlocked(STREAK));
+        assertEquals(99, engine.getProgress(STREAK));
+        hits(1);
+        engine.poll();
+        assertTrue(engine.isUnlocked(STREAK));
+        assertEquals(199, engine.getProgress(TOTAL_HITS));
+        assertEquals(1, unlocked.size());
+    }
+
+    @Test
+    public void comboProgressPersistsAcrossGames() {
+        for (int game = 0; game < 10; game++) {
+            AchievementEngine engine = newEngine(AchievementEngine.MODE_EASY);
+            for (int chain = 0; chain < 5; chain++) {
+                for (int combo = 1; combo <= HunterInput.MAX_COMBO; combo++) {
+                    events.publish(GameEventRing.COMBO, 0, 0, combo, 0);
+                }
+                events.publish(GameEventRing.COMBO, 0, 0, 0, 0); // 松手
+            }
+            gameOver(engine, 10);
+            assertEquals(game < 9, !engine.isUnlocked(COMBOS));
+            assertEquals(Math.min(50, (game + 1) * 5), engine.getProgress(COMBOS));
+        }
+        AchievementEngine reloaded = newEngine(AchievementEngine.MODE_EASY);
+        assertTrue(reloaded.isUnlocked(COMBOS));
+        assertEquals(1, reloaded.getUnlockedCount());
+    }
+
+    @Test
+    public void masterScoreOnlyCountsInHardMode() {
+        AchievementEngine easy = newEngine(AchievementEngine.MODE_EASY);
+        gameOver(easy, AchievementEngine.MASTER_SCORE);
+        assertTrue(easy.isUnlocked(HUNTER));
+        assertFalse(easy.isUnlocked(MASTER));
+
+        AchievementEngine hard = newEngine(AchievementEngine.MODE_HARD);
+        events.publish(GameEventRing.GAME_OVER, 0, -1, AchievementEngine.MASTER_SCORE - 1, 0);
+        hard.poll();
+        assertFalse(hard.isUnlocked(MASTER));
+        events.publish(GameEventRing.GAME_OVER, 0, -1, AchievementEngine.MASTER_SCORE, 0);
+        hard.poll();
+        assertTrue(hard.isUnlocked(MASTER));
+        assertTrue(hard.isUnlocked(HUNTER)); // 简单模式中已解锁
+    }
+
+    @Test
+    public void abandonedGameIsSavedSeparately() {
+        AchievementEngine engine = newEngine(AchievementEngine.MODE_EASY);
+        hits(5);
+        engine.poll();
+        engine.save(); // 中途退出，没有结算
+        assertEquals(null, engine.takeChanges());
+        assertEquals(5, newEngine(AchievementEngine.MODE_EASY).getProgress(TOTAL_HITS));
+    }
+
+    @Test
+    public void lostEventsRestartStreak() {
+        AchievementEngine engine = newEngine(AchievementEngine.MODE_EASY);
+        hits(50);
+        for (int i = 0; i < events.getCapacity(); i++) {
+            events.publish(GameEventRing.TICK, i, -1, i, 0); // 把前面的击中挤出缓冲区
+        }
+        hits(10);
+        engine.poll();
+        assertEquals(10, engine.getProgress(STREAK)); // 丢失处之前的击中不再连上
+        assertEquals(10, engine.getProgress(TOTAL_HITS));
+    }
+
+    @Test
+    public void evaluationDoesNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            return; // 无法统计分配的 JVM 上跳过
+        }
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+        AchievementEngine engine = newEngine(AchievementEngine.MODE_HARD);
+        engine.setListener(null);
+        int n = 200_000;
+        long bytes = 0;
+        long ns = 0;
+        for (int round = 0; round < 2; round++) { // 第一轮预热，解锁也发生在这一轮
+            long threadId = Thread.currentThread().getId();
+            long before = counter.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                events.publish(GameEventRing.HIT, i, i & 7, 1, i);
+                events.publish(GameEventRing.COMBO, i, 0, 1 + i % HunterInput.MAX_COMBO, 0);
+                if ((i & 63) == 0) events.publish(GameEventRing.MISS, i, -1, 1, i);
+                engine.poll(); // 每个击中之后读一次，与每帧读取的节奏相当
+            }
+            ns = System.nanoTime() - start;
+            bytes = counter.getThreadAllocatedBytes(threadId) - before;
+        }
+        System.out.printf("achievements: %d hits, %.1fns per hit, %d bytes allocated%n", n, (double) ns / n, bytes);
+        assertTrue(engine.isUnlocked(TOTAL_HITS));
+        assertTrue(engine.isUnlocked(COMBOS));
+        assertEquals(0, bytes);
+    }
+}
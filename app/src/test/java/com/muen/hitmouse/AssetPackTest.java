@@ -0,0 +1,71 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+// 资源包读取测试：样本由 buildSrc 的 AssetPackTaskTest 用 AssetPackTask.pack 生成（70x4 的精灵、8kHz 单声道 160 帧的锯齿波），
+// 这里用 AssetPack.fromBuffer 读取同一个文件，核对精灵矩形、命中区域和 PCM，构建端和运行端的格式不一致时失败
+public class AssetPackTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int CLIP_FRAMES = 160 * SAMPLE_RATE / 8000;
+
+    private static byte[] readFixture() throws IOException {
+        try (InputStream in = AssetPackTest.class.getResourceAsStream("/asset_pack_fixture.pack")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    public void readsFixtureWrittenByBuildTask() throws IOException {
+        AssetPack pack = AssetPack.fromBuffer(ByteBuffer.wrap(readFixture()));
+
+        assertTrue(pack.hasSprite("mole"));
+        assertFalse(pack.hasSprite("mole@2")); // 太小，不生成缩小版本
+        assertArrayEquals(new int[]{0, 0, 70, 4}, pack.getSpriteBounds("mole"));
+        assertNull(pack.getSpriteBounds("hole"));
+
+        // 视图尺寸与源尺寸相同时逐像素对应：第一行透明，左侧 40 列不透明，第 66 列恰好达到阈值，第 67 列差一点
+        HitMask mask = pack.getHitMask("mole", 70, 4);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 70; x++) {
+                boolean expected = y > 0 && (x < 40 || x == 66);
+                assertEquals("mask bit " + x + "," + y, expected, mask.contains(x, y));
+            }
+        }
+        assertEquals(3 * 41, mask.countSetBits());
+        assertEquals(140, pack.getHitMask("mole", 140, 8).getWidth());
+        assertNull(pack.getHitMask("hole", 70, 4));
+
+        // 单声道重采样为立体声，整数位置的帧与原样本相同
+        short[] pcm = pack.getClip("kick", SAMPLE_RATE);
+        assertEquals(CLIP_FRAMES * AudioMixer.CHANNELS, pcm.length);
+        assertEquals(-16000, pcm[0]);
+        assertEquals(-16000, pcm[1]);
+        assertEquals(80 * 40 - 16000, pcm[441 * 2]);
+        assertEquals(80 * 40 - 16000, pcm[441 * 2 + 1]);
+        assertNull(pack.getClip("kick", 48000)); // 采样率不符时退回运行时解码
+        assertNull(pack.getClip("start", SAMPLE_RATE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownFormat() throws IOException {
+        byte[] bytes = readFixture();
+        bytes[4]++; // 版本号
+        AssetPack.fromBuffer(ByteBuffer.wrap(bytes));
+    }
+}
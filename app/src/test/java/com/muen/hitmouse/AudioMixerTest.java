@@ -0,0 +1,110 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+// 混音核心测试：声部已满时抢占最早的声部、背景音乐循环和播完停止、解码失败的空片段被忽略
+public class AudioMixerTest {
+    private static final int BLOCK = 64; // 每次混音的帧数
+
+    // 每个采样都是 value 的立体声片段
+    private static short[] constant(int frames, int value) {
+        short[] pcm = new short[frames * AudioMixer.CHANNELS];
+        Arrays.fill(pcm, (short) value);
+        return pcm;
+    }
+
+    // 第 f 帧的值为 f 的立体声片段
+    private static short[] ramp(int frames) {
+        short[] pcm = new short[frames * AudioMixer.CHANNELS];
+        for (int f = 0; f < frames; f++) {
+            pcm[f * 2] = (short) f;
+            pcm[f * 2 + 1] = (short) f;
+        }
+        return pcm;
+    }
+
+    @Test
+    public void fullVoicesStealOldest() {
+        AudioMixer mixer = new AudioMixer(44100, 2, BLOCK);
+        int a = mixer.addClip(constant(1000, 100));
+        int b = mixer.addClip(constant(1000, 10));
+        int c = mixer.addClip(constant(1000, 1));
+        short[] out = new short[BLOCK * AudioMixer.CHANNELS];
+        mixer.play(a, 1.0f);
+        mixer.mix(out, BLOCK);
+        mixer.play(b, 1.0f);
+        mixer.mix(out, BLOCK);
+        assertEquals(110, out[0]);
+        mixer.play(c, 1.0f);
+        mixer.mix(out, BLOCK);
+        assertEquals(1, mixer.getStolenVoices());
+        assertEquals(2, mixer.getActiveVoices());
+        assertEquals(11, out[0]); // 最早开始的 a 被抢占
+    }
+
+    @Test
+    public void effectEndsAfterClip() {
+        AudioMixer mixer = new AudioMixer(44100, 4, BLOCK);
+        int clip = mixer.addClip(constant(BLOCK + 10, 5));
+        short[] out = new short[BLOCK * AudioMixer.CHANNELS];
+        mixer.play(clip, 1.0f);
+        mixer.mix(out, BLOCK);
+        mixer.mix(out, BLOCK);
+        assertEquals(5, out[10 * 2 - 1]);
+        assertEquals(0, out[10 * 2]); // 片段之后是静音
+        assertTrue(mixer.isIdle());
+    }
+
+    @Test
+    public void musicLoopsAcrossBlocks() {
+        AudioMixer mixer = new AudioMixer(44100, 2, BLOCK);
+        int clip = mixer.addClip(ramp(10));
+        short[] out = new short[BLOCK * AudioMixer.CHANNELS];
+        mixer.playMusic(clip, true);
+        for (int block = 0; block < 3; block++) {
+            mixer.mix(out, BLOCK);
+            for (int f = 0; f < BLOCK; f++) {
+                assertEquals((block * BLOCK + f) % 10, out[f * 2]);
+            }
+        }
+        assertTrue(mixer.isMusicPlaying());
+    }
+
+    @Test
+    public void musicWithoutLoopStops() {
+        AudioMixer mixer = new AudioMixer(44100, 2, BLOCK);
+        int clip = mixer.addClip(ramp(10));
+        short[] out = new short[BLOCK * AudioMixer.CHANNELS];
+        mixer.playMusic(clip, false);
+        mixer.mix(out, BLOCK);
+        assertEquals(9, out[9 * 2]);
+        assertEquals(0, out[10 * 2]);
+        assertFalse(mixer.isMusicPlaying());
+        assertTrue(mixer.isIdle());
+    }
+
+    // 解码失败返回的空片段：音乐和音效都不播放，混音立即返回而不是在锁内空转
+    @Test(timeout = 2000)
+    public void emptyClipIsIgnored() {
+        AudioMixer mixer = new AudioMixer(44100, 2, BLOCK);
+        int empty = mixer.addClip(new short[0]);
+        short[] out = new short[BLOCK * AudioMixer.CHANNELS];
+        mixer.playMusic(empty, true);
+        mixer.play(empty, 1.0f);
+        assertFalse(mixer.isMusicPlaying());
+        assertEquals(BLOCK, mixer.mix(out, BLOCK));
+        assertEquals(0, mixer.getActiveVoices());
+        assertTrue(mixer.isIdle());
+        assertEquals(0, out[0]);
+    }
+
+    @Test
+    public void emptySourceConvertsToEmptyClip() {
+        assertEquals(0, AudioMixer.toStereo(new short[0], 1, 22050, 44100).length);
+    }
+}
@@ -0,0 +1,67 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+// 棋盘几何测试：洞的四条边界恰好落在洞内或洞外，洞之间的间隔和棋盘居中留出的空白点不中，
+// 非正方形棋盘的下标按行优先排列
+public class BoardLayoutTest {
+    private static final float EPSILON = 0.01f;
+
+    // 每个洞的左上角、右下角内侧都命中本洞，紧贴四边的外侧都不命中
+    private static void assertHoleBoundaries(BoardLayout layout) {
+        BoardSpec spec = layout.getSpec();
+        float size = layout.getHoleSize();
+        for (int i = 0; i < spec.getHoleCount(); i++) {
+            float left = layout.getHoleLeft(i);
+            float top = layout.getHoleTop(i);
+            float right = left + size;
+            float bottom = top + size;
+            assertEquals(i, layout.holeAt(left + EPSILON, top + EPSILON));
+            assertEquals(i, layout.holeAt(right - EPSILON, bottom - EPSILON));
+            assertEquals(i, layout.holeAt(left + size / 2, top + size / 2));
+            assertEquals(-1, layout.holeAt(left - EPSILON, top + size / 2));
+            assertEquals(-1, layout.holeAt(right + EPSILON, top + size / 2));
+            assertEquals(-1, layout.holeAt(left + size / 2, top - EPSILON));
+            assertEquals(-1, layout.holeAt(left + size / 2, bottom + EPSILON));
+        }
+    }
+
+    @Test
+    public void classicBoardBoundaries() {
+        BoardLayout layout = new BoardLayout(BoardSpec.CLASSIC, 300, 300);
+        assertEquals(85, layout.getHoleSize(), 0.001f);
+        assertHoleBoundaries(layout);
+        assertEquals(-1, layout.holeAt(96, 50)); // 洞 0 和洞 1 之间的间隔
+        assertEquals(-1, layout.holeAt(50, 96));
+        assertEquals(-1, layout.holeAt(100, 100)); // 四个洞之间的交叉点
+        assertEquals(-1, layout.holeAt(-1, 50));
+        assertEquals(-1, layout.holeAt(300, 150));
+        assertEquals(-1, layout.holeAt(150, 300));
+    }
+
+    @Test
+    public void largestBoardBoundaries() {
+        assertHoleBoundaries(new BoardLayout(BoardSpec.square(BoardSpec.MAX_SIZE), BotHarness.BOARD_PIXELS, BotHarness.BOARD_PIXELS));
+    }
+
+    @Test
+    public void boardIsCenteredInWideArea() {
+        BoardLayout layout = new BoardLayout(BoardSpec.square(5), 1000, 500);
+        assertEquals(250 + (100 - layout.getHoleSize()) / 2, layout.getHoleLeft(0), 0.001f);
+        assertEquals(-1, layout.holeAt(200, 50)); // 左侧空白
+        assertEquals(-1, layout.holeAt(800, 50)); // 右侧空白
+        assertHoleBoundaries(layout);
+    }
+
+    @Test
+    public void rectangularBoardIsRowMajor() {
+        BoardSpec spec = new BoardSpec(3, 7, 0.2f, 1, 5, 10000, 10000);
+        BoardLayout layout = new BoardLayout(spec, 700, 900); // 宽度决定格子边长，上下留白
+        assertEquals(-1, layout.holeAt(350, 100));
+        assertEquals(-1, layout.holeAt(350, 800));
+        assertEquals(7 + 6, layout.holeAt(650, 450)); // 第 2 行最后一列
+        assertHoleBoundaries(layout);
+    }
+}
@@ -0,0 +1,200 @@
+package com.muen.hitmouse;
+
+import java.util.Random;
+
+// 无界面的机器人对局：用 GameCore 推进规则，用 BoardLayout + HitMask 做与 BoardView 相同的命中判断
+// 机器人按固定的点击频率产生触点坐标，走和真机一样的输入路径
+public class BotHarness {
+    public static final int BOARD_PIXELS = 1080; // 模拟的棋盘尺寸（像素）
+    private static final long MAX_GAME_MS = 10 * 60 * 1000L; // 无尽模式的对局上限，避免完美机器人永不结束
+
+    // 机器人：在每个点击时机决定点哪里，返回 false 表示这次不点
+    public interface Bot {
+        void onWave(long now, int[] slots, int count);
+        boolean chooseTap(long now, Game game, Random random, float[] outXY);
+    }
+
+    // 机器人种类
+    public enum Kind {
+        PERFECT, HUMAN, RANDOM;
+
+        public Bot create(int holeCount, Random random) {
+            switch (this) {
+                case PERFECT:
+                    return new PerfectBot();
+                case HUMAN:
+                    return new HumanBot(holeCount, random);
+                default:
+                    return new RandomBot();
+            }
+        }
+    }
+
+    // 一局模拟对局
+    public static class Game implements GameCore.Listener {
+        final GameCore core;
+        final BoardLayout layout;
+        final HitMask mask;
+        final Bot bot;
+        final int[] wave; // 当前一波地鼠
+        int waveSize;
+        long now;
+        long taps;
+        long hitTestNanos; // 命中判断累计耗时
+
+        Game(BoardSpec spec, boolean endless, HitMask mask, Bot bot, long seed) {
+            this.core = new GameCore(spec, spec.getHoleCount(), true, endless, new Random(seed));
+            this.layout = new BoardLayout(spec, BOARD_PIXELS, BOARD_PIXELS);
+            this.mask = mask;
+            this.bot = bot;
+            this.wave = new int[spec.getHoleCount()];
+            core.setListener(this);
+        }
+
+        @Override
+        public void onSpawn(int[] slots, int count) {
+            System.arraycopy(slots, 0, wave, 0, count);
+            waveSize = count;
+            bot.onWave(now, slots, count);
+        }
+
+        @Override
+        public void onTick(GameCore core) {
+        }
+
+        @Override
+        public void onGameOver(GameCore core) {
+        }
+
+        // 与 BoardView.hitTest 相同的判断：坐标算出洞，再查洞内的不透明区域
+        int hitTest(float x, float y) {
+            int hole = layout.holeAt(x, y);
+            if (hole < 0 || !core.isActive(hole)) return -1;
+            return mask.contains(x - layout.getHoleLeft(hole), y - layout.getHoleTop(hole)) ? hole : -1;
+        }
+
+        // 按点击频率运行到对局结束，返回得分
+        int play(double tapsPerSecond, Random random) {
+            long period = Math.max(1, Math.round(1000 / tapsPerSecond));
+            float[] xy = new float[2];
+            long nextTap = period;
+            core.start();
+            while (core.isRunning() && now < MAX_GAME_MS) {
+                long untilEvent = core.getMillisUntilNextEvent();
+                long untilTap = nextTap - now;
+                if (untilTap < untilEvent) {
+                    core.advance(untilTap);
+                    now = nextTap;
+                    nextTap += period;
+                    if (core.isRunning() && bot.chooseTap(now, this, random, xy)) {
+                        taps++;
+                        long start = System.nanoTime();
+                        int hole = hitTest(xy[0], xy[1]);
+                        hitTestNanos += System.nanoTime() - start;
+                        if (hole >= 0) core.hit(hole);
+                    }
+                } else {
+                    core.advance(untilEvent);
+                    now += untilEvent;
+                }
+            }
+            return core.getCount();
+        }
+
+        float centerX(int hole) {
+            return layout.getHoleLeft(hole) + layout.getHoleSize() / 2f;
+        }
+
+        float centerY(int hole) {
+            return layout.getHoleTop(hole) + layout.getHoleSize() / 2f;
+        }
+    }
+
+    // 完美玩家：零反应时间，总是点中某只仍在的地鼠的正中心
+    static class PerfectBot implements Bot {
+        @Override
+        public void onWave(long now, int[] slots, int count) {
+        }
+
+        @Override
+        public boolean chooseTap(long now, Game game, Random random, float[] outXY) {
+            for (int i = 0; i < game.waveSize; i++) {
+                int hole = game.wave[i];
+                if (game.core.isActive(hole)) {
+                    outXY[0] = game.centerX(hole);
+                    outXY[1] = game.centerY(hole);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // 类人玩家：每只地鼠出现后经过对数正态分布的反应时间才能被注意到，点击带高斯瞄准误差
+    static class HumanBot implements Bot {
+        private static final double MEDIAN_REACTION_MS = 280;
+        private static final double REACTION_SIGMA = 0.3;
+        private static final double AIM_ERROR = 0.18; // 瞄准误差的标准差，占洞边长的比例
+
+        private final long[] readyAt; // 每个洞的地鼠何时能被注意到
+        private final Random reactions;
+
+        HumanBot(int holeCount, Random reactions) {
+            this.readyAt = new long[holeCount];
+            this.reactions = reactions;
+        }
+
+        @Override
+        public void onWave(long now, int[] slots, int count) {
+            for (int i = 0; i < count; i++) {
+                double reaction = MEDIAN_REACTION_MS * Math.exp(REACTION_SIGMA * reactions.nextGaussian());
+                readyAt[slots[i]] = now + (long) reaction;
+            }
+        }
+
+        @Override
+        public boolean chooseTap(long now, Game game, Random random, float[] outXY) {
+            int target = -1;
+            for (int i = 0; i < game.waveSize; i++) {
+                int hole = game.wave[i];
+                if (game.core.isActive(hole) && readyAt[hole] <= now
+                        && (target < 0 || readyAt[hole] < readyAt[target])) {
+                    target = hole;
+                }
+            }
+            if (target < 0) return false;
+            float size = game.layout.getHoleSize();
+            outXY[0] = game.centerX(target) + (float) (random.nextGaussian() * AIM_ERROR * size);
+            outXY[1] = game.centerY(target) + (float) (random.nextGaussian() * AIM_ERROR * size);
+            return true;
+        }
+    }
+
+    // 乱点玩家：在棋盘范围内均匀随机点击
+    static class RandomBot implements Bot {
+        @Override
+        public void onWave(long now, int[] slots, int count) {
+        }
+
+        @Override
+        public boolean chooseTap(long now, Game game, Random random, float[] outXY) {
+            outXY[0] = random.nextFloat() * BOARD_PIXELS;
+            outXY[1] = random.nextFloat() * BOARD_PIXELS;
+            return true;
+        }
+    }
+
+    // 圆形地鼠的命中区域，代替真机上从精灵透明通道生成的遮罩
+    public static HitMask discMask(int size) {
+        int[] argb = new int[size * size];
+        float r = size / 2f;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                float dx = x + 0.5f - r;
+                float dy = y + 0.5f - r;
+                argb[y * size + x] = dx * dx + dy * dy <= r * r ? 0xFF000000 : 0;
+            }
+        }
+        return HitMask.fromArgbFitCenter(argb, size, size, size, size, HitMask.DEFAULT_ALPHA_THRESHOLD);
+    }
+}
@@ -0,0 +1,162 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.junit.Test;
+
+// 机器人压测：三种机器人在 ForkJoin 线程池上并行跑上千局，输出每秒局数、命中判断耗时和得分分布
+// 调整 GameCore 的出鼠间隔或 BoardSpec 的地鼠数量曲线后跑一遍，对照下面的预算判断是否回归
+// 默认每种机器人 2000 局经典棋盘限时模式，可通过 -Dbots.games=20000 -Dbots.board=8 -Dbots.tapRate=6 -Dbots.endless=true 调整
+public class BotLoadTest {
+    private static final int HIT_TEST_SAMPLES = 2_000_000;
+    private static final double MIN_GAMES_PER_SECOND = 200; // 限时模式单局只有几百个事件，远低于该值说明引擎变慢了
+    private static final double MAX_HIT_TEST_NS = 500;
+
+    // 一种机器人的全部对局结果
+    private static class Batch {
+        final BotHarness.Kind kind;
+        final int[] scores;
+        long taps;
+        long hitTestNanos;
+        long wallNanos;
+
+        Batch(BotHarness.Kind kind, int games) {
+            this.kind = kind;
+            this.scores = new int[games];
+        }
+
+        int percentile(int p) {
+            return scores[Math.min(scores.length - 1, scores.length * p / 100)];
+        }
+
+        double mean() {
+            long sum = 0;
+            for (int score : scores) sum += score;
+            return (double) sum / scores.length;
+        }
+    }
+
+    // 把对局区间对半拆分，直到足够小再顺序执行；每局使用由序号决定的种子，结果可复现
+    private static class PlayRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 16;
+        final Batch batch;
+        final BoardSpec spec;
+        final boolean endless;
+        final double tapRate;
+        final int from;
+        final int to;
+        long taps;
+        long hitTestNanos;
+
+        PlayRange(Batch batch, BoardSpec spec, boolean endless, double tapRate, int from, int to) {
+            this.batch = batch;
+            this.spec = spec;
+            this.endless = endless;
+            this.tapRate = tapRate;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                HitMask mask = BotHarness.discMask((int) new BoardLayout(spec, BotHarness.BOARD_PIXELS, BotHarness.BOARD_PIXELS).getHoleSize());
+                for (int i = from; i < to; i++) {
+                    Random random = new Random(i * 31L + batch.kind.ordinal());
+                    BotHarness.Game game = new BotHarness.Game(spec, endless, mask,
+                            batch.kind.create(spec.getHoleCount(), random), i);
+                    batch.scores[i] = game.play(tapRate, random); // 各任务写不同下标，无需同步
+                    taps += game.taps;
+                    hitTestNanos += game.hitTestNanos;
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            PlayRange left = new PlayRange(batch, spec, endless, tapRate, from, mid);
+            PlayRange right = new PlayRange(batch, spec, endless, tapRate, mid, to);
+            invokeAll(left, right);
+            taps = left.taps + right.taps;
+            hitTestNanos = left.hitTestNanos + right.hitTestNanos;
+        }
+    }
+
+    @Test
+    public void botsStayWithinBudgets() {
+        int games = Integer.getInteger("bots.games", 2000);
+        int size = Integer.getInteger("bots.board", 3);
+        double tapRate = Double.parseDouble(System.getProperty("bots.tapRate", "8"));
+        boolean endless = Boolean.getBoolean("bots.endless");
+        BoardSpec spec = size == 3 ? BoardSpec.CLASSIC : BoardSpec.square(size);
+
+        ForkJoinPool pool = new ForkJoinPool();
+        Batch[] batches = new Batch[BotHarness.Kind.values().length];
+        try {
+            pool.invoke(new PlayRange(new Batch(BotHarness.Kind.RANDOM, Math.min(games, 64)), spec, endless, tapRate, 0, Math.min(games, 64))); // JIT 预热
+            for (BotHarness.Kind kind : BotHarness.Kind.values()) {
+                Batch batch = new Batch(kind, games);
+                PlayRange root = new PlayRange(batch, spec, endless, tapRate, 0, games);
+                long start = System.nanoTime();
+                pool.invoke(root);
+                batch.wallNanos = System.nanoTime() - start;
+                batch.taps = root.taps;
+                batch.hitTestNanos = root.hitTestNanos;
+                Arrays.sort(batch.scores);
+                batches[kind.ordinal()] = batch;
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        double hitTestNs = measureHitTest(spec);
+        System.out.printf("bots: %s %s, %d games per bot, %.1f taps/s, %d threads, hit test %.1f ns/op%n",
+                spec.getLabel(), endless ? "endless" : "timed", games, tapRate, pool.getParallelism(), hitTestNs);
+        for (Batch batch : batches) {
+            double gamesPerSecond = batch.scores.length / (batch.wallNanos / 1e9);
+            System.out.printf("  %-7s %8.0f games/s  score mean %6.1f  p10 %4d  p50 %4d  p90 %4d  max %4d  "
+                            + "(%d taps, %.0f ns/tap incl. timer)%n",
+                    batch.kind, gamesPerSecond, batch.mean(), batch.percentile(10), batch.percentile(50),
+                    batch.percentile(90), batch.scores[batch.scores.length - 1],
+                    batch.taps, batch.taps == 0 ? 0 : (double) batch.hitTestNanos / batch.taps);
+            assertTrue(batch.kind + " ran " + gamesPerSecond + " games/s", gamesPerSecond > MIN_GAMES_PER_SECOND);
+        }
+        assertTrue("hit test took " + hitTestNs + " ns/op", hitTestNs < MAX_HIT_TEST_NS);
+
+        // 难度曲线的基本形状：技术越好得分越高
+        Batch perfect = batches[BotHarness.Kind.PERFECT.ordinal()];
+        Batch human = batches[BotHarness.Kind.HUMAN.ordinal()];
+        Batch random = batches[BotHarness.Kind.RANDOM.ordinal()];
+        assertTrue("perfect " + perfect.mean() + " <= human " + human.mean(), perfect.mean() > human.mean());
+        assertTrue("human " + human.mean() + " <= random " + random.mean(), human.mean() > random.mean());
+    }
+
+    // 单独测量命中判断，批量计时以排除 nanoTime 本身的开销
+    private static double measureHitTest(BoardSpec spec) {
+        BoardLayout layout = new BoardLayout(spec, BotHarness.BOARD_PIXELS, BotHarness.BOARD_PIXELS);
+        HitMask mask = BotHarness.discMask((int) layout.getHoleSize());
+        Random random = new Random(3);
+        float[] points = new float[4096 * 2];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextFloat() * BotHarness.BOARD_PIXELS;
+        }
+        int found = 0;
+        long start = 0;
+        for (int round = 0; round < 2; round++) { // 第一轮预热
+            start = System.nanoTime();
+            for (int i = 0; i < HIT_TEST_SAMPLES; i++) {
+                int p = (i & 4095) * 2;
+                int hole = layout.holeAt(points[p], points[p + 1]);
+                if (hole >= 0 && mask.contains(points[p] - layout.getHoleLeft(hole), points[p + 1] - layout.getHoleTop(hole))) {
+                    found++;
+                }
+            }
+        }
+        double ns = (double) (System.nanoTime() - start) / HIT_TEST_SAMPLES;
+        assertTrue(found > 0);
+        return ns;
+    }
+}
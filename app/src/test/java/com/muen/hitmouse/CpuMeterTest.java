@@ -0,0 +1,87 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+// 耗电估算测试：用虚拟时间检查暂停期间不计入、太短的对局不计入、换算成每分钟的 CPU 时间，
+// 以及各帧率模式的滑动平均分开保存，并随本局记录一次提交
+public class CpuMeterTest {
+    // 虚拟时间：进程和主线程的 CPU 时间由测试直接推进；MainThreadBudgetTest 也使用
+    static class FakeSource implements CpuMeter.Source {
+        long uptime = 5_000;
+        long processCpu;
+        long threadCpu;
+
+        void run(long millis, long cpu, long mainCpu) {
+            uptime += millis;
+            processCpu += cpu;
+            threadCpu += mainCpu;
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return uptime;
+        }
+
+        @Override
+        public long processCpuMillis() {
+            return processCpu;
+        }
+
+        @Override
+        public long threadCpuMillis() {
+            return threadCpu;
+        }
+    }
+
+    private final FakeSource source = new FakeSource();
+    private final MainThreadBudgetTest.CountingPreferences preferences = new MainThreadBudgetTest.CountingPreferences();
+    private final RecordStore store = new RecordStore(preferences);
+
+    // 打一局：play 毫秒内用掉 cpu 毫秒的 CPU，结束后随记录保存
+    private void play(int mode, long play, long cpu) {
+        CpuMeter meter = new CpuMeter(mode, source);
+        meter.start();
+        source.run(play, cpu, cpu / 2);
+        long writes = preferences.writes;
+        store.saveGame(source.uptime, 10, meter.finish());
+        assertEquals(writes + 1, preferences.writes);
+    }
+
+    @Test
+    public void pausedTimeIsNotCounted() {
+        CpuMeter meter = new CpuMeter(FrameClock.MODE_60, source);
+        meter.start();
+        source.run(20_000, 2_000, 1_000);
+        meter.pause();
+        source.run(600_000, 30_000, 0); // 暂停中后台线程的 CPU 也不计入
+        meter.start();
+        meter.start(); // 重复开始不重置起点
+        source.run(10_000, 1_000, 500);
+        store.saveGame(1, 10, meter.finish());
+        assertEquals(6_000, CpuMeter.getCpuPerMinute(preferences, FrameClock.MODE_60)); // 30 秒 3 秒 CPU
+    }
+
+    @Test
+    public void shortGameIsNotRecorded() {
+        CpuMeter meter = new CpuMeter(FrameClock.MODE_60, source);
+        meter.start();
+        source.run(9_999, 5_000, 1_000);
+        assertNull(meter.finish());
+        assertEquals(-1, CpuMeter.getCpuPerMinute(preferences, FrameClock.MODE_60));
+    }
+
+    @Test
+    public void averagesAreKeptPerMode() {
+        play(FrameClock.MODE_120, 60_000, 8_000);
+        assertEquals(8_000, CpuMeter.getCpuPerMinute(preferences, FrameClock.MODE_120));
+        play(FrameClock.MODE_120, 60_000, 4_000); // 新样本占 1/4
+        assertEquals(7_000, CpuMeter.getCpuPerMinute(preferences, FrameClock.MODE_120));
+        play(FrameClock.MODE_POWER_SAVE, 120_000, 3_000);
+        assertEquals(1_500, CpuMeter.getCpuPerMinute(preferences, FrameClock.MODE_POWER_SAVE));
+        assertEquals(7_000, CpuMeter.getCpuPerMinute(preferences, FrameClock.MODE_120));
+        assertEquals(-1, CpuMeter.getCpuPerMinute(preferences, FrameClock.MODE_30));
+    }
+}
@@ -0,0 +1,122 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.Test;
+
+// 动态难度测试：用机器人对局检查控制器把不同水平玩家的命中率拉向目标，
+// 并检查固定模式不改变原曲线、同样的种子得到完全相同的对局、日志快照能完整恢复控制器状态
+public class DifficultyControllerTest {
+    private static final int GAMES = 40;
+    private static final int TARGET = DifficultyController.DEFAULT_TARGET_PERCENT;
+
+    // 在 3x3 棋盘上跑 GAMES 局限时对局，返回命中率（百分比）
+    private static double successRate(BotHarness.Kind kind, double tapsPerSecond, boolean adaptive) {
+        long hits = 0;
+        long misses = 0;
+        for (int seed = 0; seed < GAMES; seed++) {
+            BotHarness.Game game = newGame(kind, seed, adaptive);
+            game.play(tapsPerSecond, new Random(seed * 31L));
+            hits += game.core.getHits();
+            misses += game.core.getMisses();
+        }
+        return 100.0 * hits / (hits + misses);
+    }
+
+    private static BotHarness.Game newGame(BotHarness.Kind kind, int seed, boolean adaptive) {
+        BoardSpec spec = BoardSpec.square(3);
+        BotHarness.Game game = new BotHarness.Game(spec, false, BotHarness.discMask(BotHarness.BOARD_PIXELS / 3),
+                kind.create(spec.getHoleCount(), new Random(seed)), seed);
+        game.core.setDifficulty(adaptive ? new DifficultyController(TARGET) : DifficultyController.fixed());
+        return game;
+    }
+
+    private static void assertCloserToTarget(BotHarness.Kind kind, double tapsPerSecond) {
+        double fixed = successRate(kind, tapsPerSecond, false);
+        double adaptive = successRate(kind, tapsPerSecond, true);
+        System.out.printf("%s at %.0f taps/s: fixed %.1f%%, adaptive %.1f%% (target %d%%)%n", kind, tapsPerSecond, fixed, adaptive, TARGET);
+        assertTrue(kind + " fixed " + fixed + "% adaptive " + adaptive + "%", Math.abs(adaptive - TARGET) < Math.abs(fixed - TARGET));
+    }
+
+    @Test
+    public void strongPlayerGetsHarder() {
+        assertCloserToTarget(BotHarness.Kind.PERFECT, 8);
+    }
+
+    @Test
+    public void slowPlayerGetsEasier() {
+        assertCloserToTarget(BotHarness.Kind.HUMAN, 3);
+    }
+
+    @Test
+    public void fixedModeKeepsOriginalCurve() {
+        DifficultyController fixed = DifficultyController.fixed();
+        for (int i = 0; i < 100; i++) {
+            fixed.onHit(50);
+            fixed.onWave();
+        }
+        assertEquals(1234, fixed.adjustInterval(1234, 500));
+        assertEquals(3, fixed.adjustMoleCount(3, 9));
+        assertEquals(0, fixed.getLevelPercent());
+    }
+
+    @Test
+    public void adjustmentsStayInBounds() {
+        DifficultyController controller = new DifficultyController(TARGET);
+        for (int i = 0; i < 1000; i++) {
+            controller.onHit(120);
+            controller.onWave();
+        }
+        assertEquals(100, controller.getLevelPercent());
+        assertEquals(4, controller.adjustMoleCount(9, 4)); // 不超过位置数量
+        assertEquals(500, controller.adjustInterval(600, 500)); // 不短于最短间隔
+        for (int i = 0; i < 1000; i++) {
+            controller.onMiss(9);
+            controller.onWave();
+        }
+        assertEquals(-100, controller.getLevelPercent());
+        assertEquals(1, controller.adjustMoleCount(1, 9)); // 至少一只
+        assertEquals(1400, controller.adjustInterval(1000, 500));
+    }
+
+    @Test
+    public void sameSeedReplaysIdentically() {
+        for (BotHarness.Kind kind : BotHarness.Kind.values()) {
+            BotHarness.Game first = newGame(kind, 17, true);
+            BotHarness.Game second = newGame(kind, 17, true);
+            assertEquals(first.play(8, new Random(99)), second.play(8, new Random(99)));
+            assertEquals(first.core.getHits(), second.core.getHits());
+            assertEquals(first.core.getMisses(), second.core.getMisses());
+            assertEquals(first.core.getDifficulty().getLevelPercent(), second.core.getDifficulty().getLevelPercent());
+            assertEquals(first.core.getDifficulty().getReactionMs(), second.core.getDifficulty().getReactionMs());
+        }
+    }
+
+    @Test
+    public void journalRestoresControllerState() {
+        BoardSpec spec = BoardSpec.square(3);
+        GameCore core = new GameCore(spec, spec.getHoleCount(), true, false, new Random(5));
+        core.setDifficulty(new DifficultyController(TARGET));
+        core.start();
+        for (int i = 0; i < 20; i++) {
+            core.advance(core.getMillisUntilNextEvent());
+            for (int slot = 0; slot < core.getSlotCount(); slot++) {
+                if (core.isActive(slot)) core.hit(slot, core.getTime() + 150);
+            }
+        }
+        ByteBuffer state = ByteBuffer.allocate(SessionJournal.MAX_PAYLOAD);
+        core.writeState(state);
+        state.flip();
+
+        GameCore restored = new GameCore(spec, spec.getHoleCount(), true, false, new Random(5));
+        restored.setDifficulty(new DifficultyController(TARGET));
+        assertTrue(restored.readState(state));
+        assertEquals(core.getDifficulty().getLevelPercent(), restored.getDifficulty().getLevelPercent());
+        assertEquals(core.getDifficulty().getHitRatePercent(), restored.getDifficulty().getHitRatePercent());
+        assertEquals(core.getDifficulty().getReactionMs(), restored.getDifficulty().getReactionMs());
+        assertEquals(core.getSpawnInterval(), restored.getSpawnInterval());
+    }
+}
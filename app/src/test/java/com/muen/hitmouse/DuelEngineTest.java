@@ -0,0 +1,251 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.junit.Test;
+
+// 双人对战测试：用虚拟时间打完整局，检查两个棋盘出现的地鼠完全一致、击中只计入自己的棋盘、
+// 暂停时不计分，以及时间耗尽后按得分判定胜负（平局为 -1）且只通知一次
+public class DuelEngineTest {
+    private static final BoardSpec SPEC = BoardSpec.square(5);
+    private static final int BOTTOM = 0;
+    private static final int TOP = 1;
+
+    // 虚拟主线程：按到期时间执行任务，同时提供虚拟时钟
+    private static class VirtualLooper implements GameScheduler.Backend, GameLoop.Clock {
+        private final PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        private final Map<Long, Runnable> tasks = new HashMap<>();
+        private long now = 0;
+        private long sequence = 0;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            long id = sequence++;
+            tasks.put(id, task);
+            queue.add(new long[]{now + delayMs, id});
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+
+        void runFor(long millis) {
+            long until = now + millis;
+            while (!queue.isEmpty() && queue.peek()[0] <= until) {
+                long[] next = queue.poll();
+                now = next[0];
+                tasks.remove(next[1]).run();
+            }
+            now = until;
+        }
+    }
+
+    // 假棋盘：上下两块各占半屏，命中判断只看洞的位置和是否有地鼠
+    private static class FakeBoard implements DuelEngine.Board {
+        final BoardLayout layout = new BoardLayout(SPEC, 1080, 960);
+        final boolean[] occupied = new boolean[SPEC.getHoleCount()];
+        final float y;
+
+        FakeBoard(float y) {
+            this.y = y;
+        }
+
+        @Override
+        public BoardSpec getSpec() {
+            return SPEC;
+        }
+
+        @Override
+        public BoardLayout getBoardLayout() {
+            return layout;
+        }
+
+        @Override
+        public float getX() {
+            return 0;
+        }
+
+        @Override
+        public float getY() {
+            return y;
+        }
+
+        @Override
+        public void showMoles(int[] holes, int count) {
+            clearMoles();
+            for (int i = 0; i < count; i++) {
+                occupied[holes[i]] = true;
+            }
+        }
+
+        @Override
+        public void hideMole(int hole) {
+            occupied[hole] = false;
+        }
+
+        @Override
+        public void clearMoles() {
+            Arrays.fill(occupied, false);
+        }
+
+        @Override
+        public int hitTest(float x, float y) {
+            int hole = layout.holeAt(x, y);
+            return hole >= 0 && occupied[hole] ? hole : -1;
+        }
+
+        // 洞中心在父布局中的坐标
+        float centerX(int hole) {
+            return getX() + layout.getHoleLeft(hole) + layout.getHoleSize() / 2;
+        }
+
+        float centerY(int hole) {
+            return y + layout.getHoleTop(hole) + layout.getHoleSize() / 2;
+        }
+    }
+
+    private final VirtualLooper looper = new VirtualLooper();
+    private final GameScheduler scheduler = new GameScheduler(looper);
+    private final FakeBoard[] boards = {new FakeBoard(960), new FakeBoard(0)};
+    private final String[] scoreTexts = new String[DuelEngine.PLAYERS];
+    private final List<Integer> winners = new ArrayList<>();
+    private String timeText;
+
+    private final DuelEngine engine = new DuelEngine(scheduler, looper, new DuelEngine.Callback() {
+        @Override
+        public void setScoreText(int player, CharSequence text) {
+            scoreTexts[player] = text.toString();
+        }
+
+        @Override
+        public void setTimeText(String text) {
+            timeText = text;
+        }
+
+        @Override
+        public void onGameOver(int winner) {
+            winners.add(winner);
+        }
+    }, boards, 35);
+
+    // 玩家 player 击打自己棋盘上当前所有的地鼠，返回击中数
+    private int hitAll(int player) {
+        FakeBoard board = boards[player];
+        int hits = 0;
+        for (int hole = 0; hole < SPEC.getHoleCount(); hole++) {
+            if (board.occupied[hole] && engine.hit(player, board.centerX(hole), board.centerY(hole))) hits++;
+        }
+        return hits;
+    }
+
+    // 按帧推进整局，每帧 bottomEvery / topEvery 帧击打一次（0 表示不击打）
+    private void playOut(int bottomEvery, int topEvery) {
+        engine.startGame();
+        for (int frame = 1; !engine.isGameOver(); frame++) {
+            if (bottomEvery > 0 && frame % bottomEvery == 0) hitAll(BOTTOM);
+            if (topEvery > 0 && frame % topEvery == 0) hitAll(TOP);
+            looper.runFor(16);
+            assertTrue("duel never ended", looper.now < GameEngine.INITIAL_PLAY_TIME + 1000);
+        }
+        looper.runFor(16); // 结算在下一次调度时通知
+    }
+
+    @Test
+    public void bothBoardsShowTheSameMoles() {
+        engine.startGame();
+        assertEquals("得分: 0", scoreTexts[BOTTOM]);
+        assertEquals("得分: 0", scoreTexts[TOP]);
+        assertEquals("剩余时间: 60秒", timeText);
+        int spawns = 0;
+        boolean[] last = boards[BOTTOM].occupied.clone();
+        for (int frame = 0; frame < 1000; frame++) {
+            looper.runFor(16);
+            assertArrayEquals(boards[BOTTOM].occupied, boards[TOP].occupied);
+            if (!Arrays.equals(last, boards[BOTTOM].occupied)) spawns++;
+            last = boards[BOTTOM].occupied.clone();
+        }
+        assertTrue(spawns > 5);
+    }
+
+    @Test
+    public void hitCountsOnlyOnOwnBoard() {
+        engine.startGame();
+        int hole = -1;
+        while (hole < 0) {
+            looper.runFor(16);
+            for (int i = 0; i < SPEC.getHoleCount() && hole < 0; i++) {
+                if (boards[BOTTOM].occupied[i]) hole = i;
+            }
+        }
+        // 上方玩家的锤子落在下方棋盘的地鼠上：这是别人的棋盘，不算击中
+        assertFalse(engine.hit(TOP, boards[BOTTOM].centerX(hole), boards[BOTTOM].centerY(hole)));
+        assertTrue(engine.hit(BOTTOM, boards[BOTTOM].centerX(hole), boards[BOTTOM].centerY(hole)));
+        assertFalse(engine.hit(BOTTOM, boards[BOTTOM].centerX(hole), boards[BOTTOM].centerY(hole))); // 已经打掉
+        assertFalse(boards[BOTTOM].occupied[hole]);
+        assertTrue(boards[TOP].occupied[hole]); // 对手的地鼠还在
+        assertEquals(1, engine.getScore(BOTTOM));
+        assertEquals(0, engine.getScore(TOP));
+        assertEquals("得分: 1", scoreTexts[BOTTOM]);
+        assertEquals("得分: 0", scoreTexts[TOP]);
+        assertEquals(boards[BOTTOM].y + boards[BOTTOM].layout.getHoleTop(hole), engine.getLastHitY(), 0.001f);
+
+        assertTrue(engine.hit(TOP, boards[TOP].centerX(hole), boards[TOP].centerY(hole)));
+        assertEquals(1, engine.getScore(TOP));
+    }
+
+    @Test
+    public void pausedDuelIgnoresHits() {
+        engine.startGame();
+        looper.runFor(2000);
+        engine.stopGame();
+        for (FakeBoard board : boards) {
+            assertArrayEquals(new boolean[SPEC.getHoleCount()], board.occupied);
+        }
+        for (int hole = 0; hole < SPEC.getHoleCount(); hole++) {
+            assertFalse(engine.hit(BOTTOM, boards[BOTTOM].centerX(hole), boards[BOTTOM].centerY(hole)));
+        }
+        looper.runFor(120_000);
+        assertFalse(engine.isGameOver()); // 暂停期间时间不流逝
+        assertEquals(0, winners.size());
+        engine.resumeGame();
+        looper.runFor(16);
+        assertFalse(engine.isGameOver());
+    }
+
+    @Test
+    public void fasterPlayerWins() {
+        playOut(1, 60); // 下方玩家每帧都打，上方玩家约每秒打一次，会漏掉一些地鼠
+        assertTrue(engine.getScore(BOTTOM) > engine.getScore(TOP));
+        assertEquals(1, winners.size());
+        assertEquals(BOTTOM, (int) winners.get(0));
+        assertEquals("剩余时间: 0秒", timeText);
+        assertFalse(engine.hit(BOTTOM, boards[BOTTOM].centerX(0), boards[BOTTOM].centerY(0))); // 结束后不再计分
+    }
+
+    @Test
+    public void topPlayerCanWin() {
+        playOut(0, 1);
+        assertEquals(0, engine.getScore(BOTTOM));
+        assertEquals(1, winners.size());
+        assertEquals(TOP, (int) winners.get(0));
+    }
+
+    @Test
+    public void equalScoresAreATie() {
+        playOut(2, 2); // 同一种子、同样的节奏，双方得分相同
+        assertTrue(engine.getScore(BOTTOM) > 0);
+        assertEquals(engine.getScore(BOTTOM), engine.getScore(TOP));
+        assertEquals(1, winners.size());
+        assertEquals(-1, (int) winners.get(0));
+    }
+}
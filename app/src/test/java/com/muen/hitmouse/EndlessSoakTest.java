@@ -0,0 +1,162 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+import org.junit.Test;
+
+// 无尽模式浸泡测试：在 JVM 上无界面地快进数小时的游戏时间，检查每步耗时与内存保持平稳
+// 默认模拟 2 小时，可通过 -Dsoak.hours=8 -Dsoak.board=20 延长或换棋盘
+public class EndlessSoakTest {
+    private static final int WINDOWS = 10; // 把整局切成若干窗口比较耗时
+
+    // 完美玩家：在每次事件之前击中当前全部地鼠，游戏永不结束
+    private static class PerfectPlayer implements GameCore.Listener {
+        final int[] wave; // 复制出的本波位置，回调中不分配内存
+        int waveSize;
+        int spawns;
+        boolean over;
+
+        PerfectPlayer(int slotCount) {
+            wave = new int[slotCount];
+        }
+
+        @Override
+        public void onSpawn(int[] slots, int count) {
+            System.arraycopy(slots, 0, wave, 0, count);
+            waveSize = count;
+            spawns++;
+        }
+
+        @Override
+        public void onTick(GameCore core) {
+        }
+
+        @Override
+        public void onGameOver(GameCore core) {
+            over = true;
+        }
+
+        void hitAll(GameCore core) {
+            for (int i = 0; i < waveSize; i++) {
+                core.hit(wave[i]);
+            }
+            waveSize = 0;
+        }
+    }
+
+    @Test
+    public void endlessRunStaysFlat() {
+        double hours = Double.parseDouble(System.getProperty("soak.hours", "2"));
+        int size = Integer.getInteger("soak.board", 8);
+        long simulatedMs = (long) (hours * 3600_000L);
+
+        BoardSpec spec = BoardSpec.square(size);
+        GameCore core = new GameCore(spec, spec.getHoleCount(), true, true, new Random(42));
+        PerfectPlayer player = new PerfectPlayer(spec.getHoleCount());
+        core.setListener(player);
+        core.start();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean canCountAllocations = threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported();
+
+        long windowMs = simulatedMs / WINDOWS;
+        long[] windowNanos = new long[WINDOWS];
+        long[] windowSteps = new long[WINDOWS];
+        long heapAfterWarmup = 0;
+        long allocatedAfterWarmup = 0;
+        long simulated = 0;
+        for (int w = 0; w < WINDOWS; w++) {
+            if (w == 1) {
+                heapAfterWarmup = usedHeapAfterGc();
+                allocatedAfterWarmup = allocatedBytes(threads, canCountAllocations);
+            }
+            long windowEnd = (w + 1) * windowMs;
+            long start = System.nanoTime();
+            while (simulated < windowEnd && core.isRunning()) {
+                long step = core.getMillisUntilNextEvent();
+                player.hitAll(core);
+                core.advance(step);
+                simulated += step;
+                windowSteps[w]++;
+            }
+            windowNanos[w] = System.nanoTime() - start;
+        }
+        long allocated = allocatedBytes(threads, canCountAllocations) - allocatedAfterWarmup;
+        long heapGrowth = usedHeapAfterGc() - heapAfterWarmup;
+
+        assertFalse("perfect player should survive", player.over);
+        assertEquals(0, core.getMisses());
+        assertEquals(spec.getHoleCount(), core.getMouseCount()); // 难度一直涨到占满棋盘
+
+        // 跳过第一个窗口（JIT 预热），其余窗口的单步耗时不应随时间增长
+        double firstNsPerStep = (double) windowNanos[1] / windowSteps[1];
+        double worstNsPerStep = 0;
+        for (int w = 1; w < WINDOWS; w++) {
+            worstNsPerStep = Math.max(worstNsPerStep, (double) windowNanos[w] / windowSteps[w]);
+        }
+        System.out.printf("soak: %.1fh simulated, %d spawns, %.0f ns/step first, %.0f ns/step worst, "
+                        + "heap growth %d bytes, allocated %d bytes%n",
+                simulated / 3600_000.0, player.spawns, firstNsPerStep, worstNsPerStep, heapGrowth, allocated);
+        assertTrue("step time drifted: " + worstNsPerStep + " vs " + firstNsPerStep,
+                worstNsPerStep < firstNsPerStep * 4 + 2000);
+        assertTrue("heap grew by " + heapGrowth, heapGrowth < 1024 * 1024);
+        if (canCountAllocations) {
+            // 稳态下推进和击中都不分配内存，只允许计时代码本身的少量开销
+            assertTrue("steady state allocated " + allocated + " bytes", allocated < 64 * 1024);
+        }
+    }
+
+    @Test
+    public void endlessEndsAfterTooManyMisses() {
+        BoardSpec spec = BoardSpec.square(5);
+        GameCore core = new GameCore(spec, spec.getHoleCount(), true, true, new Random(7));
+        PerfectPlayer idle = new PerfectPlayer(spec.getHoleCount());
+        core.setListener(idle);
+        core.start();
+        long simulated = 0;
+        while (core.isRunning() && simulated < 3600_000L) {
+            long step = core.getMillisUntilNextEvent();
+            core.advance(step); // 从不击打
+            simulated += step;
+        }
+        assertTrue(idle.over);
+        assertTrue(core.getMisses() >= GameCore.MAX_MISSES);
+    }
+
+    @Test
+    public void timedModeStillLastsSixtySeconds() {
+        GameCore core = new GameCore(BoardSpec.CLASSIC, 9, true, false, new Random(1));
+        PerfectPlayer player = new PerfectPlayer(9);
+        core.setListener(player);
+        core.start();
+        long simulated = 0;
+        while (core.isRunning()) {
+            long step = core.getMillisUntilNextEvent();
+            player.hitAll(core);
+            core.advance(step);
+            simulated += step;
+        }
+        assertTrue(player.over);
+        assertEquals(GameCore.INITIAL_PLAY_TIME, simulated);
+        assertEquals(BoardSpec.CLASSIC.maxMoles, core.getMouseCount());
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads, boolean supported) {
+        if (!supported) return 0;
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
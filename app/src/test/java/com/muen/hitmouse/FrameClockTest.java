@@ -0,0 +1,168 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.view.Choreographer;
+import org.junit.Test;
+
+// 帧时钟测试：用假的垂直同步按指定帧时间回调，检查只有客户端要帧时才请求垂直同步、同一帧的多次请求只回调一次、
+// 高刷屏上按所选帧率跳过多余的垂直同步而普通抖动不跳帧，以及取消、停止和客户端数量上限
+public class FrameClockTest {
+    private static final long HZ_120 = 1_000_000_000L / 120;
+    private static final long HZ_60 = 1_000_000_000L / 60;
+
+    // 假的垂直同步：记录请求次数，vsync 时回调当前挂起的请求
+    private static class FakeVsync implements FrameClock.Vsync {
+        Choreographer.FrameCallback pending;
+        int posts;
+        long now;
+
+        @Override
+        public void postFrameCallback(Choreographer.FrameCallback callback) {
+            pending = callback;
+            posts++;
+        }
+
+        @Override
+        public void removeFrameCallback(Choreographer.FrameCallback callback) {
+            if (pending == callback) pending = null;
+        }
+
+        // 推进 intervalNanos 后发出一次垂直同步，没有挂起的请求时主线程不被唤醒，返回 false
+        boolean vsync(long intervalNanos) {
+            now += intervalNanos;
+            Choreographer.FrameCallback callback = pending;
+            if (callback == null) return false;
+            pending = null;
+            callback.doFrame(now);
+            return true;
+        }
+    }
+
+    // 需要 remaining 帧的客户端
+    private static class Client implements FrameClock.Client {
+        int frames;
+        int remaining;
+        long lastFrameMillis;
+
+        Client(int remaining) {
+            this.remaining = remaining;
+        }
+
+        @Override
+        public boolean onFrame(long frameTimeMillis) {
+            frames++;
+            lastFrameMillis = frameTimeMillis;
+            return --remaining > 0;
+        }
+    }
+
+    private final FakeVsync vsync = new FakeVsync();
+
+    @Test
+    public void vsyncIsRequestedOnlyWhileClientsWantFrames() {
+        FrameClock clock = new FrameClock(FrameClock.MODE_60, vsync);
+        assertFalse(vsync.vsync(HZ_60)); // 没有客户端要帧，不请求垂直同步
+        assertEquals(0, vsync.posts);
+
+        Client client = new Client(1);
+        clock.request(client);
+        clock.request(client); // 同一帧内的第二次请求
+        assertEquals(1, vsync.posts);
+        assertTrue(vsync.vsync(HZ_60));
+        assertEquals(1, client.frames);
+        assertEquals(vsync.now / 1_000_000L, client.lastFrameMillis);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(vsync.vsync(HZ_60)); // 客户端不再要帧，主线程不被唤醒
+        }
+
+        Client animation = new Client(5);
+        clock.request(animation);
+        int woken = 0;
+        while (vsync.vsync(HZ_60)) {
+            woken++;
+        }
+        assertEquals(5, woken);
+        assertEquals(5, animation.frames);
+        assertEquals(1, client.frames); // 没有再次请求的客户端不被回调
+        assertEquals(6, clock.getFrameCount());
+    }
+
+    @Test
+    public void highRefreshDisplaySkipsVsyncsAboveRate() {
+        FrameClock clock = new FrameClock(FrameClock.MODE_60, vsync);
+        Client client = new Client(Integer.MAX_VALUE);
+        clock.request(client);
+        for (int i = 0; i < 120; i++) {
+            assertTrue(vsync.vsync(HZ_120)); // 跳过的垂直同步也会重新请求下一次
+        }
+        assertEquals(60, client.frames);
+        assertEquals(60, clock.getFrameCount());
+        assertEquals(60, clock.getSkippedCount());
+
+        FrameClock fast = new FrameClock(FrameClock.MODE_120, new FakeVsync());
+        assertEquals(120, fast.getRate());
+        assertEquals(8, fast.getStepMillis());
+    }
+
+    @Test
+    public void powerSaveRunsAtThirtyHz() {
+        FrameClock clock = new FrameClock(FrameClock.MODE_POWER_SAVE, vsync);
+        assertTrue(clock.isPowerSave());
+        Client client = new Client(Integer.MAX_VALUE);
+        clock.request(client);
+        for (int i = 0; i < 120; i++) {
+            vsync.vsync(HZ_120);
+        }
+        assertEquals(30, client.frames);
+        assertEquals(90, clock.getSkippedCount());
+    }
+
+    @Test
+    public void vsyncJitterDoesNotSkipFrames() {
+        FrameClock clock = new FrameClock(FrameClock.MODE_60, vsync);
+        Client client = new Client(Integer.MAX_VALUE);
+        clock.request(client);
+        for (int i = 0; i < 60; i++) {
+            vsync.vsync(i % 2 == 0 ? HZ_60 - 2_000_000L : HZ_60 + 2_000_000L); // 14.7ms 和 18.7ms 交替
+        }
+        assertEquals(60, client.frames);
+        assertEquals(0, clock.getSkippedCount());
+    }
+
+    @Test
+    public void cancelAndStopDropRequests() {
+        FrameClock clock = new FrameClock(FrameClock.MODE_60, vsync);
+        Client cancelled = new Client(1);
+        Client other = new Client(1);
+        clock.request(cancelled);
+        clock.request(other);
+        clock.cancel(cancelled);
+        vsync.vsync(HZ_60);
+        assertEquals(0, cancelled.frames);
+        assertEquals(1, other.frames);
+
+        clock.request(cancelled);
+        clock.stop();
+        assertFalse(vsync.vsync(HZ_60)); // 已挂起的请求被移除
+        assertEquals(0, cancelled.frames);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void tooManyClientsIsRejected() {
+        FrameClock clock = new FrameClock(FrameClock.MODE_60, vsync);
+        Client[] clients = new Client[4];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new Client(1);
+            clock.request(clients[i]);
+        }
+        clock.request(clients[0]); // 已登记的客户端再次请求不占新的位置
+        vsync.vsync(HZ_60);
+        for (Client client : clients) {
+            assertEquals(1, client.frames);
+        }
+        clock.request(new Client(1));
+    }
+}
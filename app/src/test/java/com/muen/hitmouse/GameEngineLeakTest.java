@@ -0,0 +1,193 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.junit.Test;
+
+// 引擎泄漏测试：模拟页面因配置变化销毁重建，解除绑定后旧页面必须能被回收，
+// 对局在没有页面时继续推进，新页面绑定后一次拿到完整状态，页面不在时结束的对局在绑定时补发通知
+public class GameEngineLeakTest {
+    private static final BoardSpec SPEC = BoardSpec.square(3);
+
+    // 虚拟主线程：按到期时间执行投递的任务
+    private static class VirtualLooper implements GameScheduler.Backend, GameLoop.Clock {
+        private final PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        private final Map<Long, Runnable> tasks = new HashMap<>();
+        private long now = 0;
+        private long sequence = 0;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            long id = sequence++;
+            tasks.put(id, task);
+            queue.add(new long[]{now + delayMs, id});
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+
+        void runFor(long millis) {
+            long until = now + millis;
+            while (!queue.isEmpty() && queue.peek()[0] <= until) {
+                long[] next = queue.poll();
+                now = next[0];
+                tasks.remove(next[1]).run();
+            }
+            now = until;
+        }
+    }
+
+    // 假页面：记录引擎推送的最新状态，附带一块大数组模拟页面持有的视图和位图
+    private static class FakeRenderer implements GameEngine.Renderer {
+        final byte[] views = new byte[4 << 20];
+        final boolean[] visible = new boolean[SPEC.getHoleCount()];
+        String scoreText;
+        String timeText;
+        int spawns;
+        int gameOvers;
+
+        @Override
+        public void showMoles(int[] slots, int count, float[] positions) {
+            clearMoles();
+            for (int i = 0; i < count; i++) {
+                visible[slots[i]] = true;
+            }
+        }
+
+        @Override
+        public void hideMole(int slot) {
+            visible[slot] = false;
+        }
+
+        @Override
+        public void clearMoles() {
+            for (int i = 0; i < visible.length; i++) {
+                visible[i] = false;
+            }
+        }
+
+        @Override
+        public int hitTest(float x, float y, float[] outBounds) {
+            return -1;
+        }
+
+        @Override
+        public void setScoreText(CharSequence text) {
+            scoreText = text.toString();
+        }
+
+        @Override
+        public void setTimeText(String text) {
+            timeText = text;
+        }
+
+        @Override
+        public void onSpawn() {
+            spawns++;
+        }
+
+        @Override
+        public void onEventsPublished() {
+        }
+
+        @Override
+        public void onGameOver() {
+            gameOvers++;
+        }
+
+        int visibleCount() {
+            int n = 0;
+            for (boolean v : visible) {
+                if (v) n++;
+            }
+            return n;
+        }
+    }
+
+    private final VirtualLooper looper = new VirtualLooper();
+    private final GameEngine engine = new GameEngine(new GameScheduler(looper), looper, SPEC, false, false);
+
+    // 绑定一个页面并开局，运行一段时间后解除绑定，返回指向旧页面的弱引用
+    private WeakReference<FakeRenderer> playThenDetach(long millis) {
+        FakeRenderer renderer = new FakeRenderer();
+        engine.attach(renderer);
+        engine.startGame();
+        looper.runFor(millis);
+        assertTrue(renderer.spawns > 0);
+        engine.detach(renderer);
+        return new WeakReference<>(renderer);
+    }
+
+    private static boolean collected(WeakReference<?> ref) throws InterruptedException {
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return ref.get() == null;
+    }
+
+    @Test
+    public void detachedRendererIsCollected() throws InterruptedException {
+        WeakReference<FakeRenderer> old = playThenDetach(5_000);
+        long before = engine.getGameTime();
+        looper.runFor(3_000); // 没有页面时引擎照常出鼠、计时，待执行的任务不引用页面
+        assertTrue(collected(old));
+        assertTrue(engine.getGameTime() >= before + 3_000);
+        assertFalse(engine.isGameOver());
+    }
+
+    @Test
+    public void reattachReceivesCurrentState() {
+        playThenDetach(5_000);
+        looper.runFor(3_000);
+        FakeRenderer renderer = new FakeRenderer();
+        engine.attach(renderer);
+        assertEquals("得分: " + engine.getCount(), renderer.scoreText);
+        assertEquals("剩余时间: " + (GameEngine.INITIAL_PLAY_TIME - 8_000) / 1000 + "秒", renderer.timeText);
+        assertTrue(renderer.visibleCount() > 0); // 场上仍在的地鼠原样显示，不重新开局
+        assertEquals(0, renderer.spawns);
+
+        looper.runFor(2_000);
+        assertTrue(renderer.spawns > 0); // 重新绑定后继续收到出鼠事件
+    }
+
+    @Test
+    public void gameOverWhileDetachedIsDeliveredOnce() {
+        WeakReference<FakeRenderer> old = playThenDetach(5_000);
+        looper.runFor(GameEngine.INITIAL_PLAY_TIME);
+        assertTrue(engine.isGameOver());
+        FakeRenderer previous = old.get();
+        if (previous != null) assertEquals(0, previous.gameOvers);
+
+        FakeRenderer renderer = new FakeRenderer();
+        engine.attach(renderer);
+        assertEquals(1, renderer.gameOvers);
+        assertEquals(0, renderer.visibleCount());
+        engine.detach(renderer);
+
+        FakeRenderer again = new FakeRenderer();
+        engine.attach(again); // 结算后再次重建，不重复通知
+        assertEquals(0, again.gameOvers);
+    }
+
+    @Test
+    public void detachIgnoresStaleRenderer() {
+        FakeRenderer first = new FakeRenderer();
+        FakeRenderer second = new FakeRenderer();
+        engine.attach(first);
+        engine.startGame();
+        engine.attach(second); // 新页面先于旧页面的 onDestroy 绑定
+        engine.detach(first);
+        looper.runFor(3_000);
+        assertTrue(second.spawns > 0);
+        assertTrue(second.visibleCount() > 0);
+    }
+}
@@ -0,0 +1,173 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.junit.Test;
+
+// 事件流测试：各消费者独立按序读取、落后一圈后跳过并计数、发布和读取不分配内存，
+// 以及引擎发布的事件与整局的规则结果一致
+public class GameEventRingTest {
+
+    // 记录读到的序号和各类事件数
+    private static class Collector implements GameEventRing.Consumer {
+        long lastSequence = -1;
+        long sum = 0;
+        final int[] counts = new int[8];
+        boolean ordered = true;
+
+        @Override
+        public void onEvent(GameEventRing.Event event) {
+            if (lastSequence >= 0 && event.sequence != lastSequence + 1) ordered = false;
+            lastSequence = event.sequence;
+            sum += event.value;
+            counts[event.type]++;
+        }
+    }
+
+    @Test
+    public void cursorsReadAtTheirOwnPace() {
+        GameEventRing ring = new GameEventRing(64);
+        GameEventRing.Cursor fast = ring.newCursor();
+        GameEventRing.Cursor slow = ring.newCursor();
+        Collector fastCollector = new Collector();
+        Collector slowCollector = new Collector();
+        for (int i = 0; i < 60; i++) {
+            ring.publish(GameEventRing.TICK, i, -1, i, 0);
+            fast.poll(fastCollector); // 每个事件都读
+            if (i % 20 == 19) slow.poll(slowCollector); // 攒够 20 个再读
+        }
+        assertTrue(fastCollector.ordered && slowCollector.ordered);
+        assertEquals(59, fastCollector.lastSequence);
+        assertEquals(59, slowCollector.lastSequence);
+        assertEquals(59 * 60 / 2, fastCollector.sum);
+        assertEquals(fastCollector.sum, slowCollector.sum);
+        assertFalse(slow.hasPending());
+        assertEquals(0, slow.getLostCount());
+    }
+
+    @Test
+    public void laggingCursorSkipsOverwrittenEvents() {
+        GameEventRing ring = new GameEventRing(8);
+        GameEventRing.Cursor cursor = ring.newCursor();
+        for (int i = 0; i < 20; i++) {
+            ring.publish(GameEventRing.SPAWN, i, i, 1, 0);
+        }
+        Collector collector = new Collector();
+        assertEquals(8, cursor.poll(collector)); // 只剩最近一圈
+        assertEquals(12, cursor.getLostCount());
+        assertEquals(19, collector.lastSequence);
+        assertTrue(collector.ordered);
+    }
+
+    @Test
+    public void newCursorStartsAfterPublishedEvents() {
+        GameEventRing ring = new GameEventRing(8);
+        ring.publish(GameEventRing.HIT, 0, 1, 1, 1);
+        GameEventRing.Cursor cursor = ring.newCursor();
+        assertEquals(0, cursor.poll(new Collector()));
+        ring.publish(GameEventRing.HIT, 1, 2, 1, 2);
+        assertEquals(1, cursor.poll(new Collector()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePowerOfTwo() {
+        new GameEventRing(100);
+    }
+
+    @Test
+    public void publishAndPollDoNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            return; // 无法统计分配的 JVM 上跳过
+        }
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+        GameEventRing ring = new GameEventRing();
+        GameEventRing.Cursor every = ring.newCursor();
+        GameEventRing.Cursor lagging = ring.newCursor();
+        Collector collector = new Collector();
+        long bytes = 0;
+        for (int round = 0; round < 2; round++) { // 第一轮预热
+            long threadId = Thread.currentThread().getId();
+            long before = counter.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 100_000; i++) {
+                ring.publish(GameEventRing.HIT, i, i & 15, 1, i, i, i, 64, 64);
+                every.poll(collector);
+                if ((i & 4095) == 0) lagging.poll(collector);
+            }
+            bytes = counter.getThreadAllocatedBytes(threadId) - before;
+        }
+        System.out.printf("event ring: 100000 events, %d bytes allocated%n", bytes);
+        assertEquals(0, bytes);
+    }
+
+    // 虚拟主线程：按到期时间执行投递的任务
+    private static class VirtualLooper implements GameScheduler.Backend, GameLoop.Clock {
+        private final PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        private final Map<Long, Runnable> tasks = new HashMap<>();
+        private long now = 0;
+        private long sequence = 0;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            long id = sequence++;
+            tasks.put(id, task);
+            queue.add(new long[]{now + delayMs, id});
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+
+        void runUntil(long until) {
+            while (!queue.isEmpty() && queue.peek()[0] <= until) {
+                long[] next = queue.poll();
+                now = next[0];
+                tasks.remove(next[1]).run();
+            }
+            now = until;
+        }
+    }
+
+    // 没有页面时跑完一局限时对局：每秒一个计时事件，失误事件累加等于结束时的总失误
+    @Test
+    public void engineEventsMatchTheGame() {
+        VirtualLooper looper = new VirtualLooper();
+        GameEngine engine = new GameEngine(new GameScheduler(looper), looper, BoardSpec.square(3), false, false);
+        GameEventRing.Cursor cursor = engine.getEvents().newCursor();
+        int[] misses = new int[1];
+        int[] gameOvers = new int[1];
+        Collector collector = new Collector() {
+            @Override
+            public void onEvent(GameEventRing.Event event) {
+                super.onEvent(event);
+                if (event.type == GameEventRing.MISS) misses[0] += event.value;
+                if (event.type == GameEventRing.GAME_OVER) {
+                    gameOvers[0]++;
+                    assertEquals(misses[0], event.total);
+                }
+            }
+        };
+        engine.startGame();
+        for (long t = 0; t <= GameEngine.INITIAL_PLAY_TIME + 1_000; t += 1_000) {
+            looper.runUntil(t);
+            cursor.poll(collector); // 录制的读取节奏
+        }
+        assertTrue(engine.isGameOver());
+        assertTrue(collector.ordered);
+        assertEquals(0, cursor.getLostCount());
+        assertEquals(1, gameOvers[0]);
+        assertEquals(GameEngine.INITIAL_PLAY_TIME / 1000, collector.counts[GameEventRing.TICK]);
+        assertTrue(collector.counts[GameEventRing.SPAWN] > 0);
+        assertTrue(misses[0] > 0);
+        assertEquals(0, collector.counts[GameEventRing.HIT]);
+    }
+}
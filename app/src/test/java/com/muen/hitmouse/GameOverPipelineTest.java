@@ -0,0 +1,74 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+// 结算流水线测试：预读还在后台时结算已在主线程自己读了摘要，之后晚到的预读结果不能覆盖，
+// 否则下一局结算会拿到保存本局之前的旧摘要
+public class GameOverPipelineTest {
+    private final MainThreadBudgetTest.CountingPreferences preferences = new MainThreadBudgetTest.CountingPreferences();
+    private final CountDownLatch prefetchRead = new CountDownLatch(1);
+    private final CountDownLatch releasePrefetch = new CountDownLatch(1);
+    private int foregroundReads = 0; // 不在后台线程读摘要的次数
+
+    // 后台线程中读完摘要后停住，模拟预读在结算之后才写回
+    private final RecordStore store = new RecordStore(preferences) {
+        @Override
+        public Summary summarize() {
+            Summary summary = super.summarize();
+            if (Thread.currentThread().getName().equals("GameOver")) {
+                prefetchRead.countDown();
+                try {
+                    releasePrefetch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                foregroundReads++;
+            }
+            return summary;
+        }
+    };
+
+    private static void drainBackground() throws InterruptedException {
+        CountDownLatch drained = new CountDownLatch(1);
+        GameOverPipeline.runInBackground(drained::countDown);
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void latePrefetchDoesNotOverwriteSummary() throws InterruptedException {
+        GameOverPipeline pipeline = new GameOverPipeline(store);
+        pipeline.prefetch();
+        assertTrue(prefetchRead.await(5, TimeUnit.SECONDS)); // 预读已读到没有记录的旧状态
+
+        RecordStore.Summary first = pipeline.takeSummary(); // 对局很快结束，在主线程读
+        assertEquals(0, first.getPreviousHighScore());
+        store.saveGame(1000, 42);
+
+        releasePrefetch.countDown(); // 旧的预读此时才写回
+        drainBackground();
+
+        RecordStore.Summary second = pipeline.takeSummary();
+        assertEquals(42, second.getPreviousHighScore());
+        assertEquals(2, second.getGameCount()); // 上一局和本局
+    }
+
+    @Test
+    public void prefetchAfterTakeIsUsed() throws InterruptedException {
+        releasePrefetch.countDown();
+        GameOverPipeline pipeline = new GameOverPipeline(store);
+        pipeline.takeSummary();
+        store.saveGame(1000, 7);
+        pipeline.prefetch(); // 下一局开始后的预读
+        drainBackground();
+        int reads = foregroundReads;
+        RecordStore.Summary summary = pipeline.takeSummary();
+        assertEquals(reads, foregroundReads); // 直接使用预读结果，不在主线程读
+        assertEquals(7, summary.getPreviousHighScore());
+    }
+}
@@ -0,0 +1,122 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+// 调度器测试：代号加一之前投递的任务在重新开始后被丢弃而不执行；复用的任务包装对象在仍排队时不会被再次使用；
+// 执行和丢弃混合之后，投递数始终等于排队、已执行和已丢弃之和
+public class GameSchedulerTest {
+    // 手动执行的后端：按投递顺序保存任务，由测试决定何时执行哪一个
+    private static class ManualBackend implements GameScheduler.Backend {
+        final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            queue.add(task);
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+
+    private final ManualBackend backend = new ManualBackend();
+    private final GameScheduler scheduler = new GameScheduler(backend);
+    private final List<String> ran = new ArrayList<>();
+
+    private Runnable log(String name) {
+        return () -> ran.add(name);
+    }
+
+    @Test
+    public void tasksFromPreviousGenerationAreDropped() {
+        scheduler.post(log("spawn"));
+        scheduler.postDelayed(log("hide"), 800);
+        scheduler.advanceGeneration(); // 暂停或重新开始
+        scheduler.postDelayed(log("tick"), 1000);
+        assertEquals(3, scheduler.getQueuedCount());
+
+        backend.runAll();
+        assertEquals(1, ran.size());
+        assertEquals("tick", ran.get(0));
+        assertEquals(1, scheduler.getExecutedCount());
+        assertEquals(2, scheduler.getDroppedCount());
+        assertEquals(0, scheduler.getQueuedCount());
+        assertEquals(1, scheduler.getGeneration());
+    }
+
+    @Test
+    public void queuedTasksAreNeverReused() {
+        for (int i = 0; i < 8; i++) {
+            scheduler.post(log("a" + i));
+        }
+        assertDistinct(backend.queue);
+
+        Runnable first = backend.queue.remove(0);
+        first.run();
+        scheduler.post(log("b")); // 复用刚执行完的包装对象
+        assertSame(first, backend.queue.get(backend.queue.size() - 1));
+        assertDistinct(backend.queue);
+
+        // 任务在执行中再投递（GameLoop 每次推进都这样做）：自己的包装对象已经出队，可以被复用
+        Runnable[] self = new Runnable[1];
+        self[0] = () -> {
+            ran.add("repost");
+            if (ran.size() < 10) scheduler.post(self[0]);
+        };
+        backend.runAll();
+        ran.clear();
+        scheduler.post(self[0]);
+        while (!backend.queue.isEmpty()) {
+            assertDistinct(backend.queue);
+            backend.queue.remove(0).run();
+        }
+        assertEquals(10, ran.size());
+        assertEquals(0, scheduler.getQueuedCount());
+    }
+
+    @Test
+    public void countersBalanceAcrossRunsAndDrops() {
+        Random random = new Random(30);
+        long posted = 0;
+        for (int step = 0; step < 10_000; step++) {
+            int action = random.nextInt(10);
+            if (action < 5) {
+                scheduler.postDelayed(log("task"), random.nextInt(1000));
+                posted++;
+            } else if (action < 9 && !backend.queue.isEmpty()) {
+                backend.queue.remove(random.nextInt(backend.queue.size())).run(); // Handler 按到期时间执行，顺序不一定是投递顺序
+            } else {
+                scheduler.advanceGeneration();
+            }
+            assertEquals(backend.queue.size(), scheduler.getQueuedCount());
+            assertEquals(posted, scheduler.getQueuedCount() + scheduler.getExecutedCount() + scheduler.getDroppedCount());
+        }
+        scheduler.advanceGeneration();
+        long executed = scheduler.getExecutedCount();
+        backend.runAll();
+        assertEquals(executed, scheduler.getExecutedCount()); // 最后一次代号加一之后全部丢弃
+        assertEquals(ran.size(), scheduler.getExecutedCount());
+        assertEquals(posted, scheduler.getExecutedCount() + scheduler.getDroppedCount());
+        assertTrue(scheduler.getDroppedCount() > 0);
+        assertFalse(scheduler.toString().isEmpty());
+    }
+
+    private static void assertDistinct(List<Runnable> queue) {
+        Map<Runnable, Boolean> seen = new IdentityHashMap<>();
+        for (Runnable task : queue) {
+            assertTrue("task wrapper queued twice", seen.put(task, true) == null);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// 录像往返测试：引擎边玩边录，回放出的每一波地鼠和每次击中与现场一致，最终得分相同；
+// 大棋盘的无尽对局录像完整，文件头带有录制时的难度模式，截断、缺少结束记录或得分被改过的文件在打开时被拒绝
+public class GhostPlayerTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    // 虚拟主线程：按到期时间执行投递的任务
+    private static class VirtualLooper implements GameScheduler.Backend, GameLoop.Clock {
+        private final PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        private final Map<Long, Runnable> tasks = new HashMap<>();
+        private long now = 0;
+        private long sequence = 0;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            long id = sequence++;
+            tasks.put(id, task);
+            queue.add(new long[]{now + delayMs, id});
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+
+        void runFor(long millis) {
+            long until = now + millis;
+            while (!queue.isEmpty() && queue.peek()[0] <= until) {
+                long[] next = queue.poll();
+                now = next[0];
+                tasks.remove(next[1]).run();
+            }
+            now = until;
+        }
+    }
+
+    // 假页面：记下显示过的每一波地鼠；点击坐标 x 即洞的编号，洞里有地鼠才算命中
+    private static class FakeRenderer implements GameEngine.Renderer {
+        final boolean[] visible;
+        final List<int[]> waves = new ArrayList<>();
+
+        FakeRenderer(int holeCount) {
+            visible = new boolean[holeCount];
+        }
+
+        @Override
+        public void showMoles(int[] slots, int count, float[] positions) {
+            clearMoles();
+            for (int i = 0; i < count; i++) {
+                visible[slots[i]] = true;
+            }
+            waves.add(Arrays.copyOf(slots, count));
+        }
+
+        @Override
+        public void hideMole(int slot) {
+            visible[slot] = false;
+        }
+
+        @Override
+        public void clearMoles() {
+            Arrays.fill(visible, false);
+        }
+
+        @Override
+        public int hitTest(float x, float y, float[] outBounds) {
+            int hole = (int) x;
+            return visible[hole] ? hole : -1;
+        }
+
+        @Override
+        public void setScoreText(CharSequence text) {
+        }
+
+        @Override
+        public void setTimeText(String text) {
+        }
+
+        @Override
+        public void onSpawn() {
+        }
+
+        @Override
+        public void onEventsPublished() {
+        }
+
+        @Override
+        public void onGameOver() {
+        }
+
+        int firstVisible() {
+            for (int i = 0; i < visible.length; i++) {
+                if (visible[i]) return i;
+            }
+            return -1;
+        }
+    }
+
+    // 回放结果
+    private static class Replay implements GhostPlayer.Listener {
+        final List<int[]> waves = new ArrayList<>();
+        final List<int[]> hits = new ArrayList<>(); // slot, score
+
+        @Override
+        public void onGhostWave(int[] slots, int count) {
+            waves.add(Arrays.copyOf(slots, count));
+        }
+
+        @Override
+        public void onGhostHit(int slot, int score) {
+            hits.add(new int[]{slot, score});
+        }
+    }
+
+    // 一局录制的现场记录
+    private static class Session {
+        File file;
+        int score;
+        List<int[]> waves;
+        final List<int[]> hits = new ArrayList<>();
+    }
+
+    private Session record(BoardSpec spec, boolean endless, long tapMillis) throws Exception {
+        return record(spec, endless, tapMillis, null);
+    }
+
+    // 录制一局：每 tapMillis 点一次场上的第一只地鼠，tapMillis 为 0 时从不点击；difficulty 为 null 时用引擎默认的自适应难度
+    private Session record(BoardSpec spec, boolean endless, long tapMillis, DifficultyController difficulty) throws Exception {
+        VirtualLooper looper = new VirtualLooper();
+        GameEngine engine = new GameEngine(new GameScheduler(looper), looper, spec, false, endless);
+        if (difficulty != null) engine.setDifficulty(difficulty);
+        FakeRenderer renderer = new FakeRenderer(spec.getHoleCount());
+        Session session = new Session();
+        session.file = SessionFile.ghostFile(folder.getRoot(), spec.rows, spec.cols, endless);
+        engine.attach(renderer);
+        engine.setRecorder(new SessionRecorder(session.file, spec.rows, spec.cols, endless));
+        engine.startGame();
+        long step = tapMillis > 0 ? tapMillis : 1_000;
+        for (long t = 0; !engine.isGameOver() && t < 30 * 60 * 1000L; t += step) {
+            looper.runFor(step);
+            int hole = renderer.firstVisible();
+            if (tapMillis > 0 && hole >= 0 && engine.hitMouse(hole, 0)) {
+                session.hits.add(new int[]{hole, engine.getLastScore()});
+            }
+        }
+        assertTrue(engine.isGameOver());
+        engine.finishRecording();
+        session.score = engine.getCount();
+        session.waves = renderer.waves;
+        for (int i = 0; i < 200 && !session.file.exists(); i++) {
+            Thread.sleep(10); // 写线程异步收尾
+        }
+        assertTrue(session.file.exists());
+        return session;
+    }
+
+    private static Replay replay(GhostPlayer ghost) {
+        Replay replay = new Replay();
+        ghost.advanceTo(Integer.MAX_VALUE, replay);
+        return replay;
+    }
+
+    private static void assertSameEvents(List<int[]> expected, List<int[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void replayMatchesRecordedGame() throws Exception {
+        BoardSpec spec = BoardSpec.square(3);
+        Session session = record(spec, false, 150);
+        assertTrue(session.hits.size() > 0);
+
+        GhostPlayer ghost = GhostPlayer.open(session.file, spec.rows, spec.cols, false);
+        assertNotNull(ghost);
+        assertEquals(session.score, ghost.getFinalScore());
+        Replay replay = replay(ghost);
+        assertSameEvents(session.waves, replay.waves);
+        assertSameEvents(session.hits, replay.hits);
+        assertEquals(session.score, ghost.getScore());
+        assertTrue(ghost.isFinished());
+        assertFalse(ghost.isFixedDifficulty());
+        assertNull(GhostPlayer.open(session.file, spec.rows, spec.cols, true)); // 玩法不同
+    }
+
+    @Test
+    public void fixedDifficultyIsStoredInHeader() throws Exception {
+        BoardSpec spec = BoardSpec.square(4);
+        Session session = record(spec, true, 150, DifficultyController.fixed());
+
+        GhostPlayer ghost = GhostPlayer.open(session.file, spec.rows, spec.cols, true);
+        assertNotNull(ghost);
+        assertTrue(ghost.isFixedDifficulty()); // 与它比赛的玩家也使用固定难度
+        assertNull(GhostPlayer.open(session.file, spec.rows, spec.cols, false));
+    }
+
+    @Test
+    public void largeEndlessBoardRecordsEveryWave() throws Exception {
+        BoardSpec spec = BoardSpec.square(BoardSpec.MAX_SIZE);
+        Session session = record(spec, true, 0);
+
+        GhostPlayer ghost = GhostPlayer.open(session.file, spec.rows, spec.cols, true);
+        assertNotNull(ghost); // 每波数百只地鼠也没有让录制落后一圈
+        Replay replay = replay(ghost);
+        assertSameEvents(session.waves, replay.waves);
+        assertEquals(0, replay.hits.size());
+    }
+
+    @Test
+    public void damagedRecordingIsRejected() throws Exception {
+        BoardSpec spec = BoardSpec.square(3);
+        Session session = record(spec, false, 150);
+        byte[] bytes = Files.readAllBytes(session.file.toPath());
+        int records = (bytes.length - SessionFile.HEADER_SIZE) / SessionFile.RECORD_SIZE;
+
+        // 去掉第一波的最后一只地鼠：波次声明的条数对不上
+        int firstWaveEnd = SessionFile.HEADER_SIZE + (1 + session.waves.get(0).length) * SessionFile.RECORD_SIZE;
+        assertNull(openCopy(spec, cut(bytes, firstWaveEnd - SessionFile.RECORD_SIZE, SessionFile.RECORD_SIZE)));
+        // 没有结束记录
+        assertNull(openCopy(spec, Arrays.copyOf(bytes, bytes.length - SessionFile.RECORD_SIZE)));
+        // 末尾半条记录
+        assertNull(openCopy(spec, Arrays.copyOf(bytes, bytes.length - 3)));
+        // 文件头的得分与击中记录不符
+        byte[] score = bytes.clone();
+        ByteBuffer.wrap(score).putInt(SessionFile.SCORE_OFFSET, session.score + 1);
+        assertNull(openCopy(spec, score));
+
+        assertNotNull(openCopy(spec, bytes));
+        assertTrue(records > session.waves.size());
+    }
+
+    private GhostPlayer openCopy(BoardSpec spec, byte[] bytes) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), bytes);
+        return GhostPlayer.open(file, spec.rows, spec.cols, false);
+    }
+
+    private static byte[] cut(byte[] bytes, int offset, int length) {
+        byte[] out = new byte[bytes.length - length];
+        System.arraycopy(bytes, 0, out, 0, offset);
+        System.arraycopy(bytes, offset + length, out, offset, bytes.length - offset - length);
+        return out;
+    }
+}
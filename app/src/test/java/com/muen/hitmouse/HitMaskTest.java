@@ -0,0 +1,90 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+
+// 命中区域测试：圆形精灵四角的透明区域点不中，边界外的坐标点不中，
+// fitCenter 留出的空白点不中，预计算位图与从像素生成的结果一致
+public class HitMaskTest {
+    private static final int SIZE = 96; // 超过 64 位，跨越一个字
+
+    @Test
+    public void transparentCornersDoNotHit() {
+        HitMask mask = BotHarness.discMask(SIZE);
+        float far = SIZE - 0.01f;
+        assertFalse(mask.contains(0, 0));
+        assertFalse(mask.contains(far, 0));
+        assertFalse(mask.contains(0, far));
+        assertFalse(mask.contains(far, far));
+        assertFalse(mask.contains(SIZE * 0.1f, SIZE * 0.1f)); // 圆外的对角方向
+        assertTrue(mask.contains(SIZE / 2f, SIZE / 2f));
+        assertTrue(mask.contains(SIZE / 2f, 1)); // 圆的上边缘
+        assertTrue(mask.contains(SIZE - 1.5f, SIZE / 2f)); // 右边缘，位于第二个字中
+    }
+
+    @Test
+    public void coordinatesOutsideMaskDoNotHit() {
+        HitMask mask = HitMask.filled(SIZE, SIZE);
+        assertTrue(mask.contains(0, 0));
+        assertTrue(mask.contains(SIZE - 0.01f, SIZE - 0.01f));
+        assertFalse(mask.contains(-0.01f, 10));
+        assertFalse(mask.contains(10, -0.01f));
+        assertFalse(mask.contains(SIZE, 10));
+        assertFalse(mask.contains(10, SIZE));
+        assertEquals(SIZE * SIZE, mask.countSetBits());
+    }
+
+    @Test
+    public void fitCenterMarginsDoNotHit() {
+        // 10x20 的不透明图片放进 40x40 的视图：放大两倍，左右各留 10 像素空白
+        int[] argb = new int[10 * 20];
+        Arrays.fill(argb, 0xFF000000);
+        HitMask mask = HitMask.fromArgbFitCenter(argb, 10, 20, 40, 40, HitMask.DEFAULT_ALPHA_THRESHOLD);
+        assertFalse(mask.contains(9.99f, 20));
+        assertTrue(mask.contains(10, 20));
+        assertTrue(mask.contains(29.99f, 20));
+        assertFalse(mask.contains(30, 20));
+        assertTrue(mask.contains(20, 0));
+        assertTrue(mask.contains(20, 39.99f));
+        assertEquals(20 * 40, mask.countSetBits());
+    }
+
+    @Test
+    public void alphaBelowThresholdDoesNotHit() {
+        int[] argb = {0x7F000000, 0x80000000};
+        HitMask mask = HitMask.fromArgbFitCenter(argb, 2, 1, 2, 1, HitMask.DEFAULT_ALPHA_THRESHOLD);
+        assertFalse(mask.contains(0.5f, 0.5f));
+        assertTrue(mask.contains(1.5f, 0.5f));
+    }
+
+    @Test
+    public void precomputedMaskMatchesPixels() {
+        int src = 70;
+        HitMask disc = BotHarness.discMask(src);
+        int[] argb = new int[src * src];
+        int wordsPerRow = (src + 63) >>> 6;
+        long[] bits = new long[wordsPerRow * src];
+        for (int y = 0; y < src; y++) {
+            for (int x = 0; x < src; x++) {
+                if (disc.contains(x, y)) {
+                    argb[y * src + x] = 0xFF000000;
+                    bits[y * wordsPerRow + (x >>> 6)] |= 1L << (x & 63);
+                }
+            }
+        }
+        HitMask fromPixels = HitMask.fromArgbFitCenter(argb, src, src, 150, 120, HitMask.DEFAULT_ALPHA_THRESHOLD);
+        HitMask fromBits = HitMask.fromMaskFitCenter(LongBuffer.wrap(bits), src, src, 150, 120);
+        for (int y = 0; y < 120; y++) {
+            for (int x = 0; x < 150; x++) {
+                assertEquals("(" + x + ", " + y + ")", fromPixels.contains(x, y), fromBits.contains(x, y));
+            }
+        }
+        assertFalse(fromBits.contains(15, 0)); // 左右留白中的角落
+        assertTrue(fromBits.contains(75, 60));
+    }
+}
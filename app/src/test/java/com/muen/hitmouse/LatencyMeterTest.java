@@ -0,0 +1,68 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+// 延迟估算测试：用合成的触摸时间和帧数据检查延迟 = 垂直同步 + 帧耗时 + 一个刷新周期 - 事件时间，
+// 同一帧前的多个事件只按最早的计一次，帧开始后才到的事件留给下一帧，以及百分位和扣除预测后的感知延迟
+public class LatencyMeterTest {
+    private static final long MS = 1_000_000L;
+    private static final float DELTA = 0.001f;
+
+    private final LatencyMeter meter = new LatencyMeter(100f, 8); // 10ms 刷新周期，预测 8ms
+
+    @Test
+    public void latencyOfSingleFrame() {
+        assertEquals(0f, meter.getLatencyPercentile(50), 0f);
+        meter.onInput(1000);
+        meter.onFrame(1004 * MS, 6 * MS);
+        assertEquals(4 + 6 + 10, meter.getLatencyPercentile(50), DELTA);
+        assertEquals(20 - 8, meter.getPerceivedLatencyPercentile(50), DELTA);
+    }
+
+    @Test
+    public void earliestPendingEventIsMeasured() {
+        meter.onInput(1000);
+        meter.onInput(1003); // 同一帧之前的后续移动不覆盖最早的事件
+        meter.onFrame(999 * MS, 5 * MS); // 事件到达前已开始的帧不画它
+        meter.onFrame(1005 * MS, 5 * MS);
+        meter.onFrame(1015 * MS, 5 * MS); // 没有新的事件，不产生样本
+        assertEquals(5 + 5 + 10, meter.getLatencyPercentile(99), DELTA);
+        assertEquals(20, meter.getLatencyPercentile(0), DELTA);
+    }
+
+    @Test
+    public void percentilesOverSamples() {
+        for (int i = 1; i <= 100; i++) {
+            meter.onInput(i * 100L);
+            meter.onFrame((i * 100L + i) * MS, 0); // 第 i 个样本延迟 i + 10 毫秒
+        }
+        assertEquals(51 + 10, meter.getLatencyPercentile(50), DELTA);
+        assertEquals(91 + 10, meter.getLatencyPercentile(90), DELTA);
+        assertEquals(100 + 10, meter.getLatencyPercentile(99), DELTA);
+        assertEquals(51 + 10 - 8, meter.getPerceivedLatencyPercentile(50), DELTA);
+    }
+
+    @Test
+    public void oldSamplesLeaveWindow() {
+        for (int i = 0; i < 256; i++) {
+            meter.onInput(i * 100L);
+            meter.onFrame((i * 100L + 90) * MS, 0); // 很慢的一段
+        }
+        for (int i = 256; i < 512; i++) {
+            meter.onInput(i * 100L);
+            meter.onFrame(i * 100L * MS, 0);
+        }
+        assertEquals(10, meter.getLatencyPercentile(99), DELTA); // 窗口只保留最近 256 个样本
+        assertEquals(2, meter.getPerceivedLatencyPercentile(50), DELTA);
+    }
+
+    @Test
+    public void perceivedLatencyNeverNegative() {
+        LatencyMeter predicted = new LatencyMeter(100f, 50);
+        predicted.onInput(1000);
+        predicted.onFrame(1000 * MS, 0);
+        assertEquals(0, predicted.getPerceivedLatencyPercentile(50), DELTA);
+    }
+}
@@ -0,0 +1,378 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// 排行榜同步测试：客户端连接进程内的替身服务器，覆盖批量压缩上传、失败退避重试、发件箱跨重启保留、排名增量拉取，
+// 以及服务器卡住时 submit 也不阻塞调用线程
+public class LeaderboardClientTest {
+    private static final long TIMEOUT_MS = 10000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StandInServer server;
+    private final List<LeaderboardClient> clients = new ArrayList<>();
+
+    // 替身服务器：按 (玩家, 对局 id) 去重记分，每次最高分变化产生一个新版本，按版本返回排名增量
+    private static class StandInServer {
+        final HttpServer http;
+        final List<Integer> batchSizes = new ArrayList<>();
+        final List<Long> rankRequestsSince = new ArrayList<>();
+        final Map<Long, Set<Long>> seenGames = new HashMap<>();
+        final Map<Long, Integer> best = new HashMap<>();
+        final Map<Long, Long> changedAt = new LinkedHashMap<>(); // 玩家 -> 最后一次变化的版本（含移除）
+        final AtomicInteger failNext = new AtomicInteger(); // 接下来若干次上传返回 503
+        volatile CountDownLatch hold; // 不为空时上传请求卡住直到放行
+        boolean allGzip = true;
+        long version = 0;
+
+        StandInServer() throws IOException {
+            http = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            http.createContext("/scores", this::handleScores);
+            http.createContext("/ranks", this::handleRanks);
+            http.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + http.getAddress().getPort() + "/";
+        }
+
+        void handleScores(HttpExchange exchange) throws IOException {
+            CountDownLatch latch = hold;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            boolean gzip = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            byte[] body = readAll(gzip ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody());
+            if (failNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                reply(exchange, 503, new byte[0]);
+                return;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            synchronized (this) {
+                allGzip &= gzip;
+                long player = in.readLong();
+                int count = in.readUnsignedShort();
+                batchSizes.add(count);
+                Set<Long> seen = seenGames.computeIfAbsent(player, p -> new HashSet<>());
+                for (int i = 0; i < count; i++) {
+                    long id = in.readLong();
+                    in.readLong();
+                    int score = in.readInt();
+                    in.readByte();
+                    if (seen.add(id)) {
+                        setScore(player, Math.max(score, best.getOrDefault(player, 0)));
+                    }
+                }
+            }
+            reply(exchange, 204, null);
+        }
+
+        void handleRanks(HttpExchange exchange) throws IOException {
+            long since = 0;
+            for (String param : exchange.getRequestURI().getQuery().split("&")) {
+                if (param.startsWith("since=")) since = Long.parseLong(param.substring(6));
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            synchronized (this) {
+                rankRequestsSince.add(since);
+                if (since == version) {
+                    reply(exchange, 304, null);
+                    return;
+                }
+                boolean full = since == 0;
+                List<long[]> entries = new ArrayList<>();
+                for (Map.Entry<Long, Long> change : changedAt.entrySet()) {
+                    if (full && best.containsKey(change.getKey()) || !full && change.getValue() > since) {
+                        entries.add(new long[]{change.getKey(), best.getOrDefault(change.getKey(), -1)});
+                    }
+                }
+                try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+                    out.writeLong(version);
+                    out.writeByte(full ? 1 : 0);
+                    out.writeInt(entries.size());
+                    for (long[] entry : entries) {
+                        out.writeLong(entry[0]);
+                        out.writeInt((int) entry[1]);
+                    }
+                }
+            }
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            reply(exchange, 200, bytes.toByteArray());
+        }
+
+        synchronized void setScore(long player, int score) {
+            best.put(player, score);
+            changedAt.remove(player);
+            changedAt.put(player, ++version);
+        }
+
+        synchronized void remove(long player) {
+            best.remove(player);
+            changedAt.remove(player);
+            changedAt.put(player, ++version);
+        }
+
+        synchronized int acceptedGames(long player) {
+            Set<Long> seen = seenGames.get(player);
+            return seen == null ? 0 : seen.size();
+        }
+
+        synchronized List<Integer> batchSizes() {
+            return new ArrayList<>(batchSizes);
+        }
+
+        synchronized List<Long> rankRequests() {
+            return new ArrayList<>(rankRequestsSince);
+        }
+
+        static void reply(HttpExchange exchange, int status, byte[] body) throws IOException {
+            exchange.sendResponseHeaders(status, body == null || body.length == 0 ? -1 : body.length);
+            if (body != null && body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        }
+
+        static byte[] readAll(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    // 记录回调，供测试等待和断言
+    private static class Events implements LeaderboardClient.Listener {
+        final List<int[]> uploads = new ArrayList<>();
+        final List<long[]> failures = new ArrayList<>(); // attempt, retryInMs
+        volatile long ranksVersion = -1;
+        volatile int rank = -1;
+
+        @Override
+        public synchronized void onUploaded(int count, int pending) {
+            uploads.add(new int[]{count, pending});
+        }
+
+        @Override
+        public void onRanksUpdated(long version, int rank, int players) {
+            this.rank = rank;
+            this.ranksVersion = version;
+        }
+
+        @Override
+        public synchronized void onSyncFailed(String reason, int attempt, long retryInMs) {
+            failures.add(new long[]{attempt, retryInMs});
+        }
+
+        synchronized int uploaded() {
+            int total = 0;
+            for (int[] upload : uploads) {
+                total += upload[0];
+            }
+            return total;
+        }
+
+        synchronized List<long[]> failures() {
+            return new ArrayList<>(failures);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StandInServer();
+    }
+
+    @After
+    public void tearDown() {
+        for (LeaderboardClient client : clients) {
+            client.close();
+        }
+        CountDownLatch latch = server.hold;
+        if (latch != null) latch.countDown();
+        server.http.stop(0);
+    }
+
+    private LeaderboardClient newClient(File dir, Events events) {
+        LeaderboardClient client = new LeaderboardClient(server.url(), dir);
+        client.setListener(events);
+        client.setBackoff(20, 200);
+        clients.add(client);
+        return client;
+    }
+
+    private static void await(String what, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out waiting for " + what, System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void uploadsQueuedGamesInCompressedBatches() throws Exception {
+        server.hold = new CountDownLatch(1); // 先攒满发件箱，再一次性放行
+        Events events = new Events();
+        LeaderboardClient client = newClient(folder.newFolder(), events);
+        for (int i = 0; i < 70; i++) {
+            client.submit(1000 + i, i, LeaderboardClient.MODE_ENDLESS);
+        }
+        server.hold.countDown();
+        await("all games uploaded", () -> events.uploaded() == 70);
+        await("ranks fetched", () -> events.ranksVersion > 0);
+
+        long player = client.getPlayerIdBlocking();
+        assertEquals(70, server.acceptedGames(player));
+        assertTrue("uploads must be compressed", server.allGzip);
+        for (int size : server.batchSizes()) {
+            assertTrue("batch of " + size, size <= LeaderboardClient.MAX_BATCH);
+        }
+        assertTrue("games queued behind a slow upload go out together", server.batchSizes().size() <= 4); // 至多第一局单独一批
+        assertEquals(0, client.getPendingCountBlocking());
+        assertEquals(1, client.getRank());
+        assertArrayEquals(new int[]{69}, client.getTopScores(5));
+    }
+
+    @Test
+    public void retriesWithBackoffUntilDelivered() throws Exception {
+        server.failNext.set(4);
+        Events events = new Events();
+        LeaderboardClient client = newClient(folder.newFolder(), events);
+        for (int i = 0; i < 5; i++) {
+            client.submit(1000 + i, 10 + i, 0);
+        }
+        await("games delivered after retries", () -> events.uploaded() == 5);
+
+        List<long[]> failures = events.failures();
+        assertEquals(4, failures.size());
+        for (int i = 0; i < failures.size(); i++) {
+            long attempt = failures.get(i)[0];
+            long delay = failures.get(i)[1];
+            long cap = Math.min(200, 20L << i);
+            assertEquals(i + 1, attempt);
+            assertTrue("delay " + delay + " for attempt " + attempt, delay >= cap / 2 && delay <= cap);
+        }
+        assertEquals("retried batches must not double count", 5, server.acceptedGames(client.getPlayerIdBlocking()));
+        assertEquals(0, client.getPendingCountBlocking());
+    }
+
+    @Test
+    public void outboxSurvivesRestart() throws Exception {
+        File dir = folder.newFolder();
+        server.failNext.set(Integer.MAX_VALUE);
+        Events first = new Events();
+        LeaderboardClient offline = newClient(dir, first);
+        for (int i = 0; i < 4; i++) {
+            offline.submit(1000 + i, 20 + i, LeaderboardClient.MODE_HARD);
+        }
+        await("games queued", () -> {
+            try {
+                return offline.getPendingCountBlocking() == 4;
+            } catch (Exception e) {
+                return false;
+            }
+        });
+        long player = offline.getPlayerIdBlocking();
+        offline.close();
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "leaderboard_outbox"), true)) {
+            out.write(new byte[7]); // 模拟写到一半断电留下的残缺记录
+        }
+
+        server.failNext.set(0);
+        Events second = new Events();
+        LeaderboardClient restarted = newClient(dir, second);
+        await("queued games delivered after restart", () -> second.uploaded() == 4);
+        assertEquals(player, restarted.getPlayerIdBlocking());
+        assertEquals(4, server.acceptedGames(player));
+        assertEquals(0, restarted.getPendingCountBlocking());
+    }
+
+    @Test
+    public void fetchesRankDeltasSinceLastVersion() throws Exception {
+        server.setScore(101, 50);
+        server.setScore(102, 30);
+        server.setScore(103, 10);
+        File dir = folder.newFolder();
+        Events events = new Events();
+        LeaderboardClient client = newClient(dir, events);
+        client.submit(1000, 40, 0);
+        await("snapshot", () -> events.ranksVersion == 4);
+        assertEquals(2, client.getRank());
+        assertEquals(4, client.getPlayerCount());
+
+        server.remove(101);
+        server.setScore(104, 45);
+        client.refresh();
+        await("delta", () -> events.ranksVersion == 6);
+        assertEquals(2, client.getRank());
+        assertArrayEquals(new int[]{45, 40, 30}, client.getTopScores(3));
+        assertEquals(4, client.getPlayerCount());
+        assertEquals(Long.valueOf(4), server.rankRequests().get(1)); // 第二次只请求版本 4 之后的变化
+
+        client.close();
+        Events restartedEvents = new Events();
+        LeaderboardClient restarted = newClient(dir, restartedEvents);
+        restarted.refresh();
+        await("unchanged check", () -> server.rankRequests().size() == 3);
+        assertEquals(Long.valueOf(6), server.rankRequests().get(2)); // 快照已落盘，重启后继续增量
+        assertEquals(6, restarted.getRanksVersion());
+        assertEquals(2, restarted.getRank());
+    }
+
+    @Test
+    public void submitNeverBlocksCaller() throws Exception {
+        server.hold = new CountDownLatch(1); // 服务器卡住，上传一直等不到响应
+        Events events = new Events();
+        LeaderboardClient client = newClient(folder.newFolder(), events);
+        long worst = 0;
+        for (int i = 0; i < 200; i++) {
+            long start = System.nanoTime();
+            client.submit(1000 + i, i, 0);
+            worst = Math.max(worst, System.nanoTime() - start);
+        }
+        assertTrue("submit took " + worst / 1000 + "us", worst < 20_000_000L);
+        server.hold.countDown();
+        await("games delivered once the server recovers", () -> events.uploaded() == 200);
+    }
+}
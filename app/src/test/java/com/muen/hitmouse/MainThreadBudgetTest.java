@@ -0,0 +1,574 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.SharedPreferences;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assume;
+import org.junit.Test;
+
+// 主线程预算回归测试：在 JVM 上用虚拟时间跑完整局，超出预算即失败
+// 覆盖主线程消息数、经 GameEngine 击中时的内存分配和视图更新、对局中增删的视图，以及每局结束的偏好写入次数
+public class MainThreadBudgetTest {
+    private static final double MAX_MESSAGES_PER_SECOND = 6; // 计时每秒一次，出鼠间隔最短 250ms
+    private static final long MAX_BYTES_PER_HIT = 0;
+    private static final long MAX_VIEW_UPDATES_PER_HIT = 2; // 隐藏被击中的地鼠、刷新得分
+    private static final int MAX_VIEWS_ADDED_PER_GAME = 0; // 地鼠视图在开局前一次建好
+    private static final long MAX_PREFERENCE_WRITES_PER_GAME = 1;
+
+    // 虚拟主线程：按到期时间执行投递的任务，同时统计消息数
+    private static class VirtualLooper implements GameScheduler.Backend, GameLoop.Clock {
+        private final PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        private final Map<Long, Runnable> tasks = new HashMap<>();
+        private long now = 0;
+        private long sequence = 0;
+        long messages = 0;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            long id = sequence++;
+            tasks.put(id, task);
+            queue.add(new long[]{now + delayMs, id});
+            messages++;
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+
+        // 执行到期时间不晚于 until 的全部任务
+        void runUntil(long until) {
+            while (!queue.isEmpty() && queue.peek()[0] <= until) {
+                long[] next = queue.poll();
+                now = next[0];
+                tasks.remove(next[1]).run();
+            }
+            now = until;
+        }
+    }
+
+    // 完美玩家：每波出现后立即击中全部地鼠
+    private static class Player implements GameCore.Listener {
+        final int[] wave;
+        int waveSize;
+
+        Player(int slotCount) {
+            wave = new int[slotCount];
+        }
+
+        @Override
+        public void onSpawn(int[] slots, int count) {
+            System.arraycopy(slots, 0, wave, 0, count);
+            waveSize = count;
+        }
+
+        @Override
+        public void onTick(GameCore core) {
+        }
+
+        @Override
+        public void onGameOver(GameCore core) {
+        }
+
+        void hitAll(GameCore core) {
+            for (int i = 0; i < waveSize; i++) {
+                core.hit(wave[i]);
+            }
+            waveSize = 0;
+        }
+    }
+
+    @Test
+    public void timedGameStaysWithinMessageBudget() {
+        assertMessageBudget(BoardSpec.CLASSIC, false, GameCore.INITIAL_PLAY_TIME);
+    }
+
+    @Test
+    public void endlessGameStaysWithinMessageBudget() {
+        assertMessageBudget(BoardSpec.square(8), true, 10 * 60 * 1000L);
+    }
+
+    @Test
+    public void pauseDropsPendingMessages() {
+        VirtualLooper looper = new VirtualLooper();
+        GameScheduler scheduler = new GameScheduler(looper);
+        GameCore core = new GameCore(BoardSpec.CLASSIC, 9, true, false, new Random(5));
+        core.setListener(new Player(9));
+        GameLoop loop = new GameLoop(scheduler, looper, core);
+        loop.start();
+        looper.runUntil(10_000);
+        loop.pause();
+        long executed = scheduler.getExecutedCount();
+        long time = core.getTime();
+        looper.runUntil(40_000);
+        assertEquals("paused loop kept running", executed, scheduler.getExecutedCount());
+        assertEquals(time, core.getTime());
+        assertEquals(0, scheduler.getQueuedCount());
+        loop.resume();
+        looper.runUntil(100_000);
+        assertTrue(!core.isRunning());
+        assertEquals(GameCore.INITIAL_PLAY_TIME, core.getTime());
+    }
+
+    // 固定步长只改变唤醒时刻：所有唤醒落在步长格点上，消息不增加，整局的规则状态与不对齐时完全相同
+    @Test
+    public void fixedStepAlignsWakeupsWithoutChangingRules() {
+        byte[] reference = null;
+        long referenceMessages = 0;
+        for (int step : new int[]{0, 8, 16, 33}) {
+            VirtualLooper looper = new VirtualLooper();
+            boolean[] aligned = {true};
+            GameScheduler scheduler = new GameScheduler((task, delayMs) -> {
+                if (step > 0 && delayMs > 0 && (looper.uptimeMillis() + delayMs) % step != 0) aligned[0] = false;
+                looper.postDelayed(task, delayMs);
+            });
+            GameCore core = new GameCore(BoardSpec.square(4), 16, true, false, new Random(7));
+            core.setListener(new Player(16));
+            GameLoop loop = new GameLoop(scheduler, looper, core);
+            loop.setStepMillis(step);
+            loop.start();
+            looper.runUntil(GameCore.INITIAL_PLAY_TIME + 1_000);
+            assertTrue(!core.isRunning());
+            ByteBuffer state = ByteBuffer.allocate(SessionJournal.MAX_PAYLOAD);
+            core.writeState(state);
+            byte[] bytes = Arrays.copyOf(state.array(), state.position());
+            System.out.printf("step %dms: %d messages%n", step, looper.messages);
+            if (reference == null) {
+                reference = bytes;
+                referenceMessages = looper.messages;
+                continue;
+            }
+            assertTrue("step " + step + " woke off the grid", aligned[0]);
+            assertTrue(looper.messages <= referenceMessages);
+            assertTrue("step " + step + " changed the game", Arrays.equals(reference, bytes));
+        }
+    }
+
+    private static void assertMessageBudget(BoardSpec spec, boolean endless, long durationMs) {
+        VirtualLooper looper = new VirtualLooper();
+        GameScheduler scheduler = new GameScheduler(looper);
+        GameCore core = new GameCore(spec, spec.getHoleCount(), true, endless, new Random(11));
+        Player player = new Player(spec.getHoleCount());
+        core.setListener(player);
+        GameLoop loop = new GameLoop(scheduler, looper, core);
+        loop.start();
+        for (long t = 0; t < durationMs && core.isRunning(); t += 100) {
+            looper.runUntil(t);
+            player.hitAll(core); // 每 100ms 击打一次，和主线程消息交错
+        }
+        long elapsed = Math.max(1, looper.uptimeMillis());
+        double perSecond = looper.messages * 1000.0 / elapsed;
+        System.out.printf("budget: %s %s, %d messages in %ds, %.2f/s%n", spec.getLabel(),
+                endless ? "endless" : "timed", looper.messages, elapsed / 1000, perSecond);
+        assertTrue("main looper messages " + perSecond + "/s", perSecond <= MAX_MESSAGES_PER_SECOND);
+    }
+
+    // 统计引擎对界面调用的假页面：困难模式像 PlayActivity 一样在开局前按 getMaxMouseCount 一次性建好地鼠视图，
+    // 之后需要的视图超出已建数量时只能往布局里添加，记为视图增加；Renderer 没有删除视图的操作，隐藏只切换可见性
+    private static class CountingRenderer implements GameEngine.Renderer {
+        final BoardLayout layout; // 简单模式的棋盘，困难模式为 null
+        final int mouseSize; // 困难模式地鼠视图的边长
+        final boolean[] visible;
+        float[] positions;
+        int viewCount; // 已建的地鼠视图
+        int viewsAdded; // 对局中补建的地鼠视图
+        long viewUpdates; // 改动视图内容或可见性的调用
+
+        CountingRenderer(GameEngine engine, BoardLayout layout, int mouseSize) {
+            this.layout = layout;
+            this.mouseSize = mouseSize;
+            visible = new boolean[engine.getMaxMouseCount()];
+            viewCount = layout == null ? engine.getMaxMouseCount() : 0;
+        }
+
+        @Override
+        public void showMoles(int[] slots, int count, float[] positions) {
+            clearMoles();
+            this.positions = positions;
+            for (int i = 0; i < count; i++) {
+                if (layout == null && slots[i] >= viewCount) {
+                    viewsAdded += slots[i] + 1 - viewCount;
+                    viewCount = slots[i] + 1;
+                }
+                visible[slots[i]] = true;
+            }
+        }
+
+        @Override
+        public void hideMole(int slot) {
+            visible[slot] = false;
+            viewUpdates++;
+        }
+
+        @Override
+        public void clearMoles() {
+            Arrays.fill(visible, false);
+            viewUpdates++;
+        }
+
+        @Override
+        public int hitTest(float x, float y, float[] outBounds) {
+            int hole = layout.holeAt(x, y);
+            if (hole < 0 || !visible[hole]) return -1;
+            outBounds[0] = layout.getHoleLeft(hole);
+            outBounds[1] = layout.getHoleTop(hole);
+            outBounds[2] = layout.getHoleSize();
+            outBounds[3] = layout.getHoleSize();
+            return hole;
+        }
+
+        @Override
+        public void setScoreText(CharSequence text) {
+            viewUpdates++;
+        }
+
+        @Override
+        public void setTimeText(String text) {
+            viewUpdates++;
+        }
+
+        @Override
+        public void onSpawn() {
+        }
+
+        @Override
+        public void onEventsPublished() {
+        }
+
+        @Override
+        public void onGameOver() {
+        }
+
+        // 把场上每只地鼠中心的坐标写入 out（x, y 交替），返回地鼠数
+        int targets(float[] out) {
+            int n = 0;
+            for (int slot = 0; slot < visible.length; slot++) {
+                if (!visible[slot]) continue;
+                if (layout != null) {
+                    out[n * 2] = layout.getHoleLeft(slot) + layout.getHoleSize() / 2f;
+                    out[n * 2 + 1] = layout.getHoleTop(slot) + layout.getHoleSize() / 2f;
+                } else {
+                    out[n * 2] = positions[slot * 2] + mouseSize / 2f;
+                    out[n * 2 + 1] = positions[slot * 2 + 1] + mouseSize / 2f;
+                }
+                n++;
+            }
+            return n;
+        }
+    }
+
+    @Test
+    public void easyHitPathStaysWithinBudget() {
+        assertHitBudget(false);
+    }
+
+    @Test
+    public void hardHitPathStaysWithinBudget() {
+        assertHitBudget(true);
+    }
+
+    // 通过 GameEngine.hitMouse 打完一局无尽模式：每次击中的分配（含得分文字刷新）、视图更新次数，以及对局中补建的视图都有上限
+    private static void assertHitBudget(boolean randomMode) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("JVM cannot count allocated bytes", threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+        long threadId = Thread.currentThread().getId();
+        long overhead = Long.MAX_VALUE; // 读一次计数器本身的分配
+        for (int i = 0; i < 100; i++) {
+            long first = counter.getThreadAllocatedBytes(threadId);
+            overhead = Math.min(overhead, counter.getThreadAllocatedBytes(threadId) - first);
+        }
+
+        long hits = 0;
+        long bytes = 0;
+        long viewUpdates = 0;
+        CountingRenderer renderer = null;
+        for (int round = 0; round < 2; round++) { // 第一轮预热
+            VirtualLooper looper = new VirtualLooper();
+            BoardSpec spec = randomMode ? null : BoardSpec.square(5);
+            GameEngine engine = new GameEngine(new GameScheduler(looper), looper, spec, randomMode, true);
+            int mouseSize = 150;
+            BoardLayout layout = null;
+            if (randomMode) {
+                engine.setBoardGeometry(new BoardGeometry(BotHarness.BOARD_PIXELS, BotHarness.BOARD_PIXELS * 16 / 9,
+                        mouseSize, mouseSize, new float[0]));
+                engine.setMouseMask(BotHarness.discMask(mouseSize));
+            } else {
+                layout = new BoardLayout(spec, BotHarness.BOARD_PIXELS, BotHarness.BOARD_PIXELS);
+            }
+            renderer = new CountingRenderer(engine, layout, mouseSize);
+            engine.attach(renderer);
+            engine.startGame();
+            float[] targets = new float[engine.getMaxMouseCount() * 2];
+            hits = 0;
+            bytes = 0;
+            viewUpdates = 0;
+            for (long t = 0; t < 5 * 60 * 1000L && !engine.isGameOver(); t += 100) {
+                looper.runUntil(t);
+                int count = renderer.targets(targets);
+                long updatesBefore = renderer.viewUpdates;
+                long before = counter.getThreadAllocatedBytes(threadId);
+                for (int i = 0; i < count; i++) {
+                    if (engine.hitMouse(targets[i * 2], targets[i * 2 + 1])) hits++;
+                }
+                bytes += counter.getThreadAllocatedBytes(threadId) - before - overhead;
+                viewUpdates += renderer.viewUpdates - updatesBefore;
+            }
+        }
+        assertTrue(hits > 0);
+        System.out.printf("budget: %s, %d hits, %d bytes allocated, %d view updates, %d views added%n",
+                randomMode ? "hard" : "easy", hits, bytes, viewUpdates, renderer.viewsAdded);
+        // 计数器本身偶尔有几十字节的误差，按平均值判断
+        assertTrue("allocated " + bytes + " bytes over " + hits + " hits", bytes / hits <= MAX_BYTES_PER_HIT);
+        assertTrue(viewUpdates + " view updates over " + hits + " hits", viewUpdates <= hits * MAX_VIEW_UPDATES_PER_HIT);
+        assertTrue("added " + renderer.viewsAdded + " views during play", renderer.viewsAdded <= MAX_VIEWS_ADDED_PER_GAME);
+    }
+
+    @Test
+    public void gameOverWritesPreferencesOnce() {
+        CountingPreferences preferences = new CountingPreferences();
+        RecordStore store = new RecordStore(preferences);
+        int[] scores = {12, 30, 7, 45, 45, 3};
+        int best = 0;
+        for (int i = 0; i < scores.length; i++) {
+            long writesBefore = preferences.writes;
+            int previousBest = store.saveGame(1000L + i, scores[i]);
+            assertEquals(best, previousBest);
+            best = Math.max(best, scores[i]);
+            assertTrue("game over wrote preferences " + (preferences.writes - writesBefore) + " times",
+                    preferences.writes - writesBefore <= MAX_PREFERENCE_WRITES_PER_GAME);
+        }
+        assertEquals(best, store.getHighScore());
+        assertEquals(scores.length, store.getWriteCount());
+        assertEquals(3, preferences.getInt("record_score_0", 0)); // 最新一局在最前
+        assertEquals(12, preferences.getInt("record_score_" + (scores.length - 1), 0));
+    }
+
+    // 完整的结算路径：引擎打完一局，成就像页面每帧那样从事件流推进，按 PlayActivity.gameOver 的顺序取摘要、在后台保存，
+    // 整局中记录、成就进度（累计击中几乎每局都有变化）和耗电统计合起来只提交一次
+    @Test
+    public void gameOverPathWritesPreferencesOnce() throws InterruptedException {
+        CountingPreferences preferences = new CountingPreferences();
+        GameOverPipeline pipeline = new GameOverPipeline(new RecordStore(preferences));
+        BoardSpec spec = BoardSpec.square(3);
+        BoardLayout layout = new BoardLayout(spec, BotHarness.BOARD_PIXELS, BotHarness.BOARD_PIXELS);
+        for (int game = 0; game < 3; game++) {
+            VirtualLooper looper = new VirtualLooper();
+            GameEngine engine = new GameEngine(new GameScheduler(looper), looper, spec, false, false);
+            AchievementEngine achievements = new AchievementEngine(preferences, AchievementEngine.MODE_EASY);
+            achievements.track(engine.getEvents());
+            CountingRenderer renderer = new CountingRenderer(engine, layout, 0);
+            CpuMeterTest.FakeSource cpuSource = new CpuMeterTest.FakeSource();
+            CpuMeter cpuMeter = new CpuMeter(FrameClock.MODE_60, cpuSource);
+            long writesBefore = preferences.writes; // 整局计数，每帧读取成就时也不能提交
+            engine.attach(renderer);
+            engine.startGame();
+            cpuMeter.start();
+            pipeline.prefetch();
+            float[] targets = new float[engine.getMaxMouseCount() * 2];
+            for (long t = 0; !engine.isGameOver(); t += 100) {
+                looper.runUntil(t);
+                int count = renderer.targets(targets);
+                for (int i = 0; i < count; i++) {
+                    engine.hitMouse(targets[i * 2], targets[i * 2 + 1]);
+                }
+                achievements.poll();
+                cpuSource.run(100, 10, 5);
+            }
+            drainGameOverThread();
+
+            engine.endGame();
+            RecordStore.Extra cpu = cpuMeter.finish();
+            achievements.poll();
+            pipeline.takeSummary();
+            pipeline.save(1000L + game, engine.getCount(), achievements.takeChanges(), cpu);
+            drainGameOverThread();
+            assertTrue("game over wrote preferences " + (preferences.writes - writesBefore) + " times",
+                    preferences.writes - writesBefore <= MAX_PREFERENCE_WRITES_PER_GAME);
+            assertEquals(engine.getCount(), preferences.getInt("record_score_0", 0));
+            AchievementEngine reloaded = new AchievementEngine(preferences, AchievementEngine.MODE_EASY);
+            assertEquals(achievements.getProgress(2), reloaded.getProgress(2)); // 累计击中已随记录保存
+            assertEquals(6_000, CpuMeter.getCpuPerMinute(preferences, FrameClock.MODE_60));
+        }
+    }
+
+    private static void drainGameOverThread() throws InterruptedException {
+        CountDownLatch drained = new CountDownLatch(1);
+        GameOverPipeline.runInBackground(drained::countDown);
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+    }
+
+    // 结算摘要在保存之前读取（对局中在后台进行），必须与保存后的记录一致，读取本身不写偏好
+    @Test
+    public void gameOverSummaryMatchesSavedRecords() {
+        CountingPreferences preferences = new CountingPreferences();
+        RecordStore store = new RecordStore(preferences);
+        Random random = new Random(4);
+        for (int game = 0; game < RecordStore.MAX_RECORDS + 10; game++) {
+            int score = 1 + random.nextInt(200);
+            long writesBefore = preferences.writes;
+            RecordStore.Summary summary = store.summarize();
+            assertEquals(writesBefore, preferences.writes);
+            assertEquals(store.saveGame(game, score), summary.getPreviousHighScore());
+
+            int count = 0;
+            int rank = 1;
+            long sum = 0;
+            for (int i = 0; i < RecordStore.MAX_RECORDS; i++) {
+                int saved = preferences.getInt("record_score_" + i, 0);
+                if (saved == 0) continue;
+                count++;
+                sum += saved;
+                if (saved > score) rank++;
+            }
+            assertEquals(count, summary.getGameCount());
+            assertEquals(rank, summary.getRank(score));
+            assertEquals(sum / count, summary.getAverage(score));
+        }
+    }
+
+    // 内存中的偏好实现，统计提交次数；RecordArchiveTest 也使用
+    static class CountingPreferences implements SharedPreferences {
+        final Map<String, Object> values = new HashMap<>();
+        long writes = 0;
+
+        @Override
+        public Map<String, ?> getAll() {
+            return values;
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            return values.containsKey(key) ? (String) values.get(key) : defValue;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            return values.containsKey(key) ? (Set<String>) values.get(key) : defValues;
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            return values.containsKey(key) ? (Integer) values.get(key) : defValue;
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            return values.containsKey(key) ? (Long) values.get(key) : defValue;
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            return values.containsKey(key) ? (Float) values.get(key) : defValue;
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            return values.containsKey(key) ? (Boolean) values.get(key) : defValue;
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new CountingEditor();
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        private class CountingEditor implements Editor {
+            final Map<String, Object> pending = new HashMap<>();
+            boolean clear;
+
+            @Override
+            public Editor putString(String key, String value) {
+                pending.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                pending.put(key, values);
+                return this;
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                pending.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                pending.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                pending.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                pending.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                pending.put(key, null);
+                return this;
+            }
+
+            @Override
+            public Editor clear() {
+                clear = true;
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                apply();
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                if (clear) values.clear();
+                for (Map.Entry<String, Object> entry : pending.entrySet()) {
+                    if (entry.getValue() == null) {
+                        values.remove(entry.getKey());
+                    } else {
+                        values.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                writes++;
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+// 地鼠摆放测试：同一波的地鼠互不重叠并保持间隔，不压住排除区域、不超出可玩区域；
+// 上一波的位置不会占住下一波，空间不足时少放而不是重叠
+public class MolePlacerTest {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int MOLE = 120;
+    private static final float SPACING = 12;
+    private static final float[][] EXCLUSIONS = {
+            {0, 0, 1080, 200}, // 分数牌
+            {40, 1700, 400, 1880}, // 暂停按钮
+            {680, 1700, 1040, 1880}, // 返回按钮
+    };
+
+    private static MolePlacer newPlacer() {
+        MolePlacer placer = new MolePlacer(WIDTH, HEIGHT, MOLE, MOLE, SPACING);
+        for (float[] r : EXCLUSIONS) {
+            placer.exclude(r[0], r[1], r[2], r[3]);
+        }
+        return placer;
+    }
+
+    private static boolean overlaps(float x, float y, float[] r) {
+        return x + MOLE > r[0] && x < r[2] && y + MOLE > r[1] && y < r[3];
+    }
+
+    @Test
+    public void placedMolesAvoidEachOtherAndExclusions() {
+        MolePlacer placer = newPlacer();
+        Random random = new Random(7);
+        float[] xy = new float[2 * GameEngine.ENDLESS_MAX_MOUSE_COUNT];
+        for (int round = 0; round < 2_000; round++) {
+            int placed = placer.place(GameEngine.ENDLESS_MAX_MOUSE_COUNT, random, xy);
+            assertEquals(GameEngine.ENDLESS_MAX_MOUSE_COUNT, placed); // 屏幕足够大，每只都放得下
+            for (int i = 0; i < placed; i++) {
+                float x = xy[i * 2];
+                float y = xy[i * 2 + 1];
+                assertTrue(x >= 0 && y >= 0 && x + MOLE <= WIDTH && y + MOLE <= HEIGHT);
+                for (float[] r : EXCLUSIONS) {
+                    assertFalse("mole " + i + " covers an excluded region in round " + round, overlaps(x, y, r));
+                }
+                for (int j = 0; j < i; j++) {
+                    boolean apart = Math.abs(xy[j * 2] - x) >= MOLE + SPACING || Math.abs(xy[j * 2 + 1] - y) >= MOLE + SPACING;
+                    assertTrue("moles " + j + " and " + i + " overlap in round " + round, apart);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void previousWaveDoesNotOccupySlots() {
+        // 区域只容得下一只：上一波的地鼠若还占着位置，之后每一波都会放不下
+        MolePlacer placer = new MolePlacer(MOLE + 50, MOLE + 50, MOLE, MOLE, SPACING);
+        Random random = new Random(11);
+        float[] xy = new float[2];
+        for (int round = 0; round < 1_000; round++) {
+            assertEquals(1, placer.place(1, random, xy));
+        }
+    }
+
+    @Test
+    public void crowdedAreaPlacesFewerWithoutOverlap() {
+        MolePlacer placer = new MolePlacer(400, 400, MOLE, MOLE, SPACING);
+        Random random = new Random(3);
+        float[] xy = new float[2 * 20];
+        for (int round = 0; round < 200; round++) {
+            int placed = placer.place(20, random, xy);
+            assertTrue(placed >= 1 && placed <= 9); // 400 边长最多并排 3 只
+            for (int i = 0; i < placed; i++) {
+                for (int j = 0; j < i; j++) {
+                    assertTrue(Math.abs(xy[j * 2] - xy[i * 2]) >= MOLE + SPACING
+                            || Math.abs(xy[j * 2 + 1] - xy[i * 2 + 1]) >= MOLE + SPACING);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fullyExcludedAreaPlacesNothing() {
+        MolePlacer placer = new MolePlacer(600, 600, MOLE, MOLE, SPACING);
+        placer.exclude(0, 0, 600, 600);
+        assertEquals(0, placer.place(5, new Random(1), new float[10]));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void tooManyExclusionsIsRejected() {
+        MolePlacer placer = new MolePlacer(WIDTH, HEIGHT, MOLE, MOLE, SPACING);
+        for (int i = 0; i <= 16; i++) {
+            placer.exclude(i, i, i + 1, i + 1);
+        }
+    }
+}
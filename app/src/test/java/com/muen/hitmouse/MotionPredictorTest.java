@@ -0,0 +1,94 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+// 触点预测测试：用合成的触摸轨迹检查匀速外推、急转后只按新方向外推、采样中断后不沿用旧速度、
+// 外推距离上限，以及采样不足、重复和乱序采样的处理
+public class MotionPredictorTest {
+    private static final float DELTA = 0.01f;
+    private static final long SAMPLE_MS = 8; // 120Hz 触摸采样
+
+    private final MotionPredictor predictor = new MotionPredictor(1000);
+
+    // 从 (x, y) 开始每个采样移动 (dx, dy)，返回下一个采样时间
+    private long track(long startMs, int samples, float x, float y, float dx, float dy) {
+        for (int i = 0; i < samples; i++) {
+            predictor.add(startMs + i * SAMPLE_MS, x + i * dx, y + i * dy);
+        }
+        return startMs + samples * SAMPLE_MS;
+    }
+
+    private void assertPredicted(float x, float y) {
+        assertEquals(x, predictor.getPredictedX(), DELTA);
+        assertEquals(y, predictor.getPredictedY(), DELTA);
+    }
+
+    @Test
+    public void constantVelocityIsExtrapolated() {
+        track(1000, 10, 100, 500, 4, -2); // 0.5 px/ms 向右，0.25 px/ms 向上
+        predictor.predict(16);
+        assertPredicted(136 + 8, 482 - 4);
+        predictor.predict(0);
+        assertPredicted(136, 482);
+    }
+
+    @Test
+    public void reversalFollowsNewDirection() {
+        long next = track(1000, 10, 0, 0, 8, 0); // 1 px/ms 向右到 x = 72
+        predictor.add(next, 64, 0); // 刚掉头：窗口中大部分仍是向右的采样
+        predictor.predict(16);
+        float justTurned = predictor.getPredictedX();
+        for (int i = 1; i <= 6; i++) {
+            predictor.add(next + i * SAMPLE_MS, 64 - i * 8, 0);
+        }
+        predictor.predict(16);
+        assertPredicted(0, 0); // 40ms 后窗口里只剩向左的采样，按新方向外推
+        assertTrue(justTurned < 64 + 16); // 掉头时的外推已经减速
+    }
+
+    @Test
+    public void timeGapDropsStaleVelocity() {
+        long next = track(1000, 10, 0, 0, 8, 0);
+        long resume = next + 200; // 手指停顿后继续
+        predictor.add(resume, 300, 300);
+        predictor.predict(16);
+        assertPredicted(300, 300); // 只有一个新采样，不沿用停顿前的速度
+        predictor.add(resume + SAMPLE_MS, 300, 308);
+        predictor.predict(16);
+        assertPredicted(300, 324); // 速度只由停顿后的两个采样决定
+    }
+
+    @Test
+    public void extrapolationIsCapped() {
+        predictor.setMaxDistance(20);
+        track(1000, 5, 0, 0, 80, 60); // 12.5 px/ms
+        predictor.predict(16);
+        assertPredicted(320 + 16, 240 + 12); // 沿运动方向只外推 20 像素
+    }
+
+    @Test
+    public void tooFewSamplesReturnLatest() {
+        predictor.add(1000, 10, 20);
+        predictor.predict(16);
+        assertPredicted(10, 20);
+
+        track(2000, 10, 0, 0, 8, 0);
+        predictor.reset(); // 新的按下
+        predictor.add(3000, 50, 60);
+        predictor.predict(16);
+        assertPredicted(50, 60);
+    }
+
+    @Test
+    public void duplicateAndOutOfOrderSamples() {
+        predictor.add(1000, 0, 0);
+        predictor.add(1008, 100, 0);
+        predictor.add(1008, 8, 0); // 同一毫秒覆盖上一条
+        predictor.add(1004, 500, 500); // 乱序采样被忽略
+        predictor.predict(8);
+        assertPredicted(16, 0);
+    }
+}
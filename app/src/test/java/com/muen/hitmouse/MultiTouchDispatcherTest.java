@@ -0,0 +1,179 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import android.view.MotionEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+// 多点触控分发测试：用手工构造的触点序列检查两个玩家同时按下时各自归属、触点越过中线后仍归原玩家、
+// 同一半屏的第二个手指被忽略，以及 ACTION_POINTER_UP 按动作下标找到抬起的触点
+public class MultiTouchDispatcherTest {
+    private static final int BOTTOM = 0; // 与 DuelActivity 相同：玩家 1 在下半屏
+    private static final int TOP = 1;
+    private static final float DIVIDER_Y = 960;
+
+    // 一个触点事件：pointers 依次为每个触点的 id, x, y，顺序即事件中的下标
+    private class Touch implements MultiTouchDispatcher.Pointers {
+        final int action;
+        final int actionIndex;
+        final int[] pointers;
+
+        Touch(int action, int actionIndex, int... pointers) {
+            this.action = action;
+            this.actionIndex = actionIndex;
+            this.pointers = pointers;
+        }
+
+        @Override
+        public int getActionMasked() {
+            return action;
+        }
+
+        @Override
+        public int getActionIndex() {
+            return actionIndex;
+        }
+
+        @Override
+        public int getPointerCount() {
+            return pointers.length / 3;
+        }
+
+        @Override
+        public int getPointerId(int index) {
+            return pointers[index * 3];
+        }
+
+        @Override
+        public float getX(int index) {
+            return pointers[index * 3 + 1];
+        }
+
+        @Override
+        public float getY(int index) {
+            return pointers[index * 3 + 2];
+        }
+
+        @Override
+        public void track(HunterInput input, int index) {
+            tracked = input;
+            moves.add(playerOf(input) + ":" + (int) getX(index) + "," + (int) getY(index));
+        }
+    }
+
+    private final HunterInput[] inputs = {new HunterInput(null, null), new HunterInput(null, null)};
+    private final List<String> moves = new ArrayList<>(); // 玩家:x,y
+    private final List<Integer> ups = new ArrayList<>();
+    private HunterInput tracked;
+
+    private final MultiTouchDispatcher dispatcher = new MultiTouchDispatcher(inputs, new MultiTouchDispatcher.Listener() {
+        @Override
+        public int playerAt(float x, float y) {
+            return y < DIVIDER_Y ? TOP : BOTTOM;
+        }
+
+        @Override
+        public void onHunterMove(int player, HunterInput input) {
+            assertSame(inputs[player], input);
+            assertSame(tracked, input); // 先跟随触点再通知
+        }
+
+        @Override
+        public void onHunterUp(int player, HunterInput input) {
+            assertSame(inputs[player], input);
+            ups.add(player);
+        }
+    });
+
+    private int playerOf(HunterInput input) {
+        return Arrays.asList(inputs).indexOf(input);
+    }
+
+    private void dispatch(int action, int actionIndex, int... pointers) {
+        dispatcher.dispatch(new Touch(action, actionIndex, pointers));
+    }
+
+    private void assertMoves(String... expected) {
+        assertEquals(Arrays.asList(expected), moves);
+        moves.clear();
+    }
+
+    @Test
+    public void simultaneousDownsGoToEachHalf() {
+        // 上半屏的手指先按下，下标顺序与玩家编号相反
+        dispatch(MotionEvent.ACTION_DOWN, 0, 0, 500, 300);
+        dispatch(MotionEvent.ACTION_POINTER_DOWN, 1, 0, 500, 300, 1, 540, 1500);
+        assertMoves("1:500,300", "0:540,1500");
+        assertEquals(0, inputs[TOP].getPointerId());
+        assertEquals(1, inputs[BOTTOM].getPointerId());
+
+        // 同一个移动事件里两个触点各自交给自己的锤子
+        dispatch(MotionEvent.ACTION_MOVE, 0, 0, 510, 320, 1, 560, 1480);
+        assertMoves("1:510,320", "0:560,1480");
+        assertEquals(0, ups.size());
+    }
+
+    @Test
+    public void pointerCrossingDividerKeepsItsOwner() {
+        dispatch(MotionEvent.ACTION_DOWN, 0, 0, 500, 1500);
+        dispatch(MotionEvent.ACTION_MOVE, 0, 0, 500, 900); // 越过中线进入上半屏
+        dispatch(MotionEvent.ACTION_MOVE, 0, 0, 500, 100);
+        assertMoves("0:500,1500", "0:500,900", "0:500,100");
+        assertEquals(-1, inputs[TOP].getPointerId());
+
+        // 上方玩家仍然可以在上半屏按下，且不受越界手指影响
+        dispatch(MotionEvent.ACTION_POINTER_DOWN, 1, 0, 500, 100, 1, 600, 200);
+        assertMoves("1:600,200");
+        // 下方玩家已有手指，同一半屏的第二个手指被忽略
+        dispatch(MotionEvent.ACTION_POINTER_DOWN, 2, 0, 500, 100, 1, 600, 200, 2, 300, 1700);
+        dispatch(MotionEvent.ACTION_MOVE, 0, 0, 500, 120, 1, 600, 220, 2, 320, 1720);
+        assertMoves("0:500,120", "1:600,220");
+        dispatch(MotionEvent.ACTION_POINTER_UP, 2, 0, 500, 120, 1, 600, 220, 2, 320, 1720);
+        assertEquals(0, ups.size()); // 被忽略的手指抬起不影响任何玩家
+    }
+
+    @Test
+    public void pointerUpIsResolvedByActionIndex() {
+        dispatch(MotionEvent.ACTION_DOWN, 0, 0, 500, 1500);
+        dispatch(MotionEvent.ACTION_POINTER_DOWN, 1, 0, 500, 1500, 1, 500, 300);
+        inputs[BOTTOM].onHit(0);
+        inputs[TOP].onHit(0);
+        inputs[TOP].onHit(200);
+
+        // 先按下的手指抬起：它在下标 0，另一个触点的 id 不变
+        dispatch(MotionEvent.ACTION_POINTER_UP, 0, 0, 500, 1500, 1, 500, 300);
+        assertEquals(Arrays.asList(BOTTOM), ups);
+        assertEquals(-1, inputs[BOTTOM].getPointerId());
+        assertEquals(0, inputs[BOTTOM].getComboCount());
+        assertEquals(1, inputs[TOP].getPointerId());
+        assertEquals(2, inputs[TOP].getComboCount());
+
+        // 剩下的触点移到了下标 0，仍交给上方玩家
+        moves.clear();
+        dispatch(MotionEvent.ACTION_MOVE, 0, 1, 520, 320);
+        assertMoves("1:520,320");
+
+        // 新手指复用 id 0，排在下标 0；按下位置决定归属
+        dispatch(MotionEvent.ACTION_POINTER_DOWN, 0, 0, 300, 1600, 1, 520, 320);
+        assertMoves("0:300,1600");
+        dispatch(MotionEvent.ACTION_POINTER_UP, 1, 0, 300, 1600, 1, 520, 320);
+        dispatch(MotionEvent.ACTION_UP, 0, 0, 300, 1600);
+        assertEquals(Arrays.asList(BOTTOM, TOP, BOTTOM), ups);
+        assertEquals(-1, inputs[TOP].getPointerId());
+        assertEquals(-1, inputs[BOTTOM].getPointerId());
+    }
+
+    @Test
+    public void cancelReleasesEveryPlayer() {
+        dispatch(MotionEvent.ACTION_DOWN, 0, 0, 500, 1500);
+        dispatch(MotionEvent.ACTION_POINTER_DOWN, 1, 0, 500, 1500, 1, 500, 300);
+        dispatch(MotionEvent.ACTION_CANCEL, 0, 0, 500, 1500, 1, 500, 300);
+        assertEquals(Arrays.asList(BOTTOM, TOP), ups);
+        dispatch(MotionEvent.ACTION_MOVE, 0, 0, 510, 1510, 1, 510, 310);
+        assertMoves("0:500,1500", "1:500,300"); // 取消之后的移动不再交给锤子
+    }
+}
@@ -0,0 +1,108 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+// 画质调节测试：用合成的帧间隔驱动 60Hz 的调节器（120 帧窗口的第 90 百分位，每 30 帧评估一次）
+// 慢窗口降一档，降档后重新观察整个窗口才会再降；快窗口要连续 6 次评估都有余量才升档，中途一个普通窗口就重新计数
+public class QualityGovernorTest {
+    private static final long FAST = 15_000_000L; // 低于预算的 1.1 倍，视为有余量
+    private static final long OK = 20_000_000L; // 介于 1.1 倍和 1.5 倍之间，不升也不降
+    private static final long SLOW = 30_000_000L; // 超过预算的 1.5 倍
+    private static final int WINDOW = 120;
+    private static final int EVALUATE_EVERY = 30;
+
+    private final QualityGovernor governor = new QualityGovernor(null, 60f);
+    private final List<Integer> changes = new ArrayList<>();
+
+    public QualityGovernorTest() {
+        governor.setListener(changes::add);
+    }
+
+    private void feed(int frames, long nanos) {
+        for (int i = 0; i < frames; i++) {
+            governor.onFrameInterval(nanos);
+        }
+    }
+
+    // 喂入 nanos 的帧直到档位变化，返回用了多少帧，上限内没有变化返回 -1
+    private int framesUntilChange(int limit, long nanos) {
+        int tier = governor.getTier();
+        for (int i = 1; i <= limit; i++) {
+            governor.onFrameInterval(nanos);
+            if (governor.getTier() != tier) return i;
+        }
+        return -1;
+    }
+
+    @Test
+    public void steadyFramesKeepFullTier() {
+        feed(10 * WINDOW, OK);
+        feed(10 * WINDOW, FAST);
+        assertEquals(QualityGovernor.TIER_FULL, governor.getTier());
+        assertEquals(0, changes.size());
+    }
+
+    @Test
+    public void slowWindowStepsDownOneTierAtATime() {
+        feed(WINDOW, FAST);
+        // 窗口中慢帧超过 10% 后的下一次评估降档
+        int frames = framesUntilChange(WINDOW, SLOW);
+        assertEquals(EVALUATE_EVERY, frames);
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+
+        // 降档清空了窗口，要重新攒满一个窗口的慢帧才会再降
+        assertEquals(WINDOW, framesUntilChange(2 * WINDOW, SLOW));
+        assertEquals(QualityGovernor.TIER_MINIMAL, governor.getTier());
+        feed(5 * WINDOW, SLOW);
+        assertEquals(QualityGovernor.TIER_MINIMAL, governor.getTier()); // 最低档不再变化
+        assertEquals(2, changes.size());
+    }
+
+    @Test
+    public void recoveryNeedsSustainedHeadroom() {
+        feed(WINDOW, SLOW); // 窗口攒满时的评估降档并清空窗口
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+
+        // 一个窗口的快帧加五次评估仍不够，第六次连续有余量的评估才升档
+        feed(WINDOW + 4 * EVALUATE_EVERY, FAST);
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+        feed(EVALUATE_EVERY, FAST);
+        assertEquals(QualityGovernor.TIER_FULL, governor.getTier());
+        assertEquals(2, changes.size());
+    }
+
+    @Test
+    public void ordinaryWindowRestartsHeadroomCount() {
+        feed(WINDOW, SLOW);
+        feed(WINDOW + 4 * EVALUATE_EVERY, FAST); // 已有五次有余量的评估
+        feed(WINDOW, OK); // 余量消失，计数清零
+        feed(WINDOW + 4 * EVALUATE_EVERY, FAST); // 普通帧移出窗口后重新攒到五次
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+        assertEquals(EVALUATE_EVERY, framesUntilChange(WINDOW, FAST));
+        assertEquals(QualityGovernor.TIER_FULL, governor.getTier());
+    }
+
+    @Test
+    public void pausesAreNotCounted() {
+        feed(WINDOW, FAST);
+        feed(WINDOW, 500_000_000L); // 切到后台回来的长间隔
+        governor.onFrameInterval(0);
+        assertEquals(QualityGovernor.TIER_FULL, governor.getTier());
+        assertEquals(15f, governor.getFrameTimePercentile(99), 0.001f);
+    }
+
+    @Test
+    public void percentilesOfWindow() {
+        assertEquals(0f, governor.getFrameTimePercentile(90), 0f);
+        for (int ms = 1; ms <= 100; ms++) {
+            governor.onFrameInterval(ms * 1_000_000L); // 不足一个窗口，不评估
+        }
+        assertEquals(51f, governor.getFrameTimePercentile(50), 0.001f);
+        assertEquals(91f, governor.getFrameTimePercentile(90), 0.001f);
+        assertEquals(100f, governor.getFrameTimePercentile(99), 0.001f);
+    }
+}
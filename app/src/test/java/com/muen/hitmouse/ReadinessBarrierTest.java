@@ -0,0 +1,76 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+// 就绪屏障测试：全部到达且登记结束后只触发一次，重复或未登记的到达被忽略；
+// 加载任务在后台线程抛出异常时记为失败但照样到达，开局不会一直等下去
+public class ReadinessBarrierTest {
+    private final AtomicInteger fired = new AtomicInteger();
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final ReadinessBarrier barrier = new ReadinessBarrier(() -> {
+        fired.incrementAndGet();
+        ready.countDown();
+    });
+
+    @Test
+    public void firesOnceAfterAllArriveAndSeal() {
+        barrier.register("audio:kick");
+        barrier.register("geometry");
+        barrier.arrive("audio:kick");
+        barrier.arrive("audio:kick"); // 重复到达
+        barrier.arrive("bitmap:mouse"); // 未登记
+        assertEquals(1, barrier.getPendingCount());
+        barrier.arrive("geometry");
+        assertFalse(barrier.isReady()); // 还在登记中
+        barrier.seal();
+        assertTrue(barrier.isReady());
+        barrier.arrive("geometry");
+        assertEquals(1, fired.get());
+        assertTrue(barrier.getLoadTimesMs().get("geometry") >= 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void registerAfterSealIsRejected() {
+        barrier.seal();
+        barrier.register("late");
+    }
+
+    @Test
+    public void failedTaskStillArrives() throws InterruptedException {
+        String[] names = {"audio:kick", "bitmap:mouse", "ghost"};
+        for (String name : names) {
+            barrier.register(name);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(names.length);
+        executor.execute(barrier.arriveAfter("audio:kick", () -> {
+            throw new IllegalStateException("decoder error"); // 例如音频解码失败
+        }));
+        executor.execute(barrier.arriveAfter("bitmap:mouse", () -> {
+            throw new OutOfMemoryError(); // 错误照样抛出，但先到达屏障
+        }));
+        executor.execute(barrier.arriveAfter("ghost", () -> {
+        }));
+        barrier.seal();
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(1, fired.get());
+        assertEquals(0, barrier.getPendingCount());
+        Map<String, String> failures = barrier.getFailures();
+        assertEquals(1, failures.size());
+        assertTrue(failures.get("audio:kick").contains("decoder error"));
+        for (long ms : barrier.getLoadTimesMs().values()) {
+            assertTrue(ms >= 0); // 失败的资源也记下了到达时间
+        }
+    }
+}
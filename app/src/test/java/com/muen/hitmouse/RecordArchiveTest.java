@@ -0,0 +1,323 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// 记录导出和合并测试：归并结果有序且去重、大量记录以固定内存流式合并、两台设备的记录互相导入后一致，
+// 文件头不对或记录乱序的文件导入时被拒绝
+public class RecordArchiveTest {
+    private static final long SOURCE_RECORDS = 250_000;
+    private static final long MAX_MERGE_BYTES = 256 * 1024; // 与记录条数无关的固定开销
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // 把 (时间, 得分) 对写成内存中的导出文件
+    private static byte[] archive(long... pairs) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RecordArchive.Writer writer = new RecordArchive.Writer(Channels.newChannel(bytes));
+        for (int i = 0; i < pairs.length; i += 2) {
+            writer.write(pairs[i], (int) pairs[i + 1]);
+        }
+        writer.flush();
+        return bytes.toByteArray();
+    }
+
+    private static RecordArchive.Reader reader(byte[] bytes) throws IOException {
+        return new RecordArchive.Reader(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+
+    private static long[] readAll(byte[] bytes) throws IOException {
+        RecordArchive.Reader reader = reader(bytes);
+        List<Long> values = new ArrayList<>();
+        while (reader.next()) {
+            values.add(reader.getTime());
+            values.add((long) reader.getScore());
+        }
+        long[] result = new long[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    @Test
+    public void mergeInterleavesAndDeduplicates() throws IOException {
+        byte[] a = archive(10, 5, 30, 7, 50, 1);
+        byte[] b = archive(10, 5, 20, 9, 30, 8, 60, 2);
+        byte[] c = archive(30, 7, 40, 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = RecordArchive.merge(Arrays.asList(reader(a), reader(b), reader(c)),
+                new RecordArchive.Writer(Channels.newChannel(out)));
+        assertEquals(7, written);
+        // 同一时间不同得分的两局都保留，完全相同的只保留一条
+        assertArrayEquals(new long[]{10, 5, 20, 9, 30, 7, 30, 8, 40, 3, 50, 1, 60, 2}, readAll(out.toByteArray()));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsForeignFile() throws IOException {
+        reader("not an archive".getBytes("UTF-8"));
+    }
+
+    @Test
+    public void appendRepairsInterruptedWrite() throws IOException {
+        File file = folder.newFile();
+        RecordArchive.append(file, 100, 4);
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(out.length() + 5); // 上次追加只写了一部分
+        }
+        RecordArchive.append(file, 200, 6);
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] bytes = new byte[(int) file.length()];
+            assertEquals(bytes.length, in.read(bytes));
+            assertArrayEquals(new long[]{100, 4, 200, 6}, readAll(bytes));
+        }
+    }
+
+    // 系统时间被调回后保存的对局插到有序的位置
+    @Test
+    public void appendKeepsOrderWhenClockGoesBack() throws IOException {
+        File file = folder.newFile();
+        RecordArchive.append(file, 100, 4);
+        RecordArchive.append(file, 300, 8);
+        RecordArchive.append(file, 200, 6);
+        RecordArchive.append(file, 50, 2);
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] bytes = new byte[(int) file.length()];
+            assertEquals(bytes.length, in.read(bytes));
+            assertArrayEquals(new long[]{50, 2, 100, 4, 200, 6, 300, 8}, readAll(bytes));
+        }
+    }
+
+    // 按需生成有序记录的通道，不在内存中保存整份历史
+    private static class SyntheticChannel implements ReadableByteChannel {
+        private final ByteBuffer pending = ByteBuffer.allocate(RecordArchive.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final long count;
+        private final long step;
+        private final long offset;
+        private long produced = 0;
+
+        SyntheticChannel(long count, long step, long offset) {
+            this.count = count;
+            this.step = step;
+            this.offset = offset;
+            pending.putInt(RecordArchive.MAGIC).putShort(RecordArchive.VERSION).putShort((short) 0);
+            pending.flip();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!pending.hasRemaining() && produced == count) return -1;
+            int start = dst.position();
+            while (dst.hasRemaining()) {
+                if (!pending.hasRemaining()) {
+                    if (produced == count) break;
+                    long time = offset + produced * step;
+                    pending.clear();
+                    pending.putLong(time).putInt((int) (time % 97) + 1);
+                    pending.flip();
+                    produced++;
+                }
+                dst.put(pending.get());
+            }
+            return dst.position() - start;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // 只检查顺序和计数的输出通道
+    private static class CheckingChannel implements WritableByteChannel {
+        private final ByteBuffer partial = ByteBuffer.allocate(RecordArchive.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long skipHeader = RecordArchive.HEADER_SIZE;
+        private long records = 0;
+        private long lastTime = Long.MIN_VALUE;
+        private boolean ordered = true;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            while (src.hasRemaining()) {
+                if (skipHeader > 0) {
+                    src.get();
+                    skipHeader--;
+                    continue;
+                }
+                partial.put(src.get());
+                if (!partial.hasRemaining()) {
+                    long time = partial.getLong(0);
+                    if (time <= lastTime) ordered = false; // 去重后时间严格递增
+                    lastTime = time;
+                    records++;
+                    partial.clear();
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // 四个来源共一百万条记录（其中一个来源与另一个完全相同），合并只分配固定的缓冲区
+    @Test
+    public void largeMergeStreamsInConstantMemory() throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean counter = threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        long threadId = Thread.currentThread().getId();
+        long before = counter != null ? counter.getThreadAllocatedBytes(threadId) : 0;
+        long start = System.nanoTime();
+
+        List<RecordArchive.Reader> sources = new ArrayList<>();
+        sources.add(new RecordArchive.Reader(new SyntheticChannel(SOURCE_RECORDS, 3, 0)));
+        sources.add(new RecordArchive.Reader(new SyntheticChannel(SOURCE_RECORDS, 3, 0))); // 同一份备份导入两次
+        sources.add(new RecordArchive.Reader(new SyntheticChannel(SOURCE_RECORDS, 3, 1)));
+        sources.add(new RecordArchive.Reader(new SyntheticChannel(SOURCE_RECORDS, 3, 2)));
+        CheckingChannel out = new CheckingChannel();
+        long written = RecordArchive.merge(sources, new RecordArchive.Writer(out));
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long bytes = counter != null ? counter.getThreadAllocatedBytes(threadId) - before : 0;
+        System.out.printf("record merge: %d records in, %d out, %dms, %d bytes allocated%n",
+                4 * SOURCE_RECORDS, written, elapsedMs, bytes);
+        assertEquals(3 * SOURCE_RECORDS, written);
+        assertEquals(written, out.records);
+        assertTrue(out.ordered);
+        assertTrue("merge allocated " + bytes + " bytes", bytes <= MAX_MERGE_BYTES);
+    }
+
+    // 两台设备各自玩过若干局，互相导入后完整历史一致，偏好中是合并后最新的 MAX_RECORDS 局
+    @Test
+    public void devicesConvergeAfterExchangingExports() throws IOException {
+        MainThreadBudgetTest.CountingPreferences preferencesA = new MainThreadBudgetTest.CountingPreferences();
+        MainThreadBudgetTest.CountingPreferences preferencesB = new MainThreadBudgetTest.CountingPreferences();
+        RecordStore storeA = new RecordStore(preferencesA, new File(folder.getRoot(), "a.bin"));
+        RecordStore storeB = new RecordStore(preferencesB, new File(folder.getRoot(), "b.bin"));
+        List<long[]> expected = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            storeA.saveGame(1000 + i * 10, 1 + i % 40);
+            expected.add(new long[]{1000 + i * 10, 1 + i % 40});
+        }
+        for (int i = 0; i < 30; i++) {
+            storeB.saveGame(1005 + i * 20, 100 + i); // 与 A 的对局交错
+            expected.add(new long[]{1005 + i * 20, 100 + i});
+        }
+        storeB.saveGame(1000, 1); // 与 A 的第一局完全相同，合并后只保留一条
+        Collections.sort(expected, (x, y) -> RecordArchive.compare(x[0], (int) x[1], y[0], (int) y[1]));
+
+        File exportA = folder.newFile("export_a.bin");
+        File exportB = folder.newFile("export_b.bin");
+        try (FileChannel out = new FileOutputStream(exportA).getChannel()) {
+            assertEquals(80, storeA.exportTo(out));
+        }
+        try (FileChannel out = new FileOutputStream(exportB).getChannel()) {
+            assertEquals(31, storeB.exportTo(out));
+        }
+        long writesBefore = preferencesB.writes;
+        try (FileChannel in = new FileInputStream(exportA).getChannel()) {
+            assertEquals(expected.size(), storeB.importFrom(Collections.singletonList(in)));
+        }
+        assertEquals(writesBefore + 1, preferencesB.writes); // 替换最近记录只提交一次
+        try (FileChannel in = new FileInputStream(exportB).getChannel()) {
+            assertEquals(expected.size(), storeA.importFrom(Collections.singletonList(in)));
+        }
+
+        for (MainThreadBudgetTest.CountingPreferences preferences : Arrays.asList(preferencesA, preferencesB)) {
+            assertEquals(129, preferences.getInt("high_score", 0));
+            for (int i = 0; i < RecordStore.MAX_RECORDS; i++) {
+                long[] record = expected.get(expected.size() - 1 - i); // 最新一局在最前
+                assertEquals(record[0], preferences.getLong("record_time_" + i, 0));
+                assertEquals(record[1], preferences.getInt("record_score_" + i, 0));
+            }
+        }
+        ByteArrayOutputStream historyA = new ByteArrayOutputStream();
+        ByteArrayOutputStream historyB = new ByteArrayOutputStream();
+        storeA.exportTo(Channels.newChannel(historyA));
+        storeB.exportTo(Channels.newChannel(historyB));
+        assertArrayEquals(historyA.toByteArray(), historyB.toByteArray());
+        assertEquals(expected.size() * 2, readAll(historyA.toByteArray()).length);
+    }
+
+    @Test
+    public void readerRejectsUnsortedRecords() throws IOException {
+        assertEquals(6, readAll(archive(10, 5, 10, 5, 10, 6)).length); // 重复和同一时间按得分升序都是有序的
+        for (byte[] unsorted : new byte[][]{archive(10, 5, 30, 7, 20, 1), archive(10, 5, 10, 3)}) {
+            try {
+                readAll(unsorted);
+                fail("read an unsorted archive");
+            } catch (IOException expected) {
+                // 乱序
+            }
+        }
+    }
+
+    // 导入的文件格式不对时历史和偏好都不变
+    @Test
+    public void failedImportKeepsHistory() throws IOException {
+        assertImportRejected(new byte[3]); // 文件头不完整
+        byte[] version = archive(10, 5);
+        version[4] = 2;
+        assertImportRejected(version); // 未知版本
+        assertImportRejected(archive(1000, 3, 9000, 8, 2000, 4)); // 乱序，归并到一半才发现
+    }
+
+    private void assertImportRejected(byte[] file) throws IOException {
+        MainThreadBudgetTest.CountingPreferences preferences = new MainThreadBudgetTest.CountingPreferences();
+        File history = folder.newFile();
+        history.delete();
+        RecordStore store = new RecordStore(preferences, history);
+        store.saveGame(5000, 12);
+        long length = history.length();
+        long writes = preferences.writes;
+        try {
+            store.importFrom(Collections.singletonList(Channels.newChannel(new ByteArrayInputStream(file))));
+            fail("imported a bad file");
+        } catch (IOException expected) {
+            // 文件头不对或记录乱序
+        }
+        assertEquals(length, history.length());
+        assertEquals(writes, preferences.writes);
+        assertEquals(12, preferences.getInt("record_score_0", 0));
+        assertTrue(!new File(history.getPath() + ".tmp").exists());
+    }
+}
@@ -0,0 +1,222 @@
+package com.muen.hitmouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// 对局日志测试：最新的槽位写到一半或 CRC 不符时读出另一个槽位中的上一份快照；
+// 从日志恢复的对局停在暂停状态，玩家点继续之前时间不走、不出鼠
+public class SessionJournalTest {
+    private static final BoardSpec SPEC = BoardSpec.square(3);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    // 虚拟主线程：按到期时间执行投递的任务
+    private static class VirtualLooper implements GameScheduler.Backend, GameLoop.Clock {
+        private final PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        private final Map<Long, Runnable> tasks = new HashMap<>();
+        private long now = 0;
+        private long sequence = 0;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            long id = sequence++;
+            tasks.put(id, task);
+            queue.add(new long[]{now + delayMs, id});
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+
+        void runFor(long millis) {
+            long until = now + millis;
+            while (!queue.isEmpty() && queue.peek()[0] <= until) {
+                long[] next = queue.poll();
+                now = next[0];
+                tasks.remove(next[1]).run();
+            }
+            now = until;
+        }
+    }
+
+    // 假页面：只记录地鼠的显示状态和出鼠次数
+    private static class FakeRenderer implements GameEngine.Renderer {
+        final boolean[] visible = new boolean[SPEC.getHoleCount()];
+        int spawns;
+
+        @Override
+        public void showMoles(int[] slots, int count, float[] positions) {
+            clearMoles();
+            for (int i = 0; i < count; i++) {
+                visible[slots[i]] = true;
+            }
+        }
+
+        @Override
+        public void hideMole(int slot) {
+            visible[slot] = false;
+        }
+
+        @Override
+        public void clearMoles() {
+            Arrays.fill(visible, false);
+        }
+
+        @Override
+        public int hitTest(float x, float y, float[] outBounds) {
+            return -1;
+        }
+
+        @Override
+        public void setScoreText(CharSequence text) {
+        }
+
+        @Override
+        public void setTimeText(String text) {
+        }
+
+        @Override
+        public void onSpawn() {
+            spawns++;
+        }
+
+        @Override
+        public void onEventsPublished() {
+        }
+
+        @Override
+        public void onGameOver() {
+        }
+
+        int visibleCount() {
+            int n = 0;
+            for (boolean v : visible) {
+                if (v) n++;
+            }
+            return n;
+        }
+    }
+
+    // 等写线程把快照写出后读取
+    private static ByteBuffer awaitLatest(SessionJournal journal) throws InterruptedException {
+        ByteBuffer latest = journal.readLatest();
+        for (int i = 0; i < 200 && latest == null; i++) {
+            Thread.sleep(10);
+            latest = journal.readLatest();
+        }
+        assertNotNull(latest);
+        return latest;
+    }
+
+    // 记录一份只含 value 的快照并等它写出
+    private static void recordAndWait(SessionJournal journal, int value) throws InterruptedException {
+        journal.record(out -> out.putInt(value));
+        for (int i = 0; i < 200; i++) {
+            ByteBuffer latest = journal.readLatest();
+            if (latest != null && latest.getInt(0) == value) return;
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Snapshot " + value + " was not written");
+    }
+
+    // 三份快照：序号 1、3 在槽位 1，序号 2 在槽位 0，最新的是槽位 1 中的 3
+    private File writeThree() throws Exception {
+        File file = new File(folder.getRoot(), "journal.bin");
+        SessionJournal journal = new SessionJournal(file);
+        recordAndWait(journal, 1);
+        recordAndWait(journal, 2);
+        recordAndWait(journal, 3);
+        journal.close();
+        return file;
+    }
+
+    @Test
+    public void corruptLatestSlotFallsBackToPrevious() throws Exception {
+        File file = writeThree();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            long payload = SessionJournal.SLOT_SIZE + SessionJournal.SLOT_SIZE - SessionJournal.MAX_PAYLOAD - 4;
+            out.seek(payload);
+            int value = out.readInt();
+            out.seek(payload);
+            out.writeInt(value ^ 0x10); // 翻转一位，CRC 对不上
+        }
+        ByteBuffer latest = new SessionJournal(file).readLatest();
+        assertNotNull(latest);
+        assertEquals(2, latest.getInt(0));
+    }
+
+    @Test
+    public void tornLatestSlotFallsBackToPrevious() throws Exception {
+        File file = writeThree();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(SessionJournal.SLOT_SIZE + 20); // 写到槽位 1 的头部时断电
+        }
+        ByteBuffer latest = new SessionJournal(file).readLatest();
+        assertNotNull(latest);
+        assertEquals(2, latest.getInt(0));
+        assertEquals(4, latest.remaining());
+    }
+
+    @Test
+    public void bothSlotsCorruptReadsNothing() throws Exception {
+        File file = writeThree();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(0);
+            out.writeInt(0); // 槽位 0 的 magic
+            out.setLength(SessionJournal.SLOT_SIZE + 20);
+        }
+        assertNull(new SessionJournal(file).readLatest());
+    }
+
+    @Test
+    public void restoredGameStartsPaused() throws Exception {
+        VirtualLooper looper = new VirtualLooper();
+        GameEngine engine = new GameEngine(new GameScheduler(looper), looper, SPEC, false, false);
+        SessionJournal journal = new SessionJournal(new File(folder.getRoot(), "journal.bin"));
+        engine.attach(new FakeRenderer());
+        engine.startGame();
+        looper.runFor(5_000);
+        engine.setJournal(journal);
+        engine.saveJournal(); // 进程被杀前最后一次记录
+        journal.close();
+        ByteBuffer state = awaitLatest(new SessionJournal(new File(folder.getRoot(), "journal.bin")));
+
+        VirtualLooper relaunched = new VirtualLooper();
+        relaunched.runFor(100_000); // 重建后的系统时钟与之前无关
+        GameEngine restored = new GameEngine(new GameScheduler(relaunched), relaunched, SPEC, false, false);
+        FakeRenderer renderer = new FakeRenderer();
+        restored.attach(renderer);
+        assertTrue(restored.restoreGame(state));
+        assertTrue(restored.isPaused());
+        assertEquals(0, renderer.visibleCount());
+        long time = restored.getGameTime();
+        assertTrue(time > 0);
+
+        relaunched.runFor(30_000); // 玩家还没点继续
+        assertEquals(time, restored.getGameTime());
+        assertEquals(0, renderer.spawns);
+
+        restored.resumeGame();
+        relaunched.runFor(2_000);
+        assertFalse(restored.isPaused());
+        assertEquals(time + 2_000, restored.getGameTime());
+        assertTrue(renderer.spawns > 0);
+        assertTrue(renderer.visibleCount() > 0);
+    }
+}
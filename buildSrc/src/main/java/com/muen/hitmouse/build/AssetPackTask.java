@@ -0,0 +1,358 @@
+package com.muen.hitmouse.build;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import javax.imageio.ImageIO;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+// 生成资源包：把精灵图打成一张预乘 RGBA 图集（附带缩小版本），预先算好每个精灵的命中区域，
+// 再把短音效解码成与 AudioEngine 输出格式一致的立体声 PCM，全部写进一个不压缩的二进制文件
+// 运行时由 AssetPack 内存映射后直接取用，格式常量必须与 AssetPack 保持一致
+public abstract class AssetPackTask extends DefaultTask {
+    public static final String FILE_NAME = "hitmouse.pack";
+    private static final int MAGIC = 0x484D4150; // "HMAP"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 2 + 2 + 4 * 5;
+    private static final byte TYPE_SPRITE = 1;
+    private static final byte TYPE_MASK = 2;
+    private static final byte TYPE_CLIP = 3;
+    private static final int CHANNELS = 2; // 与 AudioMixer.CHANNELS 一致
+    private static final int ATLAS_WIDTH = 512;
+    private static final int PADDING = 1; // 图集中精灵之间留空，避免过滤采样串色
+    private static final int MIN_VARIANT_SIZE = 16; // 缩小版本的最小边长
+
+    // 要打包的精灵 PNG，条目名为去掉扩展名的文件名，与资源名一致
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getSprites();
+
+    // 需要生成 1/2、1/4 缩小版本的精灵（大棋盘上洞很小，直接用小图绘制）
+    @Input
+    public abstract ListProperty<String> getScaledSprites();
+
+    // 精灵所在资源目录的密度，运行时据此设置位图密度，与 BitmapFactory 解码资源时的缩放一致
+    @Input
+    public abstract Property<Integer> getSpriteDensity();
+
+    // 预解码的短音效，长的背景音乐仍在运行时流式解码
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getClips();
+
+    @Input
+    public abstract Property<Integer> getSampleRate();
+
+    @Input
+    public abstract Property<Integer> getAlphaThreshold();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDir();
+
+    public AssetPackTask() {
+        getSpriteDensity().convention(480);
+        getSampleRate().convention(44100);
+        getAlphaThreshold().convention(128);
+        getOutputDir().convention(getProject().getLayout().getBuildDirectory().dir("generated/assetpack/" + getName()));
+    }
+
+    private static class Sprite {
+        final String name;
+        final BufferedImage image;
+        int x, y;
+
+        Sprite(String name, BufferedImage image) {
+            this.name = name;
+            this.image = image;
+        }
+    }
+
+    private static class Entry {
+        final byte type;
+        final String name;
+        final int a, b, c, d; // 精灵：x y 宽 高；命中区域：宽 高；音效：声道数 帧数
+        final byte[] data;
+
+        Entry(byte type, String name, int a, int b, int c, int d, byte[] data) {
+            this.type = type;
+            this.name = name;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+            this.data = data;
+        }
+    }
+
+    @TaskAction
+    public void generate() throws IOException {
+        File out = getOutputDir().file(FILE_NAME).get().getAsFile();
+        String summary = pack(getSprites().getFiles(), getScaledSprites().get(), getClips().getFiles(),
+                getSampleRate().get(), getSpriteDensity().get(), getAlphaThreshold().get(), out);
+        getLogger().lifecycle("Asset pack: {}", summary);
+    }
+
+    // 生成资源包写入 out，返回摘要；与 Gradle 无关，方便单独调用
+    static String pack(Iterable<File> spriteFiles, List<String> scaledSprites, Iterable<File> clipFiles,
+                       int sampleRate, int density, int alphaThreshold, File out) throws IOException {
+        List<Sprite> sprites = new ArrayList<>();
+        List<Entry> entries = new ArrayList<>();
+        for (File file : spriteFiles) {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) throw new GradleException("Cannot decode sprite " + file);
+            String name = baseName(file);
+            sprites.add(new Sprite(name, image));
+            entries.add(maskEntry(name, image, alphaThreshold));
+            if (scaledSprites.contains(name)) {
+                for (int factor = 2; factor <= 4; factor *= 2) {
+                    int width = image.getWidth() / factor;
+                    int height = image.getHeight() / factor;
+                    if (Math.min(width, height) < MIN_VARIANT_SIZE) break;
+                    sprites.add(new Sprite(name + "@" + factor, scale(image, width, height)));
+                }
+            }
+        }
+        int atlasHeight = layoutAtlas(sprites);
+        byte[] atlas = renderAtlas(sprites, atlasHeight);
+        for (Sprite sprite : sprites) {
+            entries.add(new Entry(TYPE_SPRITE, sprite.name, sprite.x, sprite.y,
+                    sprite.image.getWidth(), sprite.image.getHeight(), null));
+        }
+        int clips = 0;
+        for (File file : clipFiles) {
+            short[] pcm = decodeClip(file, sampleRate);
+            ByteBuffer bytes = ByteBuffer.allocate(pcm.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+            bytes.asShortBuffer().put(pcm);
+            entries.add(new Entry(TYPE_CLIP, baseName(file), CHANNELS, pcm.length / CHANNELS, 0, 0, bytes.array()));
+            clips++;
+        }
+
+        write(out, entries, sampleRate, density, atlas, ATLAS_WIDTH, atlasHeight);
+        return sprites.size() + " sprites, " + clips + " clips, atlas " + ATLAS_WIDTH + "x" + atlasHeight + ", " + out.length() + " bytes";
+    }
+
+    // 按高度从大到小逐行摆放，返回图集高度
+    private static int layoutAtlas(List<Sprite> sprites) {
+        List<Sprite> sorted = new ArrayList<>(sprites);
+        sorted.sort(Comparator.comparingInt((Sprite s) -> s.image.getHeight()).reversed());
+        int x = 0, y = 0, rowHeight = 0;
+        for (Sprite sprite : sorted) {
+            int width = sprite.image.getWidth();
+            if (width + PADDING > ATLAS_WIDTH) throw new GradleException("Sprite too wide for atlas: " + sprite.name);
+            if (x + width + PADDING > ATLAS_WIDTH) {
+                x = 0;
+                y += rowHeight;
+                rowHeight = 0;
+            }
+            sprite.x = x;
+            sprite.y = y;
+            x += width + PADDING;
+            rowHeight = Math.max(rowHeight, sprite.image.getHeight() + PADDING);
+        }
+        return y + rowHeight;
+    }
+
+    // Bitmap.copyPixelsFromBuffer 要求的内存格式：每像素 R G B A，颜色已预乘透明度
+    private static byte[] renderAtlas(List<Sprite> sprites, int height) {
+        byte[] rgba = new byte[ATLAS_WIDTH * height * 4];
+        for (Sprite sprite : sprites) {
+            BufferedImage image = sprite.image;
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    int argb = image.getRGB(x, y);
+                    int alpha = argb >>> 24;
+                    int offset = ((sprite.y + y) * ATLAS_WIDTH + sprite.x + x) * 4;
+                    rgba[offset] = (byte) premultiply((argb >> 16) & 0xFF, alpha);
+                    rgba[offset + 1] = (byte) premultiply((argb >> 8) & 0xFF, alpha);
+                    rgba[offset + 2] = (byte) premultiply(argb & 0xFF, alpha);
+                    rgba[offset + 3] = (byte) alpha;
+                }
+            }
+        }
+        return rgba;
+    }
+
+    private static int premultiply(int color, int alpha) {
+        return (color * alpha + 127) / 255;
+    }
+
+    // 源尺寸的命中区域：每像素 1 位，每行按 64 位对齐，与 HitMask 的存储方式一致
+    private static Entry maskEntry(String name, BufferedImage image, int threshold) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int wordsPerRow = (width + 63) >>> 6;
+        long[] bits = new long[wordsPerRow * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if ((image.getRGB(x, y) >>> 24) >= threshold) {
+                    bits[y * wordsPerRow + (x >>> 6)] |= 1L << (x & 63);
+                }
+            }
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(bits.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asLongBuffer().put(bits);
+        return new Entry(TYPE_MASK, name, width, height, 0, 0, bytes.array());
+    }
+
+    // 逐级减半缩小，画质接近面积平均
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = resize(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != width || current.getHeight() != height) {
+            current = resize(current, width, height);
+        }
+        return current;
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = target.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return target;
+    }
+
+    // 解码为 16 位 PCM，再转成立体声并线性插值重采样，算法与 AudioMixer.toStereo 相同
+    private static short[] decodeClip(File file, int targetRate) throws IOException {
+        // javax.sound 通过线程上下文类加载器查找 Vorbis 解码器，Gradle 任务中需切换到 buildSrc 的类加载器
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(AssetPackTask.class.getClassLoader());
+        try (AudioInputStream encoded = AudioSystem.getAudioInputStream(file)) {
+            AudioFormat source = encoded.getFormat();
+            int channels = source.getChannels();
+            float rate = source.getSampleRate();
+            AudioFormat pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, channels * 2, rate, false);
+            try (AudioInputStream pcmStream = AudioSystem.getAudioInputStream(pcmFormat, encoded)) {
+                byte[] bytes = readAll(pcmStream);
+                short[] pcm = new short[bytes.length / 2];
+                ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(pcm);
+                return toStereo(pcm, channels, (int) rate, targetRate);
+            }
+        } catch (UnsupportedAudioFileException e) {
+            throw new GradleException("Cannot decode clip " + file + ", is the Vorbis decoder on the buildSrc classpath?", e);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static short[] toStereo(short[] pcm, int channels, int srcRate, int dstRate) {
+        int srcFrames = pcm.length / channels;
+        long dstFrames = srcFrames == 0 ? 0 : (long) srcFrames * dstRate / srcRate;
+        short[] out = new short[(int) dstFrames * CHANNELS];
+        for (int f = 0; f < dstFrames; f++) {
+            double pos = (double) f * srcRate / dstRate;
+            int i0 = (int) pos;
+            int i1 = Math.min(i0 + 1, srcFrames - 1);
+            double frac = pos - i0;
+            for (int c = 0; c < CHANNELS; c++) {
+                int sc = Math.min(c, channels - 1);
+                int a = pcm[i0 * channels + sc];
+                int b = pcm[i1 * channels + sc];
+                out[f * CHANNELS + c] = (short) (a + (b - a) * frac);
+            }
+        }
+        return out;
+    }
+
+    // 文件头：magic version 条目数 采样率 精灵密度 图集宽 图集高 图集偏移
+    // 目录：type(byte) 名称长度(byte) 名称(UTF-8) a b c d 数据偏移 数据长度（均为 int）
+    // 数据区按 8 字节对齐，全部为小端序
+    private static void write(File out, List<Entry> entries, int sampleRate, int density,
+                              byte[] atlas, int atlasWidth, int atlasHeight) throws IOException {
+        int directorySize = 0;
+        for (Entry entry : entries) {
+            directorySize += 2 + entry.name.getBytes(StandardCharsets.UTF_8).length + 6 * 4;
+        }
+        int offset = align(HEADER_SIZE + directorySize);
+        int atlasOffset = offset;
+        offset = align(offset + atlas.length);
+        int[] dataOffsets = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            byte[] data = entries.get(i).data;
+            if (data == null) continue;
+            dataOffsets[i] = offset;
+            offset = align(offset + data.length);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(offset).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) entries.size());
+        buffer.putInt(sampleRate).putInt(density);
+        buffer.putInt(atlasWidth).putInt(atlasHeight).putInt(atlasOffset);
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            if (name.length > 255) throw new GradleException("Entry name too long: " + entry.name);
+            buffer.put(entry.type).put((byte) name.length).put(name);
+            buffer.putInt(entry.a).putInt(entry.b).putInt(entry.c).putInt(entry.d);
+            buffer.putInt(dataOffsets[i]).putInt(entry.data != null ? entry.data.length : 0);
+        }
+        buffer.position(atlasOffset);
+        buffer.put(atlas);
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).data == null) continue;
+            buffer.position(dataOffsets[i]);
+            buffer.put(entries.get(i).data);
+        }
+        buffer.clear();
+
+        out.getParentFile().mkdirs();
+        try (RandomAccessFile file = new RandomAccessFile(out, "rw"); FileChannel channel = file.getChannel()) {
+            channel.truncate(0);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
@@ -0,0 +1,171 @@
+package com.muen.hitmouse.build;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// 资源包往返测试：用 pack 打包一个小精灵和一段短音效，再按 AssetPack 的方式解析文件头和目录，
+// 核对精灵矩形、命中区域的每一位和 PCM 帧数
+// 生成的文件必须与 app 单元测试的样本逐字节一致，app 的 AssetPackTest 用 AssetPack.fromBuffer 读取同一个样本，
+// 两端的格式常量一旦不一致，总有一边的测试失败
+public class AssetPackTaskTest {
+    private static final int SPRITE_WIDTH = 70; // 超过 64 像素，命中区域每行两个字
+    private static final int SPRITE_HEIGHT = 4;
+    private static final int CLIP_RATE = 8000;
+    private static final int CLIP_FRAMES = 160;
+    private static final int SAMPLE_RATE = 44100;
+    private static final int DENSITY = 480;
+    private static final int THRESHOLD = 128;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // 精灵的透明度：第一行全透明，左侧 40 列不透明，第二个字里有一个恰好达到阈值和一个差一点的像素
+    static int alpha(int x, int y) {
+        if (y == 0) return 0;
+        if (x < 40) return 255;
+        if (x == 66) return THRESHOLD;
+        if (x == 67) return THRESHOLD - 1;
+        return 0;
+    }
+
+    // 单声道 8kHz 的锯齿波，重采样后整数位置的帧与原样本相同
+    static short sample(int frame) {
+        return (short) (frame * 40 - 16000);
+    }
+
+    private File writeSprite() throws IOException {
+        BufferedImage image = new BufferedImage(SPRITE_WIDTH, SPRITE_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < SPRITE_HEIGHT; y++) {
+            for (int x = 0; x < SPRITE_WIDTH; x++) {
+                image.setRGB(x, y, alpha(x, y) << 24 | 0xFF0000 | (y * 20) << 8 | 0x40);
+            }
+        }
+        File file = new File(folder.getRoot(), "mole.png");
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+    private File writeClip() throws IOException {
+        ByteBuffer pcm = ByteBuffer.allocate(CLIP_FRAMES * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < CLIP_FRAMES; i++) {
+            pcm.putShort(sample(i));
+        }
+        AudioFormat format = new AudioFormat(CLIP_RATE, 16, 1, true, false);
+        File file = new File(folder.getRoot(), "kick.wav");
+        try (AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(pcm.array()), format, CLIP_FRAMES)) {
+            AudioSystem.write(in, AudioFileFormat.Type.WAVE, file);
+        }
+        return file;
+    }
+
+    // 打包测试用的精灵和音效，返回生成的文件内容
+    private byte[] packFixture() throws IOException {
+        File out = new File(folder.getRoot(), "out/" + AssetPackTask.FILE_NAME);
+        AssetPackTask.pack(Collections.singletonList(writeSprite()), Collections.emptyList(),
+                Collections.singletonList(writeClip()), SAMPLE_RATE, DENSITY, THRESHOLD, out);
+        return Files.readAllBytes(out.toPath());
+    }
+
+    // 按 AssetPack 的方式解析目录：键为 "类型:名称"，值为 a b c d 数据偏移 数据长度
+    private static Map<String, int[]> readDirectory(ByteBuffer map) {
+        Map<String, int[]> entries = new HashMap<>();
+        int count = map.getShort(6) & 0xFFFF;
+        ByteBuffer directory = map.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        directory.position(28);
+        for (int i = 0; i < count; i++) {
+            byte type = directory.get();
+            byte[] name = new byte[directory.get() & 0xFF];
+            directory.get(name);
+            int[] values = new int[6];
+            for (int v = 0; v < values.length; v++) {
+                values[v] = directory.getInt();
+            }
+            entries.put(type + ":" + new String(name, StandardCharsets.UTF_8), values);
+        }
+        return entries;
+    }
+
+    @Test
+    public void packedSpriteAndClipReadBack() throws IOException {
+        ByteBuffer map = ByteBuffer.wrap(packFixture()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0x484D4150, map.getInt(0));
+        assertEquals(1, map.getShort(4));
+        assertEquals(SAMPLE_RATE, map.getInt(8));
+        assertEquals(DENSITY, map.getInt(12));
+        int atlasWidth = map.getInt(16);
+        int atlasOffset = map.getInt(24);
+        assertEquals(SPRITE_HEIGHT + 1, map.getInt(20)); // 一行精灵加间隔
+        assertEquals(0, atlasOffset % 8);
+
+        Map<String, int[]> entries = readDirectory(map);
+        assertEquals(3, entries.size());
+
+        // 精灵矩形，像素在图集中预乘了透明度
+        int[] sprite = entries.get("1:mole");
+        assertArrayEquals(new int[]{0, 0, SPRITE_WIDTH, SPRITE_HEIGHT}, Arrays.copyOf(sprite, 4));
+        int pixel = atlasOffset + ((sprite[1] + 3) * atlasWidth + sprite[0] + 66) * 4;
+        assertEquals((255 * THRESHOLD + 127) / 255, map.get(pixel) & 0xFF);
+        assertEquals(THRESHOLD, map.get(pixel + 3) & 0xFF);
+
+        // 命中区域：源尺寸，每行按 64 位对齐
+        int[] mask = entries.get("2:mole");
+        assertEquals(SPRITE_WIDTH, mask[0]);
+        assertEquals(SPRITE_HEIGHT, mask[1]);
+        assertEquals(0, mask[4] % 8);
+        assertEquals(2 * SPRITE_HEIGHT * 8, mask[5]);
+        for (int y = 0; y < SPRITE_HEIGHT; y++) {
+            for (int x = 0; x < SPRITE_WIDTH; x++) {
+                long word = map.getLong(mask[4] + (y * 2 + (x >>> 6)) * 8);
+                assertEquals("mask bit " + x + "," + y, alpha(x, y) >= THRESHOLD, (word & (1L << (x & 63))) != 0);
+            }
+        }
+
+        // 音效：立体声，帧数按采样率换算
+        int[] clip = entries.get("3:kick");
+        int frames = CLIP_FRAMES * SAMPLE_RATE / CLIP_RATE;
+        assertEquals(2, clip[0]);
+        assertEquals(frames, clip[1]);
+        assertEquals(frames * 2 * 2, clip[5]);
+        assertEquals(sample(0), map.getShort(clip[4]));
+        assertEquals(sample(0), map.getShort(clip[4] + 2)); // 单声道复制到两个声道
+        int frame = 441; // 对应原始第 80 帧
+        assertEquals(sample(80), map.getShort(clip[4] + frame * 4));
+        assertEquals(sample(80), map.getShort(clip[4] + frame * 4 + 2));
+        assertTrue(clip[4] + clip[5] <= map.capacity());
+    }
+
+    // 样本文件由本测试生成；格式有意改变时，先同步 AssetPack，再用 -Dassetpack.updateFixture=true 重新生成
+    @Test
+    public void packMatchesAppFixture() throws IOException {
+        File fixture = new File(System.getProperty("assetpack.fixture", "../app/src/test/resources/asset_pack_fixture.pack"));
+        byte[] packed = packFixture();
+        if (Boolean.getBoolean("assetpack.updateFixture")) {
+            Files.write(fixture.toPath(), packed);
+        }
+        assertTrue("missing " + fixture, fixture.isFile());
+        assertArrayEquals("asset pack layout changed, update AssetPack and the fixture together",
+                Files.readAllBytes(fixture.toPath()), packed);
+    }
+}